@@ -0,0 +1,362 @@
+package de.hindenbug.sudoku.cli;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.solving.BacktrackingEngine;
+import de.hindenbug.sudoku.solving.CandidateRemovalStrategy;
+import de.hindenbug.sudoku.solving.ExamineStrategy;
+import de.hindenbug.sudoku.solving.LastManStandingStrategy;
+import de.hindenbug.sudoku.solving.NakedOneStrategy;
+import de.hindenbug.sudoku.solving.SatEngine;
+import de.hindenbug.sudoku.solving.SearchEngine;
+import de.hindenbug.sudoku.solving.SolveResult;
+import de.hindenbug.sudoku.solving.Solver;
+import de.hindenbug.sudoku.solving.StrategyPolicy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+/**
+ * The <code>BatchSolver</code> is the command line entry point of this project. It reads one sudoku per line in the
+ * format of {@link Grid#parse(CharSequence)} from files or the standard input and writes one line per sudoku: the
+ * solution, or the sudoku followed by a tab and the status if it was not solved. Throughput and latency percentiles
+ * are printed to the standard error at the end.
+ * <pre>
+ * java -jar sudoku.jar [-e backtracking|sat] [-s naked,examine,lastman] [-a] [-t threads] [-o file] [file...]
+ * </pre>
+ * The option <code>-a</code> orders the strategies {@linkplain StrategyPolicy#ADAPTIVE adaptively} instead of
+ * running them in the given order. With <code>-l [address:]port</code> the process becomes a {@link Worker}
+ * listening on the port of the loopback address or of the given address, with <code>-w host:port,...</code> the
+ * sudokus are solved by these workers, see {@link Coordinator}. The option <code>-W</code> sets the count of shards
+ * in flight per solver thread of a worker, <code>-T</code> the time in milliseconds in which a worker must answer or
+ * send a heartbeat. With <code>-c</code> the input contains solved sudokus that are checked instead of solved, as
+ * text lines or with <code>-b</code> as binary records, see {@link BulkVerifier}.
+ * <p>
+ * The input is read in chunks, that are solved in parallel and written in the order of the input by a
+ * {@link ChunkPipeline}.
+ */
+public class BatchSolver
+{
+    private static final int CHUNK_SIZE = 512;
+    private static final String MALFORMED = "MALFORMED";
+
+    private final Supplier<Solver> solverFactory;
+    private final int threadCount;
+
+    /**
+     * @param solverFactory creates the solver of each worker thread, as solvers with strategies are not thread safe
+     * @param threadCount   count of worker threads
+     */
+    public BatchSolver(Supplier<Solver> solverFactory, int threadCount)
+    {
+        if (threadCount < 1)
+            throw new IllegalArgumentException("thread count must be positive");
+        this.solverFactory = solverFactory;
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Solves all sudokus of target input and writes the results to target output. The output is flushed but not
+     * closed.
+     *
+     * @return the latencies of all sudokus
+     */
+    public LatencyStats run(Reader input, Writer output) throws IOException
+    {
+        ThreadLocal<Solver> solvers = ThreadLocal.withInitial(solverFactory);
+        return new ChunkPipeline(threadCount, "solver").runLines(input, CHUNK_SIZE,
+                lines -> solve(lines, solvers.get()), output);
+    }
+
+    private ChunkPipeline.Chunk solve(List<String> lines, Solver solver)
+    {
+        StringBuilder text = new StringBuilder(lines.size() * 84);
+        long[] nanos = new long[lines.size()];
+        for (int i = 0; i < lines.size(); i++)
+        {
+            String line = lines.get(i);
+            long time = System.nanoTime();
+            SolveResult result;
+            try
+            {
+                result = solver.solve(Grid.parse(line));
+            } catch (IllegalArgumentException e)
+            {
+                result = null;
+            }
+            appendResult(text, line, result);
+            nanos[i] = System.nanoTime() - time;
+        }
+        return new ChunkPipeline.Chunk(text.toString(), nanos);
+    }
+
+    /**
+     * Appends the output line of a sudoku: the solution, or the sudoku followed by a tab and the status.
+     *
+     * @param result result of the sudoku or <code>null</code> if the line is malformed
+     */
+    static void appendResult(StringBuilder text, String line, SolveResult result)
+    {
+        if (result == null)
+            text.append(line.trim()).append('\t').append(MALFORMED);
+        else if (result.isSolved())
+            text.append(result.getSolution().toLine());
+        else
+            text.append(line.trim()).append('\t').append(result.getStatus());
+        text.append('\n');
+    }
+
+    static ThreadFactory daemon(String name)
+    {
+        return runnable ->
+        {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Creates the engine of target name.
+     *
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    static SearchEngine createEngine(String name)
+    {
+        switch (name)
+        {
+            case "backtracking":
+                return new BacktrackingEngine();
+            case "sat":
+                return new SatEngine();
+            default:
+                throw new IllegalArgumentException("unknown engine " + name);
+        }
+    }
+
+    /**
+     * Creates new strategies of a comma separated list of names.
+     *
+     * @throws IllegalArgumentException if a name is unknown
+     */
+    static CandidateRemovalStrategy[] createStrategies(String names)
+    {
+        List<CandidateRemovalStrategy> strategies = new ArrayList<>();
+        for (String name : names.split(","))
+        {
+            switch (name.trim())
+            {
+                case "":
+                    break;
+                case "naked":
+                    strategies.add(new NakedOneStrategy());
+                    break;
+                case "examine":
+                    strategies.add(new ExamineStrategy());
+                    break;
+                case "lastman":
+                    strategies.add(new LastManStandingStrategy());
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown strategy " + name);
+            }
+        }
+        return strategies.toArray(new CandidateRemovalStrategy[strategies.size()]);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        String engineName = "backtracking";
+        String strategyNames = "";
+        StrategyPolicy policy = StrategyPolicy.FIXED;
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        String outputFile = null;
+        InetSocketAddress listenAddress = null;
+        List<InetSocketAddress> workerAddresses = null;
+        int workerWindow = Coordinator.DEFAULT_WINDOW;
+        int workerTimeoutMillis = Coordinator.DEFAULT_TIMEOUT_MILLIS;
+        boolean verify = false;
+        boolean binary = false;
+        List<String> inputFiles = new ArrayList<>();
+        try
+        {
+            for (int i = 0; i < args.length; i++)
+            {
+                switch (args[i])
+                {
+                    case "-e":
+                        engineName = value(args, ++i);
+                        break;
+                    case "-s":
+                        strategyNames = value(args, ++i);
+                        break;
+                    case "-a":
+                        policy = StrategyPolicy.ADAPTIVE;
+                        break;
+                    case "-t":
+                        threadCount = Integer.parseInt(value(args, ++i));
+                        if (threadCount < 1)
+                            throw new IllegalArgumentException("thread count must be positive");
+                        break;
+                    case "-o":
+                        outputFile = value(args, ++i);
+                        break;
+                    case "-l":
+                        listenAddress = Worker.parseListenAddress(value(args, ++i));
+                        break;
+                    case "-w":
+                        workerAddresses = Coordinator.parseAddresses(value(args, ++i));
+                        break;
+                    case "-W":
+                        workerWindow = Integer.parseInt(value(args, ++i));
+                        if (workerWindow < 1)
+                            throw new IllegalArgumentException("window must be positive");
+                        break;
+                    case "-T":
+                        workerTimeoutMillis = Integer.parseInt(value(args, ++i));
+                        if (workerTimeoutMillis < 1)
+                            throw new IllegalArgumentException("timeout must be positive");
+                        break;
+                    case "-c":
+                        verify = true;
+                        break;
+                    case "-b":
+                        verify = true;
+                        binary = true;
+                        break;
+                    case "-h":
+                        usage();
+                        return;
+                    default:
+                        inputFiles.add(args[i]);
+                }
+            }
+            // fail before any input is read
+            createEngine(engineName);
+            createStrategies(strategyNames);
+        } catch (IllegalArgumentException e)
+        {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(2);
+            return;
+        }
+
+        String engine = engineName;
+        String strategies = strategyNames;
+        StrategyPolicy strategyPolicy = policy;
+        Supplier<Solver> solverFactory = () ->
+        {
+            Solver solver = new Solver(createEngine(engine), createStrategies(strategies));
+            solver.setStrategyPolicy(strategyPolicy);
+            return solver;
+        };
+        if (listenAddress != null)
+        {
+            try (Worker worker = new Worker(solverFactory, threadCount))
+            {
+                worker.serve(new ServerSocket(listenAddress.getPort(), 50, listenAddress.getAddress()));
+            }
+            return;
+        }
+        if (verify)
+        {
+            verify(new BulkVerifier(threadCount), binary, inputFiles, outputFile);
+            return;
+        }
+        Runner batchSolver = workerAddresses == null
+                             ? new BatchSolver(solverFactory, threadCount)::run
+                             : new Coordinator(workerAddresses, workerWindow, workerTimeoutMillis)::run;
+
+        long time = System.nanoTime();
+        LatencyStats stats = new LatencyStats();
+        try (Writer output = outputFile == null
+                             ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)
+                             : Files.newBufferedWriter(Paths.get(outputFile), StandardCharsets.UTF_8))
+        {
+            if (inputFiles.isEmpty() || inputFiles.equals(Collections.singletonList("-")))
+            {
+                stats = batchSolver.run(new InputStreamReader(System.in, StandardCharsets.UTF_8), output);
+            } else
+            {
+                for (String file : inputFiles)
+                {
+                    try (Reader input = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8))
+                    {
+                        stats.addAll(batchSolver.run(input, output));
+                    }
+                }
+            }
+        }
+        System.err.println(stats.toSummary(System.nanoTime() - time));
+    }
+
+    /**
+     * Verifies the solutions of the input files or the standard input and prints the latencies.
+     */
+    private static void verify(BulkVerifier verifier, boolean binary, List<String> inputFiles, String outputFile)
+            throws IOException
+    {
+        if (inputFiles.isEmpty())
+            inputFiles = Collections.singletonList("-");
+        long time = System.nanoTime();
+        LatencyStats stats = new LatencyStats();
+        try (Writer output = outputFile == null
+                             ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)
+                             : Files.newBufferedWriter(Paths.get(outputFile), StandardCharsets.UTF_8))
+        {
+            for (String file : inputFiles)
+            {
+                try (InputStream input = file.equals("-")
+                                         ? new BufferedInputStream(System.in, 1 << 16)
+                                         : new BufferedInputStream(Files.newInputStream(Paths.get(file)), 1 << 16))
+                {
+                    stats.addAll(binary
+                                 ? verifier.verify(input, output)
+                                 : verifier.verify(new InputStreamReader(input, StandardCharsets.UTF_8), output));
+                }
+            }
+        }
+        System.err.println(stats.toSummary(System.nanoTime() - time));
+    }
+
+    /**
+     * Solves the sudokus of an input either in this process or on workers.
+     */
+    private interface Runner
+    {
+        LatencyStats run(Reader input, Writer output) throws IOException;
+    }
+
+    private static String value(String[] args, int index)
+    {
+        if (index >= args.length)
+            throw new IllegalArgumentException("missing value of " + args[index - 1]);
+        return args[index];
+    }
+
+    private static void usage()
+    {
+        System.err.println("usage: java -jar sudoku.jar [-e backtracking|sat] [-s naked,examine,lastman] [-a] "
+                + "[-t threads] [-o file] [file...]");
+        System.err.println("       java -jar sudoku.jar -l [address:]port [-e backtracking|sat] "
+                + "[-s naked,examine,lastman] [-a] [-t threads]");
+        System.err.println("       java -jar sudoku.jar -w host:port,... [-W shards] [-T millis] [-o file] [file...]");
+        System.err.println("       java -jar sudoku.jar -c|-b [-t threads] [-o file] [file...]");
+    }
+}
@@ -0,0 +1,264 @@
+package de.hindenbug.sudoku.cli;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
+import de.hindenbug.sudoku.solving.SolutionVerifier;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * The <code>BulkVerifier</code> checks large files of solved sudokus with a {@link SolutionVerifier}. Every record
+ * is a puzzle and its solution, either as one text line with both grids in the format of
+ * {@link Grid#parse(CharSequence)} separated by whitespace, <code>,</code> or <code>;</code>, or as binary record of
+ * the size followed by the fields of the puzzle and the fields of the solution, one byte each.
+ * <p>
+ * One line is written per record: <code>VALID</code>, or the {@linkplain SolutionVerifier.Status status} followed
+ * by a tab and the field or unit of the error, or <code>MALFORMED</code> if the record can not be read as two grids.
+ * The records are verified in chunks on several threads by a {@link ChunkPipeline} like the sudokus of the
+ * {@link BatchSolver}, and the output keeps the order of the records. The grids are parsed straight into reused byte
+ * arrays, so verifying a record does not create objects besides its output line.
+ */
+public class BulkVerifier
+{
+    private static final int CHUNK_SIZE = 4096;
+    /*
+    binary chunks are bounded by bytes, as a record of a large grid is much longer than a classic one
+     */
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final String MALFORMED = "MALFORMED";
+
+    private final ChunkPipeline pipeline;
+
+    /**
+     * @param threadCount count of worker threads
+     */
+    public BulkVerifier(int threadCount)
+    {
+        this.pipeline = new ChunkPipeline(threadCount, "verifier");
+    }
+
+    /**
+     * Verifies all text records of target input and writes the results to target output. The output is flushed but
+     * not closed.
+     *
+     * @return the latencies of all records
+     */
+    public LatencyStats verify(Reader input, Writer output) throws IOException
+    {
+        return pipeline.runLines(input, CHUNK_SIZE, BulkVerifier::verifyLines, output);
+    }
+
+    /**
+     * Verifies all binary records of target input and writes the results to target output. The output is flushed
+     * but not closed.
+     *
+     * @return the latencies of all records
+     * @throws IOException if the input ends inside a record
+     */
+    public LatencyStats verify(InputStream input, Writer output) throws IOException
+    {
+        return pipeline.run(chunks ->
+        {
+            DataInputStream in = new DataInputStream(input);
+            byte[] records = null;
+            int size = 0;
+            int count = 0;
+            int capacity = 0;
+            int index = 0;
+            int first;
+            while ((first = in.read()) >= 0)
+            {
+                if (records != null && (first != size || count == capacity))
+                {
+                    submitRecords(chunks, size, records, count);
+                    records = null;
+                }
+                if (records == null)
+                {
+                    if (first < 1 || first > Grid.MAX_SIZE)
+                        throw new IOException("record " + index + " has size " + first);
+                    size = first;
+                    count = 0;
+                    capacity = Math.max(1, CHUNK_BYTES / (2 * size * size));
+                    records = new byte[capacity * 2 * size * size];
+                }
+                try
+                {
+                    in.readFully(records, count * 2 * size * size, 2 * size * size);
+                } catch (EOFException e)
+                {
+                    throw new IOException("input ends inside record " + index, e);
+                }
+                count++;
+                index++;
+            }
+            if (records != null)
+                submitRecords(chunks, size, records, count);
+        }, output);
+    }
+
+    private static void submitRecords(ChunkPipeline.Chunks chunks, int size, byte[] records, int count)
+            throws InterruptedException, ExecutionException
+    {
+        chunks.submit(() -> verifyRecords(size, records, count));
+    }
+
+    private static ChunkPipeline.Chunk verifyLines(List<String> lines)
+    {
+        StringBuilder text = new StringBuilder(lines.size() * 8);
+        long[] nanos = new long[lines.size()];
+        Records records = new Records();
+        for (int i = 0; i < lines.size(); i++)
+        {
+            long time = System.nanoTime();
+            SolutionVerifier.Status status = records.verify(lines.get(i));
+            if (status == null)
+                text.append(MALFORMED).append('\n');
+            else
+                appendStatus(text, status, records.verifier.getPosition());
+            nanos[i] = System.nanoTime() - time;
+        }
+        return new ChunkPipeline.Chunk(text.toString(), nanos);
+    }
+
+    private static ChunkPipeline.Chunk verifyRecords(int size, byte[] records, int count)
+    {
+        StringBuilder text = new StringBuilder(count * 8);
+        long[] nanos = new long[count];
+        int cellCount = size * size;
+        SolutionVerifier verifier;
+        try
+        {
+            verifier = new SolutionVerifier(Layout.classic(size));
+        } catch (IllegalArgumentException e)
+        {
+            verifier = null;
+        }
+        for (int i = 0; i < count; i++)
+        {
+            long time = System.nanoTime();
+            if (verifier == null)
+            {
+                text.append(MALFORMED).append('\n');
+            } else
+            {
+                SolutionVerifier.Status status = verifier.verify(records, 2 * i * cellCount, records,
+                        (2 * i + 1) * cellCount);
+                appendStatus(text, status, verifier.getPosition());
+            }
+            nanos[i] = System.nanoTime() - time;
+        }
+        return new ChunkPipeline.Chunk(text.toString(), nanos);
+    }
+
+    /**
+     * Appends the output line of a verified record: the status and the field or unit of an error.
+     */
+    private static void appendStatus(StringBuilder text, SolutionVerifier.Status status, int position)
+    {
+        text.append(status);
+        switch (status)
+        {
+            case VALID:
+                break;
+            case INCOMPLETE:
+            case GIVEN_CHANGED:
+                text.append("\tfield ").append(position);
+                break;
+            default:
+                text.append("\tunit ").append(position);
+        }
+        text.append('\n');
+    }
+
+    /**
+     * Parses text records into reused arrays and keeps a verifier per size of the last records.
+     */
+    private static final class Records
+    {
+        private byte[] puzzle = new byte[0];
+        private byte[] solution = new byte[0];
+        private SolutionVerifier verifier;
+
+        /**
+         * Parses and verifies target line.
+         *
+         * @return the status or <code>null</code> if the line does not contain two grids of the same valid size
+         */
+        private SolutionVerifier.Status verify(String line)
+        {
+            int start = skipSeparators(line, 0);
+            int middle = skipGrid(line, start);
+            int second = skipSeparators(line, middle);
+            int end = skipGrid(line, second);
+            if (skipSeparators(line, end) != line.length())
+                return null;
+
+            int cellCount = middle - start;
+            int size = (int) Math.sqrt(cellCount);
+            if (cellCount == 0 || size * size != cellCount || end - second != cellCount)
+                return null;
+            if (verifier == null || verifier.getLayout().size() != size)
+            {
+                try
+                {
+                    verifier = new SolutionVerifier(Layout.classic(size));
+                } catch (IllegalArgumentException e)
+                {
+                    return null;
+                }
+                puzzle = new byte[cellCount];
+                solution = new byte[cellCount];
+            }
+            if (!read(line, start, puzzle) || !read(line, second, solution))
+                return null;
+            return verifier.verify(puzzle, 0, solution, 0);
+        }
+
+        /**
+         * Reads the fields starting at target index into target array, with 0 for empty fields.
+         *
+         * @return <code>false</code> if a character is no number
+         */
+        private static boolean read(String line, int start, byte[] cells)
+        {
+            for (int i = 0; i < cells.length; i++)
+            {
+                char c = line.charAt(start + i);
+                int number = c == '.'
+                             ? 0
+                             : Character.digit(c, Character.MAX_RADIX);
+                if (number < 0)
+                    return false;
+                cells[i] = (byte) number;
+            }
+            return true;
+        }
+
+        private static int skipSeparators(String line, int index)
+        {
+            while (index < line.length() && isSeparator(line.charAt(index)))
+                index++;
+            return index;
+        }
+
+        private static int skipGrid(String line, int index)
+        {
+            while (index < line.length() && !isSeparator(line.charAt(index)))
+                index++;
+            return index;
+        }
+
+        private static boolean isSeparator(char c)
+        {
+            return c == ',' || c == ';' || Character.isWhitespace(c);
+        }
+    }
+}
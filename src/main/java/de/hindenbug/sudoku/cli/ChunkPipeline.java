@@ -0,0 +1,182 @@
+package de.hindenbug.sudoku.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * A <code>ChunkPipeline</code> processes an input in chunks on several threads and writes the output of the chunks
+ * in the order of the input. A reader on the calling thread cuts the input into chunks and submits the work of each
+ * chunk to a pool. A writer thread takes the chunks in the order of the input, so the output keeps the order of the
+ * lines. The count of chunks in flight is bounded, so a slow output slows down the reading instead of filling the
+ * memory.
+ * <p>
+ * The {@link BatchSolver} and the {@link BulkVerifier} only supply how the input is cut and the work of a chunk,
+ * which returns the output text and the latency of each line of the chunk.
+ */
+final class ChunkPipeline
+{
+    private final int threadCount;
+    private final String threadName;
+
+    /**
+     * @param threadCount count of threads doing the work of the chunks
+     * @param threadName  name of these threads
+     */
+    ChunkPipeline(int threadCount, String threadName)
+    {
+        if (threadCount < 1)
+            throw new IllegalArgumentException("thread count must be positive");
+        this.threadCount = threadCount;
+        this.threadName = threadName;
+    }
+
+    /**
+     * Cuts target input into chunks of non empty lines, does target work for each chunk and writes the chunks to
+     * target output. The output is flushed but not closed.
+     *
+     * @return the latencies of all lines
+     */
+    LatencyStats runLines(Reader input, int chunkSize, Function<List<String>, Chunk> work, Writer output)
+            throws IOException
+    {
+        return run(chunks ->
+        {
+            BufferedReader reader = new BufferedReader(input);
+            List<String> lines = new ArrayList<>(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                if (line.trim().isEmpty())
+                    continue;
+                lines.add(line);
+                if (lines.size() == chunkSize)
+                {
+                    List<String> chunk = lines;
+                    chunks.submit(() -> work.apply(chunk));
+                    lines = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!lines.isEmpty())
+            {
+                List<String> chunk = lines;
+                chunks.submit(() -> work.apply(chunk));
+            }
+        }, output);
+    }
+
+    /**
+     * Runs target reader on this thread, does the work of its chunks on the pool and writes them in order on a
+     * writer thread. The output is flushed but not closed.
+     *
+     * @return the latencies of all lines
+     * @throws IOException if the reader or the output fails
+     */
+    LatencyStats run(ChunkReader reader, Writer output) throws IOException
+    {
+        ExecutorService workers = Executors.newFixedThreadPool(threadCount, BatchSolver.daemon(threadName));
+        ExecutorService writer = Executors.newSingleThreadExecutor(BatchSolver.daemon("writer"));
+
+        BlockingQueue<Future<Chunk>> chunks = new ArrayBlockingQueue<>(4 * threadCount);
+        LatencyStats stats = new LatencyStats();
+        Future<?> written = writer.submit(() -> write(chunks, output, stats));
+        try
+        {
+            reader.read(task -> offer(chunks, workers.submit(task), written));
+            offer(chunks, CompletableFuture.completedFuture(Chunk.END), written);
+            written.get();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted", e);
+        } catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof UncheckedIOException)
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally
+        {
+            workers.shutdownNow();
+            writer.shutdownNow();
+        }
+        return stats;
+    }
+
+    /**
+     * Adds target chunk to the chunks in flight. If the writer fails, the failure is thrown instead of waiting for
+     * free space forever.
+     */
+    private static void offer(BlockingQueue<Future<Chunk>> chunks, Future<Chunk> chunk, Future<?> written)
+            throws InterruptedException, ExecutionException
+    {
+        while (!chunks.offer(chunk, 100, TimeUnit.MILLISECONDS))
+        {
+            if (written.isDone())
+                written.get();
+        }
+    }
+
+    private static Void write(BlockingQueue<Future<Chunk>> chunks, Writer output, LatencyStats stats)
+            throws Exception
+    {
+        try
+        {
+            Chunk chunk;
+            while ((chunk = chunks.take().get()) != Chunk.END)
+            {
+                output.write(chunk.text);
+                for (long nanos : chunk.nanos)
+                    stats.add(nanos);
+            }
+            output.flush();
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return null;
+    }
+
+    /**
+     * Reads an input and submits it chunk by chunk.
+     */
+    interface ChunkReader
+    {
+        void read(Chunks chunks) throws IOException, InterruptedException, ExecutionException;
+    }
+
+    interface Chunks
+    {
+        void submit(Callable<Chunk> chunk) throws InterruptedException, ExecutionException;
+    }
+
+    /**
+     * The output lines and latencies of the lines of a chunk.
+     */
+    static final class Chunk
+    {
+        private static final Chunk END = new Chunk("", new long[0]);
+
+        private final String text;
+        private final long[] nanos;
+
+        Chunk(String text, long[] nanos)
+        {
+            this.text = text;
+            this.nanos = nanos;
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package de.hindenbug.sudoku.cli;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.solving.SolveResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The <code>Coordinator</code> distributes the sudokus of an input over several {@link Worker} processes. The input is
+ * cut into shards of consecutive lines, that are sent to the workers as binary frames of packed numbers. Each worker
+ * has a bounded window of shards in flight, that grows with the count of solver threads the worker tells in its
+ * hello, so a fast worker gets more shards than a slow one. The output is the same as the one of the
+ * {@link BatchSolver}, in the order of the input.
+ * <p>
+ * The workers send heartbeats while they solve, so a shard may take longer than the timeout. A worker that closes its
+ * connection or sends neither an answer nor a heartbeat within the timeout is given up, the shards in flight on it
+ * are sent to the other workers again. The run fails only if no worker is left.
+ * <pre>
+ * java -jar sudoku.jar -w host:port,host:port [-W shards] [-T millis] [-o file] [file...]
+ * </pre>
+ */
+public class Coordinator
+{
+    private static final Logger LOG = LoggerFactory.getLogger(Coordinator.class);
+
+    /**
+     * count of shards in flight per solver thread of a worker, if not given
+     */
+    static final int DEFAULT_WINDOW = 2;
+    /**
+     * time in which a worker must answer or send a heartbeat, if not given
+     */
+    static final int DEFAULT_TIMEOUT_MILLIS = 10_000;
+
+    private static final int SHARD_SIZE = 512;
+    private static final long POLL_MILLIS = 100;
+    /*
+    count of heartbeats a worker sends within the timeout, so a late one
+    is not mistaken for a dead worker
+     */
+    private static final int HEARTBEATS_PER_TIMEOUT = 4;
+    /*
+    largest count of solver threads of a worker, that sizes its window
+     */
+    private static final int MAX_WORKER_THREADS = 1024;
+
+    private final List<InetSocketAddress> workers;
+    private final int window;
+    private final int timeoutMillis;
+
+    /**
+     * @param workers       addresses of the workers
+     * @param window        count of shards that may be in flight on one worker per solver thread of the worker
+     * @param timeoutMillis time in which a worker must send an answer or a heartbeat
+     */
+    public Coordinator(List<InetSocketAddress> workers, int window, int timeoutMillis)
+    {
+        if (workers.isEmpty())
+            throw new IllegalArgumentException("no workers");
+        if (window < 1)
+            throw new IllegalArgumentException("window must be positive");
+        if (timeoutMillis < 1)
+            throw new IllegalArgumentException("timeout must be positive");
+        this.workers = new ArrayList<>(workers);
+        this.window = window;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Parses a comma separated list of <code>host:port</code> addresses.
+     *
+     * @throws IllegalArgumentException if an address is malformed
+     */
+    static List<InetSocketAddress> parseAddresses(String addresses)
+    {
+        List<InetSocketAddress> result = new ArrayList<>();
+        for (String address : addresses.split(","))
+        {
+            int colon = address.lastIndexOf(':');
+            if (colon <= 0)
+                throw new IllegalArgumentException("address " + address + " is not host:port");
+            try
+            {
+                result.add(InetSocketAddress.createUnresolved(address.substring(0, colon).trim(),
+                        Integer.parseInt(address.substring(colon + 1).trim())));
+            } catch (IllegalArgumentException e)
+            {
+                throw new IllegalArgumentException("address " + address + " is not host:port", e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Solves all sudokus of target input on the workers and writes the results to target output. The output is
+     * flushed but not closed. The latency of a sudoku is its solving time on the worker.
+     *
+     * @return the latencies of all sudokus
+     * @throws IOException if the input can not be read, the output can not be written or all workers failed
+     */
+    public LatencyStats run(Reader input, Writer output) throws IOException
+    {
+        BlockingDeque<Shard> pending = new LinkedBlockingDeque<>();
+        AtomicInteger alive = new AtomicInteger();
+        List<Connection> connections = new ArrayList<>();
+        int capacity = 0;
+        for (InetSocketAddress address : workers)
+        {
+            try
+            {
+                Connection connection = new Connection(address, pending, alive);
+                connections.add(connection);
+                capacity += connection.capacity;
+            } catch (IOException e)
+            {
+                LOG.warn("could not connect to worker {}", address, e);
+            }
+        }
+        if (connections.isEmpty())
+            throw new IOException("could not connect to any worker");
+        BlockingQueue<Shard> ordered = new ArrayBlockingQueue<>(2 * capacity);
+
+        CompletableFuture<Void> read = new CompletableFuture<>();
+        Thread reader = new Thread(() -> read(input, ordered, pending, read), "reader");
+        reader.setDaemon(true);
+        reader.start();
+        LatencyStats stats = new LatencyStats();
+        try
+        {
+            Shard shard;
+            while ((shard = take(ordered, read, alive)) != Shard.END)
+            {
+                SolveResult[] results = await(shard, alive);
+                StringBuilder text = new StringBuilder(shard.lines.length * 84);
+                for (int i = 0, solved = 0; i < shard.lines.length; i++)
+                {
+                    SolveResult result = shard.puzzles[i] == null
+                                         ? null
+                                         : results[solved++];
+                    BatchSolver.appendResult(text, shard.lines[i], result);
+                    stats.add(shard.nanos[i] + (result == null
+                                                ? 0
+                                                : result.getNanos()));
+                }
+                output.write(text.toString());
+            }
+            output.flush();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted", e);
+        } finally
+        {
+            reader.interrupt();
+            for (Connection connection : connections)
+                connection.close();
+        }
+        return stats;
+    }
+
+    private static Shard take(BlockingQueue<Shard> ordered, CompletableFuture<Void> read, AtomicInteger alive)
+            throws IOException, InterruptedException
+    {
+        Shard shard;
+        while ((shard = ordered.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null)
+        {
+            if (read.isCompletedExceptionally())
+                await(read);
+            if (alive.get() == 0)
+                throw new IOException("all workers failed");
+        }
+        return shard;
+    }
+
+    private static SolveResult[] await(Shard shard, AtomicInteger alive) throws IOException, InterruptedException
+    {
+        while (true)
+        {
+            try
+            {
+                return shard.results.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e)
+            {
+                if (alive.get() == 0)
+                    throw new IOException("all workers failed");
+            } catch (ExecutionException e)
+            {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    private static void await(CompletableFuture<Void> read) throws IOException, InterruptedException
+    {
+        try
+        {
+            read.get();
+        } catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Cuts the input into shards. Malformed lines are answered without a worker.
+     */
+    private static void read(Reader input, BlockingQueue<Shard> ordered, BlockingDeque<Shard> pending,
+                             CompletableFuture<Void> read)
+    {
+        try
+        {
+            BufferedReader reader = new BufferedReader(input);
+            List<String> lines = new ArrayList<>(SHARD_SIZE);
+            int id = 0;
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                if (line.trim().isEmpty())
+                    continue;
+                lines.add(line);
+                if (lines.size() == SHARD_SIZE)
+                {
+                    submit(new Shard(id++, lines), ordered, pending);
+                    lines = new ArrayList<>(SHARD_SIZE);
+                }
+            }
+            if (!lines.isEmpty())
+                submit(new Shard(id, lines), ordered, pending);
+            ordered.put(Shard.END);
+            read.complete(null);
+        } catch (IOException e)
+        {
+            read.completeExceptionally(e);
+        } catch (InterruptedException e)
+        {
+            read.completeExceptionally(e);
+        }
+    }
+
+    private static void submit(Shard shard, BlockingQueue<Shard> ordered, BlockingDeque<Shard> pending)
+            throws InterruptedException
+    {
+        ordered.put(shard);
+        if (shard.sent.isEmpty())
+            shard.results.complete(new SolveResult[0]);
+        else
+            pending.add(shard);
+    }
+
+    /**
+     * Consecutive lines of the input.
+     */
+    private static final class Shard
+    {
+        private static final Shard END = new Shard(-1, new ArrayList<>());
+
+        private final int id;
+        private final String[] lines;
+        /**
+         * puzzle of each line, <code>null</code> if the line is malformed
+         */
+        private final Grid[] puzzles;
+        /**
+         * nanoseconds spent to parse each line
+         */
+        private final long[] nanos;
+        private final List<Grid> sent;
+        private final CompletableFuture<SolveResult[]> results = new CompletableFuture<>();
+
+        private Shard(int id, List<String> lines)
+        {
+            this.id = id;
+            this.lines = lines.toArray(new String[lines.size()]);
+            this.puzzles = new Grid[lines.size()];
+            this.nanos = new long[lines.size()];
+            this.sent = new ArrayList<>(lines.size());
+            for (int i = 0; i < puzzles.length; i++)
+            {
+                long time = System.nanoTime();
+                try
+                {
+                    puzzles[i] = Grid.parse(this.lines[i]);
+                    sent.add(puzzles[i]);
+                } catch (IllegalArgumentException e)
+                {
+                    puzzles[i] = null;
+                }
+                nanos[i] = System.nanoTime() - time;
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return "shard " + id;
+        }
+    }
+
+    /**
+     * The connection to one worker, with a thread that sends the pending shards and one that receives the results and
+     * heartbeats.
+     */
+    private final class Connection
+    {
+        private final InetSocketAddress address;
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+        private final BlockingDeque<Shard> pending;
+        private final AtomicInteger alive;
+        /**
+         * count of shards that may be in flight on the worker
+         */
+        private final int capacity;
+        private final Semaphore free;
+        private final Map<Integer, Shard> inFlight = new ConcurrentHashMap<>();
+        private final AtomicBoolean failed = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Connection(InetSocketAddress address, BlockingDeque<Shard> pending, AtomicInteger alive)
+                throws IOException
+        {
+            this.address = address.isUnresolved()
+                           ? new InetSocketAddress(address.getHostString(), address.getPort())
+                           : address;
+            this.pending = pending;
+            this.alive = alive;
+            this.socket = new Socket();
+            try
+            {
+                socket.connect(this.address, timeoutMillis);
+                socket.setSoTimeout(timeoutMillis);
+                socket.setTcpNoDelay(true);
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+                ShardCodec.writeHello(out, Math.max(1, timeoutMillis / HEARTBEATS_PER_TIMEOUT));
+                capacity = window * Math.min(ShardCodec.readHello(in), MAX_WORKER_THREADS);
+                free = new Semaphore(capacity);
+            } catch (IOException e)
+            {
+                socket.close();
+                throw e;
+            }
+            alive.incrementAndGet();
+            start(this::send, "sender " + address);
+            start(this::receive, "receiver " + address);
+        }
+
+        private void start(Runnable task, String name)
+        {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void send()
+        {
+            try
+            {
+                while (!failed.get() && !closed)
+                {
+                    if (!free.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS))
+                        continue;
+                    Shard shard = pending.pollFirst(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (shard == null)
+                    {
+                        free.release();
+                        continue;
+                    }
+                    inFlight.put(shard.id, shard);
+                    if (failed.get())
+                    {
+                        // the failure may have requeued the shards before this one was added
+                        requeue();
+                        return;
+                    }
+                    synchronized (out)
+                    {
+                        ShardCodec.writeRequest(out, shard.id, shard.sent);
+                    }
+                }
+            } catch (IOException e)
+            {
+                fail(e);
+            } catch (InterruptedException e)
+            {
+                fail(e);
+            }
+        }
+
+        private void receive()
+        {
+            try
+            {
+                while (!closed)
+                {
+                    int id = in.readInt();
+                    if (id == ShardCodec.HEARTBEAT)
+                        continue;
+                    SolveResult[] results = ShardCodec.readResponse(in);
+                    Shard shard = inFlight.remove(id);
+                    if (shard == null || results.length != shard.sent.size())
+                        throw new IOException("unexpected answer for shard " + id);
+                    shard.results.complete(results);
+                    free.release();
+                }
+            } catch (IOException e)
+            {
+                fail(e);
+            }
+        }
+
+        private void fail(Exception cause)
+        {
+            if (closed || !failed.compareAndSet(false, true))
+                return;
+            LOG.warn("worker {} failed, {} shards are sent again", address, inFlight.size(), cause);
+            alive.decrementAndGet();
+            try
+            {
+                socket.close();
+            } catch (IOException e)
+            {
+                LOG.debug("could not close connection to {}", address, e);
+            }
+            requeue();
+        }
+
+        private void requeue()
+        {
+            for (Integer id : inFlight.keySet())
+            {
+                Shard shard = inFlight.remove(id);
+                if (shard != null)
+                    pending.addFirst(shard);
+            }
+        }
+
+        /**
+         * Ends the connection, all shards have been answered.
+         */
+        private void close()
+        {
+            closed = true;
+            try
+            {
+                if (!failed.get())
+                {
+                    synchronized (out)
+                    {
+                        ShardCodec.writeEnd(out);
+                    }
+                }
+                socket.close();
+            } catch (IOException e)
+            {
+                LOG.debug("could not close connection to {}", address, e);
+            }
+        }
+    }
+}
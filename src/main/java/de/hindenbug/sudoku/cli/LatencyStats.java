@@ -0,0 +1,85 @@
+package de.hindenbug.sudoku.cli;
+
+import java.util.Arrays;
+
+/**
+ * <code>LatencyStats</code> collects the time spent on each sudoku of a batch and calculates throughput and
+ * percentiles of the latencies. The latencies are kept as raw nanoseconds, so the percentiles are exact. The stats
+ * are not thread safe, they should be filled by a single thread.
+ */
+public class LatencyStats
+{
+    private long[] latencies = new long[1024];
+    private int count;
+    private boolean isSorted = true;
+
+    /**
+     * Adds the latency of a single sudoku.
+     *
+     * @param nanos time spent on the sudoku in nanoseconds
+     */
+    public void add(long nanos)
+    {
+        if (count == latencies.length)
+            latencies = Arrays.copyOf(latencies, count * 2);
+        latencies[count++] = nanos;
+        isSorted = false;
+    }
+
+    /**
+     * Adds all latencies of target stats.
+     */
+    public void addAll(LatencyStats stats)
+    {
+        for (int i = 0; i < stats.count; i++)
+            add(stats.latencies[i]);
+    }
+
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the latency that target share of all latencies does not exceed.
+     *
+     * @param percentile share between 0 and 100
+     * @return the latency in nanoseconds or 0 if no latency was added
+     */
+    public long getPercentile(double percentile)
+    {
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("percentile " + percentile + " outside of range 0 - 100");
+        if (count == 0)
+            return 0;
+        if (!isSorted)
+        {
+            Arrays.sort(latencies, 0, count);
+            isSorted = true;
+        }
+        int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return latencies[Math.max(0, index)];
+    }
+
+    /**
+     * Returns a summary of the throughput and the latencies.
+     *
+     * @param elapsedNanos wall clock time of the whole batch
+     */
+    public String toSummary(long elapsedNanos)
+    {
+        double seconds = elapsedNanos / 1e9;
+        return String.format("%d sudokus in %.3f s, %.0f sudokus/s%n"
+                        + "latency p50 %s, p90 %s, p99 %s, p99.9 %s, max %s",
+                count, seconds, seconds > 0
+                                ? count / seconds
+                                : 0.0,
+                fmtMicros(getPercentile(50)), fmtMicros(getPercentile(90)), fmtMicros(getPercentile(99)),
+                fmtMicros(getPercentile(99.9)), fmtMicros(getPercentile(100)));
+    }
+
+    private String fmtMicros(long nanos)
+    {
+        return String.format("%.1f us", nanos / 1e3);
+    }
+}
@@ -0,0 +1,164 @@
+package de.hindenbug.sudoku.cli;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.solving.SolveResult;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The <code>ShardCodec</code> writes the binary frames between a {@link Coordinator} and its {@link Worker}s. A
+ * request contains the id of the shard and its sudokus as packed numbers, a response contains the id and the status,
+ * the step count, the time and the solution of each sudoku in the order of the request. The id
+ * {@value #END} ends the connection.
+ * <p>
+ * A connection starts with a hello of each side: the coordinator sends the period of the heartbeats, the worker
+ * answers with the count of its solver threads. Then the worker sends a heartbeat, a frame with only the id
+ * {@value #HEARTBEAT}, in this period, so the coordinator knows the worker is alive while it solves long shards.
+ */
+final class ShardCodec
+{
+    static final int END = -1;
+    static final int HEARTBEAT = -2;
+
+    /*
+    first int of a hello, "SDK1"
+     */
+    private static final int HELLO = 0x53444B31;
+
+    private static final SolveResult.Status[] STATUSES = SolveResult.Status.values();
+
+    private ShardCodec()
+    {
+    }
+
+    static void writeRequest(DataOutputStream out, int id, List<Grid> puzzles) throws IOException
+    {
+        out.writeInt(id);
+        out.writeInt(puzzles.size());
+        for (Grid puzzle : puzzles)
+        {
+            out.writeByte(puzzle.size());
+            out.write(puzzle.toBytes());
+        }
+        out.flush();
+    }
+
+    static void writeEnd(DataOutputStream out) throws IOException
+    {
+        out.writeInt(END);
+        out.flush();
+    }
+
+    static void writeHeartbeat(DataOutputStream out) throws IOException
+    {
+        out.writeInt(HEARTBEAT);
+        out.flush();
+    }
+
+    /**
+     * Writes the hello of a connection, the coordinator sends the period of the heartbeats in milliseconds, the
+     * worker the count of its solver threads.
+     */
+    static void writeHello(DataOutputStream out, int value) throws IOException
+    {
+        out.writeInt(HELLO);
+        out.writeInt(value);
+        out.flush();
+    }
+
+    /**
+     * Reads the hello of the other side of a connection.
+     *
+     * @return the positive value of the hello
+     * @throws IOException if the other side does not speak this protocol
+     */
+    static int readHello(DataInputStream in) throws IOException
+    {
+        if (in.readInt() != HELLO)
+            throw new IOException("no hello of a sudoku coordinator or worker");
+        int value = in.readInt();
+        if (value < 1)
+            throw new IOException("invalid hello " + value);
+        return value;
+    }
+
+    /**
+     * Reads the sudokus of a request.
+     *
+     * @return the sudokus or <code>null</code> if the connection ends
+     * @throws IOException if the frame is damaged
+     */
+    static Grid[] readRequest(DataInputStream in, int id) throws IOException
+    {
+        if (id == END)
+            return null;
+        Grid[] puzzles = new Grid[readCount(in)];
+        for (int i = 0; i < puzzles.length; i++)
+            puzzles[i] = readGrid(in);
+        return puzzles;
+    }
+
+    static void writeResponse(DataOutputStream out, int id, SolveResult[] results) throws IOException
+    {
+        out.writeInt(id);
+        out.writeInt(results.length);
+        for (SolveResult result : results)
+        {
+            out.writeByte(result.getStatus().ordinal());
+            out.writeLong(result.getStepCount());
+            out.writeLong(result.getNanos());
+            if (result.isSolved())
+            {
+                out.writeByte(result.getSolution().size());
+                out.write(result.getSolution().toBytes());
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads the results of a response, whose id was already read. The results do not contain the puzzles.
+     */
+    static SolveResult[] readResponse(DataInputStream in) throws IOException
+    {
+        SolveResult[] results = new SolveResult[readCount(in)];
+        for (int i = 0; i < results.length; i++)
+        {
+            int status = in.readUnsignedByte();
+            if (status >= STATUSES.length)
+                throw new IOException("unknown status " + status);
+            long stepCount = in.readLong();
+            long nanos = in.readLong();
+            Grid solution = STATUSES[status] == SolveResult.Status.SOLVED
+                            ? readGrid(in)
+                            : null;
+            results[i] = new SolveResult(STATUSES[status], null, solution, stepCount, nanos);
+        }
+        return results;
+    }
+
+    private static int readCount(DataInputStream in) throws IOException
+    {
+        int count = in.readInt();
+        if (count < 0 || count > 1 << 20)
+            throw new IOException("invalid count " + count);
+        return count;
+    }
+
+    private static Grid readGrid(DataInputStream in) throws IOException
+    {
+        int size = in.readUnsignedByte();
+        byte[] cells = new byte[size * size];
+        in.readFully(cells);
+        try
+        {
+            return Grid.of(size, cells);
+        } catch (IllegalArgumentException e)
+        {
+            throw new IOException("invalid grid", e);
+        }
+    }
+}
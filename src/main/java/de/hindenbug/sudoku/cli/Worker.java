@@ -0,0 +1,229 @@
+package de.hindenbug.sudoku.cli;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.solving.SolveResult;
+import de.hindenbug.sudoku.solving.Solver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A <code>Worker</code> solves the shards that a {@link Coordinator} sends over a socket. Each connection may have
+ * several shards in flight, they are solved in parallel and answered in the order they are done. The coordinator
+ * matches the answers by the id of the shard. The worker tells the coordinator the count of its solver threads and
+ * sends heartbeats in the period the coordinator asks for, also while it solves.
+ * <p>
+ * The protocol has no authentication, anybody who can connect to the worker may use its threads. So the worker
+ * listens on the loopback address, unless an address is given with the port. <code>-l 0.0.0.0:7000</code> listens on
+ * all addresses, which should only be done in a trusted network.
+ * <pre>
+ * java -jar sudoku.jar -l [address:]7000 [-e backtracking|sat] [-s naked,examine,lastman] [-a] [-t threads]
+ * </pre>
+ *
+ * @see ShardCodec
+ */
+public class Worker implements Closeable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(Worker.class);
+
+    private final ExecutorService solvers;
+    private final ScheduledExecutorService heartbeats;
+    private final ThreadLocal<Solver> solver;
+    private final int threadCount;
+    private volatile ServerSocket server;
+
+    /**
+     * @param solverFactory creates the solver of each solver thread, as solvers with strategies are not thread safe
+     * @param threadCount   count of solver threads shared by all connections
+     */
+    public Worker(Supplier<Solver> solverFactory, int threadCount)
+    {
+        if (threadCount < 1)
+            throw new IllegalArgumentException("thread count must be positive");
+        this.solvers = Executors.newFixedThreadPool(threadCount, BatchSolver.daemon("worker"));
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(BatchSolver.daemon("heartbeat"));
+        this.solver = ThreadLocal.withInitial(solverFactory);
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Parses the address a worker listens on, <code>port</code> for the loopback address or <code>host:port</code>.
+     *
+     * @throws IllegalArgumentException if the address is malformed
+     */
+    static InetSocketAddress parseListenAddress(String address)
+    {
+        int colon = address.lastIndexOf(':');
+        InetSocketAddress result;
+        try
+        {
+            result = colon < 0
+                     ? new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address.trim()))
+                     : new InetSocketAddress(address.substring(0, colon).trim(),
+                             Integer.parseInt(address.substring(colon + 1).trim()));
+        } catch (IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("address " + address + " is not [host:]port", e);
+        }
+        // an unresolved host would bind all addresses
+        if (result.isUnresolved())
+            throw new IllegalArgumentException("unknown host in address " + address);
+        return result;
+    }
+
+    /**
+     * Accepts connections of target server socket until the worker is {@linkplain #close() closed}. Every connection
+     * is read by its own thread.
+     */
+    public void serve(ServerSocket serverSocket) throws IOException
+    {
+        this.server = serverSocket;
+        LOG.info("worker listening on {}", serverSocket.getLocalSocketAddress());
+        try
+        {
+            while (!serverSocket.isClosed())
+            {
+                Socket socket = serverSocket.accept();
+                Thread thread = new Thread(() -> handle(socket), "connection " + socket.getRemoteSocketAddress());
+                thread.setDaemon(true);
+                thread.start();
+            }
+        } catch (SocketException e)
+        {
+            if (!serverSocket.isClosed())
+                throw e;
+        }
+    }
+
+    /**
+     * Serves target server socket in a background thread.
+     */
+    public void start(ServerSocket serverSocket)
+    {
+        Thread thread = new Thread(() ->
+        {
+            try
+            {
+                serve(serverSocket);
+            } catch (IOException e)
+            {
+                LOG.error("worker stopped", e);
+            }
+        }, "worker " + serverSocket.getLocalPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void handle(Socket socket)
+    {
+        try (Socket connection = socket)
+        {
+            connection.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream(), 1 << 16));
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(connection.getOutputStream(), 1 << 16));
+            int heartbeatMillis = ShardCodec.readHello(in);
+            ShardCodec.writeHello(out, threadCount);
+            ScheduledFuture<?> heartbeat = heartbeats.scheduleAtFixedRate(() -> heartbeat(out), heartbeatMillis,
+                    heartbeatMillis, TimeUnit.MILLISECONDS);
+            try
+            {
+                Grid[] puzzles;
+                int id;
+                while ((puzzles = ShardCodec.readRequest(in, id = in.readInt())) != null)
+                {
+                    Grid[] shard = puzzles;
+                    int shardId = id;
+                    solvers.execute(() -> solve(out, shardId, shard));
+                }
+            } finally
+            {
+                heartbeat.cancel(false);
+            }
+        } catch (EOFException e)
+        {
+            LOG.debug("coordinator {} disconnected", socket.getRemoteSocketAddress());
+        } catch (IOException e)
+        {
+            LOG.warn("connection to {} failed", socket.getRemoteSocketAddress(), e);
+        }
+    }
+
+    private void heartbeat(DataOutputStream out)
+    {
+        try
+        {
+            synchronized (out)
+            {
+                ShardCodec.writeHeartbeat(out);
+            }
+        } catch (IOException e)
+        {
+            // the reading thread notices the broken connection too
+            LOG.debug("could not send heartbeat", e);
+        }
+    }
+
+    /**
+     * Solves the sudokus of a shard and answers it. A sudoku whose solving fails with an exception is answered with
+     * the status {@link SolveResult.Status#ERROR}, so the other sudokus of the shard are answered anyway.
+     */
+    private void solve(DataOutputStream out, int id, Grid[] puzzles)
+    {
+        SolveResult[] results = new SolveResult[puzzles.length];
+        for (int i = 0; i < puzzles.length; i++)
+        {
+            try
+            {
+                results[i] = solver.get().solve(puzzles[i]);
+            } catch (RuntimeException e)
+            {
+                LOG.warn("could not solve sudoku {} of shard {}", i, id, e);
+                results[i] = new SolveResult(SolveResult.Status.ERROR, puzzles[i], null, 0, 0);
+                // the failed solver may be left in any state
+                solver.remove();
+            }
+        }
+        try
+        {
+            synchronized (out)
+            {
+                ShardCodec.writeResponse(out, id, results);
+            }
+        } catch (IOException e)
+        {
+            // the reading thread notices the broken connection too
+            LOG.debug("could not answer shard {}", id, e);
+        }
+    }
+
+    /**
+     * Closes the server socket and stops the solver threads.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        solvers.shutdownNow();
+        heartbeats.shutdownNow();
+        if (server != null)
+            server.close();
+    }
+}
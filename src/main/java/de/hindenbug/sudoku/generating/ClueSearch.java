@@ -0,0 +1,902 @@
+package de.hindenbug.sudoku.generating;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
+import de.hindenbug.sudoku.solving.SearchState;
+import de.hindenbug.sudoku.solving.SolutionVerifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * A <code>ClueSearch</code> searches all minimal puzzles of a solved grid up to a count of givens. A minimal puzzle
+ * has a unique solution, but loses it if any given is removed. Instead of removing givens one by one, the search
+ * adds givens to an empty grid:
+ * <ul>
+ * <li>An unavoidable set is a set of fields whose numbers can be exchanged so that another valid solution results.
+ * Every puzzle with a unique solution needs a given inside every unavoidable set. Some sets are searched before the
+ * search, and every puzzle that turns out to have a second solution yields a new set: the fields where the two
+ * solutions differ.</li>
+ * <li>Each step picks the smallest set without a given and tries each of its fields. A field that was tried is
+ * excluded from the later branches, so no puzzle is visited twice. A branch ends as soon as the disjoint sets
+ * without a given need more givens than allowed.</li>
+ * <li>The uniqueness is only checked if the givens hit all known sets. The check stops at the second solution.</li>
+ * <li>If a geometric transformation of the grid (bands, rows, stacks, columns and transposition) only relabels its
+ * numbers, the puzzles of a field and its image are equivalent, so the first step skips fields that are the image of
+ * a field tried before.</li>
+ * </ul>
+ * The search is split into tasks that run on all cores. After each task a checkpoint can be written, so a search
+ * that was interrupted continues with the unfinished tasks. Puzzles of a task that was interrupted are found again.
+ * <pre>
+ * java -cp sudoku.jar de.hindenbug.sudoku.generating.ClueSearch grid maxClues [checkpoint]
+ * </pre>
+ */
+public final class ClueSearch
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ClueSearch.class);
+
+    private static final int CHECKPOINT_MAGIC = 0x434C5553;
+    /*
+    count of tasks the search is split into, independent of the cores so a checkpoint fits on every machine
+     */
+    private static final int TASK_TARGET = 256;
+    private static final int RANDOM_PROBES = 256;
+    private static final int SOLUTIONS_PER_PROBE = 16;
+    private static final int MAX_INITIAL_SETS = 512;
+    private static final int MAX_SETS = 4096;
+    /*
+    transformations are only searched for grids up to 9x9, a 16x16 grid has 2 * 24^10 of them
+     */
+    private static final int MAX_TRANSFORMATIONS = 4_000_000;
+
+    private final Grid solution;
+    private final Layout layout;
+    private final long seed;
+    private final int cellCount;
+    private final int words;
+    private final byte[] cells;
+
+    /*
+    the unavoidable sets as bit masks of fields, set i uses the words i * words to (i + 1) * words - 1
+     */
+    private final long[] sets;
+    private final int setCount;
+    /*
+    the field maps of the transformations that only relabel the numbers of the solution, without the identity
+     */
+    private final int[][] automorphisms;
+    private boolean symmetryReduction = true;
+
+    private final LongAdder checks = new LongAdder();
+    /*
+    the count of puzzles of the finished tasks, the puzzles of running tasks are added when they finish
+     */
+    private long found;
+
+    /**
+     * Searches the unavoidable sets and the automorphisms of target solution.
+     *
+     * @param solution solved grid
+     * @param seed     seed of the random probes for unavoidable sets, the same seed gives the same sets
+     * @throws IllegalArgumentException if the grid is not solved
+     */
+    public ClueSearch(Grid solution, long seed)
+    {
+        this.solution = solution;
+        this.layout = solution.getLayout();
+        this.seed = seed;
+        this.cellCount = solution.getCellCount();
+        this.words = (cellCount + 63) >>> 6;
+        this.cells = solution.toBytes();
+        if (new SolutionVerifier(layout).verify(cells, 0, cells, 0) != SolutionVerifier.Status.VALID)
+            throw new IllegalArgumentException("grid is not solved");
+
+        List<long[]> unavoidableSets = findUnavoidableSets(new Random(seed));
+        this.setCount = unavoidableSets.size();
+        this.sets = new long[setCount * words];
+        for (int i = 0; i < setCount; i++)
+            System.arraycopy(unavoidableSets.get(i), 0, sets, i * words, words);
+        this.automorphisms = findAutomorphisms();
+    }
+
+    /**
+     * Probes puzzles, where fields of the solution were removed, for other solutions. The fields where another
+     * solution differs are an unavoidable set. The fields of every two and three numbers are probed, and random
+     * halves of the grid.
+     *
+     * @return the minimal sets found, smallest first
+     */
+    private List<long[]> findUnavoidableSets(Random random)
+    {
+        SearchState state = new SearchState();
+        List<long[]> found = new ArrayList<>();
+        int size = layout.size();
+        byte[] puzzle = new byte[cellCount];
+        for (int a = 1; a <= size; a++)
+        {
+            for (int b = a + 1; b <= size; b++)
+            {
+                probe(state, puzzle, found, 1L << (a - 1) | 1L << (b - 1));
+                for (int c = b + 1; c <= size; c++)
+                    probe(state, puzzle, found, 1L << (a - 1) | 1L << (b - 1) | 1L << (c - 1));
+            }
+        }
+        for (int i = 0; i < RANDOM_PROBES; i++)
+        {
+            for (int cell = 0; cell < cellCount; cell++)
+            {
+                puzzle[cell] = random.nextBoolean()
+                               ? cells[cell]
+                               : 0;
+            }
+            probe(state, puzzle, found);
+        }
+
+        found.sort((x, y) ->
+        {
+            int compare = Integer.compare(count(x), count(y));
+            for (int w = 0; compare == 0 && w < words; w++)
+                compare = Long.compareUnsigned(x[w], y[w]);
+            return compare;
+        });
+        return found.size() > MAX_INITIAL_SETS
+               ? new ArrayList<>(found.subList(0, MAX_INITIAL_SETS))
+               : found;
+    }
+
+    private void probe(SearchState state, byte[] puzzle, List<long[]> found, long removedNumbers)
+    {
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            puzzle[cell] = (removedNumbers & 1L << (cells[cell] - 1)) != 0
+                           ? 0
+                           : cells[cell];
+        }
+        probe(state, puzzle, found);
+    }
+
+    private void probe(SearchState state, byte[] puzzle, List<long[]> found)
+    {
+        byte[] other = new byte[cellCount];
+        state.load(layout, puzzle, 0);
+        for (int i = 0; i < SOLUTIONS_PER_PROBE && state.next(); i++)
+        {
+            state.copyTo(other, 0);
+            long[] set = new long[words];
+            for (int cell = 0; cell < cellCount; cell++)
+            {
+                if (other[cell] != cells[cell])
+                    set[cell >>> 6] |= 1L << cell;
+            }
+            if (count(set) > 0)
+                addMinimal(found, set);
+        }
+    }
+
+    /**
+     * Adds target set unless it contains a known set, and removes the known sets that contain it.
+     */
+    private void addMinimal(List<long[]> found, long[] set)
+    {
+        for (long[] known : found)
+        {
+            if (contains(set, known))
+                return;
+        }
+        found.removeIf(known -> contains(known, set));
+        found.add(set);
+    }
+
+    private boolean contains(long[] set, long[] subset)
+    {
+        for (int w = 0; w < words; w++)
+        {
+            if ((subset[w] & ~set[w]) != 0)
+                return false;
+        }
+        return true;
+    }
+
+    private static int count(long[] set)
+    {
+        int count = 0;
+        for (long word : set)
+            count += Long.bitCount(word);
+        return count;
+    }
+
+    /**
+     * Tries all transformations of a classic grid and keeps the field maps of those, that map the solution to
+     * itself with relabeled numbers.
+     */
+    private int[][] findAutomorphisms()
+    {
+        int size = layout.size();
+        if (!layout.equals(Layout.classic(size)))
+            return new int[0][];
+        List<int[]> lines = linePermutations(solution.getBlockSize());
+        if (2L * lines.size() * lines.size() > MAX_TRANSFORMATIONS)
+            return new int[0][];
+
+        List<int[]> automorphisms = new ArrayList<>();
+        int[] relabel = new int[size + 1];
+        for (int transpose = 0; transpose < 2; transpose++)
+        {
+            for (int[] rows : lines)
+            {
+                for (int[] columns : lines)
+                {
+                    if (isAutomorphism(rows, columns, transpose == 1, relabel))
+                    {
+                        int[] map = new int[cellCount];
+                        for (int cell = 0; cell < cellCount; cell++)
+                            map[cell] = image(cell, rows, columns, transpose == 1);
+                        if (!isIdentity(map))
+                            automorphisms.add(map);
+                    }
+                }
+            }
+        }
+        return automorphisms.toArray(new int[automorphisms.size()][]);
+    }
+
+    private boolean isAutomorphism(int[] rows, int[] columns, boolean transpose, int[] relabel)
+    {
+        Arrays.fill(relabel, 0);
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            int number = cells[cell];
+            int image = cells[image(cell, rows, columns, transpose)];
+            if (relabel[number] == 0)
+                relabel[number] = image;
+            else if (relabel[number] != image)
+                return false;
+        }
+        return true;
+    }
+
+    private int image(int cell, int[] rows, int[] columns, boolean transpose)
+    {
+        int size = layout.size();
+        int row = rows[cell / size];
+        int column = columns[cell % size];
+        return transpose
+               ? column * size + row
+               : row * size + column;
+    }
+
+    private static boolean isIdentity(int[] map)
+    {
+        for (int i = 0; i < map.length; i++)
+        {
+            if (map[i] != i)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns all permutations of the rows of a grid, that keep the rows of a band together.
+     */
+    private static List<int[]> linePermutations(int blockSize)
+    {
+        List<int[]> blockOrders = permutations(blockSize);
+        List<int[]> lines = new ArrayList<>();
+        addLinePermutations(lines, blockOrders, new int[blockSize * blockSize], 0, blockSize);
+        List<int[]> result = new ArrayList<>();
+        for (int[] bands : blockOrders)
+        {
+            for (int[] inner : lines)
+            {
+                int[] permutation = new int[inner.length];
+                for (int line = 0; line < inner.length; line++)
+                {
+                    int band = line / blockSize;
+                    permutation[line] = bands[band] * blockSize + inner[line] % blockSize;
+                }
+                result.add(permutation);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds every combination of row orders inside the bands, the bands keep their place.
+     */
+    private static void addLinePermutations(List<int[]> lines, List<int[]> orders, int[] current, int band,
+            int blockSize)
+    {
+        if (band == blockSize)
+        {
+            lines.add(current.clone());
+            return;
+        }
+        for (int[] order : orders)
+        {
+            for (int i = 0; i < blockSize; i++)
+                current[band * blockSize + i] = band * blockSize + order[i];
+            addLinePermutations(lines, orders, current, band + 1, blockSize);
+        }
+    }
+
+    private static List<int[]> permutations(int n)
+    {
+        List<int[]> permutations = new ArrayList<>();
+        addPermutations(permutations, new int[n], new boolean[n], 0);
+        return permutations;
+    }
+
+    private static void addPermutations(List<int[]> permutations, int[] current, boolean[] used, int index)
+    {
+        if (index == current.length)
+        {
+            permutations.add(current.clone());
+            return;
+        }
+        for (int i = 0; i < current.length; i++)
+        {
+            if (!used[i])
+            {
+                used[i] = true;
+                current[index] = i;
+                addPermutations(permutations, current, used, index + 1);
+                used[i] = false;
+            }
+        }
+    }
+
+    /**
+     * Enables or disables the skipping of fields whose puzzles are equivalent by an automorphism of the grid. With
+     * the reduction only one puzzle of some equivalent puzzles may be found. It is enabled by default.
+     */
+    public void setSymmetryReduction(boolean symmetryReduction)
+    {
+        this.symmetryReduction = symmetryReduction;
+    }
+
+    public Grid getSolution()
+    {
+        return solution;
+    }
+
+    public int getUnavoidableSetCount()
+    {
+        return setCount;
+    }
+
+    /**
+     * Returns the fields of target unavoidable set in ascending order.
+     */
+    public int[] getUnavoidableSet(int index)
+    {
+        return IntStream.range(0, cellCount)
+                .filter(cell -> (sets[index * words + (cell >>> 6)] & 1L << cell) != 0)
+                .toArray();
+    }
+
+    /**
+     * Returns the count of transformations, that map the solution to itself with relabeled numbers, without the
+     * identity.
+     */
+    public int getAutomorphismCount()
+    {
+        return automorphisms.length;
+    }
+
+    /**
+     * Returns the count of uniqueness checks of the last or running search.
+     */
+    public long getCheckCount()
+    {
+        return checks.sum();
+    }
+
+    /**
+     * Searches all minimal puzzles with at most target count of givens, see {@linkplain #search(int, Consumer,
+     * Path)}.
+     */
+    public long search(int maxClues, Consumer<Grid> consumer)
+    {
+        try
+        {
+            return search(maxClues, consumer, null);
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Searches all minimal puzzles with at most target count of givens on all cores. The consumer is called for
+     * every puzzle found, by one thread at a time.
+     *
+     * @param maxClues   maximum count of givens
+     * @param consumer   receives the found puzzles
+     * @param checkpoint file of the finished tasks, that is read if it exists and written after every task, or
+     *                   <code>null</code>
+     * @return count of puzzles found, including those found before the checkpoint
+     * @throws IOException if the checkpoint can not be read or written, or belongs to another search
+     */
+    public long search(int maxClues, Consumer<Grid> consumer, Path checkpoint) throws IOException
+    {
+        if (maxClues < 0 || maxClues > cellCount)
+            throw new IllegalArgumentException("clue count " + maxClues + " outside of range 0 - " + cellCount);
+        List<Task> tasks = createTasks(maxClues);
+        long[] done = new long[(tasks.size() + 63) >>> 6];
+        synchronized (this)
+        {
+            found = 0;
+            checks.reset();
+            if (checkpoint != null && Files.exists(checkpoint))
+                found = readCheckpoint(checkpoint, maxClues, tasks.size(), done);
+        }
+
+        int[] pending = IntStream.range(0, tasks.size())
+                .filter(i -> (done[i >>> 6] & 1L << i) == 0)
+                .toArray();
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(() -> new Worker(maxClues));
+        try
+        {
+            Arrays.stream(pending)
+                    .parallel()
+                    .forEach(i ->
+                    {
+                        long count = workers.get().run(tasks.get(i), consumer);
+                        finish(i, count, done, tasks.size(), maxClues, checkpoint);
+                    });
+        } catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+        synchronized (this)
+        {
+            return found;
+        }
+    }
+
+    private synchronized void finish(int task, long count, long[] done, int taskCount, int maxClues, Path checkpoint)
+    {
+        done[task >>> 6] |= 1L << task;
+        found += count;
+        int finished = 0;
+        for (long word : done)
+            finished += Long.bitCount(word);
+        LOG.info("{} of {} tasks finished, {} puzzles, {} checks", finished, taskCount, found, checks.sum());
+        if (checkpoint == null)
+            return;
+        try
+        {
+            writeCheckpoint(checkpoint, maxClues, taskCount, done);
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized void emit(byte[] puzzle, Consumer<Grid> consumer)
+    {
+        consumer.accept(Grid.of(layout, puzzle));
+    }
+
+    private void writeCheckpoint(Path file, int maxClues, int taskCount, long[] done) throws IOException
+    {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+        {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(solution.size());
+            out.write(solution.toBytes());
+            out.writeLong(seed);
+            out.writeBoolean(symmetryReduction);
+            out.writeInt(maxClues);
+            out.writeInt(taskCount);
+            out.writeLong(found);
+            for (long word : done)
+                out.writeLong(word);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the finished tasks of a checkpoint into target array.
+     *
+     * @return the count of puzzles found before the checkpoint
+     */
+    private long readCheckpoint(Path file, int maxClues, int taskCount, long[] done) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+        {
+            if (in.readInt() != CHECKPOINT_MAGIC)
+                throw new IOException("not a clue search checkpoint");
+            // the tasks depend on the grid, the seed and the symmetry reduction
+            byte[] cells = new byte[solution.getCellCount()];
+            if (in.readInt() != solution.size())
+                throw new IOException("checkpoint belongs to another search");
+            in.readFully(cells);
+            if (!Arrays.equals(cells, solution.toBytes()) || in.readLong() != seed
+                    || in.readBoolean() != symmetryReduction || in.readInt() != maxClues || in.readInt() != taskCount)
+                throw new IOException("checkpoint belongs to another search");
+            long found = in.readLong();
+            for (int i = 0; i < done.length; i++)
+                done[i] = in.readLong();
+            return found;
+        }
+    }
+
+    /**
+     * Splits the search into tasks by expanding the first steps of the search with the initial unavoidable sets,
+     * until there are enough tasks.
+     */
+    private List<Task> createTasks(int maxClues)
+    {
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Task(new long[words], new long[words], 0));
+        boolean expanded = true;
+        while (expanded && tasks.size() < TASK_TARGET)
+        {
+            expanded = false;
+            List<Task> next = new ArrayList<>();
+            for (Task task : tasks)
+            {
+                List<Task> children = expand(task, maxClues);
+                if (children == null)
+                {
+                    next.add(task);
+                } else
+                {
+                    next.addAll(children);
+                    expanded = true;
+                }
+            }
+            tasks = next;
+        }
+        return tasks;
+    }
+
+    /**
+     * Returns the tasks of the fields of the smallest set without a given.
+     *
+     * @return the tasks, that may be empty if the task can not lead to a puzzle, or <code>null</code> if the givens
+     * of the task hit all initial sets
+     */
+    private List<Task> expand(Task task, int maxClues)
+    {
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int set = 0; set < setCount; set++)
+        {
+            if (hits(sets, set, task.clues))
+                continue;
+            int count = 0;
+            for (int w = 0; w < words; w++)
+                count += Long.bitCount(sets[set * words + w] & ~task.excluded[w]);
+            if (count < bestCount)
+            {
+                best = set;
+                bestCount = count;
+            }
+        }
+        if (best < 0)
+            return null;
+        List<Task> children = new ArrayList<>();
+        if (bestCount == 0 || task.clueCount == maxClues)
+            return children;
+
+        long[] excluded = task.excluded.clone();
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            long bit = 1L << cell;
+            if ((sets[best * words + (cell >>> 6)] & ~excluded[cell >>> 6] & bit) == 0)
+                continue;
+            if (task.clueCount > 0 || !symmetryReduction || !isImageOfExcluded(cell, excluded))
+            {
+                long[] clues = task.clues.clone();
+                clues[cell >>> 6] |= bit;
+                children.add(new Task(clues, excluded.clone(), task.clueCount + 1));
+            }
+            excluded[cell >>> 6] |= bit;
+        }
+        return children;
+    }
+
+    /**
+     * Returns <code>true</code> if an automorphism maps target field to an excluded field. Every puzzle with the
+     * field is equivalent to a puzzle with the excluded field, which was tried before.
+     */
+    private boolean isImageOfExcluded(int cell, long[] excluded)
+    {
+        for (int[] automorphism : automorphisms)
+        {
+            int image = automorphism[cell];
+            if ((excluded[image >>> 6] & 1L << image) != 0)
+                return true;
+        }
+        return false;
+    }
+
+    private boolean hits(long[] sets, int set, long[] clues)
+    {
+        for (int w = 0; w < words; w++)
+        {
+            if ((sets[set * words + w] & clues[w]) != 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * The givens and excluded fields at the start of a task.
+     */
+    private static final class Task
+    {
+        private final long[] clues;
+        private final long[] excluded;
+        private final int clueCount;
+
+        private Task(long[] clues, long[] excluded, int clueCount)
+        {
+            this.clues = clues;
+            this.excluded = excluded;
+            this.clueCount = clueCount;
+        }
+    }
+
+    /**
+     * The search of one thread. A worker keeps the unavoidable sets learned by its tasks, as they are sets of the
+     * same solution, until their limit is reached.
+     * <p>
+     * Every depth has the list of sets without a given. A new given only needs to be compared with the list of its
+     * parent, so the deeper steps scan fewer and fewer sets.
+     */
+    private final class Worker
+    {
+        private final int maxClues;
+        private final SearchState state = new SearchState();
+        private final byte[] puzzle = new byte[cellCount];
+        private final byte[] other = new byte[cellCount];
+        private final long[] clues = new long[words];
+        private final long[] excluded = new long[words];
+        private final long[] disjoint = new long[words];
+        /*
+        the fields to try and the excluded fields of every depth
+         */
+        private final long[] branches;
+        private final long[] savedExcluded;
+        /*
+        the initial and learned sets, followed by one slot per depth for a set that does not fit anymore
+         */
+        private final long[] workerSets;
+        private int workerSetCount;
+        private final int[][] open;
+        private final int[] openCount;
+        private int clueCount;
+        /*
+        the count of puzzles of the running task
+         */
+        private long count;
+
+        private Worker(int maxClues)
+        {
+            this.maxClues = maxClues;
+            this.branches = new long[(maxClues + 1) * words];
+            this.savedExcluded = new long[(maxClues + 1) * words];
+            this.workerSets = Arrays.copyOf(sets, (MAX_SETS + maxClues + 1) * words);
+            this.workerSetCount = setCount;
+            this.open = new int[maxClues + 1][MAX_SETS + 1];
+            this.openCount = new int[maxClues + 1];
+        }
+
+        /**
+         * Runs target task and returns the count of puzzles it found.
+         */
+        private long run(Task task, Consumer<Grid> consumer)
+        {
+            count = 0;
+            if (workerSetCount == MAX_SETS)
+                workerSetCount = setCount;
+            System.arraycopy(task.clues, 0, clues, 0, words);
+            System.arraycopy(task.excluded, 0, excluded, 0, words);
+            clueCount = task.clueCount;
+            for (int cell = 0; cell < cellCount; cell++)
+            {
+                puzzle[cell] = (clues[cell >>> 6] & 1L << cell) != 0
+                               ? cells[cell]
+                               : 0;
+            }
+            openCount[0] = 0;
+            for (int set = 0; set < workerSetCount; set++)
+            {
+                if (!hits(workerSets, set, clues))
+                    open[0][openCount[0]++] = set;
+            }
+            explore(0, consumer);
+            return count;
+        }
+
+        private void explore(int depth, Consumer<Grid> consumer)
+        {
+            int[] openSets = open[depth];
+            int best;
+            while (true)
+            {
+                best = -1;
+                int bestCount = Integer.MAX_VALUE;
+                int bound = 0;
+                Arrays.fill(disjoint, 0);
+                for (int i = 0; i < openCount[depth]; i++)
+                {
+                    int set = openSets[i];
+                    int count = 0;
+                    boolean isDisjoint = true;
+                    for (int w = 0; w < words; w++)
+                    {
+                        long fields = workerSets[set * words + w] & ~excluded[w];
+                        count += Long.bitCount(fields);
+                        if ((fields & disjoint[w]) != 0)
+                            isDisjoint = false;
+                    }
+                    if (count == 0)
+                        return;
+                    if (isDisjoint)
+                    {
+                        bound++;
+                        for (int w = 0; w < words; w++)
+                            disjoint[w] |= workerSets[set * words + w] & ~excluded[w];
+                    }
+                    if (count < bestCount)
+                    {
+                        best = set;
+                        bestCount = count;
+                    }
+                }
+                if (clueCount + bound > maxClues)
+                    return;
+                if (best >= 0)
+                    break;
+
+                // the givens hit every known set
+                if (isUnique())
+                {
+                    if (isMinimal())
+                    {
+                        count++;
+                        emit(puzzle, consumer);
+                    }
+                    return;
+                }
+                if (clueCount == maxClues)
+                    return;
+                addSet(depth);
+            }
+
+            int offset = depth * words;
+            for (int w = 0; w < words; w++)
+            {
+                branches[offset + w] = workerSets[best * words + w] & ~excluded[w];
+                savedExcluded[offset + w] = excluded[w];
+            }
+            for (int w = 0; w < words; w++)
+            {
+                for (long rest = branches[offset + w]; rest != 0; rest &= rest - 1)
+                {
+                    int cell = w << 6 | Long.numberOfTrailingZeros(rest);
+                    long bit = rest & -rest;
+                    int[] children = open[depth + 1];
+                    int childCount = 0;
+                    for (int i = 0; i < openCount[depth]; i++)
+                    {
+                        if ((workerSets[openSets[i] * words + w] & bit) == 0)
+                            children[childCount++] = openSets[i];
+                    }
+                    openCount[depth + 1] = childCount;
+
+                    clues[w] |= bit;
+                    puzzle[cell] = cells[cell];
+                    clueCount++;
+                    explore(depth + 1, consumer);
+                    clueCount--;
+                    puzzle[cell] = 0;
+                    clues[w] &= ~bit;
+                    excluded[w] |= bit;
+                }
+            }
+            System.arraycopy(savedExcluded, offset, excluded, 0, words);
+        }
+
+        /**
+         * Searches up to two solutions of the givens. The second solution is kept in <code>other</code>.
+         */
+        private boolean isUnique()
+        {
+            checks.increment();
+            state.load(layout, puzzle, 0);
+            while (state.next())
+            {
+                state.copyTo(other, 0);
+                if (!Arrays.equals(other, cells))
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * Adds the fields where the second solution differs as unavoidable set. The set has no given, so it is
+         * added to the open sets of the current depth and all depths above. If the limit of sets is reached, the set
+         * is only kept for the current depth.
+         */
+        private void addSet(int depth)
+        {
+            int set = workerSetCount < MAX_SETS
+                      ? workerSetCount++
+                      : MAX_SETS + depth;
+            Arrays.fill(workerSets, set * words, (set + 1) * words, 0);
+            for (int cell = 0; cell < cellCount; cell++)
+            {
+                if (other[cell] != cells[cell])
+                    workerSets[set * words + (cell >>> 6)] |= 1L << cell;
+            }
+            for (int d = set < MAX_SETS
+                         ? 0
+                         : depth; d <= depth; d++)
+                open[d][openCount[d]++] = set;
+        }
+
+        /**
+         * Returns <code>true</code> if no given of the unique puzzle can be removed. Without a given, a second
+         * solution must use another number on its field.
+         */
+        private boolean isMinimal()
+        {
+            for (int cell = 0; cell < cellCount; cell++)
+            {
+                int number = puzzle[cell];
+                if (number == 0)
+                    continue;
+                puzzle[cell] = 0;
+                state.load(layout, puzzle, 0);
+                state.restrict(cell, ~(1L << (number - 1)));
+                boolean isRequired = state.next();
+                puzzle[cell] = (byte) number;
+                if (!isRequired)
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 2)
+        {
+            System.err.println("usage: java -cp sudoku.jar " + ClueSearch.class.getName()
+                    + " grid maxClues [checkpoint]");
+            System.exit(2);
+            return;
+        }
+        ClueSearch search = new ClueSearch(Grid.parse(args[0]), 0);
+        LOG.info("{} unavoidable sets, {} automorphisms", search.getUnavoidableSetCount(),
+                search.getAutomorphismCount());
+        long count = search.search(Integer.parseInt(args[1]), puzzle -> System.out.println(puzzle.toLine()),
+                args.length > 2
+                ? Paths.get(args[2])
+                : null);
+        System.err.println(count + " minimal puzzles, " + search.getCheckCount() + " checks");
+    }
+}
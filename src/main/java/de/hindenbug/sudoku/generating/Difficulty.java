@@ -0,0 +1,33 @@
+package de.hindenbug.sudoku.generating;
+
+import de.hindenbug.sudoku.solving.CandidateRemovalStrategy;
+import de.hindenbug.sudoku.solving.ExamineStrategy;
+import de.hindenbug.sudoku.solving.LastManStandingStrategy;
+import de.hindenbug.sudoku.solving.NakedOneStrategy;
+
+/**
+ * The <code>Difficulty</code> of a sudoku is defined by the {@link CandidateRemovalStrategy strategies} that are
+ * needed to solve it without guessing. The {@link LastManStandingStrategy} is not used, as it only fixes fields
+ * that the {@link NakedOneStrategy} fixes as well.
+ *
+ * @see Grader
+ */
+public enum Difficulty
+{
+    /**
+     * the sudoku can be solved by searching the only field of a block for a number, see {@link ExamineStrategy}
+     */
+    SIMPLE,
+    /**
+     * the sudoku can be solved by fixing fields that have a single candidate left
+     */
+    MEDIUM,
+    /**
+     * the sudoku needs both strategies
+     */
+    HARD,
+    /**
+     * the sudoku can not be solved with the strategies alone, the solver has to guess
+     */
+    EVIL
+}
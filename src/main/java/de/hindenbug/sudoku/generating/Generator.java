@@ -0,0 +1,150 @@
+package de.hindenbug.sudoku.generating;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.solving.SearchState;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * A <code>Generator</code> creates new sudokus with a unique solution. At first a random solution is built by a
+ * backtracking search on an empty grid, that tries the candidates in random order. Afterwards the numbers of the
+ * solution are removed in random order, as long as the solution stays unique and the {@link Grader} does not rate
+ * the sudoku harder than the requested {@link Difficulty}.
+ * <p>
+ * A generator is not thread safe. Every generator created with the same seed creates the same sudokus, so
+ * {@linkplain #generate(Difficulty, int, long)} can use all cores and still returns reproducible results.
+ */
+public class Generator
+{
+    /**
+     * count of tries to reach the requested difficulty before the easier sudoku is returned
+     */
+    private static final int MAX_TRIES = 100;
+
+    private final int size;
+    private final Random random;
+    private final SearchState solutionState;
+    private final SearchState uniquenessState;
+    private final Grader grader;
+
+    public Generator(long seed)
+    {
+        this(9, seed);
+    }
+
+    public Generator(int size, long seed)
+    {
+        this.size = size;
+        this.random = new Random(seed);
+        this.solutionState = new SearchState();
+        this.solutionState.setRandom(random);
+        this.uniquenessState = new SearchState();
+        this.grader = new Grader();
+    }
+
+    /**
+     * Generates <code>count</code> sudokus of target difficulty in parallel. The sudoku at index <code>i</code> is
+     * created by a generator, that is seeded by target seed and <code>i</code>, so the result does not depend on the
+     * count of threads.
+     *
+     * @param difficulty difficulty of the sudokus
+     * @param count      count of sudokus to generate
+     * @param seed       seed of the generators
+     * @return the generated sudokus
+     */
+    public static List<Grid> generate(Difficulty difficulty, int count, long seed)
+    {
+        return IntStream.range(0, count)
+                .parallel()
+                .mapToObj(i -> new Generator(seed * 0x9E3779B97F4A7C15L + i).generate(difficulty))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Creates a random solved grid.
+     */
+    public Grid generateSolution()
+    {
+        solutionState.load(Grid.of(size, new byte[size * size]));
+        solutionState.next();
+        return solutionState.toGrid();
+    }
+
+    /**
+     * Generates a sudoku with a unique solution, where no number can be removed without losing the uniqueness.
+     */
+    public Grid generate()
+    {
+        return generate(Difficulty.EVIL);
+    }
+
+    /**
+     * Generates a sudoku of target difficulty. If the difficulty could not be reached after some tries, the
+     * hardest sudoku found is returned.
+     *
+     * @param difficulty difficulty of the sudoku
+     * @return a sudoku with a unique solution
+     */
+    public Grid generate(Difficulty difficulty)
+    {
+        Grid best = null;
+        Difficulty bestDifficulty = null;
+        for (int i = 0; i < MAX_TRIES; i++)
+        {
+            Grid puzzle = removeNumbers(generateSolution(), difficulty);
+            Difficulty puzzleDifficulty = grader.grade(puzzle).getDifficulty();
+            if (puzzleDifficulty == difficulty)
+                return puzzle;
+            if (best == null || puzzleDifficulty.compareTo(bestDifficulty) > 0)
+            {
+                best = puzzle;
+                bestDifficulty = puzzleDifficulty;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Removes the numbers of target solution in random order. A number is kept if the sudoku is not unique or harder
+     * than target difficulty without it.
+     */
+    private Grid removeNumbers(Grid solution, Difficulty difficulty)
+    {
+        byte[] cells = solution.toBytes();
+        int[] order = IntStream.range(0, cells.length).toArray();
+        for (int i = order.length - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+
+        for (int cell : order)
+        {
+            byte number = cells[cell];
+            cells[cell] = 0;
+            Grid puzzle = Grid.of(size, cells);
+            if (!isUnique(puzzle, cell, number)
+                    || (difficulty != Difficulty.EVIL
+                    && grader.grade(puzzle).getDifficulty().compareTo(difficulty) > 0))
+                cells[cell] = number;
+        }
+        return Grid.of(size, cells);
+    }
+
+    /**
+     * Returns <code>true</code> if target puzzle, where the number of target field was removed, still has a unique
+     * solution. As the puzzle with the number had a unique solution, a second solution must use another number on
+     * the removed field.
+     */
+    private boolean isUnique(Grid puzzle, int cell, int removedNumber)
+    {
+        uniquenessState.load(puzzle);
+        uniquenessState.restrict(cell, ~(1L << (removedNumber - 1)));
+        return !uniquenessState.next();
+    }
+}
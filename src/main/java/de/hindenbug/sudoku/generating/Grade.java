@@ -0,0 +1,75 @@
+package de.hindenbug.sudoku.generating;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * A <code>Grade</code> is the result of grading a sudoku. It contains how often each {@link Technique} was used to
+ * solve the sudoku, the numeric rating calculated from these counts and the resulting {@link Difficulty}.
+ *
+ * @see Grader#grade(de.hindenbug.sudoku.model.Grid)
+ */
+public final class Grade
+{
+    private final Difficulty difficulty;
+    private final int rating;
+    private final int[] counts;
+
+    Grade(Difficulty difficulty, int[] counts)
+    {
+        this.difficulty = difficulty;
+        this.counts = counts.clone();
+
+        int rating = 0;
+        for (Technique technique : Technique.values())
+        {
+            rating += technique.getCost(counts[technique.ordinal()]);
+        }
+        this.rating = rating;
+    }
+
+    public Difficulty getDifficulty()
+    {
+        return difficulty;
+    }
+
+    /**
+     * Returns the sum of the costs of all used techniques. A higher rating stands for a harder sudoku.
+     */
+    public int getRating()
+    {
+        return rating;
+    }
+
+    /**
+     * Returns how often target technique was used. For {@linkplain Technique#GUESS} this is the count of fields
+     * that were left after no other technique could be used.
+     */
+    public int getCount(Technique technique)
+    {
+        return counts[technique.ordinal()];
+    }
+
+    public Map<Technique, Integer> getCounts()
+    {
+        Map<Technique, Integer> result = new EnumMap<>(Technique.class);
+        for (Technique technique : Technique.values())
+        {
+            if (counts[technique.ordinal()] > 0)
+                result.put(technique, counts[technique.ordinal()]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this)
+                .append("difficulty", difficulty)
+                .append("rating", rating)
+                .append("counts", getCounts())
+                .toString();
+    }
+}
@@ -0,0 +1,262 @@
+package de.hindenbug.sudoku.generating;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
+import de.hindenbug.sudoku.solving.CandidateRemovalStrategy;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A <code>Grader</code> rates how hard a sudoku is for a human player. It solves the sudoku with the logical
+ * {@link Technique techniques} that the {@link CandidateRemovalStrategy strategies} of this project use. After each
+ * fixed field the grader starts again with the easiest technique, so the sudoku is always solved in the same order
+ * and the harder techniques are only used if they are needed.
+ * <p>
+ * The grader keeps the candidates of every field as bit mask and updates them on each fix. A grader is not thread
+ * safe, but can grade any count of sudokus one after another without allocating its buffers again.
+ * <p>
+ * The units of a sudoku are taken from its {@link Layout}. The sums of killer cages are not used by any technique,
+ * a cage only removes candidates like any other unit.
+ */
+public class Grader
+{
+    private static final ThreadLocal<Grader> GRADER = ThreadLocal.withInitial(Grader::new);
+    private static final Technique[] TECHNIQUES = Technique.values();
+
+    private Layout layout;
+    private int cellCount;
+    private long allNumbers;
+
+    private byte[] numbers;
+    private long[] candidates;
+    private long[] unitNumbers;
+    private int emptyCount;
+
+    /**
+     * Grades all sudokus in parallel.
+     *
+     * @param puzzles sudokus to grade
+     * @return the grades in the order of the sudokus
+     */
+    public static List<Grade> grade(List<Grid> puzzles)
+    {
+        return puzzles.parallelStream()
+                .map(puzzle -> GRADER.get().grade(puzzle))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Grades target sudoku.
+     *
+     * @param puzzle sudoku to grade
+     * @return the grade of the sudoku
+     * @throws IllegalArgumentException if a number is used twice inside a unit
+     */
+    public Grade grade(Grid puzzle)
+    {
+        int[] counts = new int[TECHNIQUES.length];
+        load(puzzle);
+        if (!solve(Technique.NAKED_SINGLE, counts))
+        {
+            counts[Technique.GUESS.ordinal()] = emptyCount;
+            return new Grade(Difficulty.EVIL, counts);
+        }
+
+        Difficulty difficulty;
+        if (counts[Technique.LAST_MAN_STANDING.ordinal()] == 0 && counts[Technique.NAKED_SINGLE.ordinal()] == 0)
+        {
+            difficulty = Difficulty.SIMPLE;
+        } else
+        {
+            // check if the sudoku can be solved by naked singles alone
+            load(puzzle);
+            difficulty = solveByNakedSingles()
+                         ? Difficulty.MEDIUM
+                         : Difficulty.HARD;
+        }
+        return new Grade(difficulty, counts);
+    }
+
+    private void load(Grid puzzle)
+    {
+        if (puzzle.getLayout() != layout)
+            allocate(puzzle.getLayout());
+
+        for (int unit = 0; unit < unitNumbers.length; unit++)
+            unitNumbers[unit] = 0;
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            int number = puzzle.get(cell);
+            numbers[cell] = (byte) number;
+            if (number > 0)
+            {
+                long bit = 1L << (number - 1);
+                for (int unit : layout.getUnitsOf(cell))
+                {
+                    if ((unitNumbers[unit] & bit) != 0)
+                        throw new IllegalArgumentException("sudoku is not valid " + puzzle);
+                    unitNumbers[unit] |= bit;
+                }
+            }
+        }
+
+        emptyCount = 0;
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            long used = 0;
+            for (int unit : layout.getUnitsOf(cell))
+                used |= unitNumbers[unit];
+            candidates[cell] = numbers[cell] == 0
+                               ? allNumbers & ~used
+                               : 0;
+            emptyCount += numbers[cell] == 0
+                          ? 1
+                          : 0;
+        }
+    }
+
+    private void allocate(Layout layout)
+    {
+        int size = layout.size();
+        this.layout = layout;
+        this.cellCount = size * size;
+        this.allNumbers = (1L << size) - 1;
+
+        numbers = new byte[cellCount];
+        candidates = new long[cellCount];
+        unitNumbers = new long[layout.getUnitCount()];
+    }
+
+    /**
+     * Fixes fields with the techniques up to target technique until the sudoku is solved or no technique fixes
+     * another field.
+     *
+     * @return <code>true</code> if the sudoku was solved
+     */
+    private boolean solve(Technique hardest, int[] counts)
+    {
+        boolean isFixed = true;
+        while (emptyCount > 0 && isFixed)
+        {
+            isFixed = false;
+            for (Technique technique : TECHNIQUES)
+            {
+                if (technique.compareTo(hardest) > 0)
+                    break;
+                if (apply(technique))
+                {
+                    counts[technique.ordinal()]++;
+                    isFixed = true;
+                    break;
+                }
+            }
+        }
+        return emptyCount == 0;
+    }
+
+    private boolean solveByNakedSingles()
+    {
+        while (emptyCount > 0)
+        {
+            if (!fixNakedSingle())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Fixes one field with target technique.
+     *
+     * @return <code>true</code> if a field was fixed
+     */
+    private boolean apply(Technique technique)
+    {
+        switch (technique)
+        {
+            case BLOCK_HIDDEN_SINGLE:
+                return fixBlockHiddenSingle();
+            case LAST_MAN_STANDING:
+                return fixLastManStanding();
+            case NAKED_SINGLE:
+                return fixNakedSingle();
+            default:
+                return false;
+        }
+    }
+
+    private boolean fixBlockHiddenSingle()
+    {
+        for (int unit = 0; unit < layout.getHouseCount(); unit++)
+        {
+            if (layout.getUnitType(unit) != Layout.UnitType.REGION)
+                continue;
+            long once = 0;
+            long twice = 0;
+            for (int cell : layout.getUnitFields(unit))
+            {
+                twice |= once & candidates[cell];
+                once |= candidates[cell];
+            }
+            long single = Long.lowestOneBit(once & ~twice);
+            if (single != 0)
+            {
+                for (int cell : layout.getUnitFields(unit))
+                {
+                    if ((candidates[cell] & single) != 0)
+                    {
+                        fix(cell, single);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean fixLastManStanding()
+    {
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            if (numbers[cell] == 0)
+            {
+                // the row and column are the first units of each field
+                int[] units = layout.getUnitsOf(cell);
+                long missing = allNumbers & ~(unitNumbers[units[0]] | unitNumbers[units[1]]);
+                if (Long.bitCount(missing) == 1 && (candidates[cell] & missing) != 0)
+                {
+                    fix(cell, missing);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean fixNakedSingle()
+    {
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            if (numbers[cell] == 0 && Long.bitCount(candidates[cell]) == 1)
+            {
+                fix(cell, candidates[cell]);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fixes target number to the field and removes it from the candidates of all fields in the same units.
+     */
+    private void fix(int cell, long bit)
+    {
+        numbers[cell] = (byte) (Long.numberOfTrailingZeros(bit) + 1);
+        candidates[cell] = 0;
+        emptyCount--;
+        for (int unit : layout.getUnitsOf(cell))
+            unitNumbers[unit] |= bit;
+        for (int peer : layout.getPeers(cell))
+            candidates[peer] &= ~bit;
+    }
+}
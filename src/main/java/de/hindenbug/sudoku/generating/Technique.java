@@ -0,0 +1,61 @@
+package de.hindenbug.sudoku.generating;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.solving.ExamineStrategy;
+import de.hindenbug.sudoku.solving.LastManStandingStrategy;
+import de.hindenbug.sudoku.solving.NakedOneStrategy;
+
+/**
+ * A <code>Technique</code> is one logical step that the {@link Grader} uses to fix a field. The techniques are
+ * declared from the easiest to the hardest, which is the order in which the grader tries them.
+ * <p>
+ * Every technique has a cost table, that contains the rating of using the technique <code>n</code> times. The first
+ * use of a technique costs more than every further use, as a player has to discover the technique first.
+ */
+public enum Technique
+{
+    /**
+     * a number fits into only one field of a block
+     *
+     * @see ExamineStrategy
+     */
+    BLOCK_HIDDEN_SINGLE(10, 1),
+    /**
+     * the numbers of row and column of a field leave only one number
+     *
+     * @see LastManStandingStrategy
+     */
+    LAST_MAN_STANDING(20, 2),
+    /**
+     * a field has a single candidate left
+     *
+     * @see NakedOneStrategy
+     */
+    NAKED_SINGLE(40, 4),
+    /**
+     * no technique fixes another field, every field left has to be guessed
+     */
+    GUESS(500, 25);
+
+    private final int[] costs;
+
+    Technique(int firstCost, int cost)
+    {
+        this.costs = new int[Grid.MAX_SIZE * Grid.MAX_SIZE + 1];
+        for (int count = 1; count < costs.length; count++)
+        {
+            costs[count] = firstCost + (count - 1) * cost;
+        }
+    }
+
+    /**
+     * Returns the rating of using this technique target times.
+     *
+     * @param count how often the technique was used
+     * @return the rating, 0 if the technique was not used
+     */
+    public int getCost(int count)
+    {
+        return costs[count];
+    }
+}
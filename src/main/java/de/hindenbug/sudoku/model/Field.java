@@ -4,7 +4,6 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 
 /**
  * A <code>Field</code> is one value of a {@link Sudoku} that may contain a number that this field is bound to.
@@ -25,6 +24,10 @@ public class Field
 
     private int idxCandidate;
     private List<Integer> candidates;
+    /*
+    the listeners of the sudoku of this field, null if it has none
+     */
+    private SudokuListener listener;
 
     public Field(int row, int column)
     {
@@ -51,9 +54,15 @@ public class Field
         }
     }
 
+    public void addCandidate(int candidate)
+    {
+        this.candidates.add(candidate);
+    }
+
     public void removeCandidate(Integer candidate)
     {
-        candidates.remove(candidate);
+        if (candidates.remove(candidate) && listener != null)
+            listener.candidateRemoved(this, candidate);
     }
 
     public void clearCandidates()
@@ -100,6 +109,20 @@ public class Field
         }
     }
 
+    /**
+     * Replaces the state of this field with target number, so a {@link Sudoku} can be reused for another puzzle.
+     * Unlike {@linkplain #reset()} this also clears a fixed field.
+     *
+     * @param number number to fix or 0 for an empty field
+     */
+    void load(int number)
+    {
+        this.isFix = number != 0;
+        this.number = number;
+        this.idxCandidate = 0;
+        this.candidates.clear();
+    }
+
     /**
      * Fixes target number to this field. The field can not be changed afterwards.
      */
@@ -111,6 +134,18 @@ public class Field
         this.isFix = true;
         this.number = number;
         this.candidates.clear();
+        if (listener != null)
+            listener.fixed(this, number);
+    }
+
+    /**
+     * Sets the listener that is told about the fixes and removed candidates of this field.
+     *
+     * @param listener listener or <code>null</code>
+     */
+    void setListener(SudokuListener listener)
+    {
+        this.listener = listener;
     }
 
     public int getCandidate()
@@ -168,10 +203,13 @@ public class Field
                 isFix() == field.isFix();
     }
 
+    /**
+     * Returns a hash of the position only, as fields are kept in hash sets while their number changes.
+     */
     @Override
     public int hashCode()
     {
-        return Objects.hash(row, column, getNumber(), isFix());
+        return 31 * row + column;
     }
 
 }
\ No newline at end of file
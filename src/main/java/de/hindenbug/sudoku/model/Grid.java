@@ -0,0 +1,282 @@
+package de.hindenbug.sudoku.model;
+
+import java.util.Arrays;
+
+/**
+ * A <code>Grid</code> is an immutable snapshot of the numbers of a {@link Sudoku}. The numbers are packed row by row
+ * into one byte per field, where 0 marks an empty field. Unlike a {@link Sudoku} a grid can not be changed, so it can
+ * be shared between threads and cached without copying it. The units of the grid are defined by its
+ * {@link Layout}, which is the classic layout unless another one is given.
+ *
+ * @see #of(Sudoku)
+ * @see #toSudoku()
+ */
+public final class Grid
+{
+    /**
+     * Largest size of a grid, as the solving algorithms store the candidates of a field as bits of a <code>long</code>.
+     */
+    public static final int MAX_SIZE = 63;
+
+    /**
+     * Characters of the numbers 1 - 35 inside a line, see {@linkplain #parse(CharSequence)}.
+     */
+    private static final String DIGITS = "123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    private final int size;
+    private final int blockSize;
+    private final byte[] cells;
+    private final Layout layout;
+
+    private Grid(Layout layout, byte[] cells)
+    {
+        this.size = layout.size();
+        this.blockSize = (int) Math.sqrt(size);
+        this.cells = cells;
+        this.layout = layout;
+    }
+
+    /**
+     * Creates a grid of target numbers. The numbers are copied, so later changes to the array do not affect the grid.
+     *
+     * @param size  count of rows and columns of the grid
+     * @param cells numbers of the fields row by row, 0 for empty fields
+     * @return the new grid
+     */
+    public static Grid of(int size, byte[] cells)
+    {
+        validate(size, cells);
+        return new Grid(Layout.classic(size), cells.clone());
+    }
+
+    /**
+     * Creates a grid of target layout, for example a jigsaw or killer sudoku.
+     *
+     * @param layout units of the grid
+     * @param cells  numbers of the fields row by row, 0 for empty fields
+     * @return the new grid
+     */
+    public static Grid of(Layout layout, byte[] cells)
+    {
+        validate(layout.size(), cells);
+        return new Grid(layout, cells.clone());
+    }
+
+    public static Grid of(int[][] numbers)
+    {
+        int size = numbers.length;
+        byte[] cells = new byte[size * size];
+        for (int row = 0; row < size; row++)
+        {
+            if (numbers[row].length != size)
+                throw new IllegalArgumentException("row " + row + " has " + numbers[row].length
+                        + " columns, expected " + size);
+            for (int col = 0; col < size; col++)
+            {
+                cells[row * size + col] = (byte) numbers[row][col];
+            }
+        }
+        validate(size, cells);
+        return new Grid(Layout.classic(size), cells);
+    }
+
+    /**
+     * Creates a snapshot of the current numbers of target sudoku. Fixed fields and fields that only contain a tried
+     * candidate are both taken over.
+     *
+     * @param sudoku sudoku to take the numbers from
+     * @return the new grid
+     */
+    public static Grid of(Sudoku sudoku)
+    {
+        int size = sudoku.size();
+        byte[] cells = new byte[size * size];
+        for (Field field : sudoku)
+        {
+            cells[field.getRow() * size + field.getColumn()] = (byte) field.getNumber();
+        }
+        validate(size, cells);
+        return new Grid(sudoku.getLayout(), cells);
+    }
+
+    /**
+     * Parses a classic grid from a single line, that contains the fields row by row. The numbers 1 - 9 are written
+     * as digits, larger numbers as letters starting with <code>A</code> for 10. Empty fields are written as
+     * <code>0</code> or <code>.</code>. Leading and trailing whitespace is ignored.
+     *
+     * @param line fields of the grid, for example 81 characters for a 9x9 grid
+     * @return the new grid
+     * @throws IllegalArgumentException if the length is not the square of a valid size or a character is unknown
+     */
+    public static Grid parse(CharSequence line)
+    {
+        int start = 0;
+        int end = line.length();
+        while (start < end && Character.isWhitespace(line.charAt(start)))
+            start++;
+        while (end > start && Character.isWhitespace(line.charAt(end - 1)))
+            end--;
+
+        int length = end - start;
+        int size = (int) Math.sqrt(length);
+        if (size * size != length || size > DIGITS.length())
+            throw new IllegalArgumentException("line of length " + length + " is not a grid");
+
+        byte[] cells = new byte[length];
+        for (int i = 0; i < length; i++)
+        {
+            char c = line.charAt(start + i);
+            if (c != '.' && c != '0')
+            {
+                int number = DIGITS.indexOf(Character.toUpperCase(c)) + 1;
+                if (number == 0)
+                    throw new IllegalArgumentException("unknown character '" + c + "' at index " + i);
+                cells[i] = (byte) number;
+            }
+        }
+        validate(size, cells);
+        return new Grid(Layout.classic(size), cells);
+    }
+
+    private static void validate(int size, byte[] cells)
+    {
+        if (size < 1 || size > MAX_SIZE)
+            throw new IllegalArgumentException("size " + size + " outside of range 1 - " + MAX_SIZE);
+        if (cells.length != size * size)
+            throw new IllegalArgumentException("expected " + size * size + " fields, got " + cells.length);
+        for (int i = 0; i < cells.length; i++)
+        {
+            if (cells[i] < 0 || cells[i] > size)
+                throw new IllegalArgumentException("number " + cells[i] + " at index " + i
+                        + " outside of range 0 - " + size);
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public Layout getLayout()
+    {
+        return layout;
+    }
+
+    public int getBlockSize()
+    {
+        return blockSize;
+    }
+
+    public int getCellCount()
+    {
+        return cells.length;
+    }
+
+    /**
+     * Returns the number of the field at target index, where the index is <code>row * size + column</code>.
+     *
+     * @return the number or 0 if the field is empty
+     */
+    public int get(int index)
+    {
+        return cells[index];
+    }
+
+    public int get(int row, int column)
+    {
+        return cells[row * size + column];
+    }
+
+    /**
+     * Returns the count of fields that contain a number.
+     */
+    public int getGivenCount()
+    {
+        int count = 0;
+        for (byte cell : cells)
+        {
+            count += cell != 0
+                     ? 1
+                     : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Returns a copy of the packed numbers of this grid.
+     */
+    public byte[] toBytes()
+    {
+        return cells.clone();
+    }
+
+    /**
+     * Copies the packed numbers of this grid to target array, so they can be read without a copy of the grid.
+     *
+     * @param target array to copy the numbers to
+     * @param offset index of the first field inside the array
+     */
+    public void copyTo(byte[] target, int offset)
+    {
+        System.arraycopy(cells, 0, target, offset, cells.length);
+    }
+
+    public int[][] toArray()
+    {
+        int[][] numbers = new int[size][size];
+        for (int i = 0; i < cells.length; i++)
+        {
+            numbers[i / size][i % size] = cells[i];
+        }
+        return numbers;
+    }
+
+    /**
+     * Returns the fields of this grid as a single line in the format of {@linkplain #parse(CharSequence)}, where
+     * empty fields are written as <code>.</code>.
+     *
+     * @throws IllegalStateException if the grid is larger than 35x35
+     */
+    public String toLine()
+    {
+        if (size > DIGITS.length())
+            throw new IllegalStateException("grid of size " + size + " can not be written as line");
+        char[] line = new char[cells.length];
+        for (int i = 0; i < cells.length; i++)
+        {
+            line[i] = cells[i] == 0
+                      ? '.'
+                      : DIGITS.charAt(cells[i] - 1);
+        }
+        return new String(line);
+    }
+
+    /**
+     * Creates a new {@link Sudoku} where every field with a number of this grid is fixed.
+     */
+    public Sudoku toSudoku()
+    {
+        return new Sudoku(toArray(), layout);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Grid grid = (Grid) o;
+        return size == grid.size && Arrays.equals(cells, grid.cells) && layout.equals(grid.layout);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(cells);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toSudoku().toString();
+    }
+}
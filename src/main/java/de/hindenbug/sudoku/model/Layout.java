@@ -0,0 +1,359 @@
+package de.hindenbug.sudoku.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A <code>Layout</code> defines the units of a {@link Sudoku}. A unit is a group of fields where every number may
+ * be used at most once. Most units are houses, that contain every number exactly once: the rows, the columns, the
+ * regions (the blocks of a classic sudoku or the irregular regions of a jigsaw sudoku) and optionally the two
+ * diagonals. Killer sudokus add cages, that are smaller units whose numbers must sum up to a given value.
+ * <p>
+ * The units of each field and the peers of each field, that are all other fields sharing a unit, are calculated
+ * once when the layout is created. A layout is immutable, the arrays returned by its getters must not be changed.
+ *
+ * @see #classic(int)
+ */
+public final class Layout
+{
+    public enum UnitType
+    {
+        ROW, COLUMN, REGION, DIAGONAL, CAGE
+    }
+
+    private static final Map<Integer, Layout> CLASSIC_LAYOUTS = new ConcurrentHashMap<>();
+
+    private final int size;
+    private final int[][] units;
+    private final UnitType[] types;
+    private final int[] sums;
+    private final int houseCount;
+
+    private final int[][] unitsOf;
+    private final int[][] peers;
+    /*
+    the fields of each unit as bit masks, created on first use
+     */
+    private volatile long[] unitMasks;
+
+    private Layout(int size, List<int[]> units, List<UnitType> types, List<Integer> sums)
+    {
+        this.size = size;
+        this.units = units.toArray(new int[units.size()][]);
+        this.types = types.toArray(new UnitType[types.size()]);
+        this.sums = sums.stream().mapToInt(Integer::intValue).toArray();
+
+        int houses = 0;
+        for (UnitType type : this.types)
+        {
+            houses += type != UnitType.CAGE
+                      ? 1
+                      : 0;
+        }
+        this.houseCount = houses;
+
+        int cellCount = size * size;
+        List<List<Integer>> unitsOfCell = new ArrayList<>(cellCount);
+        List<TreeSet<Integer>> peersOfCell = new ArrayList<>(cellCount);
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            unitsOfCell.add(new ArrayList<>());
+            peersOfCell.add(new TreeSet<>());
+        }
+        for (int unit = 0; unit < this.units.length; unit++)
+        {
+            for (int cell : this.units[unit])
+            {
+                if (cell < 0 || cell >= cellCount)
+                    throw new IllegalArgumentException("field " + cell + " outside of range 0 - " + cellCount);
+                unitsOfCell.get(cell).add(unit);
+                for (int peer : this.units[unit])
+                {
+                    if (peer != cell)
+                        peersOfCell.get(cell).add(peer);
+                }
+            }
+        }
+        this.unitsOf = new int[cellCount][];
+        this.peers = new int[cellCount][];
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            unitsOf[cell] = unitsOfCell.get(cell).stream().mapToInt(Integer::intValue).toArray();
+            peers[cell] = peersOfCell.get(cell).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Returns the layout of a classic sudoku with rows, columns and square blocks. Classic layouts are cached, so
+     * every sudoku of the same size shares its tables.
+     *
+     * @param size count of rows and columns, must be a square number
+     */
+    public static Layout classic(int size)
+    {
+        return CLASSIC_LAYOUTS.computeIfAbsent(size, s -> builder(s).addBlocks().build());
+    }
+
+    /**
+     * Returns the layout of a diagonal sudoku, where both diagonals must contain every number once, too.
+     */
+    public static Layout diagonal(int size)
+    {
+        return builder(size).addBlocks().addDiagonals().build();
+    }
+
+    /**
+     * Returns the layout of a jigsaw sudoku with irregular regions instead of square blocks.
+     *
+     * @param size     count of rows and columns
+     * @param regionOf region index (0 - size - 1) of each field row by row
+     */
+    public static Layout jigsaw(int size, int[] regionOf)
+    {
+        return builder(size).addRegions(regionOf).build();
+    }
+
+    /**
+     * Creates a builder whose layout contains the rows and columns of target size.
+     */
+    public static Builder builder(int size)
+    {
+        return new Builder(size);
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public int getUnitCount()
+    {
+        return units.length;
+    }
+
+    /**
+     * Returns the count of units that contain every number exactly once. The houses are the units with the indices
+     * 0 to <code>houseCount - 1</code>, all further units are cages.
+     */
+    public int getHouseCount()
+    {
+        return houseCount;
+    }
+
+    public boolean hasCages()
+    {
+        return houseCount < units.length;
+    }
+
+    /**
+     * Returns the field indices (<code>row * size + column</code>) of target unit.
+     */
+    public int[] getUnitFields(int unit)
+    {
+        return units[unit];
+    }
+
+    public UnitType getUnitType(int unit)
+    {
+        return types[unit];
+    }
+
+    /**
+     * Returns the sum of the numbers of target cage.
+     *
+     * @return the sum or 0 if the unit is a house
+     */
+    public int getSum(int unit)
+    {
+        return sums[unit];
+    }
+
+    /**
+     * Returns the units of target field in ascending order, so the row is followed by the column.
+     */
+    public int[] getUnitsOf(int cell)
+    {
+        return unitsOf[cell];
+    }
+
+    /**
+     * Returns all other fields that share a unit with target field in ascending order.
+     */
+    public int[] getPeers(int cell)
+    {
+        return peers[cell];
+    }
+
+    /**
+     * Returns the fields of all units as bit masks. Field <code>cell</code> of a unit is bit <code>cell % 64</code>
+     * of the word <code>unit * words + cell / 64</code>, where <code>words</code> is
+     * <code>(size * size + 63) / 64</code>. The masks are created on the first call and kept by this layout.
+     */
+    public long[] getUnitMasks()
+    {
+        long[] masks = unitMasks;
+        if (masks == null)
+        {
+            int words = (size * size + 63) / 64;
+            masks = new long[units.length * words];
+            for (int unit = 0; unit < units.length; unit++)
+            {
+                for (int cell : units[unit])
+                    masks[unit * words + (cell >>> 6)] |= 1L << cell;
+            }
+            unitMasks = masks;
+        }
+        return masks;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Layout layout = (Layout) o;
+        return size == layout.size
+                && Arrays.deepEquals(units, layout.units)
+                && Arrays.equals(types, layout.types)
+                && Arrays.equals(sums, layout.sums);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * size + Arrays.deepHashCode(units);
+    }
+
+    /**
+     * A <code>Builder</code> collects the units of a layout. Rows and columns are always part of a layout.
+     */
+    public static final class Builder
+    {
+        private final int size;
+        private final List<int[]> units = new ArrayList<>();
+        private final List<UnitType> types = new ArrayList<>();
+        private final List<Integer> sums = new ArrayList<>();
+        private final List<int[]> cages = new ArrayList<>();
+        private final List<Integer> cageSums = new ArrayList<>();
+
+        private Builder(int size)
+        {
+            if (size < 1 || size > Grid.MAX_SIZE)
+                throw new IllegalArgumentException("size " + size + " outside of range 1 - " + Grid.MAX_SIZE);
+            this.size = size;
+            for (int row = 0; row < size; row++)
+            {
+                int[] unit = new int[size];
+                for (int col = 0; col < size; col++)
+                    unit[col] = row * size + col;
+                addHouse(unit, UnitType.ROW);
+            }
+            for (int col = 0; col < size; col++)
+            {
+                int[] unit = new int[size];
+                for (int row = 0; row < size; row++)
+                    unit[row] = row * size + col;
+                addHouse(unit, UnitType.COLUMN);
+            }
+        }
+
+        private void addHouse(int[] unit, UnitType type)
+        {
+            units.add(unit);
+            types.add(type);
+            sums.add(0);
+        }
+
+        /**
+         * Adds the square blocks of a classic sudoku.
+         */
+        public Builder addBlocks()
+        {
+            int blockSize = (int) Math.sqrt(size);
+            if (blockSize * blockSize != size)
+                throw new IllegalArgumentException("size " + size + " is not a square number");
+            int[] regionOf = new int[size * size];
+            for (int cell = 0; cell < regionOf.length; cell++)
+            {
+                int row = cell / size;
+                int col = cell % size;
+                regionOf[cell] = (row / blockSize) * blockSize + col / blockSize;
+            }
+            return addRegions(regionOf);
+        }
+
+        /**
+         * Adds regions of any shape.
+         *
+         * @param regionOf region index (0 - size - 1) of each field row by row
+         */
+        public Builder addRegions(int[] regionOf)
+        {
+            if (regionOf.length != size * size)
+                throw new IllegalArgumentException("expected " + size * size + " fields, got " + regionOf.length);
+            int[][] regions = new int[size][size];
+            int[] counts = new int[size];
+            for (int cell = 0; cell < regionOf.length; cell++)
+            {
+                int region = regionOf[cell];
+                if (region < 0 || region >= size || counts[region] == size)
+                    throw new IllegalArgumentException("region " + region + " of field " + cell
+                            + " is out of range or contains more than " + size + " fields");
+                regions[region][counts[region]++] = cell;
+            }
+            for (int[] region : regions)
+                addHouse(region, UnitType.REGION);
+            return this;
+        }
+
+        /**
+         * Adds the two diagonals.
+         */
+        public Builder addDiagonals()
+        {
+            int[] main = new int[size];
+            int[] anti = new int[size];
+            for (int i = 0; i < size; i++)
+            {
+                main[i] = i * size + i;
+                anti[i] = i * size + size - 1 - i;
+            }
+            addHouse(main, UnitType.DIAGONAL);
+            addHouse(anti, UnitType.DIAGONAL);
+            return this;
+        }
+
+        /**
+         * Adds a cage of a killer sudoku.
+         *
+         * @param sum   sum of the numbers of the cage
+         * @param cells field indices of the cage
+         */
+        public Builder addCage(int sum, int... cells)
+        {
+            if (cells.length == 0 || cells.length > size)
+                throw new IllegalArgumentException("cage must contain 1 - " + size + " fields");
+            cages.add(cells.clone());
+            cageSums.add(sum);
+            return this;
+        }
+
+        public Layout build()
+        {
+            List<int[]> allUnits = new ArrayList<>(units);
+            List<UnitType> allTypes = new ArrayList<>(types);
+            List<Integer> allSums = new ArrayList<>(sums);
+            for (int i = 0; i < cages.size(); i++)
+            {
+                allUnits.add(cages.get(i));
+                allTypes.add(UnitType.CAGE);
+                allSums.add(cageSums.get(i));
+            }
+            return new Layout(size, allUnits, allTypes, allSums);
+        }
+    }
+}
@@ -4,13 +4,15 @@ import java.util.*;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  * A <code>Sudoku</code>  is a logic-based, combinatorial number-placement puzzle. The objective is to fill
  * a 9×9 grid with digits so that each column, each row, and each of the nine 3×3 subgrids that compose the
  * grid (also called "boxes", "blocks", "regions", or "subsquares") contains all of the digits from 1 to 9.
  * The puzzle setter provides a partially completed grid, which for a well-posed puzzle has a unique solution.
+ * <p>
+ * Variants like diagonal, jigsaw or killer sudokus use another {@link Layout}, that defines which fields share a
+ * unit. Validation and candidates always follow the layout.
  */
 public class Sudoku implements Iterable<Field>
 {
@@ -28,16 +30,68 @@ public class Sudoku implements Iterable<Field>
      */
     private Field[][] fields;
 
+    /**
+     * Contains the units of this <code>Sudoku</code>.
+     */
+    private final Layout layout;
+
+    /*
+    peers of each field, created on first use, and the numbers of each unit
+    while the candidates are built. both are kept to reuse this sudoku
+    without allocations.
+     */
+    private List<Field>[] peers;
+    private long[] unitNumbers;
+
+    /*
+    the listeners of the fields, the fields only know the dispatcher and only
+    while there is a listener
+     */
+    private SudokuListener[] listeners = new SudokuListener[0];
+    private final SudokuListener dispatcher = new SudokuListener()
+    {
+        @Override
+        public void fixed(Field field, int number)
+        {
+            for (SudokuListener listener : listeners)
+                listener.fixed(field, number);
+        }
+
+        @Override
+        public void candidateRemoved(Field field, int candidate)
+        {
+            for (SudokuListener listener : listeners)
+                listener.candidateRemoved(field, candidate);
+        }
+
+        @Override
+        public void reloaded(Sudoku sudoku)
+        {
+            for (SudokuListener listener : listeners)
+                listener.reloaded(sudoku);
+        }
+    };
+
     /**
      * Create a new sudoku with the default size {@linkplain #DEFAULT_SIZE}.
      */
     public Sudoku()
     {
         initFields(DEFAULT_SIZE);
+        this.layout = Layout.classic(DEFAULT_SIZE);
     }
 
     public Sudoku(int[][] sudoku)
     {
+        this(sudoku, Layout.classic(sudoku.length));
+    }
+
+    public Sudoku(int[][] sudoku, Layout layout)
+    {
+        if (layout.size() != sudoku.length)
+            throw new IllegalArgumentException("layout of size " + layout.size()
+                    + " does not match sudoku of size " + sudoku.length);
+        this.layout = layout;
         fields = new Field[sudoku.length][];
         for (int row = 0; row < sudoku.length; row++)
         {
@@ -67,6 +121,69 @@ public class Sudoku implements Iterable<Field>
         }
     }
 
+    /**
+     * Replaces all numbers of this sudoku with target packed numbers, so this sudoku and its fields can be reused
+     * for another puzzle of the same layout. Every field with a number is fixed, all other fields are empty and
+     * have no candidates.
+     *
+     * @param cells  numbers of the fields row by row, 0 for empty fields
+     * @param offset index of the first field inside the array
+     */
+    public void load(byte[] cells, int offset)
+    {
+        int size = fields.length;
+        for (int row = 0; row < size; row++)
+        {
+            for (int col = 0; col < size; col++)
+                fields[row][col].load(cells[offset + row * size + col]);
+        }
+        dispatcher.reloaded(this);
+    }
+
+    /**
+     * Writes the numbers of this sudoku to target array in the packed form of {@linkplain #load(byte[], int)}.
+     *
+     * @param cells  array to write the numbers to, 0 for empty fields
+     * @param offset index of the first field inside the array
+     */
+    public void copyTo(byte[] cells, int offset)
+    {
+        int size = fields.length;
+        for (int row = 0; row < size; row++)
+        {
+            for (int col = 0; col < size; col++)
+                cells[offset + row * size + col] = (byte) fields[row][col].getNumber();
+        }
+    }
+
+    /**
+     * Adds a listener that is told about every fix and every removed candidate of the fields of this sudoku and about
+     * every reload of all fields, until it is {@linkplain #removeListener(SudokuListener) removed}.
+     */
+    public void addListener(SudokuListener listener)
+    {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        if (listeners.length == 1)
+            forEach(field -> field.setListener(dispatcher));
+    }
+
+    /**
+     * Removes a listener added by {@linkplain #addListener(SudokuListener)}. Nothing happens if it was not added.
+     */
+    public void removeListener(SudokuListener listener)
+    {
+        int index = Arrays.asList(listeners).indexOf(listener);
+        if (index < 0)
+            return;
+        SudokuListener[] rest = new SudokuListener[listeners.length - 1];
+        System.arraycopy(listeners, 0, rest, 0, index);
+        System.arraycopy(listeners, index + 1, rest, index, rest.length - index);
+        listeners = rest;
+        if (listeners.length == 0)
+            forEach(field -> field.setListener(null));
+    }
+
     /**
      * Binds a {@link Field} to a specific number, so it can not be changed.
      *
@@ -83,27 +200,69 @@ public class Sudoku implements Iterable<Field>
     }
 
     /**
-     * A sudoku is valid if each number that this sudoku uses, typically 1 - 9, is unique for its row, column and
-     * block. Other values set inside the field are ignored.
+     * A sudoku is valid if each number that this sudoku uses, typically 1 - 9, is unique for each unit of its
+     * {@link Layout}, typically row, column and block. The numbers of a cage may not exceed the sum of the cage.
+     * Other values set inside the field are ignored.
      *
      * @return <code>true</code> if this sudoku is valid, <code>false</code> otherwise
      */
     public boolean isValid()
     {
-        for (int row = 0; row < fields.length; row++)
+        for (int unit = 0; unit < layout.getUnitCount(); unit++)
         {
-            for (int col = 0; col < fields[row].length; col++)
+            if (!isValidUnit(unit))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns <code>true</code> if the number of target field is unique in all units of the field and the cages of
+     * the field do not exceed their sums.
+     *
+     * @param field field to check
+     * @return <code>true</code> if the field is valid
+     */
+    public boolean isSingleInUnits(Field field)
+    {
+        for (int unit : layout.getUnitsOf(field.getRow() * size() + field.getColumn()))
+        {
+            if (!isValidUnit(unit))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean isValidUnit(int unit)
+    {
+        long numbers = 0;
+        int sum = 0;
+        boolean isComplete = true;
+        for (int cell : layout.getUnitFields(unit))
+        {
+            int number = getNumber(cell);
+            if (number > 0)
             {
-                int number = fields[row][col].getNumber();
-                boolean isTarget = number > 0;
-                boolean isUnique = isSingleInRow(number, row)
-                        && isSingleInColumn(number, col)
-                        && isSingleInBlock(number, row, col);
-                if (isTarget && !isUnique)
+                long bit = 1L << (number - 1);
+                if ((numbers & bit) != 0)
                     return false;
+                numbers |= bit;
+                sum += number;
+            } else
+            {
+                isComplete = false;
             }
         }
-        return true;
+        int target = layout.getSum(unit);
+        return target == 0
+                || (isComplete
+                    ? sum == target
+                    : sum < target);
+    }
+
+    private int getNumber(int cell)
+    {
+        return fields[cell / fields.length][cell % fields.length].getNumber();
     }
 
     /**
@@ -130,48 +289,41 @@ public class Sudoku implements Iterable<Field>
      */
     public void buildCandidates()
     {
-        List<Set<Integer>> rows = new ArrayList<>();
-        List<Set<Integer>> columns = new ArrayList<>();
-        List<Set<Integer>> blocks = new ArrayList<>();
-        int blockSize = getBlockSize();
-
-        for (int i = 0; i < fields.length; i++)
-        {
-            rows.add(getNumbersInRow(i));
-            columns.add(getNumbersInColumn(i));
-        }
-        for (int i = 0; i < fields.length; i += blockSize)
+        if (unitNumbers == null)
+            unitNumbers = new long[layout.getUnitCount()];
+        for (int unit = 0; unit < unitNumbers.length; unit++)
         {
-            for (int j = 0; j < fields.length; j += blockSize)
+            unitNumbers[unit] = 0;
+            for (int cell : layout.getUnitFields(unit))
             {
-                blocks.add(getNumbersInBlock(i, j));
+                int number = getNumber(cell);
+                if (number > 0)
+                    unitNumbers[unit] |= 1L << (number - 1);
             }
         }
 
         for (int row = 0; row < fields.length; row++)
         {
-            Set<Integer> rowNumbers = rows.get(row);
             for (int col = 0; col < fields[row].length; col++)
             {
                 Field field = fields[row][col];
                 field.clearCandidates();
                 if (!field.isFix())
                 {
-                    Set<Integer> columnNumbers = columns.get(col);
-
-                    int blockNum = (row / blockSize) * blockSize + col / blockSize;
-                    Set<Integer> blockNumbers = blocks.get(blockNum);
-
-                    int[] candidates = IntStream.rangeClosed(1, fields.length)
-                            .filter(i -> !rowNumbers.contains(i))
-                            .filter(i -> !columnNumbers.contains(i))
-                            .filter(i -> !blockNumbers.contains(i))
-                            .toArray();
-                    field.addCandidates(candidates);
+                    long used = 0;
+                    for (int unit : layout.getUnitsOf(row * fields.length + col))
+                        used |= unitNumbers[unit];
+
+                    for (int number = 1; number <= fields.length; number++)
+                    {
+                        if ((used & (1L << (number - 1))) == 0)
+                            field.addCandidate(number);
+                    }
                 }
 
             }
         }
+        dispatcher.reloaded(this);
     }
 
     public Field getField(int row, int column)
@@ -256,6 +408,51 @@ public class Sudoku implements Iterable<Field>
         return null;
     }
 
+    public Layout getLayout()
+    {
+        return layout;
+    }
+
+    /**
+     * Returns all other fields that share a unit of the {@link Layout} with target field. The list is created once
+     * for each field and can not be changed.
+     *
+     * @param field field whose peers should be returned
+     * @return the peers of the field
+     */
+    @SuppressWarnings("unchecked")
+    public List<Field> getPeers(Field field)
+    {
+        if (peers == null)
+            peers = (List<Field>[]) new List<?>[size() * size()];
+        int cell = field.getRow() * size() + field.getColumn();
+        if (peers[cell] == null)
+        {
+            List<Field> result = new ArrayList<>(layout.getPeers(cell).length);
+            for (int peer : layout.getPeers(cell))
+            {
+                result.add(fields[peer / fields.length][peer % fields.length]);
+            }
+            peers[cell] = Collections.unmodifiableList(result);
+        }
+        return peers[cell];
+    }
+
+    /**
+     * Returns <code>true</code> if target number is used by any peer of target field.
+     *
+     * @see #getPeers(Field)
+     */
+    public boolean isInPeers(int number, Field field)
+    {
+        for (int peer : layout.getPeers(field.getRow() * size() + field.getColumn()))
+        {
+            if (getNumber(peer) == number)
+                return true;
+        }
+        return false;
+    }
+
     public Field getLastEmptyField()
     {
         int size = size();
@@ -501,21 +698,22 @@ public class Sudoku implements Iterable<Field>
     }
 
     /**
-     * Returns all blocks of this sudoku.
+     * Returns all blocks of this sudoku. For a jigsaw sudoku these are the irregular regions of its {@link Layout}.
      *
      * @return an interable with sets as block, that contain the fields
      */
     public Collection<? extends Set<Field>> getBlocks()
     {
         List<Set<Field>> blocks = new ArrayList<>(size());
-        int blockSize = getBlockSize();
-        int size = size();
-
-        for (int row = 0; row < size; row += blockSize)
+        for (int unit = 0; unit < layout.getUnitCount(); unit++)
         {
-            for (int col = 0; col < size; col += blockSize)
+            if (layout.getUnitType(unit) == Layout.UnitType.REGION)
             {
-                blocks.add(getBlock(row, col));
+                int[] cells = layout.getUnitFields(unit);
+                Set<Field> block = new HashSet<>(cells.length);
+                for (int cell : cells)
+                    block.add(fields[cell / fields.length][cell % fields.length]);
+                blocks.add(block);
             }
         }
         return blocks;
@@ -0,0 +1,31 @@
+package de.hindenbug.sudoku.model;
+
+/**
+ * A <code>SudokuListener</code> is told about the changes of the fields of a {@link Sudoku} while they happen, so
+ * it can follow a solve without comparing the fields before and after each step. The listener is called on the
+ * thread that changes the field, after the change.
+ *
+ * @see Sudoku#addListener(SudokuListener)
+ */
+public interface SudokuListener
+{
+    /**
+     * Called after target field was fixed to target number.
+     */
+    void fixed(Field field, int number);
+
+    /**
+     * Called after target candidate was removed from target field. Candidates that the field did not contain and
+     * the candidates that a fixed field drops are not reported.
+     */
+    void candidateRemoved(Field field, int candidate);
+
+    /**
+     * Called after many fields were changed at once, by {@linkplain Sudoku#load(byte[], int) loading} a puzzle or
+     * {@linkplain Sudoku#buildCandidates() building} the candidates. A listener that keeps a copy of the fields reads
+     * them again.
+     */
+    default void reloaded(Sudoku sudoku)
+    {
+    }
+}
@@ -0,0 +1,347 @@
+package de.hindenbug.sudoku.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.solving.BacktrackingEngine;
+import de.hindenbug.sudoku.solving.SearchEngine;
+import de.hindenbug.sudoku.solving.SolveResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A <code>SolvingService</code> solves sudokus that are posted to a small HTTP server on the loopback interface.
+ * The body of a <code>POST /solve</code> request contains one sudoku per line in the format of
+ * {@link Grid#parse(CharSequence)}, so a single sudoku and a batch are sent the same way. The response contains one
+ * line for each sudoku with the solution (or the sudoku itself if it is not solved), the status and the nanoseconds
+ * spent on it, separated by tabs:
+ * <pre>
+ * 534678912672195348198342567859761423426853791713924856961537284287419635345286179	SOLVED	18250
+ * </pre>
+ * The headers <code>X-Solved-Count</code> and <code>X-Solve-Nanos</code> contain the count of solved sudokus and the
+ * time spent on the whole batch.
+ * <p>
+ * Requests are read by their own threads and solved by a fixed count of worker threads, that reuse the scratch
+ * buffers of the {@link SearchEngine}. The timeout of a request starts when it arrives. At most
+ * <code>maxRequests</code> batches are solved at the same time, further requests wait until their timeout and are then
+ * rejected with <code>503</code>. If already {@value #WAITING_PER_REQUEST} times as many requests wait, a request is
+ * rejected at once. A batch that runs out of time is answered with status <code>TIMEOUT</code> for every sudoku that
+ * was not solved yet. The deadline is passed to the engine, so a single hard sudoku is stopped as well.
+ *
+ * @see #start()
+ */
+public class SolvingService
+{
+    private static final Logger LOG = LoggerFactory.getLogger(SolvingService.class);
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10000;
+
+    /**
+     * Largest body of a request, a batch of about 200000 9x9 sudokus.
+     */
+    private static final int MAX_BODY_BYTES = 16 * 1024 * 1024;
+    private static final String TIMEOUT = "TIMEOUT";
+    /**
+     * count of requests that may wait for the limiter per batch that may be solved
+     */
+    private static final int WAITING_PER_REQUEST = 4;
+
+    private final int port;
+    private final int threadCount;
+    private final long timeoutMillis;
+    private final SearchEngine engine;
+    private final Semaphore limiter;
+    private final Semaphore waiting;
+
+    private HttpServer server;
+    private ExecutorService dispatcher;
+    private ExecutorService executor;
+
+    /**
+     * Creates a service with the default engine, a worker thread per processor and the default timeout.
+     *
+     * @param port port to listen on or 0 to use any free port
+     */
+    public SolvingService(int port)
+    {
+        this(port, Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors(),
+                DEFAULT_TIMEOUT_MILLIS, new BacktrackingEngine());
+    }
+
+    /**
+     * @param port          port to listen on or 0 to use any free port
+     * @param threadCount   count of worker threads
+     * @param maxRequests   count of batches that may be solved at the same time
+     * @param timeoutMillis time a request may take from its arrival, including the time it waits for the limiter
+     * @param engine        engine that solves the sudokus, it must be safe to use from several threads
+     */
+    public SolvingService(int port, int threadCount, int maxRequests, long timeoutMillis, SearchEngine engine)
+    {
+        if (threadCount < 1 || maxRequests < 1 || timeoutMillis < 1)
+            throw new IllegalArgumentException("thread count, request limit and timeout must be positive");
+        this.port = port;
+        this.threadCount = threadCount;
+        this.timeoutMillis = timeoutMillis;
+        this.engine = engine;
+        this.limiter = new Semaphore(maxRequests);
+        this.waiting = new Semaphore(maxRequests * WAITING_PER_REQUEST);
+    }
+
+    /**
+     * Starts the service on the loopback interface.
+     *
+     * @throws IOException          if the port can not be bound
+     * @throws IllegalStateException if the service is already running
+     */
+    public synchronized void start() throws IOException
+    {
+        if (server != null)
+            throw new IllegalStateException("service already started");
+
+        // requests are taken up at once, so their timeout is not spent in a queue of the server
+        dispatcher = Executors.newCachedThreadPool(daemon("request-"));
+        executor = Executors.newFixedThreadPool(threadCount, daemon("solver-"));
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(dispatcher);
+        server.createContext("/solve", this::handle);
+        server.start();
+        LOG.info("solving service listening on {}", server.getAddress());
+    }
+
+    private static ThreadFactory daemon(String prefix)
+    {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable ->
+        {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Stops the service. Requests that are currently solved are answered before the workers stop.
+     */
+    public synchronized void stop()
+    {
+        if (server == null)
+            return;
+        server.stop(0);
+        dispatcher.shutdown();
+        executor.shutdown();
+        server = null;
+        dispatcher = null;
+        executor = null;
+    }
+
+    /**
+     * Returns the port the service listens on, which is useful if the service was created with port 0.
+     */
+    public synchronized int getPort()
+    {
+        if (server == null)
+            throw new IllegalStateException("service not started");
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try
+        {
+            if (!"POST".equals(exchange.getRequestMethod()))
+            {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                send(exchange, 405, "only POST is supported\n");
+                return;
+            }
+
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null)
+            {
+                send(exchange, 413, "request body larger than " + MAX_BODY_BYTES + " bytes\n");
+                return;
+            }
+
+            List<Grid> puzzles;
+            try
+            {
+                puzzles = parse(new String(body, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e)
+            {
+                send(exchange, 400, e.getMessage() + "\n");
+                return;
+            }
+
+            if (!waiting.tryAcquire())
+            {
+                send(exchange, 503, "too many requests\n");
+                return;
+            }
+            boolean acquired;
+            try
+            {
+                acquired = limiter.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } finally
+            {
+                waiting.release();
+            }
+            if (!acquired)
+            {
+                send(exchange, 503, "too many requests\n");
+                return;
+            }
+            try
+            {
+                executor.submit(() -> solve(exchange, puzzles, start, deadline)).get();
+            } finally
+            {
+                limiter.release();
+            }
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, "service stopped\n");
+        } catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            LOG.error("request failed", e.getCause());
+            send(exchange, 500, "internal error\n");
+        } catch (RuntimeException e)
+        {
+            LOG.error("request failed", e);
+            send(exchange, 500, "internal error\n");
+        } finally
+        {
+            exchange.close();
+        }
+    }
+
+    private Void solve(HttpExchange exchange, List<Grid> puzzles, long start, long deadline) throws IOException
+    {
+        StringBuilder response = new StringBuilder(puzzles.size() * 100);
+        int solvedCount = 0;
+        for (Grid puzzle : puzzles)
+        {
+            String line = puzzle.toLine();
+            if (System.nanoTime() - deadline > 0)
+            {
+                response.append(line).append('\t').append(TIMEOUT).append("\t0\n");
+                continue;
+            }
+
+            SolveResult result = engine.solve(puzzle, deadline);
+            if (result.isSolved())
+            {
+                line = result.getSolution().toLine();
+                solvedCount++;
+            }
+            response.append(line).append('\t').append(result.getStatus()).append('\t')
+                    .append(result.getNanos()).append('\n');
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.getResponseHeaders().set("X-Solved-Count", String.valueOf(solvedCount));
+        exchange.getResponseHeaders().set("X-Solve-Nanos", String.valueOf(System.nanoTime() - start));
+        send(exchange, 200, response.toString());
+        return null;
+    }
+
+    /**
+     * Parses one sudoku of each line that is not blank.
+     *
+     * @throws IllegalArgumentException if a line is not a sudoku
+     */
+    static List<Grid> parse(String body)
+    {
+        List<Grid> puzzles = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new StringReader(body)))
+        {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null)
+            {
+                lineNumber++;
+                if (line.trim().isEmpty())
+                    continue;
+                try
+                {
+                    puzzles.add(Grid.parse(line));
+                } catch (IllegalArgumentException e)
+                {
+                    throw new IllegalArgumentException("line " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        } catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        return puzzles;
+    }
+
+    /**
+     * Reads the whole body.
+     *
+     * @return the body or <code>null</code> if it is larger than {@link #MAX_BODY_BYTES}
+     */
+    private byte[] readBody(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = in.read(buffer)) >= 0)
+        {
+            if (body.size() + count > MAX_BODY_BYTES)
+                return null;
+            body.write(buffer, 0, count);
+        }
+        return body.toByteArray();
+    }
+
+    private void send(HttpExchange exchange, int status, String body) throws IOException
+    {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Runs the service until the process is stopped.
+     *
+     * @param args optional port, {@value #DEFAULT_PORT} by default
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int port = args.length > 0
+                   ? Integer.parseInt(args[0])
+                   : DEFAULT_PORT;
+        SolvingService service = new SolvingService(port);
+        service.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(service::stop));
+    }
+}
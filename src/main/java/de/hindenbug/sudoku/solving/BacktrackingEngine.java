@@ -0,0 +1,114 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Grid;
+
+import java.util.Random;
+
+/**
+ * The <code>BacktrackingEngine</code> tries the candidates of the fields one after another with a
+ * {@link SearchState}. Every thread reuses the search state of its {@link SolverArena}, so solving a grid does not
+ * allocate the search buffers again.
+ * <p>
+ * The order in which the candidates of a guessed field are tried is set by a {@link ValueOrder}. A random order
+ * starts with the same seed for every grid, so solving a grid twice gives the same result.
+ */
+public class BacktrackingEngine implements SearchEngine
+{
+    /*
+    count of tried candidates between two looks at the clock, a few
+    microseconds of search
+     */
+    private static final long NODES_PER_CHECK = 4096;
+
+    private final ValueOrder valueOrder;
+    private final long seed;
+
+    /**
+     * Creates an engine that tries the candidates in ascending order.
+     */
+    public BacktrackingEngine()
+    {
+        this(ValueOrder.ASCENDING, 0);
+    }
+
+    /**
+     * @param valueOrder order in which the candidates of a field are tried
+     * @param seed       seed of the {@linkplain ValueOrder#RANDOM random} order, ignored by the other orders
+     */
+    public BacktrackingEngine(ValueOrder valueOrder, long seed)
+    {
+        this.valueOrder = valueOrder;
+        this.seed = seed;
+    }
+
+    public ValueOrder getValueOrder()
+    {
+        return valueOrder;
+    }
+
+    @Override
+    public SolveResult solve(Grid puzzle)
+    {
+        return solve(puzzle, null);
+    }
+
+    @Override
+    public SolveResult solve(Grid puzzle, SolveTrace trace)
+    {
+        return solve(puzzle, trace, false, 0);
+    }
+
+    @Override
+    public SolveResult solve(Grid puzzle, long deadline)
+    {
+        return solve(puzzle, null, true, deadline);
+    }
+
+    private SolveResult solve(Grid puzzle, SolveTrace trace, boolean hasDeadline, long deadline)
+    {
+        long time = System.nanoTime();
+        SearchState state = SolverArena.current().getSearchState();
+        if (!state.load(puzzle))
+            return new SolveResult(SolveResult.Status.INVALID, puzzle, null, 0, System.nanoTime() - time);
+
+        boolean isSolved;
+        boolean isTimedOut = false;
+        state.setTrace(trace);
+        state.setValueOrder(valueOrder);
+        if (valueOrder == ValueOrder.RANDOM)
+            state.setRandom(new Random(seed));
+        try
+        {
+            if (hasDeadline)
+            {
+                // the search pauses after the budget, so the clock is only read between the pauses
+                isSolved = state.next(NODES_PER_CHECK);
+                while (!isSolved && !state.isExhausted() && !isTimedOut)
+                {
+                    isTimedOut = System.nanoTime() - deadline >= 0;
+                    if (!isTimedOut)
+                        isSolved = state.next(NODES_PER_CHECK);
+                }
+            } else
+            {
+                isSolved = state.next();
+            }
+        } finally
+        {
+            state.setTrace(null);
+            state.setValueOrder(ValueOrder.ASCENDING);
+            state.setRandom(null);
+        }
+        return new SolveResult(isSolved
+                               ? SolveResult.Status.SOLVED
+                               : isTimedOut
+                                 ? SolveResult.Status.TIMEOUT
+                                 : SolveResult.Status.UNSOLVABLE,
+                puzzle,
+                isSolved
+                ? state.toGrid()
+                : null,
+                state.getNodeCount(),
+                System.nanoTime() - time);
+    }
+}
@@ -0,0 +1,298 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A <code>BatchPropagator</code> fixes the naked and hidden singles of many classic sudokus at once. The sudokus are
+ * stored as structure of arrays: for each field and each unit there is one array that contains the value of all
+ * sudokus of the batch. Every step is a loop over these arrays without branches, so the just in time compiler can
+ * use the vector instructions of the processor for it.
+ * <p>
+ * The singles are fixed round by round until no sudoku changes anymore. Sudokus that are not solved by the singles
+ * are handed to a {@link Solver}, which continues with the numbers that the singles fixed. A propagator is not
+ * thread safe, but can be reused for any count of batches without allocating its buffers again.
+ *
+ * @see #solve(List, Solver)
+ */
+public class BatchPropagator
+{
+    private final int size;
+    private final int capacity;
+    private final int allNumbers;
+    private final Layout layout;
+
+    /*
+    number of each field as bit (0 for empty fields), candidates of each
+    field and numbers of each unit. the inner index is the sudoku of the
+    batch.
+     */
+    private final int[][] numbers;
+    private final int[][] candidates;
+    private final int[][] unitNumbers;
+
+    /*
+    the number that each field gets in the current round, more than one
+    bit means a contradiction.
+     */
+    private final int[][] pending;
+
+    /*
+    scratch buffers of each sudoku of the batch
+     */
+    private final int[] once;
+    private final int[] twice;
+    private final int[] dead;
+
+    /**
+     * @param size     count of rows and columns of the sudokus, at most 31 as the masks are stored as
+     *                 <code>int</code>
+     * @param capacity count of sudokus that are propagated at once
+     */
+    public BatchPropagator(int size, int capacity)
+    {
+        if (size > 31)
+            throw new IllegalArgumentException("size " + size + " larger than 31");
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be positive");
+        this.size = size;
+        this.capacity = capacity;
+        this.allNumbers = (1 << size) - 1;
+        this.layout = Layout.classic(size);
+
+        int cellCount = size * size;
+        this.numbers = new int[cellCount][capacity];
+        this.candidates = new int[cellCount][capacity];
+        this.pending = new int[cellCount][capacity];
+        this.unitNumbers = new int[layout.getUnitCount()][capacity];
+        this.once = new int[capacity];
+        this.twice = new int[capacity];
+        this.dead = new int[capacity];
+    }
+
+    /**
+     * Solves all sudokus. Sudokus of another size or layout are solved by the solver directly.
+     *
+     * @param puzzles sudokus to solve
+     * @param solver  solver for the sudokus that the singles do not solve
+     * @return the results in the order of the sudokus
+     */
+    public List<SolveResult> solve(List<Grid> puzzles, Solver solver)
+    {
+        List<SolveResult> results = new ArrayList<>(puzzles.size());
+        List<Grid> batch = new ArrayList<>(capacity);
+        for (Grid puzzle : puzzles)
+        {
+            if (puzzle.getLayout() != layout)
+            {
+                solveBatch(batch, solver, results);
+                results.add(solver.solve(puzzle));
+                continue;
+            }
+            batch.add(puzzle);
+            if (batch.size() == capacity)
+                solveBatch(batch, solver, results);
+        }
+        solveBatch(batch, solver, results);
+        return results;
+    }
+
+    private void solveBatch(List<Grid> batch, Solver solver, List<SolveResult> results)
+    {
+        int count = batch.size();
+        if (count == 0)
+            return;
+
+        long time = System.nanoTime();
+        load(batch);
+        long roundCount = 0;
+        while (round(count))
+            roundCount++;
+        boolean[] isSolved = check(count);
+        long nanos = (System.nanoTime() - time) / count;
+
+        byte[] cells = new byte[size * size];
+        for (int board = 0; board < count; board++)
+        {
+            Grid puzzle = batch.get(board);
+            if (isSolved[board])
+            {
+                unload(board, cells);
+                results.add(new SolveResult(SolveResult.Status.SOLVED, puzzle, Grid.of(layout, cells), roundCount,
+                        nanos));
+            } else if (dead[board] != 0)
+            {
+                // the singles are forced, so the puzzle has no solution. the solver finds out if it is valid.
+                results.add(solver.solve(puzzle));
+            } else
+            {
+                unload(board, cells);
+                SolveResult result = solver.solve(Grid.of(layout, cells));
+                if (result.getStatus() == SolveResult.Status.INVALID)
+                {
+                    // singles of one round may conflict with each other, only the puzzle tells if it is invalid
+                    results.add(solver.solve(puzzle));
+                    continue;
+                }
+                results.add(new SolveResult(result.getStatus(), puzzle, result.getSolution(),
+                        roundCount + result.getStepCount(), nanos + result.getNanos()));
+            }
+        }
+        batch.clear();
+    }
+
+    private void load(List<Grid> batch)
+    {
+        for (int cell = 0; cell < numbers.length; cell++)
+        {
+            int[] number = numbers[cell];
+            for (int board = 0; board < batch.size(); board++)
+                number[board] = (1 << batch.get(board).get(cell)) >>> 1;
+        }
+        Arrays.fill(dead, 0);
+        buildUnitNumbers(batch.size());
+    }
+
+    private void unload(int board, byte[] cells)
+    {
+        for (int cell = 0; cell < cells.length; cell++)
+            cells[cell] = (byte) (32 - Integer.numberOfLeadingZeros(numbers[cell][board]));
+    }
+
+    /**
+     * Fixes the singles of one round.
+     *
+     * @return <code>true</code> if a field of any sudoku was fixed
+     */
+    private boolean round(int count)
+    {
+        // candidates and naked singles, an empty field without candidates is dead
+        for (int cell = 0; cell < numbers.length; cell++)
+        {
+            int[] units = layout.getUnitsOf(cell);
+            int[] row = unitNumbers[units[0]];
+            int[] column = unitNumbers[units[1]];
+            int[] block = unitNumbers[units[2]];
+            int[] number = numbers[cell];
+            int[] candidate = candidates[cell];
+            int[] next = pending[cell];
+            for (int board = 0; board < count; board++)
+            {
+                int empty = (number[board] - 1) >> 31;
+                int c = ~(row[board] | column[board] | block[board]) & allNumbers & empty;
+                candidate[board] = c;
+                dead[board] |= empty & ((c - 1) >> 31);
+            }
+            // separate loops, as the compiler does not vectorize loops with too many stores
+            for (int board = 0; board < count; board++)
+            {
+                int c = candidate[board];
+                next[board] = c & (((c & (c - 1)) - 1) >> 31);
+            }
+        }
+
+        // hidden singles, a number without a place inside a unit is dead
+        for (int unit = 0; unit < layout.getHouseCount(); unit++)
+        {
+            int[] fields = layout.getUnitFields(unit);
+            Arrays.fill(once, 0, count, 0);
+            Arrays.fill(twice, 0, count, 0);
+            for (int cell : fields)
+            {
+                int[] candidate = candidates[cell];
+                for (int board = 0; board < count; board++)
+                {
+                    twice[board] |= once[board] & candidate[board];
+                    once[board] |= candidate[board];
+                }
+            }
+            int[] used = unitNumbers[unit];
+            for (int board = 0; board < count; board++)
+            {
+                int missing = allNumbers & ~used[board] & ~once[board];
+                dead[board] |= -missing >> 31;
+                once[board] &= ~twice[board];
+            }
+            for (int cell : fields)
+            {
+                int[] candidate = candidates[cell];
+                int[] next = pending[cell];
+                for (int board = 0; board < count; board++)
+                {
+                    int single = candidate[board] & once[board];
+                    next[board] |= single & -single;
+                }
+            }
+        }
+
+        // fix the singles, a field with two different singles is dead
+        int changed = 0;
+        for (int cell = 0; cell < numbers.length; cell++)
+        {
+            int[] units = layout.getUnitsOf(cell);
+            int[] row = unitNumbers[units[0]];
+            int[] column = unitNumbers[units[1]];
+            int[] block = unitNumbers[units[2]];
+            int[] number = numbers[cell];
+            int[] next = pending[cell];
+            for (int board = 0; board < count; board++)
+            {
+                int bit = next[board];
+                int isSingle = ((bit & (bit - 1)) - 1) >> 31;
+                int isDead = dead[board] | ~isSingle;
+                dead[board] = isDead;
+                next[board] = bit & ~isDead;
+            }
+            for (int board = 0; board < count; board++)
+            {
+                int bit = next[board];
+                number[board] |= bit;
+                row[board] |= bit;
+                column[board] |= bit;
+                block[board] |= bit;
+            }
+            for (int board = 0; board < count; board++)
+                changed |= next[board];
+        }
+        return changed != 0;
+    }
+
+    private void buildUnitNumbers(int count)
+    {
+        for (int unit = 0; unit < unitNumbers.length; unit++)
+        {
+            int[] used = unitNumbers[unit];
+            Arrays.fill(used, 0, count, 0);
+            for (int cell : layout.getUnitFields(unit))
+            {
+                int[] number = numbers[cell];
+                for (int board = 0; board < count; board++)
+                    used[board] |= number[board];
+            }
+        }
+    }
+
+    /**
+     * Returns which sudokus are solved. A sudoku is solved if each unit contains all numbers, as a unit contains
+     * exactly as many fields as there are numbers.
+     */
+    private boolean[] check(int count)
+    {
+        buildUnitNumbers(count);
+        int[] complete = once;
+        Arrays.fill(complete, 0, count, -1);
+        for (int[] used : unitNumbers)
+        {
+            for (int board = 0; board < count; board++)
+                complete[board] &= ((used[board] ^ allNumbers) - 1) >> 31;
+        }
+        boolean[] isSolved = new boolean[count];
+        for (int board = 0; board < count; board++)
+            isSolved[board] = complete[board] != 0 && dead[board] == 0;
+        return isSolved;
+    }
+}
@@ -16,4 +16,12 @@ public interface CandidateRemovalStrategy
      * @return all fields that could be fixed by this strategy
      */
     Collection<Field> removeCandidates(Sudoku sudoku);
+
+    /**
+     * Called by the solver when it is done with target sudoku, for example before the sudoku is reused for another
+     * puzzle. A strategy that keeps state about the sudoku, like a listener, drops it here.
+     */
+    default void release(Sudoku sudoku)
+    {
+    }
 }
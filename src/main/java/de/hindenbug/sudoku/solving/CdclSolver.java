@@ -0,0 +1,580 @@
+package de.hindenbug.sudoku.solving;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A <code>CdclSolver</code> decides if a formula in conjunctive normal form is satisfiable. It uses conflict driven
+ * clause learning: each conflict is analyzed down to the first unique implication point and the resulting clause is
+ * added to the formula, so the same conflict is never searched again. Clauses are watched by two literals, the
+ * next decision is the unassigned variable with the highest activity and the search restarts after a count of
+ * conflicts given by the Luby sequence. Binary clauses, which make up most of a sudoku formula, are kept as lists
+ * of implied literals instead of watched clauses.
+ * <p>
+ * A literal is encoded as <code>2 * variable</code> if positive and <code>2 * variable + 1</code> if negative.
+ */
+final class CdclSolver
+{
+    private static final int NO_REASON = -1;
+    private static final int BINARY_CONFLICT = -2;
+
+    /*
+    a literal implied by a binary clause stores BINARY_REASON - other literal
+    of the clause as reason
+     */
+    private static final int BINARY_REASON = -3;
+
+    private static final int RESTART_BASE = 100;
+    private static final int CONFLICTS_PER_CHECK = 256;
+    private static final double ACTIVITY_DECAY = 0.95;
+
+    private final int variableCount;
+
+    /*
+    per variable: 1 if true, -1 if false, 0 if unassigned
+     */
+    private final byte[] values;
+    private final int[] levels;
+    private final int[] reasons;
+    private final boolean[] phases;
+    private final boolean[] seen;
+
+    private final int[] trail;
+    private int trailSize;
+    private int propagated;
+    private final int[] trailLimits;
+    private int decisionLevel;
+
+    private final List<int[]> clauses;
+    private final int[][] watches;
+    private final int[] watchCounts;
+
+    /*
+    per literal the literals that must be true if the literal is false
+     */
+    private final int[][] binaries;
+    private final int[] binaryCounts;
+    private final int[] binaryConflict;
+    private final int[] binaryReason;
+
+    private final double[] activities;
+    private double activityIncrement;
+    private final int[] heap;
+    private final int[] heapIndex;
+    private int heapSize;
+
+    private int[] learnt;
+    private int learntSize;
+
+    private boolean isConflicting;
+    private boolean isTimedOut;
+    private long decisionCount;
+    private long conflictCount;
+
+    CdclSolver(int variableCount)
+    {
+        this.variableCount = variableCount;
+        this.values = new byte[variableCount];
+        this.levels = new int[variableCount];
+        this.reasons = new int[variableCount];
+        this.phases = new boolean[variableCount];
+        this.seen = new boolean[variableCount];
+        this.trail = new int[variableCount];
+        this.trailLimits = new int[variableCount + 1];
+        this.clauses = new ArrayList<>();
+        this.watches = new int[2 * variableCount][];
+        this.watchCounts = new int[2 * variableCount];
+        this.binaries = new int[2 * variableCount][];
+        this.binaryCounts = new int[2 * variableCount];
+        this.binaryConflict = new int[2];
+        this.binaryReason = new int[2];
+        this.activities = new double[variableCount];
+        this.activityIncrement = 1;
+        this.heap = new int[variableCount];
+        this.heapIndex = new int[variableCount];
+        this.learnt = new int[16];
+
+        for (int var = 0; var < variableCount; var++)
+        {
+            // a sudoku is solved faster by placing numbers than by excluding them
+            phases[var] = true;
+            reasons[var] = NO_REASON;
+            heapIndex[var] = -1;
+            heapInsert(var);
+        }
+        for (int lit = 0; lit < watches.length; lit++)
+        {
+            watches[lit] = new int[4];
+            binaries[lit] = new int[4];
+        }
+    }
+
+    static int literal(int variable, boolean isPositive)
+    {
+        return isPositive
+               ? 2 * variable
+               : 2 * variable + 1;
+    }
+
+    /**
+     * Adds a clause to the formula. Clauses must be added before {@linkplain #solve()} is called.
+     */
+    void addClause(int... literals)
+    {
+        if (isConflicting)
+            return;
+
+        // drop false literals and clauses that are already satisfied
+        int[] clause = new int[literals.length];
+        int size = 0;
+        for (int lit : literals)
+        {
+            int value = valueOf(lit);
+            if (value > 0)
+                return;
+            if (value == 0)
+                clause[size++] = lit;
+        }
+
+        if (size == 0)
+        {
+            isConflicting = true;
+        } else if (size == 1)
+        {
+            enqueue(clause[0], NO_REASON);
+            isConflicting = propagate() != NO_REASON;
+        } else if (size == 2)
+        {
+            attachBinary(clause[0], clause[1]);
+        } else
+        {
+            attach(Arrays.copyOf(clause, size));
+        }
+    }
+
+    /**
+     * Searches an assignment that satisfies all clauses.
+     *
+     * @return <code>true</code> if the formula is satisfiable, the assignment is available by
+     * {@linkplain #isTrue(int)}
+     */
+    boolean solve()
+    {
+        return solve(false, 0);
+    }
+
+    /**
+     * Searches an assignment like {@linkplain #solve()}, but stops at target deadline. The clock is read every
+     * {@value #CONFLICTS_PER_CHECK} conflicts.
+     *
+     * @param deadline value of {@link System#nanoTime()} at which the search is stopped
+     * @return <code>true</code> if the formula is satisfiable, <code>false</code> if it is not or the search was
+     * stopped, see {@linkplain #isTimedOut()}
+     */
+    boolean solve(long deadline)
+    {
+        return solve(true, deadline);
+    }
+
+    boolean isTimedOut()
+    {
+        return isTimedOut;
+    }
+
+    private boolean solve(boolean hasDeadline, long deadline)
+    {
+        if (isConflicting)
+            return false;
+
+        int restarts = 0;
+        long conflictLimit = RESTART_BASE;
+        long conflictsSinceRestart = 0;
+        while (true)
+        {
+            int conflict = propagate();
+            if (conflict != NO_REASON)
+            {
+                conflictCount++;
+                conflictsSinceRestart++;
+                if (decisionLevel == 0)
+                    return false;
+                if (hasDeadline && conflictCount % CONFLICTS_PER_CHECK == 0 && System.nanoTime() - deadline >= 0)
+                {
+                    isTimedOut = true;
+                    return false;
+                }
+
+                int backtrackLevel = analyze(conflict);
+                cancelUntil(backtrackLevel);
+                if (learntSize == 1)
+                {
+                    enqueue(learnt[0], NO_REASON);
+                } else if (learntSize == 2)
+                {
+                    attachBinary(learnt[0], learnt[1]);
+                    enqueue(learnt[0], BINARY_REASON - learnt[1]);
+                } else
+                {
+                    int[] clause = Arrays.copyOf(learnt, learntSize);
+                    attach(clause);
+                    enqueue(clause[0], clauses.size() - 1);
+                }
+                activityIncrement /= ACTIVITY_DECAY;
+            } else if (conflictsSinceRestart >= conflictLimit)
+            {
+                cancelUntil(0);
+                restarts++;
+                conflictLimit = luby(restarts) * RESTART_BASE;
+                conflictsSinceRestart = 0;
+            } else
+            {
+                int var = nextDecision();
+                if (var < 0)
+                    return true;
+
+                decisionCount++;
+                trailLimits[decisionLevel++] = trailSize;
+                enqueue(literal(var, phases[var]), NO_REASON);
+            }
+        }
+    }
+
+    boolean isTrue(int variable)
+    {
+        return values[variable] > 0;
+    }
+
+    long getDecisionCount()
+    {
+        return decisionCount;
+    }
+
+    long getConflictCount()
+    {
+        return conflictCount;
+    }
+
+    private int valueOf(int lit)
+    {
+        int value = values[lit >> 1];
+        return (lit & 1) == 0
+               ? value
+               : -value;
+    }
+
+    private void attach(int[] clause)
+    {
+        clauses.add(clause);
+        int index = clauses.size() - 1;
+        watch(clause[0], index);
+        watch(clause[1], index);
+    }
+
+    private void attachBinary(int first, int second)
+    {
+        addBinary(first, second);
+        addBinary(second, first);
+    }
+
+    private void addBinary(int lit, int implied)
+    {
+        if (binaryCounts[lit] == binaries[lit].length)
+            binaries[lit] = Arrays.copyOf(binaries[lit], binaryCounts[lit] * 2);
+        binaries[lit][binaryCounts[lit]++] = implied;
+    }
+
+    /**
+     * Returns the literals of target conflict or reason. The implied literal of a reason is at index 0.
+     */
+    private int[] clauseOf(int reason, int impliedLit)
+    {
+        if (reason >= 0)
+            return clauses.get(reason);
+        if (reason == BINARY_CONFLICT)
+            return binaryConflict;
+        binaryReason[0] = impliedLit;
+        binaryReason[1] = BINARY_REASON - reason;
+        return binaryReason;
+    }
+
+    private void watch(int lit, int clauseIndex)
+    {
+        if (watchCounts[lit] == watches[lit].length)
+            watches[lit] = Arrays.copyOf(watches[lit], watchCounts[lit] * 2);
+        watches[lit][watchCounts[lit]++] = clauseIndex;
+    }
+
+    private void enqueue(int lit, int reason)
+    {
+        int var = lit >> 1;
+        values[var] = (byte) ((lit & 1) == 0
+                              ? 1
+                              : -1);
+        levels[var] = decisionLevel;
+        reasons[var] = reason;
+        trail[trailSize++] = lit;
+    }
+
+    /**
+     * Propagates all literals of the trail, that were not propagated yet. The implied literal of a clause is
+     * always moved to index 0 of the clause, so it can be found again while analyzing a conflict.
+     *
+     * @return the index of a clause whose literals are all false, {@linkplain #BINARY_CONFLICT} or
+     * {@linkplain #NO_REASON}
+     */
+    private int propagate()
+    {
+        while (propagated < trailSize)
+        {
+            int falseLit = trail[propagated++] ^ 1;
+
+            int[] implied = binaries[falseLit];
+            for (int k = 0, n = binaryCounts[falseLit]; k < n; k++)
+            {
+                int value = valueOf(implied[k]);
+                if (value == 0)
+                {
+                    enqueue(implied[k], BINARY_REASON - falseLit);
+                } else if (value < 0)
+                {
+                    binaryConflict[0] = implied[k];
+                    binaryConflict[1] = falseLit;
+                    propagated = trailSize;
+                    return BINARY_CONFLICT;
+                }
+            }
+
+            int[] list = watches[falseLit];
+            int count = watchCounts[falseLit];
+            int i = 0;
+            int j = 0;
+            while (i < count)
+            {
+                int clauseIndex = list[i++];
+                int[] clause = clauses.get(clauseIndex);
+                if (clause[0] == falseLit)
+                {
+                    clause[0] = clause[1];
+                    clause[1] = falseLit;
+                }
+                if (valueOf(clause[0]) > 0)
+                {
+                    list[j++] = clauseIndex;
+                    continue;
+                }
+
+                boolean isMoved = false;
+                for (int k = 2; k < clause.length && !isMoved; k++)
+                {
+                    if (valueOf(clause[k]) >= 0)
+                    {
+                        clause[1] = clause[k];
+                        clause[k] = falseLit;
+                        watch(clause[1], clauseIndex);
+                        isMoved = true;
+                    }
+                }
+                if (isMoved)
+                    continue;
+
+                list[j++] = clauseIndex;
+                if (valueOf(clause[0]) < 0)
+                {
+                    while (i < count)
+                        list[j++] = list[i++];
+                    watchCounts[falseLit] = j;
+                    propagated = trailSize;
+                    return clauseIndex;
+                }
+                enqueue(clause[0], clauseIndex);
+            }
+            watchCounts[falseLit] = j;
+        }
+        return NO_REASON;
+    }
+
+    /**
+     * Builds the learnt clause of target conflict at the first unique implication point.
+     *
+     * @return the decision level to go back to
+     */
+    private int analyze(int conflict)
+    {
+        learntSize = 1;
+        int pathCount = 0;
+        int lit = -1;
+        int index = trailSize - 1;
+        int clauseIndex = conflict;
+        do
+        {
+            int[] clause = clauseOf(clauseIndex, lit);
+            for (int k = lit == -1
+                         ? 0
+                         : 1; k < clause.length; k++)
+            {
+                int var = clause[k] >> 1;
+                if (!seen[var] && levels[var] > 0)
+                {
+                    seen[var] = true;
+                    bumpActivity(var);
+                    if (levels[var] >= decisionLevel)
+                    {
+                        pathCount++;
+                    } else
+                    {
+                        if (learntSize == learnt.length)
+                            learnt = Arrays.copyOf(learnt, learntSize * 2);
+                        learnt[learntSize++] = clause[k];
+                    }
+                }
+            }
+            while (!seen[trail[index] >> 1])
+                index--;
+            lit = trail[index--];
+            clauseIndex = reasons[lit >> 1];
+            seen[lit >> 1] = false;
+            pathCount--;
+        } while (pathCount > 0);
+        learnt[0] = lit ^ 1;
+
+        int backtrackLevel = 0;
+        if (learntSize > 1)
+        {
+            // watch the literal of the highest level beside the asserting literal
+            int max = 1;
+            for (int k = 2; k < learntSize; k++)
+            {
+                if (levels[learnt[k] >> 1] > levels[learnt[max] >> 1])
+                    max = k;
+            }
+            int swap = learnt[1];
+            learnt[1] = learnt[max];
+            learnt[max] = swap;
+            backtrackLevel = levels[learnt[1] >> 1];
+        }
+        for (int k = 1; k < learntSize; k++)
+            seen[learnt[k] >> 1] = false;
+        return backtrackLevel;
+    }
+
+    private void cancelUntil(int level)
+    {
+        if (decisionLevel <= level)
+            return;
+        for (int k = trailSize - 1; k >= trailLimits[level]; k--)
+        {
+            int var = trail[k] >> 1;
+            phases[var] = values[var] > 0;
+            values[var] = 0;
+            reasons[var] = NO_REASON;
+            if (heapIndex[var] < 0)
+                heapInsert(var);
+        }
+        trailSize = trailLimits[level];
+        propagated = trailSize;
+        decisionLevel = level;
+    }
+
+    private int nextDecision()
+    {
+        while (heapSize > 0)
+        {
+            int var = heapRemoveMax();
+            if (values[var] == 0)
+                return var;
+        }
+        return -1;
+    }
+
+    private void bumpActivity(int var)
+    {
+        activities[var] += activityIncrement;
+        if (activities[var] > 1e100)
+        {
+            for (int k = 0; k < variableCount; k++)
+                activities[k] *= 1e-100;
+            activityIncrement *= 1e-100;
+        }
+        if (heapIndex[var] >= 0)
+            siftUp(heapIndex[var]);
+    }
+
+    private void heapInsert(int var)
+    {
+        heap[heapSize] = var;
+        heapIndex[var] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int heapRemoveMax()
+    {
+        int max = heap[0];
+        heapIndex[max] = -1;
+        heapSize--;
+        if (heapSize > 0)
+        {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+        return max;
+    }
+
+    private void siftUp(int position)
+    {
+        int var = heap[position];
+        while (position > 0)
+        {
+            int parent = (position - 1) >> 1;
+            if (activities[heap[parent]] >= activities[var])
+                break;
+            heap[position] = heap[parent];
+            heapIndex[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = var;
+        heapIndex[var] = position;
+    }
+
+    private void siftDown(int position)
+    {
+        int var = heap[position];
+        while (true)
+        {
+            int child = 2 * position + 1;
+            if (child >= heapSize)
+                break;
+            if (child + 1 < heapSize && activities[heap[child + 1]] > activities[heap[child]])
+                child++;
+            if (activities[heap[child]] <= activities[var])
+                break;
+            heap[position] = heap[child];
+            heapIndex[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = var;
+        heapIndex[var] = position;
+    }
+
+    /**
+     * Returns the value of the Luby sequence 1, 1, 2, 1, 1, 2, 4, 1, ... at target index.
+     */
+    private static long luby(int index)
+    {
+        int size = 1;
+        int sequence = 0;
+        while (size < index + 1)
+        {
+            sequence++;
+            size = 2 * size + 1;
+        }
+        while (size - 1 != index)
+        {
+            size = (size - 1) >> 1;
+            sequence--;
+            index = index % size;
+        }
+        return 1L << sequence;
+    }
+}
@@ -0,0 +1,400 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A <code>CompletionCounter</code> counts the completions of a classic grid without enumerating them. The grid is
+ * filled row by row, and all partial fillings that leave the same numbers in every column and the same numbers in
+ * every block of the current band have the same completions. So the counter keeps one count per such state instead
+ * of one search per filling, and a row is only filled once per state:
+ * <ul>
+ * <li>The count does not change if the bands, the rows inside a band or rows and columns are exchanged. The grid is
+ * turned and ordered so that the bands and rows with the most givens are filled first.</li>
+ * <li>A number given further on in a column or block is never placed before it, so states that can not keep the
+ * givens are dropped at once.</li>
+ * <li>Once the remaining rows contain no givens, the columns inside a stack and the stacks can be exchanged, too. The
+ * states are then stored with sorted columns and stacks, so more fillings share a state.</li>
+ * <li>Counts are added as <code>long</code> and only carried into a {@link BigInteger} on overflow.</li>
+ * </ul>
+ * The effort depends on the count of states, not on the count of completions. A nearly empty 9x9 grid still has too
+ * many states, as the states are not reduced by relabeling the numbers.
+ * <p>
+ * A counter is not thread safe.
+ *
+ * @see SearchState#countSolutions(int)
+ */
+public final class CompletionCounter
+{
+    private int size;
+    private int blockSize;
+    private int maskWords;
+    private long allNumbers;
+    private long largestLayer;
+
+    private byte[] cells;
+    /*
+    the fields of every row with givens first, whether any row from index i on contains a given, and the numbers
+    given further on in the column or block of each field
+     */
+    private int[][] fieldOrder;
+    private boolean[] givensFrom;
+    private long[] givenBelow;
+    /*
+    numbers used by the columns followed by the blocks of the current band, while a row is filled
+     */
+    private long[] masks;
+    private long[] canonical;
+    private Map<State, Count> next;
+    private int row;
+    private boolean isCanonical;
+
+    /**
+     * Counts the completions of target puzzle.
+     *
+     * @return count of grids that keep the givens of the puzzle, 0 if the givens contradict each other
+     * @throws IllegalArgumentException if the puzzle has no classic layout
+     */
+    public BigInteger count(Grid puzzle)
+    {
+        Layout layout = puzzle.getLayout();
+        if (!layout.equals(Layout.classic(puzzle.size())))
+            throw new IllegalArgumentException("only classic grids can be counted by bands");
+        size = puzzle.size();
+        blockSize = puzzle.getBlockSize();
+        maskWords = ((size + blockSize) * size + 63) >>> 6;
+        allNumbers = -1L >>> (64 - size);
+        largestLayer = 1;
+        masks = new long[size + blockSize];
+        canonical = new long[size + blockSize];
+        cells = orient(puzzle);
+        prepare();
+
+        Map<State, Count> states = new HashMap<>();
+        Count start = new Count();
+        start.add(1);
+        states.put(new State(new long[maskWords]), start);
+        for (row = 0; row < size && !states.isEmpty(); row++)
+        {
+            next = new HashMap<>();
+            isCanonical = !givensFrom[row + 1];
+            for (Map.Entry<State, Count> entry : states.entrySet())
+            {
+                unpack(entry.getKey().words, masks);
+                fill(0, 0, entry.getValue());
+            }
+            states = next;
+            largestLayer = Math.max(largestLayer, states.size());
+        }
+        next = null;
+        cells = null;
+
+        // all columns are full after the last row, so at most one state is left
+        BigInteger total = BigInteger.ZERO;
+        for (Count count : states.values())
+            total = total.add(count.toBigInteger());
+        return total;
+    }
+
+    /**
+     * Returns the largest count of states after a row of the last count, a measure of its memory and time.
+     */
+    public long getLargestLayer()
+    {
+        return largestLayer;
+    }
+
+    /**
+     * Returns the fields of the puzzle or its transposition, whichever has more givens in the first band. The bands
+     * and the rows of every band are ordered by their count of givens.
+     */
+    private byte[] orient(Grid puzzle)
+    {
+        byte[] rows = order(puzzle, false);
+        byte[] columns = order(puzzle, true);
+        int bandLength = blockSize * size;
+        return givens(rows, 0, bandLength) >= givens(columns, 0, bandLength)
+               ? rows
+               : columns;
+    }
+
+    private byte[] order(Grid puzzle, boolean transpose)
+    {
+        byte[] source = new byte[size * size];
+        for (int cell = 0; cell < source.length; cell++)
+        {
+            int r = cell / size;
+            int c = cell % size;
+            source[cell] = (byte) (transpose
+                                   ? puzzle.get(c, r)
+                                   : puzzle.get(r, c));
+        }
+        int bandLength = blockSize * size;
+        Integer[] bands = new Integer[blockSize];
+        for (int band = 0; band < blockSize; band++)
+            bands[band] = band;
+        Arrays.sort(bands, (a, b) -> givens(source, b * bandLength, bandLength)
+                - givens(source, a * bandLength, bandLength));
+
+        byte[] target = new byte[source.length];
+        for (int i = 0; i < blockSize; i++)
+        {
+            Integer[] rows = new Integer[blockSize];
+            for (int j = 0; j < blockSize; j++)
+                rows[j] = bands[i] * blockSize + j;
+            Arrays.sort(rows, (a, b) -> givens(source, b * size, size) - givens(source, a * size, size));
+            for (int j = 0; j < blockSize; j++)
+                System.arraycopy(source, rows[j] * size, target, (i * blockSize + j) * size, size);
+        }
+        return target;
+    }
+
+    private static int givens(byte[] cells, int offset, int length)
+    {
+        int count = 0;
+        for (int i = offset; i < offset + length; i++)
+        {
+            if (cells[i] != 0)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Sorts the columns of every stack and then the stacks, each stack compared by its block and its columns.
+     */
+    private void canonicalize(long[] masks)
+    {
+        for (int stack = 0; stack < blockSize; stack++)
+        {
+            int first = stack * blockSize;
+            for (int i = first + 1; i < first + blockSize; i++)
+            {
+                long mask = masks[i];
+                int j = i - 1;
+                for (; j >= first && masks[j] > mask; j--)
+                    masks[j + 1] = masks[j];
+                masks[j + 1] = mask;
+            }
+        }
+        for (int i = 1; i < blockSize; i++)
+        {
+            for (int j = i; j > 0 && compareStacks(masks, j - 1, j) > 0; j--)
+                swapStacks(masks, j - 1, j);
+        }
+    }
+
+    private int compareStacks(long[] masks, int a, int b)
+    {
+        int compare = Long.compare(masks[size + a], masks[size + b]);
+        for (int i = 0; compare == 0 && i < blockSize; i++)
+            compare = Long.compare(masks[a * blockSize + i], masks[b * blockSize + i]);
+        return compare;
+    }
+
+    private void swapStacks(long[] masks, int a, int b)
+    {
+        for (int i = 0; i < blockSize; i++)
+            swap(masks, a * blockSize + i, b * blockSize + i);
+        swap(masks, size + a, size + b);
+    }
+
+    private static void swap(long[] masks, int a, int b)
+    {
+        long swap = masks[a];
+        masks[a] = masks[b];
+        masks[b] = swap;
+    }
+
+    /**
+     * Packs the masks with <code>size</code> bits each.
+     */
+    private long[] pack(long[] masks)
+    {
+        long[] words = new long[maskWords];
+        for (int i = 0; i < masks.length; i++)
+        {
+            int bit = i * size;
+            words[bit >>> 6] |= masks[i] << bit;
+            if ((bit & 63) + size > 64)
+                words[(bit >>> 6) + 1] |= masks[i] >>> (64 - (bit & 63));
+        }
+        return words;
+    }
+
+    private void unpack(long[] words, long[] masks)
+    {
+        for (int i = 0; i < masks.length; i++)
+        {
+            int bit = i * size;
+            long mask = words[bit >>> 6] >>> bit;
+            if ((bit & 63) + size > 64)
+                mask |= words[(bit >>> 6) + 1] << (64 - (bit & 63));
+            masks[i] = mask & allNumbers;
+        }
+    }
+
+    /**
+     * Computes the field order, the rows with givens and the numbers given further on for the oriented fields.
+     */
+    private void prepare()
+    {
+        fieldOrder = new int[size][];
+        givensFrom = new boolean[size + 1];
+        givenBelow = new long[size * size];
+        for (int r = size - 1; r >= 0; r--)
+        {
+            int[] order = new int[size];
+            int index = 0;
+            for (int column = 0; column < size; column++)
+            {
+                if (cells[r * size + column] != 0)
+                    order[index++] = column;
+            }
+            givensFrom[r] = index > 0 || givensFrom[r + 1];
+            for (int column = 0; column < size; column++)
+            {
+                if (cells[r * size + column] == 0)
+                    order[index++] = column;
+            }
+            fieldOrder[r] = order;
+        }
+
+        for (int cell = 0; cell < cells.length; cell++)
+        {
+            int r = cell / size;
+            int c = cell % size;
+            int firstColumn = c - c % blockSize;
+            for (int below = r + 1; below < size; below++)
+            {
+                givenBelow[cell] |= bit(cells[below * size + c]);
+                // the rest of the band contains the rest of the block
+                if (below / blockSize == r / blockSize)
+                {
+                    for (int other = firstColumn; other < firstColumn + blockSize; other++)
+                        givenBelow[cell] |= bit(cells[below * size + other]);
+                }
+            }
+        }
+    }
+
+    private static long bit(int number)
+    {
+        return number == 0
+               ? 0
+               : 1L << (number - 1);
+    }
+
+    /**
+     * Tries all numbers on the field at target index of the current row order, and adds the count of the state to
+     * the state after the row once the row is filled.
+     */
+    private void fill(int index, long rowNumbers, Count count)
+    {
+        if (index == size)
+        {
+            add(count);
+            return;
+        }
+        int column = fieldOrder[row][index];
+        int block = size + column / blockSize;
+        int given = cells[row * size + column];
+        long candidates = given != 0
+                          ? 1L << (given - 1)
+                          : allNumbers;
+        candidates &= ~(masks[column] | masks[block] | rowNumbers | givenBelow[row * size + column]);
+        for (; candidates != 0; candidates &= candidates - 1)
+        {
+            long bit = candidates & -candidates;
+            masks[column] |= bit;
+            masks[block] |= bit;
+            fill(index + 1, rowNumbers | bit, count);
+            masks[column] &= ~bit;
+            masks[block] &= ~bit;
+        }
+    }
+
+    private void add(Count count)
+    {
+        System.arraycopy(masks, 0, canonical, 0, masks.length);
+        if ((row + 1) % blockSize == 0)
+            Arrays.fill(canonical, size, size + blockSize, 0);
+        if (isCanonical)
+            canonicalize(canonical);
+
+        State state = new State(pack(canonical));
+        Count sum = next.get(state);
+        if (sum == null)
+        {
+            sum = new Count();
+            next.put(state, sum);
+        }
+        sum.add(count);
+    }
+
+    /**
+     * The packed masks of a state.
+     */
+    private static final class State
+    {
+        private final long[] words;
+        private final int hash;
+
+        private State(long[] words)
+        {
+            this.words = words;
+            this.hash = Arrays.hashCode(words);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o instanceof State && Arrays.equals(words, ((State) o).words);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+
+    /**
+     * A count, that is kept as <code>long</code> and carried into a {@link BigInteger} on overflow.
+     */
+    static final class Count
+    {
+        private long value;
+        private BigInteger carried = BigInteger.ZERO;
+
+        void add(long count)
+        {
+            long sum = value + count;
+            if (sum < 0)
+            {
+                carried = carried.add(BigInteger.valueOf(value)).add(BigInteger.valueOf(count));
+                value = 0;
+            } else
+            {
+                value = sum;
+            }
+        }
+
+        void add(Count count)
+        {
+            add(count.value);
+            if (count.carried.signum() != 0)
+                carried = carried.add(count.carried);
+        }
+
+        BigInteger toBigInteger()
+        {
+            return carried.add(BigInteger.valueOf(value));
+        }
+    }
+}
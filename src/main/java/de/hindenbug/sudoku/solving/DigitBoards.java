@@ -0,0 +1,243 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Field;
+import de.hindenbug.sudoku.model.Layout;
+import de.hindenbug.sudoku.model.Sudoku;
+import de.hindenbug.sudoku.model.SudokuListener;
+
+import java.util.Arrays;
+
+/**
+ * <code>DigitBoards</code> speed up the strategies that ask where a number may go inside a unit: hidden singles,
+ * subsets and fish. They keep a copy of the candidates of a sudoku in two views: for every field the numbers that may
+ * still be placed there as bit mask, and for every number a bitboard of the fields where it may still be placed. So
+ * the question "where can this number go inside this unit" is a few <code>and</code> and bit count operations over
+ * the bitboard of the number and the {@linkplain Layout#getUnitMasks() mask} of the unit instead of a scan of the
+ * fields.
+ * <p>
+ * The boards are {@linkplain #load(Sudoku) loaded} once. As a {@link SudokuListener} of the sudoku they then follow
+ * every fix and every removed candidate of its fields, so the strategies only load them again after the sudoku
+ * {@linkplain SudokuListener#reloaded(Sudoku) reloaded} its fields, see {@linkplain #isStale()}.
+ * <p>
+ * The bitboards use one bit per field, field <code>row * size + column</code> is bit <code>cell % 64</code> of the
+ * word <code>cell / 64</code>. A 9x9 sudoku needs two words per number.
+ */
+final class DigitBoards implements SudokuListener
+{
+    private final Layout layout;
+    private final int size;
+    private final int words;
+    private final long[] unitMasks;
+
+    private final byte[] numbers;
+    private final long[] candidates;
+    private final long[] boards;
+    private boolean isStale = true;
+
+    DigitBoards(Layout layout)
+    {
+        this.layout = layout;
+        this.size = layout.size();
+        int cellCount = size * size;
+        this.words = (cellCount + 63) / 64;
+        this.unitMasks = layout.getUnitMasks();
+        this.numbers = new byte[cellCount];
+        this.candidates = new long[cellCount];
+        this.boards = new long[size * words];
+    }
+
+    /**
+     * Creates the boards of target sudoku, see {@linkplain #load(Sudoku)}.
+     */
+    static DigitBoards of(Sudoku sudoku)
+    {
+        DigitBoards boards = new DigitBoards(sudoku.getLayout());
+        boards.load(sudoku);
+        return boards;
+    }
+
+    /**
+     * Replaces the content of these boards by target sudoku, that must have the layout of these boards. A number may
+     * be placed on an empty field if it is a candidate of the field and not used by a peer of the field. Later changes
+     * of the sudoku are only seen if these boards are a {@linkplain Sudoku#addListener(SudokuListener) listener} of
+     * the sudoku.
+     */
+    void load(Sudoku sudoku)
+    {
+        if (!sudoku.getLayout().equals(layout))
+            throw new IllegalArgumentException("sudoku has another layout than the boards");
+        Arrays.fill(boards, 0);
+        for (Field field : sudoku)
+            numbers[field.getRow() * size + field.getColumn()] = (byte) field.getNumber();
+
+        for (Field field : sudoku)
+        {
+            int cell = field.getRow() * size + field.getColumn();
+            long mask = 0;
+            if (numbers[cell] == 0)
+            {
+                for (int number = 1; number <= size; number++)
+                {
+                    if (field.containsCandidate(number))
+                        mask |= 1L << (number - 1);
+                }
+                for (int peer : layout.getPeers(cell))
+                {
+                    if (numbers[peer] != 0)
+                        mask &= ~(1L << (numbers[peer] - 1));
+                }
+            }
+            candidates[cell] = mask;
+            for (long rest = mask; rest != 0; rest &= rest - 1)
+                boards[Long.numberOfTrailingZeros(rest) * words + (cell >>> 6)] |= 1L << cell;
+        }
+        isStale = false;
+    }
+
+    /**
+     * Returns <code>true</code> if these boards were not loaded yet or the sudoku they listen to reloaded its fields
+     * since.
+     */
+    boolean isStale()
+    {
+        return isStale;
+    }
+
+    @Override
+    public void fixed(Field field, int number)
+    {
+        int cell = field.getRow() * size + field.getColumn();
+        if (numbers[cell] == 0)
+            place(cell, number);
+    }
+
+    @Override
+    public void candidateRemoved(Field field, int candidate)
+    {
+        eliminate(field.getRow() * size + field.getColumn(), candidate);
+    }
+
+    @Override
+    public void reloaded(Sudoku sudoku)
+    {
+        isStale = true;
+    }
+
+    Layout getLayout()
+    {
+        return layout;
+    }
+
+    /**
+     * Returns the number of target field.
+     *
+     * @return the number or 0 if the field is empty
+     */
+    int getNumber(int cell)
+    {
+        return numbers[cell];
+    }
+
+    /**
+     * Returns the numbers that may be placed on target field as bit mask, where bit 0 stands for number 1.
+     *
+     * @return the candidates or 0 if the field contains a number
+     */
+    long getCandidates(int cell)
+    {
+        return candidates[cell];
+    }
+
+    /**
+     * Returns <code>true</code> if target number may be placed on target field.
+     */
+    boolean isCandidate(int cell, int number)
+    {
+        return (candidates[cell] & 1L << (number - 1)) != 0;
+    }
+
+    /**
+     * Returns the count of fields inside target unit where target number may be placed.
+     */
+    int count(int number, int unit)
+    {
+        int board = (number - 1) * words;
+        int mask = unit * words;
+        int count = 0;
+        for (int word = 0; word < words; word++)
+            count += Long.bitCount(boards[board + word] & unitMasks[mask + word]);
+        return count;
+    }
+
+    /**
+     * Returns <code>true</code> if both numbers may be placed on the same fields inside target unit.
+     */
+    boolean isSamePlaces(int number, int other, int unit)
+    {
+        int board = (number - 1) * words;
+        int otherBoard = (other - 1) * words;
+        int mask = unit * words;
+        for (int word = 0; word < words; word++)
+        {
+            if (((boards[board + word] ^ boards[otherBoard + word]) & unitMasks[mask + word]) != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the first field inside target unit where target number may be placed.
+     *
+     * @return the field or -1 if the number can not be placed inside the unit
+     */
+    int first(int number, int unit)
+    {
+        int board = (number - 1) * words;
+        int mask = unit * words;
+        for (int word = 0; word < words; word++)
+        {
+            long bits = boards[board + word] & unitMasks[mask + word];
+            if (bits != 0)
+                return word << 6 | Long.numberOfTrailingZeros(bits);
+        }
+        return -1;
+    }
+
+    /**
+     * Places target number on target field of these boards, the field of the sudoku is not changed. All other
+     * candidates of the field and the number on all peers of the field are eliminated.
+     *
+     * @throws IllegalArgumentException if the number is not a candidate of the field
+     */
+    void fix(int cell, int number)
+    {
+        if (!isCandidate(cell, number))
+            throw new IllegalArgumentException("number " + number + " is no candidate of field " + cell);
+        place(cell, number);
+    }
+
+    private void place(int cell, int number)
+    {
+        for (long rest = candidates[cell]; rest != 0; rest &= rest - 1)
+            boards[Long.numberOfTrailingZeros(rest) * words + (cell >>> 6)] &= ~(1L << cell);
+        candidates[cell] = 0;
+        numbers[cell] = (byte) number;
+        for (int peer : layout.getPeers(cell))
+            eliminate(peer, number);
+    }
+
+    /**
+     * Removes target number from the candidates of target field of these boards.
+     *
+     * @return <code>true</code> if the number was a candidate of the field
+     */
+    boolean eliminate(int cell, int number)
+    {
+        long bit = 1L << (number - 1);
+        if ((candidates[cell] & bit) == 0)
+            return false;
+        candidates[cell] &= ~bit;
+        boards[(number - 1) * words + (cell >>> 6)] &= ~(1L << cell);
+        return true;
+    }
+}
@@ -1,76 +1,107 @@
 package de.hindenbug.sudoku.solving;
 
 import de.hindenbug.sudoku.model.Field;
+import de.hindenbug.sudoku.model.Layout;
 import de.hindenbug.sudoku.model.Sudoku;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.*;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * The examine strategy selects a specific amount of most used numbers. For each number this strategy searches for
  * blocks that may contain this number. Every field of a block that is not allowed to use the number is removed. If
  * only one field is left for the block, the field can be fixed to the number.
+ * <p>
+ * The allowed fields of a number are kept on {@link DigitBoards}, so the count of allowed fields inside a block is a
+ * bit count of the board of the number. The boards listen to the sudoku until the solver
+ * {@linkplain #release(Sudoku) releases} it, so they follow the changes of all strategies and are only loaded again
+ * for another sudoku or after the sudoku reloaded its fields.
  */
 public class ExamineStrategy implements CandidateRemovalStrategy
 {
     private static final Logger LOG = LoggerFactory.getLogger(ExamineStrategy.class);
 
     private Sudoku sudoku;
+    private DigitBoards boards;
     private Set<Field> fixedFields;
-    private int fixedFieldCount;
 
     @Override
     public Collection<Field> removeCandidates(Sudoku sudoku)
     {
-        this.sudoku = sudoku;
+        if (sudoku != this.sudoku)
+        {
+            if (this.sudoku != null)
+                this.sudoku.removeListener(boards);
+            if (boards == null || !boards.getLayout().equals(sudoku.getLayout()))
+                boards = new DigitBoards(sudoku.getLayout());
+            sudoku.addListener(boards);
+            boards.reloaded(sudoku);
+            this.sudoku = sudoku;
+        }
+        if (boards.isStale())
+            boards.load(sudoku);
         this.fixedFields = new HashSet<>();
 
-        removeCandidates();
+        int fixedFieldCount;
+        do
+        {
+            fixedFieldCount = removeCandidates();
+        } while (fixedFieldCount > 0);
 
         return fixedFields;
     }
 
-    private void removeCandidates()
+    @Override
+    public void release(Sudoku sudoku)
+    {
+        if (sudoku != this.sudoku)
+            return;
+        sudoku.removeListener(boards);
+        this.sudoku = null;
+    }
+
+    private int removeCandidates()
     {
-        this.fixedFieldCount = 0;
+        int fixedFieldCount = 0;
 
         // get the top x used numbers
         int[] mostFixedNumbers = sudoku.getMostFixedNumbers(sudoku.size());
 
+        Layout layout = sudoku.getLayout();
+
         // for each number
-        for (int i = 0; i < mostFixedNumbers.length; i++)
+        for (int number : mostFixedNumbers)
         {
-            int number = mostFixedNumbers[i];
+            // the array is filled with 0 if less numbers are used
+            if (number == 0)
+                continue;
 
             // for each block in the sudoku
-            for (Set<Field> block : sudoku.getBlocks())
+            for (int unit = 0; unit < layout.getHouseCount(); unit++)
             {
-                Field randomField = new ArrayList<>(block).get(0);
+                if (layout.getUnitType(unit) != Layout.UnitType.REGION)
+                    continue;
 
-                // if the number is not inside the block
-                if (!sudoku.isInBlock(number, randomField.getRow(), randomField.getColumn()))
+                /*
+                if the number is already inside the block, the number is eliminated from all
+                fields of the block, so no field is allowed to use it.
+                 */
+                if (boards.count(number, unit) == 1)
                 {
-                    List<Field> fields = new ArrayList<>(block);
-
-                    // remove all fields that are not allowed to use the number
-                    fields.removeIf(field -> !field.containsCandidate(number)
-                            || sudoku.isInRow(number, field.getRow())
-                            || sudoku.isInColumn(number, field.getColumn()));
-
                     // if one field is left, fix the number to the field
-                    if (fields.size() == 1)
-                    {
-                        Field field = fields.get(0);
-                        field.fix(number);
-                        LOG.debug("field " + field + " fixed");
-                        fixedFields.add(field);
-                        fixedFieldCount++;
-                    }
+                    int cell = boards.first(number, unit);
+                    Field field = sudoku.getField(cell / sudoku.size(), cell % sudoku.size());
+                    // the boards follow the fix as listener of the sudoku
+                    field.fix(number);
+                    LOG.debug("field {} fixed", field);
+                    fixedFields.add(field);
+                    fixedFieldCount++;
                 }
             }
         }
-        if (fixedFieldCount > 0)
-            removeCandidates();
+        return fixedFieldCount;
     }
 }
@@ -0,0 +1,67 @@
+package de.hindenbug.sudoku.solving;
+
+/**
+ * The interfaces of a reactive stream with back pressure. They have the same methods and rules as the interfaces of
+ * <code>java.util.concurrent.Flow</code>, which is not available in Java 8. A subscriber only receives as many
+ * items as it requested, so a slow subscriber slows down the publisher instead of filling a buffer. On a JDK 11 or
+ * newer the <code>JdkFlowAdapters</code> convert them to the interfaces of <code>java.util.concurrent.Flow</code>.
+ *
+ * @see Solver#solveAll(Publisher, java.util.concurrent.Executor, int)
+ */
+public final class Flow
+{
+    private Flow()
+    {
+    }
+
+    /**
+     * A producer of items that are received by subscribers.
+     */
+    @FunctionalInterface
+    public interface Publisher<T>
+    {
+        /**
+         * Adds target subscriber. The subscriber receives a subscription by {@linkplain Subscriber#onSubscribe}
+         * before any other call.
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of items. The methods of one subscriber are called one after another, never at the same time.
+     */
+    public interface Subscriber<T>
+    {
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T item);
+
+        /**
+         * Called once if the publisher failed. No other method is called afterwards.
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Called once if all items were received. No other method is called afterwards.
+         */
+        void onComplete();
+    }
+
+    /**
+     * The link between one publisher and one subscriber.
+     */
+    public interface Subscription
+    {
+        /**
+         * Allows the publisher to send target count of further items.
+         *
+         * @param n count of items, a count that is not positive fails the subscription
+         */
+        void request(long n);
+
+        /**
+         * Stops sending items, items already in flight may still arrive.
+         */
+        void cancel();
+    }
+}
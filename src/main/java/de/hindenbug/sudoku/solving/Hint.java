@@ -0,0 +1,58 @@
+package de.hindenbug.sudoku.solving;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * A <code>Hint</code> proposes a number for an empty field of a {@link SolverSession}.
+ */
+public final class Hint
+{
+    private final int row;
+    private final int column;
+    private final int number;
+    private final boolean isForced;
+
+    public Hint(int row, int column, int number, boolean isForced)
+    {
+        this.row = row;
+        this.column = column;
+        this.number = number;
+        this.isForced = isForced;
+    }
+
+    public int getRow()
+    {
+        return row;
+    }
+
+    public int getColumn()
+    {
+        return column;
+    }
+
+    public int getNumber()
+    {
+        return number;
+    }
+
+    /**
+     * Returns <code>true</code> if the number follows from the current numbers, because it is the only candidate
+     * of the field or the only place of the number inside a row, column or block. Otherwise the number was taken
+     * from a solution of the sudoku.
+     */
+    public boolean isForced()
+    {
+        return isForced;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this)
+                .append("row", row)
+                .append("column", column)
+                .append("number", number)
+                .append("isForced", isForced)
+                .toString();
+    }
+}
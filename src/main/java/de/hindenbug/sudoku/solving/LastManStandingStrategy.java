@@ -8,56 +8,101 @@ import org.slf4j.LoggerFactory;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.IntStream;
 
 /**
  * The last man stands strategy fixes field where all other fields of row and column contain all other fields and
  * only one candidate is left.
+ * <p>
+ * Sudokus of at least the {@linkplain #setParallelSize(int) parallel size} are checked in rounds by a
+ * {@link UnitPropagator}, that collects the numbers of all rows and columns at once. The rounds are repeated until
+ * no field is fixed, so they may fix more fields than one sequential pass. As long as the sudoku does not contradict
+ * itself, the fields are fixed to the same numbers for any count of threads.
  */
 public class LastManStandingStrategy implements CandidateRemovalStrategy
 {
     private static final Logger LOG = LoggerFactory.getLogger(LastManStandingStrategy.class);
 
     private Sudoku sudoku;
-    private int[] allNumbers;
     private Set<Field> fixedFields;
+    private int parallelSize = UnitPropagator.DEFAULT_PARALLEL_SIZE;
+
+    /**
+     * Sets the size of the smallest sudoku, that is checked in parallel. Smaller sudokus are checked on the calling
+     * thread, as the tasks would cost more than they save.
+     */
+    public void setParallelSize(int parallelSize)
+    {
+        this.parallelSize = parallelSize;
+    }
 
     @Override
     public Collection<Field> removeCandidates(Sudoku sudoku)
     {
         this.sudoku = sudoku;
         this.fixedFields = new HashSet<>();
-        this.allNumbers = IntStream.rangeClosed(1, sudoku.size()).toArray();
 
-        sudoku.forEach(this::removeCandidates);
+        if (UnitPropagator.isParallel(sudoku, parallelSize))
+            propagate(new UnitPropagator(sudoku));
+        else
+            sudoku.forEach(this::removeCandidates);
 
         return fixedFields;
     }
 
+    /**
+     * Fixes every empty field, whose row and column contain all numbers but one, until a round fixes no field.
+     */
+    private void propagate(UnitPropagator propagator)
+    {
+        int cellCount = propagator.size() * propagator.size();
+        long allBits = -1L >>> (64 - propagator.size());
+        boolean isFixed = true;
+        while (isFixed)
+        {
+            isFixed = false;
+            propagator.mergeRowsAndColumns();
+            for (int cell = 0; cell < cellCount; cell++)
+            {
+                long missing = allBits & ~propagator.getMerged(cell);
+                if (propagator.getNumber(cell) != 0 || Long.bitCount(missing) != 1)
+                    continue;
+                Field field = propagator.getField(cell);
+                field.fix(Long.numberOfTrailingZeros(missing) + 1);
+                LOG.debug("field {} fixed", field);
+                fixedFields.add(field);
+                isFixed = true;
+            }
+        }
+    }
+
     private void removeCandidates(Field field)
     {
         if (field.isFix())
             return;
 
         // build all numbers that are present in row and column
-        Set<Integer> numbers = new HashSet<>();
-        numbers.addAll(sudoku.getNumbersInRow(field.getRow()));
-        numbers.addAll(sudoku.getNumbersInColumn(field.getColumn()));
+        int size = sudoku.size();
+        long numbers = 0;
+        for (int i = 0; i < size; i++)
+        {
+            numbers |= bit(sudoku.getField(field.getRow(), i).getNumber());
+            numbers |= bit(sudoku.getField(i, field.getColumn()).getNumber());
+        }
 
-        // if one number is missing
-        if (numbers.size() == sudoku.size() - 1)
+        // if one number is missing, fix it
+        long missing = (-1L >>> (64 - size)) & ~numbers;
+        if (Long.bitCount(missing) == 1)
         {
-            // iterate over all available numbers
-            for (int i = 0; i < allNumbers.length && !field.isFix(); i++)
-            {
-                // and fix the number, that is missing
-                if (!numbers.contains(allNumbers[i]))
-                {
-                    field.fix(allNumbers[i]);
-                    LOG.debug("field " + field + " fixed");
-                    fixedFields.add(field);
-                }
-            }
+            field.fix(Long.numberOfTrailingZeros(missing) + 1);
+            LOG.debug("field {} fixed", field);
+            fixedFields.add(field);
         }
     }
+
+    private static long bit(int number)
+    {
+        return number > 0
+               ? 1L << (number - 1)
+               : 0;
+    }
 }
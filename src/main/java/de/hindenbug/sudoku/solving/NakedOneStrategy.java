@@ -10,8 +10,14 @@ import java.util.HashSet;
 
 /**
  * A <code>NakedOneStrategy</code> checks if a candidate of a {@link Field} is the only one left and fixes
- * the field to the value. After the fix all fields of the row, column and block are checked if the number is used
- * as a candidate and removes them. If again one candidate is left the process is
+ * the field to the value. After the fix all peers of the field, that are the fields sharing a unit of the
+ * {@link de.hindenbug.sudoku.model.Layout}, are checked if the number is used
+ * as a candidate and removes them. If again one candidate is left the process is repeated.
+ * <p>
+ * Sudokus of at least the {@linkplain #setParallelSize(int) parallel size} are propagated in rounds by a
+ * {@link UnitPropagator}: every round removes the only candidates of all fields from their peers at once and fixes
+ * these fields. As long as the sudoku does not contradict itself, the same fields are fixed to the same numbers as by
+ * the sequential process, for any count of threads.
  */
 public class NakedOneStrategy implements CandidateRemovalStrategy
 {
@@ -19,16 +25,63 @@ public class NakedOneStrategy implements CandidateRemovalStrategy
 
     private Sudoku sudoku;
     private HashSet<Field> fixedFields;
+    private int parallelSize = UnitPropagator.DEFAULT_PARALLEL_SIZE;
+
+    /**
+     * Sets the size of the smallest sudoku, that is propagated in parallel. Smaller sudokus are propagated on the
+     * calling thread, as the tasks would cost more than they save.
+     */
+    public void setParallelSize(int parallelSize)
+    {
+        this.parallelSize = parallelSize;
+    }
 
     @Override
     public Collection<Field> removeCandidates(Sudoku sudoku)
     {
         this.sudoku = sudoku;
         this.fixedFields = new HashSet<>();
-        this.sudoku.forEach(this::tryFixField);
+        if (UnitPropagator.isParallel(sudoku, parallelSize))
+            propagate(new UnitPropagator(sudoku));
+        else
+            this.sudoku.forEach(this::tryFixField);
         return fixedFields;
     }
 
+    /**
+     * Removes the candidates merged by the propagator and fixes the fields, whose only candidate is left, until no
+     * field has one candidate.
+     */
+    private void propagate(UnitPropagator propagator)
+    {
+        int cellCount = propagator.size() * propagator.size();
+        boolean isFixed = true;
+        while (isFixed)
+        {
+            isFixed = false;
+            propagator.mergeSingles();
+            for (int cell = 0; cell < cellCount; cell++)
+            {
+                long removed = propagator.getMerged(cell);
+                if (removed == 0 && propagator.getSingle(cell) == 0)
+                    continue;
+                Field field = propagator.getField(cell);
+                for (long bits = removed; bits != 0; bits &= bits - 1)
+                    field.removeCandidate(Long.numberOfTrailingZeros(bits) + 1);
+
+                // fields that got one candidate in this round are fixed in the next one
+                long single = propagator.getSingle(cell) & ~removed;
+                if (single != 0)
+                {
+                    field.fix(Long.numberOfTrailingZeros(single) + 1);
+                    fixedFields.add(field);
+                    LOG.debug("field {} fixed", field);
+                    isFixed = true;
+                }
+            }
+        }
+    }
+
     /**
      * Tries to fix target field to its candidate. The candidate can only be set if it is the only one
      * left and the field is not fixed.
@@ -44,29 +97,12 @@ public class NakedOneStrategy implements CandidateRemovalStrategy
             int candidate = field.getCandidate();
             field.fix(candidate);
             fixedFields.add(field);
-            LOG.debug("field " + field + " fixed");
+            LOG.debug("field {} fixed", field);
 
-            removeCandidatesFromRow(field.getRow(), candidate);
-            removeCandidatesFromColumn(field.getColumn(), candidate);
-            removeCandidatesFromBlock(field.getRow(), field.getColumn(), candidate);
+            sudoku.getPeers(field).forEach(f -> removeCandidate(f, candidate));
         }
     }
 
-    private void removeCandidatesFromRow(int row, int candidate)
-    {
-        sudoku.getRow(row).forEach(f -> removeCandidate(f, candidate));
-    }
-
-    private void removeCandidatesFromColumn(int column, int candidate)
-    {
-        sudoku.getColumn(column).forEach(f -> removeCandidate(f, candidate));
-    }
-
-    private void removeCandidatesFromBlock(int row, int column, int candidate)
-    {
-        sudoku.getBlock(row, column).forEach(f -> removeCandidate(f, candidate));
-    }
-
     private void removeCandidate(Field field, int candidate)
     {
         field.removeCandidate(candidate);
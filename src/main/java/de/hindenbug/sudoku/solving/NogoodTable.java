@@ -0,0 +1,153 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Layout;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A <code>NogoodTable</code> remembers partial assignments of a {@link SearchState}, that are proven to have no
+ * solution. An assignment is identified by its Zobrist hash, that is the xor of one random key for every number on
+ * every field. The table only contains the hashes, so a state is found again no matter in which order its numbers
+ * were assigned.
+ * <p>
+ * The table has a fixed capacity. A hash is stored in one of a few slots behind its home slot, if all of them are
+ * used the home slot is overwritten. The slots are read and written atomically without locks, so one table can be
+ * shared by all threads that search sudokus of the same layout.
+ *
+ * @see SearchState#setNogoods(NogoodTable)
+ */
+public final class NogoodTable
+{
+    private static final int PROBES = 4;
+
+    private final Layout layout;
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    /**
+     * @param layout   layout of the sudokus whose states are stored, as the same numbers may be dead for one layout
+     *                 and alive for another
+     * @param capacity count of hashes that can be stored, rounded up to the next power of two
+     */
+    public NogoodTable(Layout layout, int capacity)
+    {
+        if (capacity < PROBES || capacity > 1 << 30)
+            throw new IllegalArgumentException("capacity " + capacity + " outside of range " + PROBES + " - "
+                    + (1 << 30));
+        int length = Integer.highestOneBit(capacity);
+        if (length < capacity)
+            length <<= 1;
+        this.layout = layout;
+        this.slots = new AtomicLongArray(length);
+        this.mask = length - 1;
+    }
+
+    public Layout getLayout()
+    {
+        return layout;
+    }
+
+    /**
+     * Returns <code>true</code> if the state of target hash is known to have no solution. The lookup is not counted,
+     * the searches report their counts with {@linkplain #count(long, long)}.
+     */
+    boolean contains(long hash)
+    {
+        long key = hash | 1;
+        int home = index(key);
+        for (int i = 0; i < PROBES; i++)
+        {
+            if (slots.get((home + i) & mask) == key)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds the lookups and hits of a search to the counters.
+     */
+    void count(long lookupCount, long hitCount)
+    {
+        lookups.add(lookupCount);
+        hits.add(hitCount);
+    }
+
+    /**
+     * Stores the hash of a state without solution.
+     */
+    void add(long hash)
+    {
+        stores.increment();
+        // 0 marks a free slot, so every key is odd
+        long key = hash | 1;
+        int home = index(key);
+        for (int i = 0; i < PROBES; i++)
+        {
+            int slot = (home + i) & mask;
+            long current = slots.get(slot);
+            if (current == key || (current == 0 && slots.compareAndSet(slot, 0, key)))
+                return;
+        }
+        slots.lazySet(home, key);
+    }
+
+    private int index(long key)
+    {
+        return (int) (key ^ key >>> 32) & mask;
+    }
+
+    /**
+     * Removes all hashes and resets the counters.
+     */
+    public void clear()
+    {
+        for (int slot = 0; slot < slots.length(); slot++)
+            slots.set(slot, 0);
+        lookups.reset();
+        hits.reset();
+        stores.reset();
+    }
+
+    public long getLookupCount()
+    {
+        return lookups.sum();
+    }
+
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the count of stored hashes, including the ones that were overwritten.
+     */
+    public long getStoreCount()
+    {
+        return stores.sum();
+    }
+
+    /**
+     * Returns the share of lookups that found a dead state.
+     *
+     * @return the hit rate from 0 to 1, 0 if nothing was looked up
+     */
+    public double getHitRate()
+    {
+        long count = lookups.sum();
+        return count == 0
+               ? 0
+               : (double) hits.sum() / count;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d hits of %d lookups (%.1f%%), %d stores", getHitCount(), getLookupCount(),
+                getHitRate() * 100, getStoreCount());
+    }
+}
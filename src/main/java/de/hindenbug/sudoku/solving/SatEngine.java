@@ -0,0 +1,264 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The <code>SatEngine</code> encodes a {@link Grid} as a formula in conjunctive normal form and solves it with a
+ * {@link CdclSolver}. There is one variable for each candidate of an empty field, numbers excluded by the givens
+ * are not encoded at all. The clauses demand that every field and every house contains each of its candidates
+ * exactly once.
+ * <p>
+ * A cage of a killer sudoku contains each number at most once. Its sum is encoded with one additional variable for
+ * each set of numbers that completes the cage. The chosen set forces its numbers into the cage and keeps all other
+ * numbers out of it.
+ * <p>
+ * The engine learns from every conflict, but the encoding and the clause database cost more than it saves on almost
+ * every grid. It does not beat the {@link BacktrackingEngine} on any tier of the performance suite, nor on 17 clue
+ * grids, the hardest grids of Norvig or 25x25 grids. It is only faster on the rare grids that drive the backtracking
+ * into thousands of nodes, such as <code>12.3....435....1....4...</code>, where it takes about half to two thirds of
+ * the backtracking time. It is meant to cross check the other engines.
+ */
+public class SatEngine implements SearchEngine
+{
+    /**
+     * Largest count of number sets that are encoded for a single cage.
+     */
+    private static final int MAX_CAGE_COMBINATIONS = 10000;
+
+    @Override
+    public SolveResult solve(Grid puzzle)
+    {
+        return solve(puzzle, false, 0);
+    }
+
+    @Override
+    public SolveResult solve(Grid puzzle, long deadline)
+    {
+        return solve(puzzle, true, deadline);
+    }
+
+    private SolveResult solve(Grid puzzle, boolean hasDeadline, long deadline)
+    {
+        long time = System.nanoTime();
+        Layout layout = puzzle.getLayout();
+        int size = puzzle.size();
+        int cellCount = puzzle.getCellCount();
+
+        long[] unitNumbers = new long[layout.getUnitCount()];
+        int[] unitSums = new int[layout.getUnitCount()];
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            int number = puzzle.get(cell);
+            if (number > 0)
+            {
+                long bit = 1L << (number - 1);
+                for (int unit : layout.getUnitsOf(cell))
+                {
+                    if ((unitNumbers[unit] & bit) != 0)
+                        return new SolveResult(SolveResult.Status.INVALID, puzzle, null, 0,
+                                System.nanoTime() - time);
+                    unitNumbers[unit] |= bit;
+                    unitSums[unit] += number;
+                }
+            }
+        }
+        for (int unit = layout.getHouseCount(); unit < layout.getUnitCount(); unit++)
+        {
+            if (unitSums[unit] > layout.getSum(unit))
+                return new SolveResult(SolveResult.Status.INVALID, puzzle, null, 0, System.nanoTime() - time);
+        }
+
+        // a variable for each candidate of an empty field
+        int[] variableOf = new int[cellCount * size];
+        Arrays.fill(variableOf, -1);
+        int variableCount = 0;
+        long allNumbers = (1L << size) - 1;
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            if (puzzle.get(cell) == 0)
+            {
+                long candidates = allNumbers;
+                for (int unit : layout.getUnitsOf(cell))
+                    candidates &= ~unitNumbers[unit];
+                for (int number = 0; number < size; number++)
+                {
+                    if ((candidates & (1L << number)) != 0)
+                        variableOf[cell * size + number] = variableCount++;
+                }
+            }
+        }
+
+        // a variable for each set of numbers that completes a cage
+        List<long[]> cageCombinations = new ArrayList<>();
+        int combinationCount = 0;
+        for (int unit = layout.getHouseCount(); unit < layout.getUnitCount(); unit++)
+        {
+            int emptyCount = 0;
+            for (int cell : layout.getUnitFields(unit))
+            {
+                emptyCount += puzzle.get(cell) == 0
+                              ? 1
+                              : 0;
+            }
+            List<Long> combinations = new ArrayList<>();
+            addCombinations(combinations, allNumbers & ~unitNumbers[unit], size, emptyCount,
+                    layout.getSum(unit) - unitSums[unit], 0L);
+            long[] sets = combinations.stream().mapToLong(Long::longValue).toArray();
+            cageCombinations.add(sets);
+            combinationCount += sets.length;
+        }
+
+        CdclSolver solver = new CdclSolver(variableCount + combinationCount);
+        int[] literals = new int[size];
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            if (puzzle.get(cell) == 0)
+            {
+                int count = 0;
+                for (int number = 0; number < size; number++)
+                {
+                    int var = variableOf[cell * size + number];
+                    if (var >= 0)
+                        literals[count++] = var;
+                }
+                addExactlyOne(solver, literals, count);
+            }
+        }
+        for (int unit = 0; unit < layout.getUnitCount(); unit++)
+        {
+            boolean isHouse = unit < layout.getHouseCount();
+            for (int number = 0; number < size; number++)
+            {
+                if ((unitNumbers[unit] & (1L << number)) == 0)
+                {
+                    int count = 0;
+                    for (int cell : layout.getUnitFields(unit))
+                    {
+                        int var = variableOf[cell * size + number];
+                        if (var >= 0)
+                            literals[count++] = var;
+                    }
+                    if (isHouse)
+                        addExactlyOne(solver, literals, count);
+                    else
+                        addAtMostOne(solver, literals, count);
+                }
+            }
+        }
+
+        int combinationVar = variableCount;
+        for (int i = 0; i < cageCombinations.size(); i++)
+        {
+            int[] fields = layout.getUnitFields(layout.getHouseCount() + i);
+            long[] sets = cageCombinations.get(i);
+            int[] atLeastOne = new int[sets.length];
+            for (int j = 0; j < sets.length; j++)
+            {
+                int set = combinationVar++;
+                atLeastOne[j] = CdclSolver.literal(set, true);
+                addCombination(solver, set, sets[j], fields, variableOf, size);
+            }
+            solver.addClause(atLeastOne);
+        }
+
+        boolean isSatisfiable = hasDeadline
+                                ? solver.solve(deadline)
+                                : solver.solve();
+        if (!isSatisfiable)
+            return new SolveResult(solver.isTimedOut()
+                                   ? SolveResult.Status.TIMEOUT
+                                   : SolveResult.Status.UNSOLVABLE,
+                    puzzle, null, solver.getDecisionCount(), System.nanoTime() - time);
+
+        byte[] cells = puzzle.toBytes();
+        for (int i = 0; i < variableOf.length; i++)
+        {
+            if (variableOf[i] >= 0 && solver.isTrue(variableOf[i]))
+                cells[i / size] = (byte) (i % size + 1);
+        }
+        return new SolveResult(SolveResult.Status.SOLVED, puzzle, Grid.of(layout, cells), solver.getDecisionCount(),
+                System.nanoTime() - time);
+    }
+
+    /**
+     * Collects every set of target count of numbers out of the available ones, whose numbers sum up to target sum.
+     *
+     * @throws IllegalArgumentException if there are more than {@link #MAX_CAGE_COMBINATIONS} sets
+     */
+    private void addCombinations(List<Long> combinations, long available, int number, int count, int sum, long set)
+    {
+        if (count == 0)
+        {
+            if (sum == 0)
+            {
+                if (combinations.size() == MAX_CAGE_COMBINATIONS)
+                    throw new IllegalArgumentException("cage has more than " + MAX_CAGE_COMBINATIONS
+                            + " combinations");
+                combinations.add(set);
+            }
+            return;
+        }
+        // the numbers are taken in descending order, so the largest count numbers below target are the maximum
+        for (int n = Math.min(number, sum); n >= count; n--)
+        {
+            if ((available & (1L << (n - 1))) != 0 && sum <= count * (2 * n - count + 1) / 2)
+                addCombinations(combinations, available, n - 1, count - 1, sum - n, set | (1L << (n - 1)));
+        }
+    }
+
+    /**
+     * Adds clauses that force every number of target set into the empty fields of the cage and every other number
+     * out of them, if the variable of the set is true.
+     */
+    private void addCombination(CdclSolver solver, int set, long numbers, int[] fields, int[] variableOf, int size)
+    {
+        for (int number = 0; number < size; number++)
+        {
+            boolean isInSet = (numbers & (1L << number)) != 0;
+            List<Integer> clause = new ArrayList<>();
+            clause.add(CdclSolver.literal(set, false));
+            for (int cell : fields)
+            {
+                int var = variableOf[cell * size + number];
+                if (var < 0)
+                    continue;
+                if (isInSet)
+                    clause.add(CdclSolver.literal(var, true));
+                else
+                    solver.addClause(CdclSolver.literal(set, false), CdclSolver.literal(var, false));
+            }
+            if (isInSet)
+                solver.addClause(clause.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    /**
+     * Adds clauses that demand exactly one of target variables to be true. An empty list of variables makes the
+     * formula unsatisfiable.
+     */
+    private void addExactlyOne(CdclSolver solver, int[] variables, int count)
+    {
+        int[] atLeastOne = new int[count];
+        for (int i = 0; i < count; i++)
+            atLeastOne[i] = CdclSolver.literal(variables[i], true);
+        solver.addClause(atLeastOne);
+
+        addAtMostOne(solver, variables, count);
+    }
+
+    private void addAtMostOne(CdclSolver solver, int[] variables, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            for (int j = i + 1; j < count; j++)
+            {
+                solver.addClause(CdclSolver.literal(variables[i], false), CdclSolver.literal(variables[j], false));
+            }
+        }
+    }
+}
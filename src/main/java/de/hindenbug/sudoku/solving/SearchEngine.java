@@ -0,0 +1,47 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Grid;
+
+/**
+ * A <code>SearchEngine</code> is an algorithm that searches the solution of a {@link Grid}. Engines do not change
+ * the grid, so one engine may be used by many threads at the same time.
+ *
+ * @see Solver#Solver(SearchEngine, CandidateRemovalStrategy...)
+ */
+public interface SearchEngine
+{
+    /**
+     * Searches a solution of target grid.
+     *
+     * @param puzzle grid to solve
+     * @return the result that contains the solution if one was found
+     */
+    SolveResult solve(Grid puzzle);
+
+    /**
+     * Searches a solution of target grid and records the steps of the search. Engines that can not record their
+     * steps just search the solution.
+     *
+     * @param puzzle grid to solve
+     * @param trace  trace to record the steps to, or <code>null</code> to record nothing
+     * @return the result that contains the solution if one was found
+     */
+    default SolveResult solve(Grid puzzle, SolveTrace trace)
+    {
+        return solve(puzzle);
+    }
+
+    /**
+     * Searches a solution of target grid, but stops the search at target deadline. Engines that can not be stopped
+     * just search the solution.
+     *
+     * @param puzzle   grid to solve
+     * @param deadline value of {@link System#nanoTime()} at which the search is stopped
+     * @return the result that contains the solution if one was found, with status
+     * {@linkplain SolveResult.Status#TIMEOUT timeout} if the search was stopped
+     */
+    default SolveResult solve(Grid puzzle, long deadline)
+    {
+        return solve(puzzle);
+    }
+}
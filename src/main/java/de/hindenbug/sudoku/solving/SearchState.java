@@ -0,0 +1,898 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A <code>SearchState</code> contains the scratch buffers of a backtracking search on a {@link Grid}. The numbers
+ * used in every unit of the {@link Layout} are kept as bit masks, so the candidates of a field are calculated with a
+ * few bit operations. The search always continues with the empty field that has the fewest candidates left. If no
+ * field with a single candidate is left, a number that fits into only one field of a house is preferred. The
+ * numbers of a cage are restricted to the ones that can still reach the sum of the cage.
+ * <p>
+ * A state is not thread safe. It is meant to be reused by one thread for many grids, so the buffers are only
+ * reallocated if the layout of the grid changes.
+ * <p>
+ * Candidates are tried in ascending order, unless a {@linkplain #setRandom(Random) random} is set.
+ *
+ * @see #load(Grid)
+ * @see #next()
+ */
+public final class SearchState
+{
+    /*
+    zobrist keys of each size, the same for every state so that the hashes
+    can be shared in a nogood table
+     */
+    private static final Map<Integer, long[]> ZOBRIST_KEYS = new ConcurrentHashMap<>();
+
+    private static final int CHECKPOINT_MAGIC = 0x53434850;
+    private static final int CHECKPOINT_VERSION = 1;
+
+    private Layout layout;
+    private int size;
+    private int cellCount;
+    private long allNumbers;
+    private int houseCount;
+    private boolean hasCages;
+
+    private byte[] numbers;
+
+    /*
+    candidates of the empty fields, calculated while selecting the next
+    field. assigned fields have no candidates.
+     */
+    private long[] candidatesOf;
+
+    /*
+    numbers that each field may use at all, see restrict(int, long)
+     */
+    private long[] allowed;
+    private long[] unitNumbers;
+
+    /*
+    sum that is still missing and count of empty fields of each cage
+     */
+    private int[] cageSums;
+    private int[] cageEmpty;
+
+    /*
+    the empty fields of the grid. fields at index < depth are assigned,
+    remaining[depth] contains the candidates that are not tried yet
+    for the field at index depth.
+     */
+    private int[] empty;
+    private int[] positionOf;
+    private long[] remaining;
+    private int emptyCount;
+    private int depth;
+
+    private boolean started;
+    private boolean exhausted;
+
+    /*
+    the candidates of the field at the current depth are selected, but none
+    is tried yet. a state is primed before its first split or when the
+    search pauses, see next(long).
+     */
+    private boolean primed;
+    private long nodeCount;
+
+    /*
+    zobrist hash of the current numbers and the node count when each depth
+    was entered. a state at depth <= keepDepth is not stored as dead, as a
+    solution was found below it or a part of it was split off. restricted
+    empty fields make a state dead only for this search, so nothing is
+    stored while they are open.
+     */
+    private long[] zobrist;
+    private long hash;
+    private long[] entryNodes;
+    private int keepDepth;
+    private int openRestricted;
+    private NogoodTable nogoods;
+    private boolean usesNogoods;
+    private long lookupCount;
+    private long hitCount;
+
+    private Random random;
+    private SolveTrace trace;
+
+    /*
+    the numbers that are placed how often, and the candidates of each depth in the order they are tried at
+    d * size, if the value order is not ascending
+     */
+    private ValueOrder valueOrder = ValueOrder.ASCENDING;
+    private int[] numberCounts;
+    private byte[] orderedValues;
+    private int[] orderedCounts;
+    private int[] scores;
+
+    /**
+     * Sets the random that selects the order in which the candidates of a field are tried. This is used to build
+     * random solutions of an empty grid.
+     *
+     * @param random random to use or <code>null</code> to try candidates in ascending order
+     */
+    public void setRandom(Random random)
+    {
+        this.random = random;
+    }
+
+    /**
+     * Sets the order in which the candidates of a guessed field are tried. The order of
+     * {@linkplain ValueOrder#RANDOM random} uses the random of {@linkplain #setRandom(Random)}, without random the
+     * candidates are tried in ascending order. A search that was split or read from a checkpoint tries the candidates
+     * of the fields selected before in ascending order.
+     *
+     * @param valueOrder order to use, the default is {@linkplain ValueOrder#ASCENDING ascending}
+     */
+    public void setValueOrder(ValueOrder valueOrder)
+    {
+        this.valueOrder = valueOrder;
+    }
+
+    /**
+     * Sets the table that remembers the states without solution. Whenever the search leaves a state without finding
+     * a solution below it, the state is stored, and states found in the table are not searched again. The table is
+     * only used for grids of the same layout instance and takes effect with the next load.
+     *
+     * @param nogoods table to use, it may be shared with other states, or <code>null</code> to use none
+     */
+    public void setNogoods(NogoodTable nogoods)
+    {
+        this.nogoods = nogoods;
+    }
+
+    /**
+     * Sets the trace that records every tried number and every backtrack of the search.
+     *
+     * @param trace trace to record to or <code>null</code> to record nothing
+     */
+    void setTrace(SolveTrace trace)
+    {
+        this.trace = trace;
+    }
+
+    /**
+     * Loads the numbers of target grid into this state and resets the search.
+     *
+     * @return <code>true</code> if the grid is valid, <code>false</code> if a number is used twice inside a unit or
+     * the numbers of a cage exceed its sum
+     */
+    public boolean load(Grid grid)
+    {
+        reset(grid.getLayout());
+        boolean isValid = true;
+        for (int cell = 0; cell < cellCount; cell++)
+            isValid &= put(cell, grid.get(cell));
+        return finishLoad(isValid);
+    }
+
+    /**
+     * Loads packed numbers into this state and resets the search. Unlike {@linkplain #load(Grid)} this does not
+     * need a grid, so many sudokus can be loaded from one large array without allocating anything.
+     *
+     * @param layout units of the sudoku
+     * @param cells  numbers of the fields row by row, 0 for empty fields
+     * @param offset index of the first field inside the array
+     * @return <code>true</code> if the numbers are valid
+     * @throws IllegalArgumentException if a number is outside of the range of the layout
+     */
+    public boolean load(Layout layout, byte[] cells, int offset)
+    {
+        reset(layout);
+        boolean isValid = true;
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            int number = cells[offset + cell];
+            if (number < 0 || number > size)
+                throw new IllegalArgumentException("number " + number + " at index " + cell
+                        + " outside of range 0 - " + size);
+            isValid &= put(cell, number);
+        }
+        return finishLoad(isValid);
+    }
+
+    private void reset(Layout layout)
+    {
+        if (layout != this.layout)
+            allocate(layout);
+
+        for (int unit = 0; unit < unitNumbers.length; unit++)
+        {
+            unitNumbers[unit] = 0;
+            cageSums[unit] = layout.getSum(unit);
+            cageEmpty[unit] = 0;
+        }
+        emptyCount = 0;
+        depth = 0;
+        started = false;
+        primed = false;
+        exhausted = false;
+        nodeCount = 0;
+        hash = 0;
+        Arrays.fill(numberCounts, 0);
+        keepDepth = -1;
+        openRestricted = 0;
+        usesNogoods = nogoods != null && nogoods.getLayout() == layout;
+    }
+
+    /**
+     * Puts a number of the loaded sudoku into target field.
+     *
+     * @return <code>false</code> if the number is already used inside a unit of the field
+     */
+    private boolean put(int cell, int number)
+    {
+        boolean isValid = true;
+        numbers[cell] = (byte) number;
+        candidatesOf[cell] = 0;
+        allowed[cell] = allNumbers;
+        int[] units = layout.getUnitsOf(cell);
+        if (number == 0)
+        {
+            positionOf[cell] = emptyCount;
+            empty[emptyCount++] = cell;
+            for (int unit : units)
+                cageEmpty[unit]++;
+        } else
+        {
+            long bit = 1L << (number - 1);
+            hash ^= zobrist[cell * size + number - 1];
+            numberCounts[number - 1]++;
+            for (int unit : units)
+            {
+                if ((unitNumbers[unit] & bit) != 0)
+                    isValid = false;
+                unitNumbers[unit] |= bit;
+                cageSums[unit] -= number;
+            }
+        }
+        return isValid;
+    }
+
+    private boolean finishLoad(boolean isValid)
+    {
+        for (int unit = houseCount; unit < unitNumbers.length; unit++)
+        {
+            if (cageSums[unit] < 0 || (cageEmpty[unit] == 0 && cageSums[unit] != 0))
+                isValid = false;
+        }
+        exhausted = !isValid;
+        return isValid;
+    }
+
+    private void allocate(Layout layout)
+    {
+        this.layout = layout;
+        this.size = layout.size();
+        this.cellCount = size * size;
+        this.allNumbers = (1L << size) - 1;
+        this.houseCount = layout.getHouseCount();
+        this.hasCages = layout.hasCages();
+
+        numbers = new byte[cellCount];
+        candidatesOf = new long[cellCount];
+        allowed = new long[cellCount];
+        unitNumbers = new long[layout.getUnitCount()];
+        cageSums = new int[layout.getUnitCount()];
+        cageEmpty = new int[layout.getUnitCount()];
+        empty = new int[cellCount];
+        positionOf = new int[cellCount];
+        remaining = new long[cellCount + 1];
+        entryNodes = new long[cellCount + 1];
+        numberCounts = new int[size];
+        orderedValues = null;
+        zobrist = ZOBRIST_KEYS.computeIfAbsent(size, s -> new SplittableRandom(s).longs(s * s * s).toArray());
+    }
+
+    /**
+     * Restricts the numbers that an empty field may use for the loaded grid. This must be called before the first
+     * {@linkplain #next()}. Excluding the number of a known solution from a field checks, if the sudoku has another
+     * solution that differs in this field.
+     *
+     * @param cell       index of the field
+     * @param candidates bit mask of the numbers, where bit 0 stands for number 1
+     */
+    public void restrict(int cell, long candidates)
+    {
+        if (numbers[cell] == 0 && allowed[cell] == allNumbers && (candidates & allNumbers) != allNumbers)
+            openRestricted++;
+        allowed[cell] &= candidates;
+    }
+
+    /**
+     * Searches the next solution of the loaded grid. The first call returns the first solution, every further call
+     * continues the search where the previous solution was found.
+     *
+     * @return <code>true</code> if a solution was found, <code>false</code> if no further solution exists
+     */
+    public boolean next()
+    {
+        return next(Long.MAX_VALUE);
+    }
+
+    /**
+     * Searches the next solution, but pauses after target count of tried candidates. A paused search continues
+     * with the next call, so a long search can be {@linkplain #writeCheckpoint(DataOutput) checkpointed} between
+     * the calls.
+     *
+     * @param nodeBudget count of candidates that may be tried before the search pauses
+     * @return <code>true</code> if a solution was found, <code>false</code> if the search paused or no further
+     * solution exists, see {@linkplain #isExhausted()}
+     */
+    public boolean next(long nodeBudget)
+    {
+        if (exhausted)
+            return false;
+        long pauseAt = nodeBudget < Long.MAX_VALUE - nodeCount
+                       ? nodeCount + nodeBudget
+                       : Long.MAX_VALUE;
+
+        int d = depth;
+        if (started)
+        {
+            // continue behind the last solution
+            if (!primed)
+                remaining[d] = 0;
+            primed = false;
+            d = advance(d);
+        }
+        started = true;
+
+        while (d >= 0)
+        {
+            if (d == emptyCount)
+            {
+                keepDepth = d;
+                depth = d;
+                countLookups();
+                return true;
+            }
+            remaining[d] = usesNogoods && isDead()
+                           ? 0
+                           : selectField(d);
+            if (nodeCount >= pauseAt)
+            {
+                depth = d;
+                primed = true;
+                countLookups();
+                return false;
+            }
+            d = advance(d);
+        }
+        depth = 0;
+        exhausted = true;
+        countLookups();
+        return false;
+    }
+
+    /**
+     * Returns <code>true</code> if the search found all solutions or the loaded grid is invalid.
+     */
+    public boolean isExhausted()
+    {
+        return exhausted;
+    }
+
+    /**
+     * Hands a part of the remaining search over to a new state. The search of this state is cut at the lowest depth
+     * that has untried candidates left, and a part of these candidates is searched by the new state. Both states
+     * together find exactly the solutions that this state would have found alone.
+     *
+     * @return the new state or <code>null</code> if there is nothing left to split
+     */
+    public SearchState split()
+    {
+        if (exhausted)
+            return null;
+        if (!started)
+        {
+            if (emptyCount == 0)
+                return null;
+            prime();
+        }
+
+        /*
+        the fields before the current depth keep their current number. the field
+        at the current depth is tried right now, unless the state is primed.
+         */
+        for (int d = 0; d <= depth && d < emptyCount; d++)
+        {
+            boolean isTried = d < depth;
+            int count = Long.bitCount(remaining[d]);
+            if (!isTried && (!primed || count < 2))
+                break;
+            if (count == 0)
+                continue;
+
+            // the new state takes the larger numbers, the half that this state would try last
+            long part = 0;
+            for (int i = isTried
+                         ? (count + 1) / 2
+                         : count / 2; i > 0; i--)
+                part |= Long.highestOneBit(remaining[d] & ~part);
+            remaining[d] &= ~part;
+            keepDepth = Math.max(keepDepth, d);
+            return createPart(d, part);
+        }
+        return null;
+    }
+
+    /**
+     * Selects the candidates of the first field without trying one. Fields with a single candidate are assigned at
+     * once, so the search can be split at the first real choice.
+     */
+    private void prime()
+    {
+        started = true;
+        primed = true;
+        int d = 0;
+        remaining[0] = selectField(0);
+        while (Long.bitCount(remaining[d]) == 1 && d + 1 < emptyCount)
+        {
+            d = advance(d);
+            remaining[d] = selectField(d);
+        }
+        depth = d;
+    }
+
+    /**
+     * Creates a state that keeps the fields before depth <code>d</code> and tries target candidates on the field at
+     * depth <code>d</code>.
+     */
+    private SearchState createPart(int d, long candidates)
+    {
+        byte[] cells = numbers.clone();
+        for (int i = d; i < emptyCount; i++)
+            cells[empty[i]] = 0;
+
+        SearchState part = new SearchState();
+        part.setRandom(random);
+        part.setValueOrder(valueOrder);
+        part.setNogoods(nogoods);
+        part.load(layout, cells, 0);
+        for (int cell = 0; cell < cellCount; cell++)
+            part.restrict(cell, allowed[cell]);
+        part.restrict(empty[d], candidates);
+        return part;
+    }
+
+    /**
+     * Counts the solutions of the loaded grid, but stops as soon as target limit is reached. A limit of 2 is enough
+     * to check if a sudoku has a unique solution.
+     *
+     * @param limit maximum count of solutions to search for
+     * @return count of found solutions
+     */
+    public int countSolutions(int limit)
+    {
+        int count = 0;
+        while (count < limit && next())
+            count++;
+        return count;
+    }
+
+    /**
+     * Moves the empty field with the fewest candidates to position <code>d</code> and returns its candidates. A
+     * field, that is the only place of a number inside a house, is restricted to this number.
+     */
+    private long selectField(int d)
+    {
+        int bestIndex = d;
+        long bestCandidates = 0;
+        int bestCount = Integer.MAX_VALUE;
+        for (int i = d; i < emptyCount && bestCount > 1; i++)
+        {
+            long candidates = getCandidates(empty[i]);
+            candidatesOf[empty[i]] = candidates;
+            int count = Long.bitCount(candidates);
+            if (count < bestCount)
+            {
+                bestIndex = i;
+                bestCandidates = candidates;
+                bestCount = count;
+            }
+        }
+
+        if (bestCount > 1)
+        {
+            for (int unit = 0; unit < houseCount; unit++)
+            {
+                int[] fields = layout.getUnitFields(unit);
+                long once = 0;
+                long twice = 0;
+                for (int cell : fields)
+                {
+                    long candidates = candidatesOf[cell];
+                    twice |= once & candidates;
+                    once |= candidates;
+                }
+                long missing = allNumbers & ~unitNumbers[unit];
+                if ((once & missing) != missing)
+                {
+                    // a number has no place left inside the unit
+                    bestCandidates = 0;
+                    break;
+                }
+                long single = once & ~twice;
+                if (single != 0)
+                {
+                    long bit = Long.lowestOneBit(single);
+                    for (int cell : fields)
+                    {
+                        if ((candidatesOf[cell] & bit) != 0)
+                        {
+                            bestIndex = positionOf[cell];
+                            bestCandidates = bit;
+                            break;
+                        }
+                    }
+                    break;
+                }
+            }
+        }
+
+        int cell = empty[bestIndex];
+        empty[bestIndex] = empty[d];
+        positionOf[empty[d]] = bestIndex;
+        empty[d] = cell;
+        positionOf[cell] = d;
+        if (valueOrder == ValueOrder.LEAST_CONSTRAINING || valueOrder == ValueOrder.MOST_FREQUENT)
+            orderValues(d, cell, bestCandidates);
+        return bestCandidates;
+    }
+
+    /**
+     * Sorts the candidates of the field at depth <code>d</code> by their score, the lowest first. The candidates of
+     * all other empty fields are up to date, as the field was selected out of them.
+     */
+    private void orderValues(int d, int cell, long candidates)
+    {
+        if (orderedValues == null)
+        {
+            orderedValues = new byte[(cellCount + 1) * size];
+            orderedCounts = new int[cellCount + 1];
+            scores = new int[size];
+        }
+        int count = Long.bitCount(candidates);
+        orderedCounts[d] = count > 1
+                           ? count
+                           : 0;
+        if (count <= 1)
+            return;
+
+        for (long rest = candidates; rest != 0; rest &= rest - 1)
+            scores[Long.numberOfTrailingZeros(rest)] = 0;
+        if (valueOrder == ValueOrder.LEAST_CONSTRAINING)
+        {
+            for (int peer : layout.getPeers(cell))
+            {
+                for (long shared = candidatesOf[peer] & candidates; shared != 0; shared &= shared - 1)
+                    scores[Long.numberOfTrailingZeros(shared)]++;
+            }
+        } else
+        {
+            for (long rest = candidates; rest != 0; rest &= rest - 1)
+            {
+                int index = Long.numberOfTrailingZeros(rest);
+                scores[index] = -numberCounts[index];
+            }
+        }
+
+        // insertion sort of the few candidates, equal scores keep the ascending order
+        int offset = d * size;
+        int sorted = 0;
+        for (long rest = candidates; rest != 0; rest &= rest - 1)
+        {
+            int index = Long.numberOfTrailingZeros(rest);
+            int i = sorted++;
+            while (i > 0 && scores[orderedValues[offset + i - 1] - 1] > scores[index])
+            {
+                orderedValues[offset + i] = orderedValues[offset + i - 1];
+                i--;
+            }
+            orderedValues[offset + i] = (byte) (index + 1);
+        }
+    }
+
+    /**
+     * Returns the next candidate to try at depth <code>d</code>.
+     */
+    private long nextValue(int d)
+    {
+        if (random != null)
+            return randomBit(remaining[d]);
+        if (orderedValues != null && orderedCounts[d] > 0 && valueOrder != ValueOrder.ASCENDING)
+        {
+            int offset = d * size;
+            for (int i = 0; i < orderedCounts[d]; i++)
+            {
+                long bit = 1L << (orderedValues[offset + i] - 1);
+                if ((remaining[d] & bit) != 0)
+                    return bit;
+            }
+        }
+        return Long.lowestOneBit(remaining[d]);
+    }
+
+    /**
+     * Assigns the next candidate at depth <code>d</code>. If no candidate is left the search goes back until a
+     * field is found that has untried candidates.
+     *
+     * @return the next depth or -1 if the search space is exhausted
+     */
+    private int advance(int d)
+    {
+        while (remaining[d] == 0)
+        {
+            if (usesNogoods)
+                storeDead(d);
+            if (d == 0)
+                return -1;
+            d--;
+            if (trace != null)
+                trace.record(SolveTrace.StepType.BACKTRACK, empty[d], numbers[empty[d]], d);
+            unassign(empty[d]);
+        }
+        long bit = nextValue(d);
+        remaining[d] &= ~bit;
+        assign(empty[d], bit);
+        nodeCount++;
+        entryNodes[d + 1] = nodeCount;
+        if (trace != null)
+            trace.record(SolveTrace.StepType.GUESS, empty[d], numbers[empty[d]], d);
+        return d + 1;
+    }
+
+    private boolean isDead()
+    {
+        lookupCount++;
+        if (!nogoods.contains(hash))
+            return false;
+        hitCount++;
+        return true;
+    }
+
+    private void countLookups()
+    {
+        if (usesNogoods)
+            nogoods.count(lookupCount, hitCount);
+        lookupCount = 0;
+        hitCount = 0;
+    }
+
+    /**
+     * Stores the state at depth <code>d</code> as dead, as the search leaves it. States that were left before any
+     * candidate was tried are cheaper to find again than to look up.
+     */
+    private void storeDead(int d)
+    {
+        if (d > keepDepth && openRestricted == 0 && nodeCount > entryNodes[d])
+            nogoods.add(hash);
+        keepDepth = Math.min(keepDepth, d - 1);
+    }
+
+    private long randomBit(long candidates)
+    {
+        // drop a random count of lower bits
+        for (int i = random.nextInt(Long.bitCount(candidates)); i > 0; i--)
+            candidates &= candidates - 1;
+        return Long.lowestOneBit(candidates);
+    }
+
+    private void assign(int cell, long bit)
+    {
+        int number = Long.numberOfTrailingZeros(bit) + 1;
+        numbers[cell] = (byte) number;
+        candidatesOf[cell] = 0;
+        hash ^= zobrist[cell * size + number - 1];
+        numberCounts[number - 1]++;
+        if (allowed[cell] != allNumbers)
+            openRestricted--;
+        for (int unit : layout.getUnitsOf(cell))
+        {
+            unitNumbers[unit] |= bit;
+            cageSums[unit] -= number;
+            cageEmpty[unit]--;
+        }
+    }
+
+    private void unassign(int cell)
+    {
+        int number = numbers[cell];
+        long bit = ~(1L << (number - 1));
+        for (int unit : layout.getUnitsOf(cell))
+        {
+            unitNumbers[unit] &= bit;
+            cageSums[unit] += number;
+            cageEmpty[unit]++;
+        }
+        numbers[cell] = 0;
+        hash ^= zobrist[cell * size + number - 1];
+        numberCounts[number - 1]--;
+        if (allowed[cell] != allNumbers)
+            openRestricted++;
+    }
+
+    /**
+     * Returns the numbers that may be used on target field as bit mask, where bit 0 stands for number 1.
+     */
+    public long getCandidates(int cell)
+    {
+        long candidates = allowed[cell];
+        int[] units = layout.getUnitsOf(cell);
+        for (int unit : units)
+            candidates &= ~unitNumbers[unit];
+        if (hasCages)
+        {
+            for (int i = units.length - 1; i >= 0 && units[i] >= houseCount; i--)
+                candidates &= getCageCandidates(units[i]);
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the numbers that an empty field of target cage may use, so that the remaining empty fields can still
+     * reach the sum of the cage with distinct numbers.
+     */
+    private long getCageCandidates(int cage)
+    {
+        int sum = cageSums[cage];
+        int others = cageEmpty[cage] - 1;
+        // the other empty fields need at least 1 + ... + others and at most size + ... + (size - others + 1)
+        int min = Math.max(1, sum - others * (2 * size - others + 1) / 2);
+        int max = Math.min(size, sum - others * (others + 1) / 2);
+        if (min > max)
+            return 0;
+        return (allNumbers >>> (size - max)) & ~((1L << (min - 1)) - 1);
+    }
+
+    /**
+     * Copies the current numbers of the search into target array.
+     *
+     * @param cells  array to copy the numbers to, row by row
+     * @param offset index of the first field inside the array
+     */
+    public void copyTo(byte[] cells, int offset)
+    {
+        System.arraycopy(numbers, 0, cells, offset, cellCount);
+    }
+
+    /**
+     * Writes the position of the search, so it can be continued by {@linkplain #readCheckpoint(DataInput, Layout)}
+     * in another process. The checkpoint contains the current numbers, the order of the empty fields, the untried
+     * candidates of every depth, the restrictions and the node count. It should be written while the search does
+     * not run, after a solution was found or the search paused.
+     */
+    public void writeCheckpoint(DataOutput out) throws IOException
+    {
+        if (layout == null)
+            throw new IllegalStateException("nothing loaded");
+        out.writeInt(CHECKPOINT_MAGIC);
+        out.writeInt(CHECKPOINT_VERSION);
+        out.writeInt(size);
+        int flags = 0;
+        if (started)
+            flags |= 1;
+        if (primed)
+            flags |= 2;
+        if (exhausted)
+            flags |= 4;
+        out.writeByte(flags);
+        out.writeLong(nodeCount);
+        out.writeInt(emptyCount);
+        out.writeInt(depth);
+        out.writeInt(keepDepth);
+        out.write(numbers);
+        for (int i = 0; i < emptyCount; i++)
+        {
+            out.writeShort(empty[i]);
+            out.writeLong(allowed[empty[i]]);
+        }
+        for (int d = 0; d <= depth; d++)
+            out.writeLong(remaining[d]);
+    }
+
+    /**
+     * Reads a state that was written by {@linkplain #writeCheckpoint(DataOutput)}. The next search continues where
+     * the written state stopped.
+     *
+     * @param layout layout of the written state, the size must match
+     * @throws IOException if the checkpoint is damaged or does not match the layout
+     */
+    public static SearchState readCheckpoint(DataInput in, Layout layout) throws IOException
+    {
+        if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION)
+            throw new IOException("not a search checkpoint");
+        int size = in.readInt();
+        if (size != layout.size())
+            throw new IOException("checkpoint of size " + size + " does not match layout of size " + layout.size());
+        int flags = in.readByte();
+        long nodeCount = in.readLong();
+        int emptyCount = in.readInt();
+        int depth = in.readInt();
+        int keepDepth = in.readInt();
+        int cellCount = size * size;
+        if (emptyCount < 0 || emptyCount > cellCount || depth < 0 || depth > emptyCount)
+            throw new IOException("invalid depth " + depth + " of " + emptyCount + " empty fields");
+        byte[] numbers = new byte[cellCount];
+        in.readFully(numbers);
+
+        int[] empty = new int[emptyCount];
+        long[] allowed = new long[emptyCount];
+        byte[] cells = numbers.clone();
+        for (int i = 0; i < emptyCount; i++)
+        {
+            empty[i] = in.readShort() & 0xFFFF;
+            allowed[i] = in.readLong();
+            if (empty[i] >= cellCount || (i < depth && (numbers[empty[i]] < 1 || numbers[empty[i]] > size)))
+                throw new IOException("invalid empty field " + empty[i]);
+            cells[empty[i]] = 0;
+        }
+
+        SearchState state = new SearchState();
+        try
+        {
+            if (!state.load(layout, cells, 0))
+                throw new IOException("checkpoint contains an invalid grid");
+        } catch (IllegalArgumentException e)
+        {
+            throw new IOException("checkpoint does not match layout", e);
+        }
+        if (state.emptyCount != emptyCount)
+            throw new IOException("empty fields are used twice");
+        for (int i = 0; i < emptyCount; i++)
+        {
+            state.empty[i] = empty[i];
+            state.positionOf[empty[i]] = i;
+            state.restrict(empty[i], allowed[i]);
+        }
+        for (int i = 0; i < depth && i < emptyCount; i++)
+            state.assign(empty[i], 1L << (numbers[empty[i]] - 1));
+        for (int d = 0; d <= depth; d++)
+            state.remaining[d] = in.readLong();
+
+        state.depth = depth;
+        state.started = (flags & 1) != 0;
+        state.primed = (flags & 2) != 0;
+        state.exhausted = (flags & 4) != 0;
+        state.nodeCount = nodeCount;
+        state.keepDepth = keepDepth;
+        return state;
+    }
+
+    /**
+     * Returns the current numbers of the search as a new grid.
+     */
+    public Grid toGrid()
+    {
+        return Grid.of(layout, numbers);
+    }
+
+    /**
+     * Returns the Zobrist hash of the current numbers.
+     */
+    long getHash()
+    {
+        return hash;
+    }
+
+    /**
+     * Returns the count of candidates that were tried since the last {@linkplain #load(Grid)}.
+     */
+    public long getNodeCount()
+    {
+        return nodeCount;
+    }
+}
@@ -0,0 +1,132 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A <code>SolutionCounter</code> counts the solutions of a grid in slices of tried candidates. Between two slices the
+ * count and the position of the {@link SearchState} can be saved to a checkpoint file, so a count that is
+ * interrupted continues in another process at the last checkpoint:
+ * <pre>
+ * SolutionCounter counter = Files.exists(file)
+ *                           ? SolutionCounter.load(file, puzzle.getLayout())
+ *                           : new SolutionCounter(puzzle);
+ * while (!counter.run(limit, 10_000_000))
+ *     counter.save(file);
+ * </pre>
+ * The search itself only compares the node count with the end of the slice, so the slices cost nearly nothing.
+ */
+public final class SolutionCounter
+{
+    private final SearchState state;
+    private final Layout layout;
+    private long count;
+
+    /**
+     * Creates a counter for the solutions of target puzzle. An invalid puzzle has no solution.
+     */
+    public SolutionCounter(Grid puzzle)
+    {
+        this(new SearchState(), puzzle.getLayout(), 0);
+        state.load(puzzle);
+    }
+
+    private SolutionCounter(SearchState state, Layout layout, long count)
+    {
+        this.state = state;
+        this.layout = layout;
+        this.count = count;
+    }
+
+    /**
+     * Counts solutions until target limit is reached, all solutions are found or target count of candidates was
+     * tried.
+     *
+     * @param limit      count of solutions at which the counting stops
+     * @param nodeBudget count of candidates that may be tried by this call
+     * @return <code>true</code> if the count is final, <code>false</code> if the budget was used up
+     */
+    public boolean run(long limit, long nodeBudget)
+    {
+        long end = nodeBudget < Long.MAX_VALUE - state.getNodeCount()
+                   ? state.getNodeCount() + nodeBudget
+                   : Long.MAX_VALUE;
+        while (count < limit)
+        {
+            long left = end - state.getNodeCount();
+            if (left <= 0)
+                return false;
+            if (state.next(left))
+                count++;
+            else
+                return state.isExhausted();
+        }
+        return true;
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Returns <code>true</code> if all solutions are counted.
+     */
+    public boolean isExhausted()
+    {
+        return state.isExhausted();
+    }
+
+    /**
+     * Returns the count of candidates tried by all runs, including the runs before the last checkpoint.
+     */
+    public long getNodeCount()
+    {
+        return state.getNodeCount();
+    }
+
+    /**
+     * Writes the count and the position of the search to target file. The checkpoint is written to a temporary file
+     * first, that replaces the file afterwards, so an interrupted save keeps the previous checkpoint.
+     */
+    public void save(Path file) throws IOException
+    {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+        {
+            out.writeLong(count);
+            state.writeCheckpoint(out);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a counter that was saved by {@linkplain #save(Path)}.
+     *
+     * @param layout layout of the counted grid
+     */
+    public static SolutionCounter load(Path file, Layout layout) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+        {
+            long count = in.readLong();
+            if (count < 0)
+                throw new IOException("invalid count " + count);
+            return new SolutionCounter(SearchState.readCheckpoint(in, layout), layout, count);
+        }
+    }
+
+    public Layout getLayout()
+    {
+        return layout;
+    }
+}
@@ -0,0 +1,55 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Grid;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A <code>SolutionSpliterator</code> enumerates the solutions of a sudoku lazily. Every advance continues the
+ * {@link SearchState} until the next solution is found, so a short circuiting stream stops the search as soon as it
+ * has enough solutions. Splitting hands the untried candidates of the lowest open depth to a new spliterator, which
+ * lets a parallel stream distribute the remaining search tree over several threads.
+ *
+ * @see Solver#solutions(Grid)
+ */
+class SolutionSpliterator implements Spliterator<Grid>
+{
+    private final SearchState state;
+
+    SolutionSpliterator(SearchState state)
+    {
+        this.state = state;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Grid> action)
+    {
+        if (!state.next())
+            return false;
+        action.accept(state.toGrid());
+        return true;
+    }
+
+    @Override
+    public Spliterator<Grid> trySplit()
+    {
+        SearchState part = state.split();
+        return part != null
+               ? new SolutionSpliterator(part)
+               : null;
+    }
+
+    @Override
+    public long estimateSize()
+    {
+        // the count of solutions is unknown until the search is done
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics()
+    {
+        return NONNULL | DISTINCT | IMMUTABLE;
+    }
+}
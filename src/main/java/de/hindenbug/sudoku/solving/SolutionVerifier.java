@@ -0,0 +1,117 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Layout;
+
+/**
+ * A <code>SolutionVerifier</code> checks completed grids against their puzzles: every given of the puzzle must be
+ * kept, every field must contain a number and no number may be used twice inside a unit. The numbers of each unit
+ * are collected as bit mask, so a grid is checked without creating a {@link de.hindenbug.sudoku.model.Sudoku} or
+ * any other object.
+ * <p>
+ * A verifier keeps the position of the last error, so it must not be used by several threads at the same time.
+ *
+ * @see #verify(byte[], int, byte[], int)
+ */
+public final class SolutionVerifier
+{
+    public enum Status
+    {
+        /**
+         * the solution is complete, keeps the givens and uses every number once per unit
+         */
+        VALID,
+        /**
+         * a field of the solution is empty or its number is out of range
+         */
+        INCOMPLETE,
+        /**
+         * the solution changes a given of the puzzle
+         */
+        GIVEN_CHANGED,
+        /**
+         * a number is used twice inside a unit
+         */
+        DUPLICATE,
+        /**
+         * the numbers of a cage do not sum up to the sum of the cage
+         */
+        CAGE_SUM
+    }
+
+    private final Layout layout;
+    private final int size;
+    private final int cellCount;
+    private int position;
+
+    public SolutionVerifier(Layout layout)
+    {
+        this.layout = layout;
+        this.size = layout.size();
+        this.cellCount = size * size;
+    }
+
+    public Layout getLayout()
+    {
+        return layout;
+    }
+
+    /**
+     * Checks the packed solution at target offset against the packed puzzle at the other offset.
+     *
+     * @param puzzles        numbers of the puzzle row by row, 0 for empty fields
+     * @param puzzleOffset   index of the first field of the puzzle
+     * @param solutions      numbers of the solution row by row
+     * @param solutionOffset index of the first field of the solution
+     * @return the status of the solution, the field or unit of an error is returned by {@linkplain #getPosition()}
+     */
+    public Status verify(byte[] puzzles, int puzzleOffset, byte[] solutions, int solutionOffset)
+    {
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            int number = solutions[solutionOffset + cell];
+            int given = puzzles[puzzleOffset + cell];
+            if (number < 1 || number > size)
+                return fail(Status.INCOMPLETE, cell);
+            if (given != 0 && given != number)
+                return fail(Status.GIVEN_CHANGED, cell);
+        }
+        // every field has a number, so a house without a number used twice is a permutation
+        int houseCount = layout.getHouseCount();
+        for (int unit = 0; unit < layout.getUnitCount(); unit++)
+        {
+            long seen = 0;
+            int sum = 0;
+            for (int cell : layout.getUnitFields(unit))
+            {
+                int number = solutions[solutionOffset + cell];
+                long bit = 1L << (number - 1);
+                if ((seen & bit) != 0)
+                    return fail(Status.DUPLICATE, unit);
+                seen |= bit;
+                sum += number;
+            }
+            if (unit >= houseCount && sum != layout.getSum(unit))
+                return fail(Status.CAGE_SUM, unit);
+        }
+        position = -1;
+        return Status.VALID;
+    }
+
+    private Status fail(Status status, int position)
+    {
+        this.position = position;
+        return status;
+    }
+
+    /**
+     * Returns the position of the error of the last verified solution: the field for
+     * {@linkplain Status#INCOMPLETE incomplete} solutions and {@linkplain Status#GIVEN_CHANGED changed givens},
+     * otherwise the unit of the {@link Layout}.
+     *
+     * @return the index of the field or unit, -1 if the last solution is valid
+     */
+    public int getPosition()
+    {
+        return position;
+    }
+}
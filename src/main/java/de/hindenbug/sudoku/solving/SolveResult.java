@@ -0,0 +1,100 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Grid;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * A <code>SolveResult</code> is the immutable outcome of solving a {@link Grid}. It contains the solved grid if a
+ * solution was found and some statistics about the search.
+ *
+ * @see Solver#solve(Grid)
+ */
+public final class SolveResult
+{
+    public enum Status
+    {
+        /**
+         * a solution was found
+         */
+        SOLVED,
+        /**
+         * the puzzle is valid, but has no solution
+         */
+        UNSOLVABLE,
+        /**
+         * a number is used twice inside a row, column or block of the puzzle
+         */
+        INVALID,
+        /**
+         * the search was stopped at its deadline before it found a solution or proved that there is none
+         */
+        TIMEOUT,
+        /**
+         * the solver failed with an exception, reported by a worker that answers the other sudokus of a batch
+         */
+        ERROR
+    }
+
+    private final Status status;
+    private final Grid puzzle;
+    private final Grid solution;
+    private final long stepCount;
+    private final long nanos;
+
+    public SolveResult(Status status, Grid puzzle, Grid solution, long stepCount, long nanos)
+    {
+        this.status = status;
+        this.puzzle = puzzle;
+        this.solution = solution;
+        this.stepCount = stepCount;
+        this.nanos = nanos;
+    }
+
+    public Status getStatus()
+    {
+        return status;
+    }
+
+    public boolean isSolved()
+    {
+        return status == Status.SOLVED;
+    }
+
+    public Grid getPuzzle()
+    {
+        return puzzle;
+    }
+
+    /**
+     * Returns the solved grid.
+     *
+     * @return the solution or <code>null</code> if the puzzle is not {@linkplain Status#SOLVED solved}
+     */
+    public Grid getSolution()
+    {
+        return solution;
+    }
+
+    /**
+     * Returns the count of candidates that were tried to find the solution.
+     */
+    public long getStepCount()
+    {
+        return stepCount;
+    }
+
+    public long getNanos()
+    {
+        return nanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this)
+                .append("status", status)
+                .append("stepCount", stepCount)
+                .append("nanos", nanos)
+                .toString();
+    }
+}
@@ -0,0 +1,297 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A <code>SolveTrace</code> records the steps of a solve into a ring buffer of primitive records. Every fix,
+ * elimination, guess and backtrack is packed into one <code>long</code>, so recording a step is a single array
+ * store and does not allocate anything. If more steps are recorded than the buffer can hold, the oldest steps are
+ * overwritten.
+ * <p>
+ * A trace can be {@linkplain #dump(OutputStream) dumped} in a compact binary format and {@linkplain #replay()
+ * replayed} step by step against the puzzle it was started with. A trace is not thread safe, every thread that
+ * solves must use its own trace.
+ *
+ * @see Solver#setTrace(SolveTrace)
+ */
+public final class SolveTrace
+{
+    public enum StepType
+    {
+        /**
+         * A strategy fixed a number to a field.
+         */
+        FIX,
+        /**
+         * A strategy removed a candidate from a field.
+         */
+        ELIMINATE,
+        /**
+         * The search tried a number on a field.
+         */
+        GUESS,
+        /**
+         * The search removed a tried number from a field again.
+         */
+        BACKTRACK
+    }
+
+    private static final int MAGIC = 0x53545243;
+    private static final int VERSION = 1;
+    private static final StepType[] TYPES = StepType.values();
+
+    private final long[] records;
+    private final int mask;
+    private long count;
+    private Grid puzzle;
+
+    /**
+     * @param capacity count of steps that are kept, rounded up to the next power of two
+     */
+    public SolveTrace(int capacity)
+    {
+        if (capacity < 1 || capacity > 1 << 30)
+            throw new IllegalArgumentException("capacity " + capacity + " outside of range 1 - " + (1 << 30));
+        int length = Integer.highestOneBit(capacity);
+        if (length < capacity)
+            length <<= 1;
+        this.records = new long[length];
+        this.mask = records.length - 1;
+    }
+
+    /**
+     * Clears the trace and starts recording the solve of target puzzle.
+     */
+    public void start(Grid puzzle)
+    {
+        this.puzzle = puzzle;
+        this.count = 0;
+    }
+
+    /*
+    a record contains the type in bits 56 - 63, the depth of the search or
+    the round of the strategies in bits 32 - 55, the field in bits 8 - 31
+    and the number in bits 0 - 7.
+     */
+    void record(StepType type, int cell, int number, int depth)
+    {
+        records[(int) count++ & mask] = (long) type.ordinal() << 56 | (long) (depth & 0xFFFFFF) << 32
+                | (long) cell << 8 | number;
+    }
+
+    public Grid getPuzzle()
+    {
+        return puzzle;
+    }
+
+    /**
+     * Returns the count of steps recorded since the last start, including the overwritten ones.
+     */
+    public long getStepCount()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the count of steps that were overwritten, because the buffer was full.
+     */
+    public long getDroppedCount()
+    {
+        return Math.max(0, count - records.length);
+    }
+
+    /**
+     * Writes the puzzle and the kept steps. The layout of the puzzle is not written, so a dump of a puzzle with
+     * another than the classic layout must be read with {@linkplain #read(InputStream, Layout)}.
+     */
+    public void dump(OutputStream out) throws IOException
+    {
+        if (puzzle == null)
+            throw new IllegalStateException("trace is not started");
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(puzzle.size());
+        data.write(puzzle.toBytes());
+        data.writeLong(count);
+        data.writeInt(records.length);
+        long first = count - Math.min(count, records.length);
+        data.writeInt((int) (count - first));
+        for (long i = first; i < count; i++)
+            data.writeLong(records[(int) i & mask]);
+        data.flush();
+    }
+
+    /**
+     * Reads a trace of a classic sudoku, that was written by {@linkplain #dump(OutputStream)}.
+     */
+    public static SolveTrace read(InputStream in) throws IOException
+    {
+        return read(in, null);
+    }
+
+    /**
+     * Reads a trace that was written by {@linkplain #dump(OutputStream)}.
+     *
+     * @param layout layout of the puzzle or <code>null</code> for the classic layout
+     */
+    public static SolveTrace read(InputStream in, Layout layout) throws IOException
+    {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readInt() != VERSION)
+            throw new IOException("not a solve trace");
+        int size = data.readInt();
+        if (size < 1 || size > Grid.MAX_SIZE || (layout != null && layout.size() != size))
+            throw new IOException("invalid size " + size);
+        byte[] cells = new byte[size * size];
+        data.readFully(cells);
+        long count = data.readLong();
+        int capacity = data.readInt();
+        int kept = data.readInt();
+        if (capacity < 1 || capacity > 1 << 30 || kept < 0 || kept > count || kept > capacity)
+            throw new IOException("invalid step count " + kept + " of " + count);
+
+        SolveTrace trace = new SolveTrace(capacity);
+        trace.start(layout != null
+                    ? Grid.of(layout, cells)
+                    : Grid.of(size, cells));
+        trace.count = count - kept;
+        for (int i = 0; i < kept; i++)
+            trace.records[(int) trace.count++ & trace.mask] = data.readLong();
+        return trace;
+    }
+
+    /**
+     * Starts a replay of the recorded steps on the puzzle.
+     *
+     * @throws IllegalStateException if steps were dropped, as the replay must start at the puzzle
+     */
+    public Replay replay()
+    {
+        if (puzzle == null)
+            throw new IllegalStateException("trace is not started");
+        if (getDroppedCount() > 0)
+            throw new IllegalStateException(getDroppedCount() + " steps were dropped, increase the capacity");
+        return new Replay();
+    }
+
+    /**
+     * A <code>Replay</code> applies the steps of a trace one after another to the numbers of the puzzle. After
+     * each step the current numbers and the candidates, that are left after the recorded eliminations, can be
+     * examined.
+     */
+    public final class Replay
+    {
+        private final Layout layout = puzzle.getLayout();
+        private final byte[] numbers = puzzle.toBytes();
+        private final long[] eliminated = new long[numbers.length];
+        private long index;
+        private long record;
+
+        private Replay()
+        {
+        }
+
+        /**
+         * Applies the next step.
+         *
+         * @return <code>false</code> if all steps are applied
+         */
+        public boolean next()
+        {
+            if (index == count)
+                return false;
+            record = records[(int) index++ & mask];
+            int cell = getCell();
+            switch (getType())
+            {
+                case FIX:
+                case GUESS:
+                    numbers[cell] = (byte) getNumber();
+                    break;
+                case ELIMINATE:
+                    eliminated[cell] |= 1L << (getNumber() - 1);
+                    break;
+                case BACKTRACK:
+                    numbers[cell] = 0;
+                    break;
+            }
+            return true;
+        }
+
+        /**
+         * Returns the index of the current step, starting with 1 after the first {@linkplain #next()}.
+         */
+        public long getIndex()
+        {
+            return index;
+        }
+
+        public StepType getType()
+        {
+            return TYPES[(int) (record >>> 56)];
+        }
+
+        /**
+         * Returns the depth of the search for guesses and backtracks, or the round of the strategies for fixes and
+         * eliminations.
+         */
+        public int getDepth()
+        {
+            return (int) (record >>> 32) & 0xFFFFFF;
+        }
+
+        public int getCell()
+        {
+            return (int) (record >>> 8) & 0xFFFFFF;
+        }
+
+        public int getNumber()
+        {
+            return (int) record & 0xFF;
+        }
+
+        /**
+         * Returns the candidates of target field as bit mask, that are the numbers not used by a peer and not
+         * eliminated by a recorded step.
+         *
+         * @return the candidates or 0 if the field contains a number
+         */
+        public long getCandidates(int cell)
+        {
+            if (numbers[cell] != 0)
+                return 0;
+            long candidates = (1L << layout.size()) - 1 & ~eliminated[cell];
+            for (int peer : layout.getPeers(cell))
+            {
+                if (numbers[peer] != 0)
+                    candidates &= ~(1L << (numbers[peer] - 1));
+            }
+            return candidates;
+        }
+
+        /**
+         * Returns the current numbers.
+         */
+        public Grid toGrid()
+        {
+            return Grid.of(layout, numbers);
+        }
+
+        @Override
+        public String toString()
+        {
+            return index == 0
+                   ? "start"
+                   : index + ": " + getType() + " " + (getCell() / layout.size()) + "/"
+                           + (getCell() % layout.size()) + " = " + getNumber() + " at depth " + getDepth();
+        }
+    }
+}
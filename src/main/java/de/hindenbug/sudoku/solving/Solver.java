@@ -1,28 +1,115 @@
 package de.hindenbug.sudoku.solving;
 
 import de.hindenbug.sudoku.model.Field;
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
 import de.hindenbug.sudoku.model.Sudoku;
+import de.hindenbug.sudoku.model.SudokuListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A <code>Solver</code> uses by default a brute force attack on a {@link Sudoku} to solve it. Every possible value
  * on a {@link Field} is tried until a solution is found. To increase the speed of solution candidate removal
- * strategies can be used to reduce the number of candidates of a field.
+ * strategies can be used to reduce the number of candidates of a field. Instead of the brute force attack a
+ * {@link SearchEngine} may be used, that searches the solution after the strategies are done.
  *
  * @see <a href="https://en.wikipedia.org/wiki/Sudoku_solving_algorithms">Sudoku solving algorithms</a>
  */
 public class Solver
 {
     private static final Logger LOG = LoggerFactory.getLogger(Solver.class);
+    private static final SearchEngine DEFAULT_ENGINE = new BacktrackingEngine();
+
     private final List<CandidateRemovalStrategy> strategies;
+    private final SearchEngine engine;
+    private SolveTrace trace;
+
+    /*
+    indices of the strategies in the order they are run
+     */
+    private final int[] order;
+    private final StrategyStats stats;
+    private StrategyPolicy policy = StrategyPolicy.FIXED;
+
+    /*
+    the last solve of solveAsync, that the next one of a solver with
+    strategies or trace waits for
+     */
+    private CompletableFuture<SolveResult> lastAsync = CompletableFuture.completedFuture(null);
 
     public Solver(CandidateRemovalStrategy...strategies)
     {
+        this(null, strategies);
+    }
+
+    /**
+     * Creates a solver that uses target engine instead of the brute force attack.
+     *
+     * @param engine     engine to search the solution or <code>null</code> to use the brute force attack
+     * @param strategies strategies to run before the search
+     */
+    public Solver(SearchEngine engine, CandidateRemovalStrategy...strategies)
+    {
+        this.engine = engine;
         this.strategies = Arrays.asList(strategies);
+        this.order = IntStream.range(0, strategies.length).toArray();
+        this.stats = new StrategyStats(strategies.length);
+    }
+
+    /**
+     * Sets the policy that orders the strategies. The default policy runs the strategies in the order they were
+     * passed to the constructor.
+     */
+    public void setStrategyPolicy(StrategyPolicy policy)
+    {
+        this.policy = policy;
+    }
+
+    /**
+     * Returns the runs, fixed fields and times of the strategies, summed over all solves of this solver.
+     */
+    public StrategyStats getStrategyStats()
+    {
+        return stats;
+    }
+
+    /**
+     * Returns the strategies in the order that the next round uses. After an {@linkplain StrategyPolicy#ADAPTIVE
+     * adaptive} batch this is the learned order. Passing it to a new solver with the fixed policy repeats the order
+     * in later runs.
+     */
+    public List<CandidateRemovalStrategy> getStrategyOrder()
+    {
+        if (policy == StrategyPolicy.ADAPTIVE)
+            sortByYield();
+        List<CandidateRemovalStrategy> ordered = new ArrayList<>(order.length);
+        for (int index : order)
+            ordered.add(strategies.get(index));
+        return ordered;
+    }
+
+    /**
+     * Sets the trace that records the fixes and eliminations of the strategies and the steps of the engine. The
+     * trace is started again on every solve, so it contains the steps of the last solve. The brute force attack on
+     * a {@link Sudoku} without an engine is not recorded. A solver with a trace must not be used by several threads at
+     * the same time.
+     *
+     * @param trace trace to record to or <code>null</code> to record nothing
+     */
+    public void setTrace(SolveTrace trace)
+    {
+        this.trace = trace;
     }
 
     public void solve(Sudoku sudoku)
@@ -31,10 +118,18 @@ public class Solver
             throw new IllegalArgumentException("sudoku is not valid " + sudoku);
 
         long time = System.currentTimeMillis();
+        if (trace != null)
+            trace.start(Grid.of(sudoku));
 
         sudoku.buildCandidates();
         runCandidateRemovalStrategies(sudoku);
 
+        if (engine != null)
+        {
+            solveByEngine(sudoku, time);
+            return;
+        }
+
         // rebuild candidates as strategies only fix values to fields
         sudoku.buildCandidates();
 
@@ -60,14 +155,10 @@ public class Solver
                 field.setNextCandidate();
 
                 /*
-                only row, column and block have be checked, as the next candidate
+                only the units of the field have be checked, as the next candidate
                 affects only these values
                  */
-                if (field.isFix()
-                        ||
-                        (sudoku.isSingleInRow(field.getNumber(), field.getRow())
-                                && sudoku.isSingleInColumn(field.getNumber(), field.getColumn())
-                                && sudoku.isSingleInBlock(field.getNumber(), field.getRow(), field.getColumn())))
+                if (field.isFix() || sudoku.isSingleInUnits(field))
                 {
                     // get the next possible successor
                     Field successor = sudoku.getSuccessor(field);
@@ -117,19 +208,243 @@ public class Solver
         LOG.info(String.format(fmt, stepCount, fmtMillis(System.currentTimeMillis() - time)));
     }
 
-    private void runCandidateRemovalStrategies(Sudoku sudoku)
+    /**
+     * Searches the solution with the engine of this solver and fixes the solution to all fields that are not fixed.
+     */
+    private void solveByEngine(Sudoku sudoku, long time)
+    {
+        SolveResult result = engine.solve(Grid.of(sudoku), trace);
+        if (!result.isSolved())
+        {
+            LOG.info("sudoku not solveable");
+            return;
+        }
+
+        Grid solution = result.getSolution();
+        for (Field field : sudoku)
+        {
+            if (!field.isFix())
+                sudoku.fix(solution.get(field.getRow(), field.getColumn()), field.getRow(), field.getColumn());
+        }
+        String fmt = "sudoku solved with %d steps in %s";
+        LOG.info(String.format(fmt, result.getStepCount(), fmtMillis(System.currentTimeMillis() - time)));
+    }
+
+    /**
+     * Solves target grid without changing it. As a grid is immutable the result can be shared between threads.
+     * The candidate removal strategies of this solver fix fields on the {@linkplain SolverArena#loadBoard board} of
+     * the arena of the current thread before the engine searches the solution, so no sudoku is created per solve.
+     * If this solver has no engine, a {@link BacktrackingEngine} is used. A plain backtracking engine solves the
+     * board with the {@linkplain SolverArena#solve packed solve} of the arena.
+     * <p>
+     * The strategies keep their state about the board during a solve, so a solver with strategies must not be used
+     * by several threads at the same time.
+     * <p>
+     * While Flight Recorder runs, every solve commits a <code>de.hindenbug.sudoku.Solve</code> event and every run
+     * of a strategy a <code>de.hindenbug.sudoku.Strategy</code> event. The events are only filled if they are
+     * enabled, so they cost nearly nothing otherwise. A build by Java 8 has no events, see {@link SolverEvents}.
+     *
+     * @param puzzle grid to solve
+     * @return the result that contains the solution if one was found
+     */
+    public SolveResult solve(Grid puzzle)
+    {
+        Object event = SolverEvents.EVENTS.beginSolve();
+        SolveResult result = search(puzzle);
+        SearchEngine searchEngine = engine != null
+                                    ? engine
+                                    : DEFAULT_ENGINE;
+        SolverEvents.EVENTS.endSolve(event, puzzle, searchEngine, result);
+        return result;
+    }
+
+    private SolveResult search(Grid puzzle)
     {
-        int removedCount;
-        do
+        SearchEngine searchEngine = engine != null
+                                    ? engine
+                                    : DEFAULT_ENGINE;
+        if (trace != null)
+            trace.start(puzzle);
+        if (strategies.isEmpty())
+            return searchEngine.solve(puzzle, trace);
+
+        long time = System.nanoTime();
+        Layout layout = puzzle.getLayout();
+        SolverArena arena = SolverArena.current();
+        byte[] cells = arena.getCells(puzzle.getCellCount());
+        puzzle.copyTo(cells, 0);
+        Sudoku sudoku = arena.loadBoard(layout, cells, 0);
+        try
+        {
+            if (!sudoku.isValid())
+                return new SolveResult(SolveResult.Status.INVALID, puzzle, null, 0, System.nanoTime() - time);
+
+            sudoku.buildCandidates();
+            runCandidateRemovalStrategies(sudoku);
+            sudoku.copyTo(cells, 0);
+            boolean isSolved;
+            Grid solution;
+            long stepCount;
+            if (isPackedEngine(searchEngine))
+            {
+                isSolved = arena.solve(layout, cells, 0, cells, 0) == SolveResult.Status.SOLVED;
+                solution = isSolved
+                           ? Grid.of(layout, cells)
+                           : null;
+                stepCount = arena.getNodeCount();
+            } else
+            {
+                SolveResult result = searchEngine.solve(Grid.of(layout, cells), trace);
+                isSolved = result.isSolved();
+                solution = result.getSolution();
+                stepCount = result.getStepCount();
+            }
+
+            // the strategies only fix numbers that follow from the puzzle, so a conflict means there is no solution
+            return new SolveResult(isSolved
+                                   ? SolveResult.Status.SOLVED
+                                   : SolveResult.Status.UNSOLVABLE,
+                    puzzle, solution, stepCount, System.nanoTime() - time);
+        } finally
         {
-            int removed = 0;
             for (CandidateRemovalStrategy strategy : strategies)
+                strategy.release(sudoku);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if target engine does nothing but the packed solve of the {@link SolverArena}, so
+     * the board can be solved without a grid of it. A trace is only written by the engine itself.
+     */
+    private boolean isPackedEngine(SearchEngine searchEngine)
+    {
+        return trace == null && searchEngine.getClass() == BacktrackingEngine.class
+                && ((BacktrackingEngine) searchEngine).getValueOrder() == ValueOrder.ASCENDING;
+    }
+
+    /**
+     * Solves target grid on the common fork join pool.
+     *
+     * @see #solveAsync(Grid, Executor)
+     */
+    public CompletableFuture<SolveResult> solveAsync(Grid puzzle)
+    {
+        return solveAsync(puzzle, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Solves target grid on target executor. The future completes with the result of {@linkplain #solve(Grid)}.
+     * Without strategies and trace the solves run in parallel, as the engines can be used by several threads.
+     * Otherwise the solves of this solver are sequential: each one is started on the executor when the previous one
+     * is done, so waiting solves do not occupy a thread. To solve in parallel with strategies, use a solver per
+     * thread like the batch solver of the command line does.
+     *
+     * @param executor executor that runs the solve
+     */
+    public CompletableFuture<SolveResult> solveAsync(Grid puzzle, Executor executor)
+    {
+        if (strategies.isEmpty() && trace == null)
+            return CompletableFuture.supplyAsync(() -> solve(puzzle), executor);
+        synchronized (this)
+        {
+            // a failed solve must not stop the following ones
+            CompletableFuture<SolveResult> result = lastAsync.handleAsync((previous, failure) -> solve(puzzle),
+                    executor);
+            lastAsync = result;
+            return result;
+        }
+    }
+
+    /**
+     * Returns a publisher that solves the puzzles of target publisher on target executor. The results are published
+     * in the order of the puzzles. Puzzles are only requested as far as the subscriber requested results, so a slow
+     * subscriber slows down the puzzles instead of filling a buffer.
+     *
+     * @param puzzles  publisher of the puzzles, subscribed once for every subscriber
+     * @param executor executor that runs the solves
+     * @param window   count of puzzles that may be solved or wait for the subscriber at the same time
+     */
+    public Flow.Publisher<SolveResult> solveAll(Flow.Publisher<Grid> puzzles, Executor executor, int window)
+    {
+        return new SolvingPublisher(puzzles, this, executor, window);
+    }
+
+    /**
+     * Returns all solutions of target grid as a lazy stream. The solutions are searched while the stream is
+     * consumed, so <code>limit</code> or <code>findAny</code> stop the search early. A parallel stream splits the
+     * remaining search tree and searches the parts on the common pool. The strategies of this solver are not used,
+     * as they would not change the set of solutions.
+     *
+     * @param puzzle grid whose solutions are searched
+     * @return the solutions in no particular order, an empty stream if the grid is invalid
+     */
+    public Stream<Grid> solutions(Grid puzzle)
+    {
+        SearchState state = new SearchState();
+        if (!state.load(puzzle))
+            return Stream.empty();
+        return StreamSupport.stream(new SolutionSpliterator(state), false);
+    }
+
+    private void runCandidateRemovalStrategies(Sudoku sudoku)
+    {
+        TraceRecorder recorder = trace != null
+                                 ? new TraceRecorder(sudoku)
+                                 : null;
+        if (recorder != null)
+            sudoku.addListener(recorder);
+        try
+        {
+            int round = 0;
+            int removedCount;
+            do
+            {
+                if (recorder != null)
+                    recorder.round = round;
+                if (policy == StrategyPolicy.ADAPTIVE)
+                    sortByYield();
+                int removed = 0;
+                for (int index : order)
+                {
+                    Object event = SolverEvents.EVENTS.beginStrategy();
+                    long time = System.nanoTime();
+                    int fixed = strategies.get(index).removeCandidates(sudoku).size();
+                    stats.record(index, fixed, System.nanoTime() - time);
+                    SolverEvents.EVENTS.endStrategy(event, strategies.get(index), round, fixed);
+                    removed += fixed;
+                    // start the next round with the best strategy again
+                    if (fixed > 0 && policy == StrategyPolicy.ADAPTIVE)
+                        break;
+                }
+                removedCount  = removed;
+                round++;
+            } while (removedCount > 0 && !sudoku.isSolved());
+        } finally
+        {
+            if (recorder != null)
+                sudoku.removeListener(recorder);
+        }
+        if (LOG.isDebugEnabled())
+            LOG.debug(System.lineSeparator() + sudoku.toString());
+    }
+
+    /**
+     * Sorts the strategies by their yield, the best first. The order of strategies with the same yield is kept.
+     */
+    private void sortByYield()
+    {
+        for (int i = 1; i < order.length; i++)
+        {
+            int index = order[i];
+            double yield = stats.getYield(index);
+            int j = i;
+            while (j > 0 && stats.getYield(order[j - 1]) < yield)
             {
-                removed += strategy.removeCandidates(sudoku).size();
+                order[j] = order[j - 1];
+                j--;
             }
-            removedCount  = removed;
-        } while (removedCount > 0 && !sudoku.isSolved());
-        LOG.debug(System.lineSeparator() + sudoku.toString());
+            order[j] = index;
+        }
     }
 
     private String fmtMillis(long time)
@@ -144,4 +459,56 @@ public class Solver
         return String.format("%02d:%02d:%02d.%03d", hours, minutes, seconds, millis);
     }
 
+
+    /**
+     * Records the fixes and the removed candidates of the strategies to the trace while they happen. Removed
+     * candidates that follow from a fixed peer are left out, as the fix of the peer already implies them.
+     */
+    private final class TraceRecorder implements SudokuListener
+    {
+        private final Layout layout;
+        private final int size;
+        /*
+        the fixed numbers of each unit
+         */
+        private final long[] unitNumbers;
+        private int round;
+
+        private TraceRecorder(Sudoku sudoku)
+        {
+            this.layout = sudoku.getLayout();
+            this.size = sudoku.size();
+            this.unitNumbers = new long[layout.getUnitCount()];
+            for (Field field : sudoku)
+            {
+                if (field.isFix())
+                    addNumber(field.getRow() * size + field.getColumn(), field.getNumber());
+            }
+        }
+
+        private void addNumber(int cell, int number)
+        {
+            for (int unit : layout.getUnitsOf(cell))
+                unitNumbers[unit] |= 1L << (number - 1);
+        }
+
+        @Override
+        public void fixed(Field field, int number)
+        {
+            int cell = field.getRow() * size + field.getColumn();
+            trace.record(SolveTrace.StepType.FIX, cell, number, round);
+            addNumber(cell, number);
+        }
+
+        @Override
+        public void candidateRemoved(Field field, int candidate)
+        {
+            int cell = field.getRow() * size + field.getColumn();
+            long used = 0;
+            for (int unit : layout.getUnitsOf(cell))
+                used |= unitNumbers[unit];
+            if ((used & 1L << (candidate - 1)) == 0)
+                trace.record(SolveTrace.StepType.ELIMINATE, cell, candidate, round);
+        }
+    }
 }
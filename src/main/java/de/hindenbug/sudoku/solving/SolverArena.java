@@ -0,0 +1,154 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
+import de.hindenbug.sudoku.model.Sudoku;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A <code>SolverArena</code> contains everything a worker thread needs to solve sudokus one after another: the
+ * {@link SearchState} of the search and a {@link Sudoku} board for the candidate removal strategies. Both are reset
+ * and filled from packed numbers for every puzzle, so solving a batch of packed puzzles does not allocate anything
+ * once the arena is warm. {@linkplain Solver#solve(Grid)} runs its strategies on the board of the arena, too, and
+ * solves the board with the search state if its engine is a plain {@link BacktrackingEngine}.
+ * <p>
+ * Every thread has its own arena, see {@linkplain #current()}. An arena must not be passed to another thread.
+ *
+ * @see #solve(Layout, byte[], int, byte[], int)
+ */
+public final class SolverArena
+{
+    private static final ThreadLocal<SolverArena> ARENA = ThreadLocal.withInitial(SolverArena::new);
+
+    /*
+    counts of all arenas, reported by the periodic event of the SolverEvents
+     */
+    private static final LongAdder ARENAS = new LongAdder();
+    private static final LongAdder SEARCHES = new LongAdder();
+    private static final LongAdder BOARD_LOADS = new LongAdder();
+    private static final LongAdder BOARD_CREATIONS = new LongAdder();
+
+    static
+    {
+        SolverEvents.EVENTS.registerArenaStatistics();
+    }
+
+    private final SearchState searchState = new SearchState();
+    private Sudoku board;
+    /*
+    packed numbers of the puzzle or the board, of the size of the last puzzle
+     */
+    private byte[] cells = new byte[0];
+
+    private SolverArena()
+    {
+        ARENAS.increment();
+    }
+
+    /**
+     * Returns the arena of the current thread.
+     */
+    public static SolverArena current()
+    {
+        return ARENA.get();
+    }
+
+    SearchState getSearchState()
+    {
+        SEARCHES.increment();
+        return searchState;
+    }
+
+    /**
+     * Solves the packed puzzle at target offset and copies the solution to the other array. The solution is only
+     * written if the puzzle is solved.
+     *
+     * @param layout         units of the puzzle
+     * @param puzzles        numbers of the puzzle row by row, 0 for empty fields
+     * @param offset         index of the first field of the puzzle
+     * @param solutions      array to copy the solution to
+     * @param solutionOffset index of the first field of the solution
+     * @return the status of the puzzle
+     */
+    public SolveResult.Status solve(Layout layout, byte[] puzzles, int offset, byte[] solutions, int solutionOffset)
+    {
+        SEARCHES.increment();
+        if (!searchState.load(layout, puzzles, offset))
+            return SolveResult.Status.INVALID;
+        if (!searchState.next())
+            return SolveResult.Status.UNSOLVABLE;
+        searchState.copyTo(solutions, solutionOffset);
+        return SolveResult.Status.SOLVED;
+    }
+
+    /**
+     * Returns the count of candidates that were tried by the last {@linkplain #solve(Layout, byte[], int, byte[],
+     * int) solve}.
+     */
+    public long getNodeCount()
+    {
+        return searchState.getNodeCount();
+    }
+
+    /**
+     * Fills the board of this arena with the packed puzzle at target offset. The board is only created again if the
+     * layout changes, otherwise the same sudoku and fields are returned for every puzzle.
+     *
+     * @param layout units of the puzzle
+     * @param cells  numbers of the puzzle row by row, 0 for empty fields
+     * @param offset index of the first field of the puzzle
+     * @return the board, that is valid until the next call of this method or the next solve of a {@link Solver} with
+     * strategies on this thread
+     */
+    public Sudoku loadBoard(Layout layout, byte[] cells, int offset)
+    {
+        BOARD_LOADS.increment();
+        if (board == null || board.getLayout() != layout)
+        {
+            BOARD_CREATIONS.increment();
+            board = new Sudoku(new int[layout.size()][layout.size()], layout);
+        }
+        board.load(cells, offset);
+        return board;
+    }
+
+    /**
+     * Returns an array for exactly target count of packed numbers, that is reused by the next call of the same count.
+     */
+    byte[] getCells(int cellCount)
+    {
+        if (cells.length != cellCount)
+            cells = new byte[cellCount];
+        return cells;
+    }
+
+    /**
+     * Returns the count of arenas created by all threads.
+     */
+    public static long getArenaCount()
+    {
+        return ARENAS.sum();
+    }
+
+    /**
+     * Returns the count of searches run on the search states of all arenas.
+     */
+    public static long getSearchCount()
+    {
+        return SEARCHES.sum();
+    }
+
+    public static long getBoardLoadCount()
+    {
+        return BOARD_LOADS.sum();
+    }
+
+    /**
+     * Returns the count of boards created, as the first board of a thread or for a new layout.
+     */
+    public static long getBoardCreationCount()
+    {
+        return BOARD_CREATIONS.sum();
+    }
+}
@@ -0,0 +1,76 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Grid;
+
+/**
+ * The <code>SolverEvents</code> report the solves of a {@link Solver}, the runs of its strategies and the counts of
+ * the {@linkplain SolverArena solver arenas} to Flight Recorder. These events do nothing at all: the events of
+ * Flight Recorder are in the optional sources of <code>src/main/jfr</code>, that are only compiled by a JDK 11 or
+ * newer, and replace them if they are found, see {@link #EVENTS}. This way the package still compiles and runs on
+ * Java 8.
+ * <p>
+ * An event is begun before the measured work and ended after it. The handle returned by a begin is only passed back
+ * to the matching end, so these events return <code>null</code>.
+ */
+class SolverEvents
+{
+    private static final String FLIGHT_RECORDER_EVENTS = "de.hindenbug.sudoku.solving.FlightRecorderEvents";
+
+    /**
+     * events of Flight Recorder if they were compiled and the JVM has Flight Recorder, otherwise events doing nothing
+     */
+    static final SolverEvents EVENTS = load();
+
+    private static SolverEvents load()
+    {
+        try
+        {
+            return (SolverEvents) Class.forName(FLIGHT_RECORDER_EVENTS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e)
+        {
+            // not compiled by a JDK 11 or newer
+            return new SolverEvents();
+        } catch (LinkageError e)
+        {
+            // compiled, but the JVM has no jdk.jfr module
+            return new SolverEvents();
+        }
+    }
+
+    /**
+     * Begins the event of a solve and returns its handle.
+     */
+    Object beginSolve()
+    {
+        return null;
+    }
+
+    /**
+     * Ends the event of a solve of target puzzle by target engine.
+     */
+    void endSolve(Object event, Grid puzzle, SearchEngine engine, SolveResult result)
+    {
+    }
+
+    /**
+     * Begins the event of a run of a strategy and returns its handle.
+     */
+    Object beginStrategy()
+    {
+        return null;
+    }
+
+    /**
+     * Ends the event of a run of target strategy in target round, that fixed target count of fields.
+     */
+    void endStrategy(Object event, CandidateRemovalStrategy strategy, int round, int fixCount)
+    {
+    }
+
+    /**
+     * Registers the periodic event with the counts of the arenas, called once when the first arena is created.
+     */
+    void registerArenaStatistics()
+    {
+    }
+}
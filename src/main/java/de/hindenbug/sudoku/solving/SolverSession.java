@@ -0,0 +1,326 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Field;
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
+import de.hindenbug.sudoku.model.Sudoku;
+
+import java.util.Arrays;
+
+/**
+ * A <code>SolverSession</code> follows the edits of a player on a {@link Sudoku}. The fixed fields of the sudoku
+ * are the givens, every other field may be set and cleared. Each edit only updates the counts of the number inside
+ * the units of the field, so candidates and conflicts are available at once without building the candidates of the
+ * whole sudoku again. Every edit can be undone.
+ * <p>
+ * A session is not thread safe, it is meant to be used by the thread of the user interface.
+ *
+ * @see #set(int, int, int)
+ * @see #undo()
+ */
+public class SolverSession
+{
+    private final int size;
+    private final int cellCount;
+    private final long allNumbers;
+    private final Layout layout;
+
+    private final byte[] numbers;
+    private final boolean[] isGiven;
+
+    /*
+    count of each number inside each unit at index unit * size + number - 1
+    and the numbers used at least once inside each unit.
+     */
+    private final int[] numberCounts;
+    private final long[] unitNumbers;
+    private int conflictCount;
+
+    /*
+    each entry contains the field index and the previous number of an edit
+     */
+    private int[] undoStack;
+    private int undoCount;
+
+    private final SearchState searchState;
+    private long version;
+    private long solvedVersion;
+    private Grid solution;
+
+    public SolverSession(Sudoku sudoku)
+    {
+        this.size = sudoku.size();
+        this.cellCount = size * size;
+        this.allNumbers = (1L << size) - 1;
+        this.layout = sudoku.getLayout();
+
+        this.numbers = new byte[cellCount];
+        this.isGiven = new boolean[cellCount];
+        this.numberCounts = new int[layout.getUnitCount() * size];
+        this.unitNumbers = new long[layout.getUnitCount()];
+        for (Field field : sudoku)
+        {
+            int cell = field.getRow() * size + field.getColumn();
+            isGiven[cell] = field.isFix();
+            put(cell, field.getNumber());
+        }
+
+        this.undoStack = new int[16];
+        this.searchState = new SearchState();
+        this.solvedVersion = -1;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public int getNumber(int row, int column)
+    {
+        return numbers[toCell(row, column)];
+    }
+
+    public boolean isGiven(int row, int column)
+    {
+        return isGiven[toCell(row, column)];
+    }
+
+    /**
+     * Sets target number to the field. The previous number of the field can be restored by {@linkplain #undo()}.
+     *
+     * @param number number to set or 0 to clear the field
+     * @throws IllegalArgumentException if the field is a given or the number is out of range
+     */
+    public void set(int row, int column, int number)
+    {
+        int cell = toCell(row, column);
+        if (isGiven[cell])
+            throw new IllegalArgumentException("field already fix");
+        if (number < 0 || number > size)
+            throw new IllegalArgumentException("number " + number + " outside of range 0 - " + size);
+
+        if (undoCount == undoStack.length)
+            undoStack = Arrays.copyOf(undoStack, undoCount * 2);
+        undoStack[undoCount++] = cell * (size + 1) + numbers[cell];
+        put(cell, number);
+    }
+
+    public void clear(int row, int column)
+    {
+        set(row, column, 0);
+    }
+
+    /**
+     * Reverts the last edit.
+     *
+     * @return <code>true</code> if an edit was reverted, <code>false</code> if no edit is left
+     */
+    public boolean undo()
+    {
+        if (undoCount == 0)
+            return false;
+
+        int entry = undoStack[--undoCount];
+        put(entry / (size + 1), entry % (size + 1));
+        return true;
+    }
+
+    private void put(int cell, int number)
+    {
+        int previous = numbers[cell];
+        if (previous == number)
+            return;
+
+        if (previous > 0)
+        {
+            for (int unit : layout.getUnitsOf(cell))
+            {
+                int idx = unit * size + previous - 1;
+                if (numberCounts[idx]-- == 2)
+                    conflictCount--;
+                if (numberCounts[idx] == 0)
+                    unitNumbers[unit] &= ~(1L << (previous - 1));
+            }
+        }
+        if (number > 0)
+        {
+            for (int unit : layout.getUnitsOf(cell))
+            {
+                int idx = unit * size + number - 1;
+                if (++numberCounts[idx] == 2)
+                    conflictCount++;
+                unitNumbers[unit] |= 1L << (number - 1);
+            }
+        }
+        numbers[cell] = (byte) number;
+        version++;
+    }
+
+    /**
+     * Returns the numbers that are not used in the units of target field as bit mask, where bit 0 stands for
+     * number 1.
+     *
+     * @return the candidates or 0 if the field contains a number
+     */
+    public long getCandidates(int row, int column)
+    {
+        return getCandidates(toCell(row, column));
+    }
+
+    private long getCandidates(int cell)
+    {
+        if (numbers[cell] != 0)
+            return 0;
+        long used = 0;
+        for (int unit : layout.getUnitsOf(cell))
+            used |= unitNumbers[unit];
+        return allNumbers & ~used;
+    }
+
+    /**
+     * Returns <code>true</code> if the number of target field is used more than once inside one of its units.
+     */
+    public boolean isConflict(int row, int column)
+    {
+        int cell = toCell(row, column);
+        int number = numbers[cell];
+        if (number == 0)
+            return false;
+        for (int unit : layout.getUnitsOf(cell))
+        {
+            if (numberCounts[unit * size + number - 1] > 1)
+                return true;
+        }
+        return false;
+    }
+
+    public boolean hasConflicts()
+    {
+        return conflictCount > 0;
+    }
+
+    /**
+     * Returns <code>true</code> if all fields contain a number, no number is used twice and the numbers of each cage
+     * sum up to the sum of the cage.
+     */
+    public boolean isSolved()
+    {
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            if (numbers[cell] == 0)
+                return false;
+        }
+        for (int unit = layout.getHouseCount(); unit < layout.getUnitCount(); unit++)
+        {
+            int sum = 0;
+            for (int cell : layout.getUnitFields(unit))
+                sum += numbers[cell];
+            if (sum != layout.getSum(unit))
+                return false;
+        }
+        return conflictCount == 0;
+    }
+
+    /**
+     * Returns <code>true</code> if the current numbers can be completed to a solution. The answer is searched once
+     * after every edit and kept until the next edit.
+     */
+    public boolean isSolvable()
+    {
+        if (conflictCount > 0)
+            return false;
+        if (solvedVersion != version)
+        {
+            solvedVersion = version;
+            solution = searchState.load(toGrid()) && searchState.next()
+                       ? searchState.toGrid()
+                       : null;
+        }
+        return solution != null;
+    }
+
+    /**
+     * Returns a number for an empty field. A forced number, which is the only candidate of a field or the only place
+     * of a number inside a house, is preferred. Otherwise the number of the field with the fewest
+     * candidates is taken from a solution.
+     *
+     * @return the hint or <code>null</code> if the sudoku is solved or can not be solved anymore
+     */
+    public Hint getHint()
+    {
+        if (conflictCount > 0)
+            return null;
+
+        int bestCell = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            if (numbers[cell] == 0)
+            {
+                long candidates = getCandidates(cell);
+                int count = Long.bitCount(candidates);
+                if (count == 0)
+                    return null;
+                if (count == 1)
+                    return toHint(cell, candidates, true);
+                if (count < bestCount)
+                {
+                    bestCell = cell;
+                    bestCount = count;
+                }
+            }
+        }
+        if (bestCell < 0)
+            return null;
+
+        for (int unit = 0; unit < layout.getHouseCount(); unit++)
+        {
+            int[] fields = layout.getUnitFields(unit);
+            long once = 0;
+            long twice = 0;
+            for (int cell : fields)
+            {
+                long candidates = getCandidates(cell);
+                twice |= once & candidates;
+                once |= candidates;
+            }
+            long single = Long.lowestOneBit(once & ~twice);
+            if (single != 0)
+            {
+                for (int cell : fields)
+                {
+                    if ((getCandidates(cell) & single) != 0)
+                        return toHint(cell, single, true);
+                }
+            }
+        }
+
+        return isSolvable()
+               ? toHint(bestCell, 1L << (solution.get(bestCell) - 1), false)
+               : null;
+    }
+
+    private Hint toHint(int cell, long bit, boolean isForced)
+    {
+        return new Hint(cell / size, cell % size, Long.numberOfTrailingZeros(bit) + 1, isForced);
+    }
+
+    /**
+     * Returns the current numbers of this session.
+     */
+    public Grid toGrid()
+    {
+        return Grid.of(layout, numbers);
+    }
+
+    private int toCell(int row, int column)
+    {
+        if (row < 0
+                || column < 0
+                || row >= size
+                || column >= size)
+            throw new IllegalArgumentException("row " + row + " and/or column " +
+                    column + " outside if field range " + size);
+        return row * size + column;
+    }
+}
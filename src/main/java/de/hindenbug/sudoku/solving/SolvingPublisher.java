@@ -0,0 +1,212 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Grid;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A <code>SolvingPublisher</code> solves the puzzles of an upstream publisher and publishes the results in the order
+ * of the puzzles. Puzzles are only requested from upstream as far as the subscriber requested results, and at most
+ * <code>window</code> puzzles are solved or waiting for demand at the same time. So neither the puzzles nor the
+ * results are buffered without bound, and no thread blocks while it waits.
+ *
+ * @see Solver#solveAll(Flow.Publisher, Executor, int)
+ */
+final class SolvingPublisher implements Flow.Publisher<SolveResult>
+{
+    private final Flow.Publisher<Grid> puzzles;
+    private final Solver solver;
+    private final Executor executor;
+    private final int window;
+
+    SolvingPublisher(Flow.Publisher<Grid> puzzles, Solver solver, Executor executor, int window)
+    {
+        if (window < 1)
+            throw new IllegalArgumentException("window must be positive");
+        this.puzzles = puzzles;
+        this.solver = solver;
+        this.executor = executor;
+        this.window = window;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super SolveResult> subscriber)
+    {
+        puzzles.subscribe(new Link(subscriber));
+    }
+
+    /**
+     * The subscription of one subscriber, that is also the subscriber of the puzzles. All signals to the subscriber
+     * and all requests to upstream are sent by {@linkplain #drain()}, which runs on one thread at a time.
+     */
+    private final class Link implements Flow.Subscriber<Grid>, Flow.Subscription
+    {
+        private final Flow.Subscriber<? super SolveResult> downstream;
+        private final Queue<CompletableFuture<SolveResult>> results = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicLong demand = new AtomicLong();
+        /*
+        puzzles accepted from upstream but not yet published, and puzzles requested but not yet received
+         */
+        private final AtomicInteger accepted = new AtomicInteger();
+        private final AtomicLong requested = new AtomicLong();
+
+        private Flow.Subscription upstream;
+        private volatile boolean upstreamDone;
+        private volatile Throwable error;
+        /*
+        a failure that ends the subscription at once, without the results in flight
+         */
+        private volatile Throwable failure;
+        private volatile boolean cancelled;
+        private boolean subscribed;
+
+        private Link(Flow.Subscriber<? super SolveResult> downstream)
+        {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription)
+        {
+            if (upstream != null)
+            {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+            drain();
+        }
+
+        @Override
+        public void onNext(Grid puzzle)
+        {
+            if (cancelled)
+                return;
+            requested.decrementAndGet();
+            accepted.incrementAndGet();
+            CompletableFuture<SolveResult> result = solver.solveAsync(puzzle, executor);
+            results.add(result);
+            result.whenComplete((r, e) -> drain());
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+            error = throwable;
+            upstreamDone = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete()
+        {
+            upstreamDone = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n)
+        {
+            if (n <= 0)
+            {
+                failure = new IllegalArgumentException("requested " + n + " results");
+            } else
+            {
+                demand.accumulateAndGet(n, (a, b) -> a + b < 0
+                                                     ? Long.MAX_VALUE
+                                                     : a + b);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+            drain();
+        }
+
+        private void drain()
+        {
+            if (wip.getAndIncrement() != 0)
+                return;
+            int missed = 1;
+            do
+            {
+                if (!subscribed)
+                {
+                    subscribed = true;
+                    downstream.onSubscribe(this);
+                }
+                if (cancelled)
+                {
+                    results.clear();
+                    upstream.cancel();
+                    return;
+                }
+                publish();
+                if (failure != null)
+                {
+                    cancelled = true;
+                    results.clear();
+                    upstream.cancel();
+                    downstream.onError(failure);
+                    return;
+                }
+                if (upstreamDone && results.isEmpty())
+                {
+                    cancelled = true;
+                    if (error == null)
+                    {
+                        downstream.onComplete();
+                    } else
+                    {
+                        upstream.cancel();
+                        downstream.onError(error);
+                    }
+                    return;
+                }
+                long wanted = Math.min(demand.get(), window) - accepted.get() - requested.get();
+                if (!upstreamDone && wanted > 0)
+                {
+                    requested.addAndGet(wanted);
+                    upstream.request(wanted);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Publishes the solved results at the head of the queue as far as the subscriber demands them.
+         */
+        private void publish()
+        {
+            CompletableFuture<SolveResult> head;
+            while (!cancelled && failure == null && demand.get() > 0 && (head = results.peek()) != null
+                    && head.isDone())
+            {
+                results.poll();
+                accepted.decrementAndGet();
+                SolveResult result;
+                try
+                {
+                    result = head.join();
+                } catch (CompletionException e)
+                {
+                    failure = e.getCause();
+                    return;
+                }
+                if (demand.get() != Long.MAX_VALUE)
+                    demand.decrementAndGet();
+                downstream.onNext(result);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package de.hindenbug.sudoku.solving;
+
+/**
+ * A <code>StrategyPolicy</code> defines in which order a {@link Solver} runs its candidate removal strategies.
+ *
+ * @see Solver#setStrategyPolicy(StrategyPolicy)
+ */
+public enum StrategyPolicy
+{
+    /**
+     * Every round runs all strategies in the order they were passed to the solver, until a round fixes nothing.
+     */
+    FIXED,
+    /**
+     * The strategies are ordered by the fields they fixed per nanosecond, measured over all solves of the solver.
+     * Every round runs the strategies in this order, but stops after the first strategy that fixes a field. So an
+     * expensive strategy only runs while the cheaper ones fix nothing. Strategies that never ran are tried first, so
+     * they are measured.
+     */
+    ADAPTIVE
+}
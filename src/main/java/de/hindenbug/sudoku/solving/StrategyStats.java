@@ -0,0 +1,85 @@
+package de.hindenbug.sudoku.solving;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.Arrays;
+
+/**
+ * A <code>StrategyStats</code> counts the runs, the fixed fields and the time of each candidate removal strategy of
+ * a {@link Solver}. The strategies are identified by their index inside the solver. The counts are summed over all
+ * solves, until they are {@linkplain #reset() reset}.
+ *
+ * @see Solver#getStrategyStats()
+ */
+public final class StrategyStats
+{
+    private final long[] runs;
+    private final long[] fixes;
+    private final long[] nanos;
+
+    StrategyStats(int strategyCount)
+    {
+        this.runs = new long[strategyCount];
+        this.fixes = new long[strategyCount];
+        this.nanos = new long[strategyCount];
+    }
+
+    void record(int strategy, int fixCount, long time)
+    {
+        runs[strategy]++;
+        fixes[strategy] += fixCount;
+        nanos[strategy] += time;
+    }
+
+    public int getStrategyCount()
+    {
+        return runs.length;
+    }
+
+    public long getRunCount(int strategy)
+    {
+        return runs[strategy];
+    }
+
+    /**
+     * Returns the count of fields that target strategy fixed.
+     */
+    public long getFixCount(int strategy)
+    {
+        return fixes[strategy];
+    }
+
+    public long getNanos(int strategy)
+    {
+        return nanos[strategy];
+    }
+
+    /**
+     * Returns the fields that target strategy fixed per nanosecond.
+     *
+     * @return the yield or {@link Double#POSITIVE_INFINITY} if the strategy never ran
+     */
+    public double getYield(int strategy)
+    {
+        return runs[strategy] == 0
+               ? Double.POSITIVE_INFINITY
+               : (double) fixes[strategy] / Math.max(1, nanos[strategy]);
+    }
+
+    public void reset()
+    {
+        Arrays.fill(runs, 0);
+        Arrays.fill(fixes, 0);
+        Arrays.fill(nanos, 0);
+    }
+
+    @Override
+    public String toString()
+    {
+        return new ToStringBuilder(this)
+                .append("runs", runs)
+                .append("fixes", fixes)
+                .append("nanos", nanos)
+                .toString();
+    }
+}
@@ -0,0 +1,228 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Field;
+import de.hindenbug.sudoku.model.Layout;
+import de.hindenbug.sudoku.model.Sudoku;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The subset and fish strategy removes candidates by three patterns of pairs, that are read off the
+ * {@link DigitBoards} of the sudoku:
+ * <ul>
+ * <li>A naked pair are two fields of a house with the same two candidates. The two numbers must go into these fields,
+ * so they are removed from all other fields of the house.</li>
+ * <li>A hidden pair are two numbers that may only go into the same two fields of a house. No other number fits into
+ * these fields, so all other candidates of the fields are removed.</li>
+ * <li>An X-wing is a number that may only go into two fields of each of two rows, and these fields share two columns.
+ * The number is placed into one field of each column by these rows, so it is removed from all other fields of the
+ * columns. The same holds for rows and columns swapped.</li>
+ * </ul>
+ * After the candidates are removed, the fields with one candidate left are fixed and the patterns are searched
+ * again, until no candidate is removed.
+ * <p>
+ * The boards listen to the sudoku like those of the {@link ExamineStrategy}, so they are only loaded for another
+ * sudoku or after the sudoku reloaded its fields.
+ */
+public class SubsetAndFishStrategy implements CandidateRemovalStrategy
+{
+    private static final Logger LOG = LoggerFactory.getLogger(SubsetAndFishStrategy.class);
+
+    private Sudoku sudoku;
+    private DigitBoards boards;
+    private Set<Field> fixedFields;
+
+    @Override
+    public Collection<Field> removeCandidates(Sudoku sudoku)
+    {
+        if (sudoku != this.sudoku)
+        {
+            if (this.sudoku != null)
+                this.sudoku.removeListener(boards);
+            if (boards == null || !boards.getLayout().equals(sudoku.getLayout()))
+                boards = new DigitBoards(sudoku.getLayout());
+            sudoku.addListener(boards);
+            boards.reloaded(sudoku);
+            this.sudoku = sudoku;
+        }
+        if (boards.isStale())
+            boards.load(sudoku);
+        this.fixedFields = new HashSet<>();
+
+        Layout layout = sudoku.getLayout();
+        int removedCount;
+        do
+        {
+            removedCount = 0;
+            for (int unit = 0; unit < layout.getHouseCount(); unit++)
+            {
+                removedCount += removeNakedPairs(layout, unit);
+                removedCount += removeHiddenPairs(layout, unit);
+            }
+            for (int number = 1; number <= layout.size(); number++)
+            {
+                removedCount += removeXWings(layout, number, Layout.UnitType.ROW, Layout.UnitType.COLUMN);
+                removedCount += removeXWings(layout, number, Layout.UnitType.COLUMN, Layout.UnitType.ROW);
+            }
+            fixSingles(layout);
+        } while (removedCount > 0);
+
+        return fixedFields;
+    }
+
+    @Override
+    public void release(Sudoku sudoku)
+    {
+        if (sudoku != this.sudoku)
+            return;
+        sudoku.removeListener(boards);
+        this.sudoku = null;
+    }
+
+    private int removeNakedPairs(Layout layout, int unit)
+    {
+        int removedCount = 0;
+        int[] cells = layout.getUnitFields(unit);
+        for (int i = 0; i < cells.length; i++)
+        {
+            long pair = boards.getCandidates(cells[i]);
+            if (Long.bitCount(pair) != 2)
+                continue;
+            for (int j = i + 1; j < cells.length; j++)
+            {
+                if (boards.getCandidates(cells[j]) != pair)
+                    continue;
+                for (int cell : cells)
+                {
+                    if (cell != cells[i] && cell != cells[j])
+                        removedCount += remove(cell, pair);
+                }
+            }
+        }
+        return removedCount;
+    }
+
+    private int removeHiddenPairs(Layout layout, int unit)
+    {
+        int removedCount = 0;
+        for (int number = 1; number <= layout.size(); number++)
+        {
+            if (boards.count(number, unit) != 2)
+                continue;
+            for (int other = number + 1; other <= layout.size(); other++)
+            {
+                if (boards.count(other, unit) != 2 || !boards.isSamePlaces(number, other, unit))
+                    continue;
+                long pair = 1L << (number - 1) | 1L << (other - 1);
+                for (int cell : layout.getUnitFields(unit))
+                {
+                    if (boards.isCandidate(cell, number))
+                        removedCount += remove(cell, boards.getCandidates(cell) & ~pair);
+                }
+            }
+        }
+        return removedCount;
+    }
+
+    /**
+     * Removes target number by the X-wings of two base units of target type, whose fields of the number share two
+     * cover units of the other type.
+     */
+    private int removeXWings(Layout layout, int number, Layout.UnitType baseType, Layout.UnitType coverType)
+    {
+        int removedCount = 0;
+        long bit = 1L << (number - 1);
+        for (int base = 0; base < layout.getHouseCount(); base++)
+        {
+            if (layout.getUnitType(base) != baseType || boards.count(number, base) != 2)
+                continue;
+            int[] covers = getCovers(layout, number, base, coverType);
+            for (int other = base + 1; other < layout.getHouseCount(); other++)
+            {
+                if (layout.getUnitType(other) != baseType || boards.count(number, other) != 2)
+                    continue;
+                int[] otherCovers = getCovers(layout, number, other, coverType);
+                if (covers[0] != otherCovers[0] || covers[1] != otherCovers[1])
+                    continue;
+                for (int cover : covers)
+                {
+                    for (int cell : layout.getUnitFields(cover))
+                    {
+                        if (!isInUnit(layout, cell, base) && !isInUnit(layout, cell, other))
+                            removedCount += remove(cell, bit);
+                    }
+                }
+            }
+        }
+        return removedCount;
+    }
+
+    /**
+     * Returns the units of target type of both fields inside target unit where target number may be placed, in the
+     * order of the fields.
+     */
+    private int[] getCovers(Layout layout, int number, int unit, Layout.UnitType coverType)
+    {
+        int[] covers = new int[2];
+        int count = 0;
+        for (int cell : layout.getUnitFields(unit))
+        {
+            if (!boards.isCandidate(cell, number))
+                continue;
+            for (int cover : layout.getUnitsOf(cell))
+            {
+                if (layout.getUnitType(cover) == coverType)
+                    covers[count] = cover;
+            }
+            count++;
+        }
+        return covers;
+    }
+
+    private static boolean isInUnit(Layout layout, int cell, int unit)
+    {
+        for (int other : layout.getUnitsOf(cell))
+        {
+            if (other == unit)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes target numbers from the candidates of target field, the boards follow as listener of the sudoku.
+     *
+     * @return the count of removed candidates
+     */
+    private int remove(int cell, long numbers)
+    {
+        int removedCount = 0;
+        Field field = sudoku.getField(cell / sudoku.size(), cell % sudoku.size());
+        for (long rest = numbers & boards.getCandidates(cell); rest != 0; rest &= rest - 1)
+        {
+            field.removeCandidate(Long.numberOfTrailingZeros(rest) + 1);
+            removedCount++;
+        }
+        return removedCount;
+    }
+
+    private void fixSingles(Layout layout)
+    {
+        int cellCount = layout.size() * layout.size();
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            long candidates = boards.getCandidates(cell);
+            if (boards.getNumber(cell) == 0 && Long.bitCount(candidates) == 1)
+            {
+                Field field = sudoku.getField(cell / sudoku.size(), cell % sudoku.size());
+                field.fix(Long.numberOfTrailingZeros(candidates) + 1);
+                LOG.debug("field {} fixed", field);
+                fixedFields.add(field);
+            }
+        }
+    }
+}
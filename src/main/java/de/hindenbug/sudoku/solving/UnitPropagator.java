@@ -0,0 +1,221 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Field;
+import de.hindenbug.sudoku.model.Layout;
+import de.hindenbug.sudoku.model.Sudoku;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A <code>UnitPropagator</code> runs the passes of the single strategies over all units of a large {@link Sudoku}
+ * on a fork join pool. A pass reads the numbers and only candidates of all fields into bit masks first. Then tasks
+ * of adjacent units compute their eliminations against these masks only and merge them into the mask of each field
+ * with an atomic or. The fields are not changed until all tasks are done, and then only one after another in the
+ * order of the fields.
+ * <p>
+ * As the or of the masks does not depend on the order of the tasks, a pass has the same result for any count of
+ * threads and any schedule. The tasks run on the pool of the calling task, otherwise on the common pool.
+ */
+final class UnitPropagator
+{
+    /**
+     * size of the smallest sudoku, that the strategies propagate in parallel by default
+     */
+    static final int DEFAULT_PARALLEL_SIZE = 36;
+
+    /*
+    count of fields a task reads or checks at least, as one unit is too
+    little work to be worth a task
+     */
+    private static final int FIELDS_PER_TASK = 1024;
+
+    private final Sudoku sudoku;
+    private final Layout layout;
+    private final int size;
+    private final int unitsPerTask;
+
+    /*
+    bit of the number of each fixed field, bit of the only candidate of
+    each empty field and the masks merged by the tasks of the last pass
+     */
+    private final long[] numbers;
+    private final long[] singles;
+    private final AtomicLongArray merged;
+
+    UnitPropagator(Sudoku sudoku)
+    {
+        this.sudoku = sudoku;
+        this.layout = sudoku.getLayout();
+        this.size = sudoku.size();
+        this.unitsPerTask = Math.max(1, FIELDS_PER_TASK / size);
+        this.numbers = new long[size * size];
+        this.singles = new long[size * size];
+        this.merged = new AtomicLongArray(size * size);
+    }
+
+    /**
+     * Returns <code>true</code> if target sudoku has at least target size and should be propagated in parallel.
+     */
+    static boolean isParallel(Sudoku sudoku, int parallelSize)
+    {
+        return sudoku.size() >= parallelSize;
+    }
+
+    Field getField(int cell)
+    {
+        return sudoku.getField(cell / size, cell % size);
+    }
+
+    long getNumber(int cell)
+    {
+        return numbers[cell];
+    }
+
+    /**
+     * Returns the bit of the only candidate of target field, when the last pass read it, or 0 if the field is fixed
+     * or has another count of candidates.
+     */
+    long getSingle(int cell)
+    {
+        return singles[cell];
+    }
+
+    /**
+     * Returns the mask, that the tasks of the last pass merged for target field.
+     */
+    long getMerged(int cell)
+    {
+        return merged.get(cell);
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Computes the numbers of every empty field, that the only candidates of other fields in its units take. A field
+     * loses its own only candidate, if another field of a unit has the same one.
+     */
+    void mergeSingles()
+    {
+        read();
+        run(0, layout.getUnitCount(), this::mergeSingles);
+    }
+
+    private void mergeSingles(int unit)
+    {
+        // numbers taken once and more than once by the fields of the unit
+        long once = 0;
+        long twice = 0;
+        int[] cells = layout.getUnitFields(unit);
+        for (int cell : cells)
+        {
+            twice |= once & singles[cell];
+            once |= singles[cell];
+        }
+        if (once == 0)
+            return;
+        for (int cell : cells)
+        {
+            if (numbers[cell] != 0)
+                continue;
+            long eliminated = twice | once & ~singles[cell];
+            if (eliminated != 0)
+                merged.accumulateAndGet(cell, eliminated, (a, b) -> a | b);
+        }
+    }
+
+    /**
+     * Computes the numbers of the fixed fields in the row and column of every empty field.
+     */
+    void mergeRowsAndColumns()
+    {
+        read();
+        run(0, layout.getUnitCount(), this::mergeRowOrColumn);
+    }
+
+    private void mergeRowOrColumn(int unit)
+    {
+        Layout.UnitType type = layout.getUnitType(unit);
+        if (type != Layout.UnitType.ROW && type != Layout.UnitType.COLUMN)
+            return;
+        int[] cells = layout.getUnitFields(unit);
+        long used = 0;
+        for (int cell : cells)
+            used |= numbers[cell];
+        if (used == 0)
+            return;
+        for (int cell : cells)
+        {
+            if (numbers[cell] == 0)
+                merged.accumulateAndGet(cell, used, (a, b) -> a | b);
+        }
+    }
+
+    /**
+     * Reads the numbers and only candidates of all fields and clears the merged masks. The rows are read in parallel,
+     * as reading a field does not change it.
+     */
+    private void read()
+    {
+        run(0, size, row ->
+        {
+            for (int column = 0; column < size; column++)
+            {
+                int cell = row * size + column;
+                Field field = sudoku.getField(row, column);
+                numbers[cell] = field.isFix()
+                                ? 1L << (field.getNumber() - 1)
+                                : 0;
+                singles[cell] = !field.isFix() && field.getCandidateCount() == 1
+                                ? 1L << (field.getCandidate() - 1)
+                                : 0;
+                merged.set(cell, 0);
+            }
+        });
+    }
+
+    private void run(int from, int to, UnitAction action)
+    {
+        new UnitTask(from, to, action).invoke();
+    }
+
+    private interface UnitAction
+    {
+        void run(int index);
+    }
+
+    /**
+     * Runs an action for a range of rows or units and splits the range while it is larger than a task.
+     */
+    private final class UnitTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final UnitAction action;
+
+        private UnitTask(int from, int to, UnitAction action)
+        {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= unitsPerTask)
+            {
+                for (int index = from; index < to; index++)
+                    action.run(index);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new UnitTask(from, middle, action), new UnitTask(middle, to, action));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package de.hindenbug.sudoku.solving;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * A periodic Flight Recorder event with the counts of the {@linkplain SolverArena solver arenas}. A board that is
+ * reused is a hit of the arena, a board that is created again because the layout changed is a miss.
+ */
+@Name("de.hindenbug.sudoku.ArenaStatistics")
+@Label("Solver Arena Statistics")
+@Category({"Sudoku", "Solver"})
+@Description("Counts of the per thread solver arenas since the start of the JVM")
+@Period("5 s")
+@StackTrace(false)
+final class ArenaStatisticsEvent extends Event
+{
+    private static final Runnable EMIT = ArenaStatisticsEvent::emit;
+
+    @Label("Arenas")
+    @Description("Count of created arenas, one per solving thread")
+    long arenaCount;
+
+    @Label("Searches")
+    @Description("Count of searches that reused the search state of an arena")
+    long searchCount;
+
+    @Label("Board Loads")
+    long boardLoadCount;
+
+    @Label("Board Creations")
+    @Description("Count of board loads that had to create the board")
+    long boardCreationCount;
+
+    /**
+     * Registers the periodic event, called once when the first arena is created.
+     */
+    static void register()
+    {
+        FlightRecorder.addPeriodicEvent(ArenaStatisticsEvent.class, EMIT);
+    }
+
+    private static void emit()
+    {
+        ArenaStatisticsEvent event = new ArenaStatisticsEvent();
+        event.arenaCount = SolverArena.getArenaCount();
+        event.searchCount = SolverArena.getSearchCount();
+        event.boardLoadCount = SolverArena.getBoardLoadCount();
+        event.boardCreationCount = SolverArena.getBoardCreationCount();
+        event.commit();
+    }
+}
@@ -0,0 +1,65 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Grid;
+
+/**
+ * The <code>FlightRecorderEvents</code> commit a {@link SolveEvent} for each solve, a {@link StrategyEvent} for each
+ * run of a strategy and register the periodic {@link ArenaStatisticsEvent}. The events are only filled if Flight
+ * Recorder runs and they are enabled.
+ * <p>
+ * This class is loaded by reflection by {@link SolverEvents#EVENTS}, so it must keep its constructor without
+ * arguments.
+ */
+final class FlightRecorderEvents extends SolverEvents
+{
+    @Override
+    Object beginSolve()
+    {
+        SolveEvent event = new SolveEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void endSolve(Object handle, Grid puzzle, SearchEngine engine, SolveResult result)
+    {
+        SolveEvent event = (SolveEvent) handle;
+        if (event.shouldCommit())
+        {
+            event.puzzleHash = puzzle.hashCode();
+            event.size = puzzle.size();
+            event.givenCount = puzzle.getGivenCount();
+            event.engine = engine.getClass().getSimpleName();
+            event.status = result.getStatus().name();
+            event.nodeCount = result.getStepCount();
+            event.commit();
+        }
+    }
+
+    @Override
+    Object beginStrategy()
+    {
+        StrategyEvent event = new StrategyEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void endStrategy(Object handle, CandidateRemovalStrategy strategy, int round, int fixCount)
+    {
+        StrategyEvent event = (StrategyEvent) handle;
+        if (event.shouldCommit())
+        {
+            event.strategy = strategy.getClass().getSimpleName();
+            event.round = round;
+            event.fixCount = fixCount;
+            event.commit();
+        }
+    }
+
+    @Override
+    void registerArenaStatistics()
+    {
+        ArenaStatisticsEvent.register();
+    }
+}
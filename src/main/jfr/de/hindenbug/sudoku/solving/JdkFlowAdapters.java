@@ -0,0 +1,151 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Grid;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The <code>JdkFlowAdapters</code> convert between the publishers of {@link Flow} and those of
+ * {@link java.util.concurrent.Flow}, so that {@link Solver#solveAll} can be used with the reactive streams of the
+ * JDK. The adapters only forward the calls, the rules of both kinds of streams are the same.
+ * <p>
+ * This class is in the optional sources of <code>src/main/jfr</code>, that are only compiled by a JDK 11 or newer.
+ */
+public final class JdkFlowAdapters
+{
+    private JdkFlowAdapters()
+    {
+    }
+
+    /**
+     * Solves the puzzles of target JDK publisher on target executor, see
+     * {@linkplain Solver#solveAll(Flow.Publisher, Executor, int)}.
+     *
+     * @param solver   solver of the puzzles
+     * @param puzzles  publisher of the puzzles, subscribed once for every subscriber
+     * @param executor executor that runs the solves
+     * @param window   count of puzzles that may be solved or wait for the subscriber at the same time
+     * @return a JDK publisher of the results in the order of the puzzles
+     */
+    public static java.util.concurrent.Flow.Publisher<SolveResult> solveAll(Solver solver,
+            java.util.concurrent.Flow.Publisher<Grid> puzzles, Executor executor, int window)
+    {
+        return toJdkPublisher(solver.solveAll(fromJdkPublisher(puzzles), executor, window));
+    }
+
+    /**
+     * Returns a JDK publisher that subscribes target publisher for each of its subscribers.
+     */
+    public static <T> java.util.concurrent.Flow.Publisher<T> toJdkPublisher(Flow.Publisher<T> publisher)
+    {
+        return subscriber -> publisher.subscribe(new JdkSubscriberAdapter<>(subscriber));
+    }
+
+    /**
+     * Returns a publisher that subscribes target JDK publisher for each of its subscribers.
+     */
+    public static <T> Flow.Publisher<T> fromJdkPublisher(java.util.concurrent.Flow.Publisher<T> publisher)
+    {
+        return subscriber -> publisher.subscribe(new SubscriberAdapter<>(subscriber));
+    }
+
+    /**
+     * Passes the items of a {@link Flow.Publisher} to a JDK subscriber.
+     */
+    private static final class JdkSubscriberAdapter<T> implements Flow.Subscriber<T>
+    {
+        private final java.util.concurrent.Flow.Subscriber<? super T> subscriber;
+
+        private JdkSubscriberAdapter(java.util.concurrent.Flow.Subscriber<? super T> subscriber)
+        {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription)
+        {
+            subscriber.onSubscribe(new java.util.concurrent.Flow.Subscription()
+            {
+                @Override
+                public void request(long n)
+                {
+                    subscription.request(n);
+                }
+
+                @Override
+                public void cancel()
+                {
+                    subscription.cancel();
+                }
+            });
+        }
+
+        @Override
+        public void onNext(T item)
+        {
+            subscriber.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+            subscriber.onError(throwable);
+        }
+
+        @Override
+        public void onComplete()
+        {
+            subscriber.onComplete();
+        }
+    }
+
+    /**
+     * Passes the items of a JDK publisher to a {@link Flow.Subscriber}.
+     */
+    private static final class SubscriberAdapter<T> implements java.util.concurrent.Flow.Subscriber<T>
+    {
+        private final Flow.Subscriber<? super T> subscriber;
+
+        private SubscriberAdapter(Flow.Subscriber<? super T> subscriber)
+        {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void onSubscribe(java.util.concurrent.Flow.Subscription subscription)
+        {
+            subscriber.onSubscribe(new Flow.Subscription()
+            {
+                @Override
+                public void request(long n)
+                {
+                    subscription.request(n);
+                }
+
+                @Override
+                public void cancel()
+                {
+                    subscription.cancel();
+                }
+            });
+        }
+
+        @Override
+        public void onNext(T item)
+        {
+            subscriber.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+            subscriber.onError(throwable);
+        }
+
+        @Override
+        public void onComplete()
+        {
+            subscriber.onComplete();
+        }
+    }
+}
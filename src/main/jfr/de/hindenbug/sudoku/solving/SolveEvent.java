@@ -0,0 +1,40 @@
+package de.hindenbug.sudoku.solving;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event for each {@linkplain Solver#solve(de.hindenbug.sudoku.model.Grid) solve} of a grid. The
+ * duration of the event is the time of the strategies and the search.
+ */
+@Name("de.hindenbug.sudoku.Solve")
+@Label("Solve")
+@Category({"Sudoku", "Solver"})
+@Description("Solving of one sudoku")
+@StackTrace(false)
+final class SolveEvent extends Event
+{
+    @Label("Puzzle Hash")
+    @Description("Hash code of the numbers of the puzzle, equal puzzles have equal hashes")
+    int puzzleHash;
+
+    @Label("Size")
+    int size;
+
+    @Label("Givens")
+    int givenCount;
+
+    @Label("Engine")
+    String engine;
+
+    @Label("Status")
+    String status;
+
+    @Label("Node Count")
+    @Description("Count of candidates tried by the search")
+    long nodeCount;
+}
@@ -0,0 +1,30 @@
+package de.hindenbug.sudoku.solving;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event for each run of a {@link CandidateRemovalStrategy} by a {@link Solver}.
+ */
+@Name("de.hindenbug.sudoku.Strategy")
+@Label("Candidate Removal Strategy")
+@Category({"Sudoku", "Solver"})
+@Description("Run of a candidate removal strategy on a sudoku")
+@StackTrace(false)
+final class StrategyEvent extends Event
+{
+    @Label("Strategy")
+    String strategy;
+
+    @Label("Round")
+    @Description("Round of the strategies, starting at 0")
+    int round;
+
+    @Label("Fixes")
+    @Description("Count of fields fixed by the run")
+    int fixCount;
+}
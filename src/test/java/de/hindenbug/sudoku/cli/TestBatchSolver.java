@@ -0,0 +1,59 @@
+package de.hindenbug.sudoku.cli;
+
+import de.hindenbug.sudoku.generating.Difficulty;
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.solving.NakedOneStrategy;
+import de.hindenbug.sudoku.solving.SatEngine;
+import de.hindenbug.sudoku.solving.Solver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+public class TestBatchSolver
+{
+    @Test
+    public void testKeepsOrder() throws IOException
+    {
+        List<Grid> puzzles = Generator.generate(Difficulty.HARD, 1500, 3);
+        StringBuilder input = new StringBuilder();
+        for (Grid puzzle : puzzles)
+            input.append(puzzle.toLine()).append('\n');
+        input.append("123\n");
+
+        StringWriter output = new StringWriter();
+        LatencyStats stats = new BatchSolver(() -> new Solver(new SatEngine(), new NakedOneStrategy()), 3)
+                .run(new StringReader(input.toString()), output);
+
+        String[] lines = output.toString().split("\n");
+        Assert.assertEquals(lines.length, puzzles.size() + 1);
+        Assert.assertEquals(stats.getCount(), puzzles.size() + 1);
+        for (int i = 0; i < puzzles.size(); i++)
+        {
+            Grid solution = Grid.parse(lines[i]);
+            Assert.assertTrue(solution.toSudoku().isSolved());
+            for (int cell = 0; cell < solution.getCellCount(); cell++)
+            {
+                if (puzzles.get(i).get(cell) != 0)
+                    Assert.assertEquals(solution.get(cell), puzzles.get(i).get(cell));
+            }
+        }
+        Assert.assertEquals(lines[puzzles.size()], "123\tMALFORMED");
+    }
+
+    @Test
+    public void testPercentiles()
+    {
+        LatencyStats stats = new LatencyStats();
+        for (int i = 100; i > 0; i--)
+            stats.add(i);
+        Assert.assertEquals(stats.getPercentile(50), 50);
+        Assert.assertEquals(stats.getPercentile(99), 99);
+        Assert.assertEquals(stats.getPercentile(100), 100);
+        Assert.assertEquals(stats.getPercentile(0), 1);
+    }
+}
@@ -0,0 +1,81 @@
+package de.hindenbug.sudoku.cli;
+
+import de.hindenbug.sudoku.generating.Difficulty;
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.solving.BacktrackingEngine;
+import de.hindenbug.sudoku.solving.Solver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+public class TestBulkVerifier
+{
+    @Test
+    public void testText() throws IOException
+    {
+        List<Grid> puzzles = Generator.generate(Difficulty.HARD, 50, 11);
+        Solver solver = new Solver(new BacktrackingEngine());
+        StringBuilder input = new StringBuilder();
+        // more records than fit into one chunk
+        int count = 5000;
+        for (int i = 0; i < count; i++)
+        {
+            Grid puzzle = puzzles.get(i % puzzles.size());
+            input.append(puzzle.toLine()).append(' ').append(solver.solve(puzzle).getSolution().toLine()).append('\n');
+        }
+        Grid puzzle = puzzles.get(0);
+        byte[] solution = solver.solve(puzzle).getSolution().toBytes();
+        solution[80] = 0;
+        input.append(puzzle.toLine()).append(';').append(Grid.of(9, solution).toLine()).append('\n');
+        input.append(puzzle.toLine()).append('\n');
+
+        StringWriter output = new StringWriter();
+        LatencyStats stats = new BulkVerifier(3).verify(new StringReader(input.toString()), output);
+
+        String[] lines = output.toString().split("\n");
+        Assert.assertEquals(lines.length, count + 2);
+        Assert.assertEquals(stats.getCount(), count + 2);
+        for (int i = 0; i < count; i++)
+            Assert.assertEquals(lines[i], "VALID");
+        Assert.assertEquals(lines[count], "INCOMPLETE\tfield 80");
+        Assert.assertEquals(lines[count + 1], "MALFORMED");
+    }
+
+    @Test
+    public void testBinary() throws IOException
+    {
+        Grid puzzle = Grid.parse("530070000600195000098000060800060003400803001700020006060000280000419005000080070");
+        byte[] solution = Grid
+                .parse("534678912672195348198342567859761423426853791713924856961537284287419635345286179")
+                .toBytes();
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        input.write(9);
+        input.write(puzzle.toBytes());
+        input.write(solution);
+        solution[0] = 3;
+        solution[1] = 5;
+        input.write(9);
+        input.write(puzzle.toBytes());
+        input.write(solution);
+        input.write(4);
+        input.write(new byte[32]);
+
+        StringWriter output = new StringWriter();
+        new BulkVerifier(2).verify(new ByteArrayInputStream(input.toByteArray()), output);
+
+        Assert.assertEquals(output.toString(), "VALID\nGIVEN_CHANGED\tfield 0\nINCOMPLETE\tfield 0\n");
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testTruncatedRecord() throws IOException
+    {
+        new BulkVerifier(1).verify(new ByteArrayInputStream(new byte[]{9, 1, 2}), new StringWriter());
+    }
+}
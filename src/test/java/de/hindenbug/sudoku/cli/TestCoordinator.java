@@ -0,0 +1,220 @@
+package de.hindenbug.sudoku.cli;
+
+import de.hindenbug.sudoku.generating.Difficulty;
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.solving.BacktrackingEngine;
+import de.hindenbug.sudoku.solving.CandidateRemovalStrategy;
+import de.hindenbug.sudoku.solving.Solver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+public class TestCoordinator
+{
+    @Test
+    public void testSameOutputAsBatchSolver() throws IOException
+    {
+        String input = createInput();
+        List<Worker> workers = new ArrayList<>();
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        try
+        {
+            for (int i = 0; i < 3; i++)
+                addresses.add(startWorker(workers));
+            StringWriter output = new StringWriter();
+            LatencyStats stats = new Coordinator(addresses, 2, 10_000).run(new StringReader(input), output);
+
+            Assert.assertEquals(output.toString(), solveLocally(input));
+            Assert.assertEquals(stats.getCount(), 1201);
+        } finally
+        {
+            for (Worker worker : workers)
+                worker.close();
+        }
+    }
+
+    @Test
+    public void testReassignsShardsOfDeadWorker() throws IOException
+    {
+        String input = createInput();
+        List<Worker> workers = new ArrayList<>();
+        try (ServerSocket dead = startDeadWorker())
+        {
+            List<InetSocketAddress> addresses = new ArrayList<>();
+            addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), dead.getLocalPort()));
+            addresses.add(startWorker(workers));
+            StringWriter output = new StringWriter();
+            new Coordinator(addresses, 2, 10_000).run(new StringReader(input), output);
+
+            Assert.assertEquals(output.toString(), solveLocally(input));
+        } finally
+        {
+            for (Worker worker : workers)
+                worker.close();
+        }
+    }
+
+    @Test
+    public void testHeartbeatsKeepSlowWorkerAlive() throws IOException
+    {
+        List<Grid> puzzles = Generator.generate(Difficulty.SIMPLE, 4, 11);
+        StringBuilder input = new StringBuilder();
+        for (Grid puzzle : puzzles)
+            input.append(puzzle.toLine()).append('\n');
+        List<Worker> workers = new ArrayList<>();
+        try
+        {
+            // one shard takes about 600 ms, three times the timeout
+            CandidateRemovalStrategy slow = sudoku ->
+            {
+                try
+                {
+                    Thread.sleep(150);
+                } catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return Collections.emptyList();
+            };
+            List<InetSocketAddress> addresses = new ArrayList<>();
+            addresses.add(startWorker(workers, () -> new Solver(new BacktrackingEngine(), slow)));
+            StringWriter output = new StringWriter();
+            new Coordinator(addresses, 1, 200).run(new StringReader(input.toString()), output);
+
+            Assert.assertEquals(output.toString(), solveLocally(input.toString()));
+        } finally
+        {
+            for (Worker worker : workers)
+                worker.close();
+        }
+    }
+
+    @Test
+    public void testAnswersFailedSudokus() throws IOException
+    {
+        List<Grid> puzzles = Generator.generate(Difficulty.SIMPLE, 3, 7);
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (Grid puzzle : puzzles)
+        {
+            input.append(puzzle.toLine()).append('\n');
+            expected.append(puzzle.toLine()).append("\tERROR\n");
+        }
+        List<Worker> workers = new ArrayList<>();
+        try
+        {
+            CandidateRemovalStrategy failing = sudoku ->
+            {
+                throw new IllegalStateException("broken strategy");
+            };
+            List<InetSocketAddress> addresses = new ArrayList<>();
+            addresses.add(startWorker(workers, () -> new Solver(new BacktrackingEngine(), failing)));
+            StringWriter output = new StringWriter();
+            new Coordinator(addresses, 2, 10_000).run(new StringReader(input.toString()), output);
+
+            Assert.assertEquals(output.toString(), expected.toString());
+        } finally
+        {
+            for (Worker worker : workers)
+                worker.close();
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testFailsWithoutWorkers() throws IOException
+    {
+        try (ServerSocket dead = startDeadWorker())
+        {
+            List<InetSocketAddress> addresses = new ArrayList<>();
+            addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), dead.getLocalPort()));
+            new Coordinator(addresses, 2, 10_000).run(new StringReader(createInput()), new StringWriter());
+        }
+    }
+
+    @Test
+    public void testListenAddress()
+    {
+        InetSocketAddress loopback = Worker.parseListenAddress("7000");
+        Assert.assertTrue(loopback.getAddress().isLoopbackAddress());
+        Assert.assertEquals(loopback.getPort(), 7000);
+        Assert.assertTrue(Worker.parseListenAddress("0.0.0.0:7001").getAddress().isAnyLocalAddress());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMalformedListenAddress()
+    {
+        Worker.parseListenAddress("localhost:port");
+    }
+
+    private static String createInput()
+    {
+        StringBuilder input = new StringBuilder();
+        for (Grid puzzle : Generator.generate(Difficulty.MEDIUM, 1200, 5))
+            input.append(puzzle.toLine()).append('\n');
+        input.insert(0, "123\n");
+        return input.toString();
+    }
+
+    private static String solveLocally(String input) throws IOException
+    {
+        StringWriter output = new StringWriter();
+        new BatchSolver(() -> new Solver(new BacktrackingEngine()), 1).run(new StringReader(input), output);
+        return output.toString();
+    }
+
+    private static InetSocketAddress startWorker(List<Worker> workers) throws IOException
+    {
+        return startWorker(workers, () -> new Solver(new BacktrackingEngine()));
+    }
+
+    private static InetSocketAddress startWorker(List<Worker> workers, Supplier<Solver> solverFactory)
+            throws IOException
+    {
+        Worker worker = new Worker(solverFactory, 2);
+        workers.add(worker);
+        ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        worker.start(server);
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+    }
+
+    /**
+     * Starts a worker that says hello, reads the first request and closes the connection without an answer.
+     */
+    private static ServerSocket startDeadWorker() throws IOException
+    {
+        ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread thread = new Thread(() ->
+        {
+            while (!server.isClosed())
+            {
+                try (Socket socket = server.accept())
+                {
+                    DataInputStream in = new DataInputStream(socket.getInputStream());
+                    ShardCodec.readHello(in);
+                    ShardCodec.writeHello(new DataOutputStream(socket.getOutputStream()), 1);
+                    in.readInt();
+                } catch (IOException e)
+                {
+                    // closed
+                }
+            }
+        }, "dead worker");
+        thread.setDaemon(true);
+        thread.start();
+        return server;
+    }
+}
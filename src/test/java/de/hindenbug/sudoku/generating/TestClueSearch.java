@@ -0,0 +1,197 @@
+package de.hindenbug.sudoku.generating;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.solving.SearchState;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestClueSearch
+{
+    private static final Grid SOLUTION_4 = Grid.parse("1234341221434321");
+    private static final int MAX_CLUES = 6;
+
+    @Test
+    public void testUnavoidableSets()
+    {
+        Grid solution = new Generator(5).generateSolution();
+        ClueSearch search = new ClueSearch(solution, 1);
+        Assert.assertTrue(search.getUnavoidableSetCount() > 0);
+        SearchState state = new SearchState();
+        for (int i = 0; i < search.getUnavoidableSetCount(); i++)
+        {
+            byte[] cells = solution.toBytes();
+            for (int cell : search.getUnavoidableSet(i))
+                cells[cell] = 0;
+            state.load(solution.getLayout(), cells, 0);
+            Assert.assertEquals(state.countSolutions(2), 2, "set " + i + " is avoidable");
+        }
+    }
+
+    @Test
+    public void testFindsAllMinimalPuzzles()
+    {
+        Set<Grid> expected = bruteForce(SOLUTION_4, MAX_CLUES);
+        Assert.assertFalse(expected.isEmpty());
+
+        ClueSearch search = new ClueSearch(SOLUTION_4, 1);
+        search.setSymmetryReduction(false);
+        Set<Grid> found = new HashSet<>();
+        long count = search.search(MAX_CLUES, found::add);
+        Assert.assertEquals(found, expected);
+        Assert.assertEquals(count, expected.size());
+    }
+
+    @Test
+    public void testSymmetryReduction()
+    {
+        ClueSearch search = new ClueSearch(SOLUTION_4, 1);
+        Assert.assertTrue(search.getAutomorphismCount() > 0);
+        Set<Grid> found = new HashSet<>();
+        search.search(MAX_CLUES, found::add);
+
+        Set<Grid> expected = bruteForce(SOLUTION_4, MAX_CLUES);
+        Assert.assertTrue(expected.containsAll(found));
+        Assert.assertTrue(found.size() < expected.size());
+    }
+
+    @Test
+    public void testCheckpoint() throws IOException
+    {
+        Path checkpoint = Files.createTempFile("clues", ".checkpoint");
+        Files.delete(checkpoint);
+        try
+        {
+            ClueSearch search = new ClueSearch(SOLUTION_4, 1);
+            long count = search.search(MAX_CLUES, puzzle -> {}, checkpoint);
+            Assert.assertTrue(Files.exists(checkpoint));
+
+            // every task is finished, so nothing is searched again
+            Set<Grid> found = new HashSet<>();
+            Assert.assertEquals(search.search(MAX_CLUES, found::add, checkpoint), count);
+            Assert.assertTrue(found.isEmpty());
+        } finally
+        {
+            Files.deleteIfExists(checkpoint);
+        }
+    }
+
+    @Test
+    public void testResumeInterruptedSearch() throws IOException
+    {
+        Path checkpoint = Files.createTempFile("clues", ".checkpoint");
+        Files.delete(checkpoint);
+        try
+        {
+            ClueSearch search = new ClueSearch(SOLUTION_4, 1);
+            search.setSymmetryReduction(false);
+            long count = search.search(MAX_CLUES, puzzle -> {});
+
+            // interrupt the search in the middle, while some tasks are finished and others are running
+            AtomicInteger emitted = new AtomicInteger();
+            try
+            {
+                search.search(MAX_CLUES, puzzle ->
+                {
+                    if (emitted.incrementAndGet() > count / 2)
+                        throw new IllegalStateException("interrupted");
+                }, checkpoint);
+                Assert.fail("search was not interrupted");
+            } catch (IllegalStateException e)
+            {
+                // the tasks of other threads may still run until their next puzzle
+                ForkJoinPool.commonPool().awaitQuiescence(10, TimeUnit.SECONDS);
+            }
+            Assert.assertTrue(Files.exists(checkpoint));
+
+            // the puzzles of the interrupted tasks are found again, but only counted once
+            Assert.assertEquals(search.search(MAX_CLUES, puzzle -> {}, checkpoint), count);
+        } finally
+        {
+            Files.deleteIfExists(checkpoint);
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testCheckpointOfOtherSearch() throws IOException
+    {
+        Path checkpoint = Files.createTempFile("clues", ".checkpoint");
+        Files.delete(checkpoint);
+        try
+        {
+            new ClueSearch(SOLUTION_4, 1).search(MAX_CLUES, puzzle -> {}, checkpoint);
+            new ClueSearch(SOLUTION_4, 1).search(MAX_CLUES - 1, puzzle -> {}, checkpoint);
+        } finally
+        {
+            Files.deleteIfExists(checkpoint);
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testCheckpointOfOtherSymmetry() throws IOException
+    {
+        Path checkpoint = Files.createTempFile("clues", ".checkpoint");
+        Files.delete(checkpoint);
+        try
+        {
+            new ClueSearch(SOLUTION_4, 1).search(MAX_CLUES, puzzle -> {}, checkpoint);
+            ClueSearch search = new ClueSearch(SOLUTION_4, 1);
+            search.setSymmetryReduction(false);
+            search.search(MAX_CLUES, puzzle -> {}, checkpoint);
+        } finally
+        {
+            Files.deleteIfExists(checkpoint);
+        }
+    }
+
+    /**
+     * Tries every subset of the fields.
+     */
+    private static Set<Grid> bruteForce(Grid solution, int maxClues)
+    {
+        SearchState state = new SearchState();
+        Set<Grid> puzzles = new HashSet<>();
+        int cellCount = solution.getCellCount();
+        for (int mask = 0; mask < 1 << cellCount; mask++)
+        {
+            if (Integer.bitCount(mask) > maxClues)
+                continue;
+            byte[] cells = new byte[cellCount];
+            for (int cell = 0; cell < cellCount; cell++)
+            {
+                if ((mask & 1 << cell) != 0)
+                    cells[cell] = (byte) solution.get(cell);
+            }
+            if (isUnique(state, solution, cells))
+            {
+                boolean isMinimal = true;
+                for (int cell = 0; cell < cellCount && isMinimal; cell++)
+                {
+                    if (cells[cell] == 0)
+                        continue;
+                    byte number = cells[cell];
+                    cells[cell] = 0;
+                    isMinimal = !isUnique(state, solution, cells);
+                    cells[cell] = number;
+                }
+                if (isMinimal)
+                    puzzles.add(Grid.of(solution.getLayout(), cells));
+            }
+        }
+        return puzzles;
+    }
+
+    private static boolean isUnique(SearchState state, Grid solution, byte[] cells)
+    {
+        state.load(solution.getLayout(), cells, 0);
+        return state.countSolutions(2) == 1;
+    }
+}
@@ -0,0 +1,47 @@
+package de.hindenbug.sudoku.generating;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.solving.SearchState;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+public class TestGenerator
+{
+    @Test
+    public void testSolution()
+    {
+        Grid solution = new Generator(1).generateSolution();
+        Assert.assertEquals(solution.getGivenCount(), 81);
+        Assert.assertTrue(solution.toSudoku().isSolved());
+    }
+
+    @Test
+    public void testUniqueSolution()
+    {
+        Grid puzzle = new Generator(2).generate();
+        SearchState state = new SearchState();
+        Assert.assertTrue(state.load(puzzle));
+        Assert.assertEquals(state.countSolutions(2), 1);
+    }
+
+    @Test
+    public void testDifficulty()
+    {
+        for (Difficulty difficulty : Difficulty.values())
+        {
+            Grid puzzle = new Generator(3).generate(difficulty);
+            Assert.assertEquals(new Grader().grade(puzzle).getDifficulty(), difficulty);
+        }
+    }
+
+    @Test
+    public void testReproducible()
+    {
+        List<Grid> first = Generator.generate(Difficulty.MEDIUM, 8, 42);
+        List<Grid> second = Generator.generate(Difficulty.MEDIUM, 8, 42);
+        Assert.assertEquals(first, second);
+        Assert.assertNotEquals(first.get(0), first.get(1));
+    }
+}
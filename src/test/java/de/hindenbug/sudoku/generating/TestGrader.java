@@ -0,0 +1,77 @@
+package de.hindenbug.sudoku.generating;
+
+import de.hindenbug.sudoku.model.Grid;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class TestGrader
+{
+    private static final Grid EASY = Grid.of(new int[][]{
+            {5, 3, 0, 0, 7, 0, 0, 0, 0},
+            {6, 0, 0, 1, 9, 5, 0, 0, 0},
+            {0, 9, 8, 0, 0, 0, 0, 6, 0},
+            {8, 0, 0, 0, 6, 0, 0, 0, 3},
+            {4, 0, 0, 8, 0, 3, 0, 0, 1},
+            {7, 0, 0, 0, 2, 0, 0, 0, 6},
+            {0, 6, 0, 0, 0, 0, 2, 8, 0},
+            {0, 0, 0, 4, 1, 9, 0, 0, 5},
+            {0, 0, 0, 0, 8, 0, 0, 7, 0},
+    });
+
+    private static final Grid EVIL = Grid.of(new int[][]{
+            {0, 3, 0, 0, 0, 0, 0, 0, 0},
+            {0, 0, 0, 1, 9, 5, 0, 0, 0},
+            {0, 0, 8, 0, 0, 0, 0, 6, 0},
+            {8, 0, 0, 0, 6, 0, 0, 0, 0},
+            {4, 0, 0, 8, 0, 0, 0, 0, 1},
+            {0, 0, 0, 0, 2, 0, 0, 0, 0},
+            {0, 6, 0, 0, 0, 0, 2, 8, 0},
+            {0, 0, 0, 4, 1, 9, 0, 0, 5},
+            {0, 0, 0, 0, 0, 0, 0, 7, 0},
+    });
+
+    @Test
+    public void testSimple()
+    {
+        Grade grade = new Grader().grade(EASY);
+        Assert.assertEquals(grade.getDifficulty(), Difficulty.SIMPLE);
+        Assert.assertEquals(grade.getCount(Technique.BLOCK_HIDDEN_SINGLE), 81 - EASY.getGivenCount());
+        Assert.assertEquals(grade.getRating(),
+                Technique.BLOCK_HIDDEN_SINGLE.getCost(81 - EASY.getGivenCount()));
+    }
+
+    @Test
+    public void testEvil()
+    {
+        Grade grade = new Grader().grade(EVIL);
+        Assert.assertEquals(grade.getDifficulty(), Difficulty.EVIL);
+        Assert.assertTrue(grade.getCount(Technique.GUESS) > 0);
+        Assert.assertTrue(grade.getRating() > new Grader().grade(EASY).getRating());
+    }
+
+    @Test
+    public void testBatch()
+    {
+        List<Grid> puzzles = Generator.generate(Difficulty.EVIL, 16, 7);
+        Grader grader = new Grader();
+        List<Integer> expected = puzzles.stream()
+                .map(puzzle -> grader.grade(puzzle).getRating())
+                .collect(Collectors.toList());
+        List<Integer> ratings = Grader.grade(puzzles).stream()
+                .map(Grade::getRating)
+                .collect(Collectors.toList());
+        Assert.assertEquals(ratings, expected);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalid()
+    {
+        int[][] numbers = new int[9][9];
+        numbers[0][0] = 1;
+        numbers[1][1] = 1;
+        new Grader().grade(Grid.of(numbers));
+    }
+}
@@ -0,0 +1,142 @@
+package de.hindenbug.sudoku.model;
+
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.solving.BacktrackingEngine;
+import de.hindenbug.sudoku.solving.ExamineStrategy;
+import de.hindenbug.sudoku.solving.NakedOneStrategy;
+import de.hindenbug.sudoku.solving.SatEngine;
+import de.hindenbug.sudoku.solving.SearchState;
+import de.hindenbug.sudoku.solving.SolveResult;
+import de.hindenbug.sudoku.solving.Solver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public class TestLayout
+{
+    @Test
+    public void testClassicLayout()
+    {
+        Layout layout = Layout.classic(9);
+        Assert.assertSame(layout, Layout.classic(9));
+        Assert.assertEquals(layout.getUnitCount(), 27);
+        Assert.assertEquals(layout.getHouseCount(), 27);
+        Assert.assertFalse(layout.hasCages());
+        Assert.assertEquals(layout.getPeers(0).length, 20);
+        Assert.assertEquals(layout.getUnitsOf(10), new int[]{1, 10, 18});
+        Assert.assertEquals(Layout.diagonal(9).getPeers(0).length, 26);
+    }
+
+    @Test
+    public void testDiagonalSudoku()
+    {
+        Layout layout = Layout.diagonal(9);
+        Grid puzzle = removeNumbers(solve(Grid.of(layout, new byte[81])), 7);
+
+        Sudoku sudoku = puzzle.toSudoku();
+        Assert.assertSame(sudoku.getLayout(), layout);
+        Assert.assertTrue(sudoku.isValid());
+        assertSolved(puzzle);
+    }
+
+    @Test
+    public void testJigsawSudoku()
+    {
+        // classic blocks of a shifted solution, where the fields (2, 2) and (1, 5) with number 9 change their blocks
+        byte[] solution = new byte[81];
+        int[] regionOf = new int[81];
+        for (int cell = 0; cell < regionOf.length; cell++)
+        {
+            int row = cell / 9;
+            int col = cell % 9;
+            solution[cell] = (byte) ((row * 3 + row / 3 + col) % 9 + 1);
+            regionOf[cell] = (row / 3) * 3 + col / 3;
+        }
+        regionOf[2 * 9 + 2] = 1;
+        regionOf[9 + 5] = 0;
+        Layout layout = Layout.jigsaw(9, regionOf);
+        Assert.assertTrue(Grid.of(layout, solution).toSudoku().isSolved());
+
+        assertSolved(removeNumbers(Grid.of(layout, solution), 11));
+    }
+
+    @Test
+    public void testKillerSudoku()
+    {
+        // dominoes inside each row, the last column contains single field cages
+        Grid solution = new Generator(13).generateSolution();
+        Layout.Builder builder = Layout.builder(9).addBlocks();
+        for (int row = 0; row < 9; row++)
+        {
+            for (int col = 0; col < 9; col += 2)
+            {
+                int cell = row * 9 + col;
+                if (col == 8)
+                    builder.addCage(solution.get(cell), cell);
+                else
+                    builder.addCage(solution.get(cell) + solution.get(cell + 1), cell, cell + 1);
+            }
+        }
+        Layout layout = builder.build();
+        Grid puzzle = Grid.of(layout, new byte[81]);
+
+        for (SolveResult result : new SolveResult[]{new BacktrackingEngine().solve(puzzle),
+                new SatEngine().solve(puzzle)})
+        {
+            Assert.assertTrue(result.isSolved());
+            Sudoku sudoku = result.getSolution().toSudoku();
+            Assert.assertTrue(sudoku.isSolved());
+        }
+
+        // the last field of the first row is a cage of its own
+        byte[] cells = new byte[81];
+        cells[8] = (byte) solution.get(8);
+        Assert.assertTrue(Grid.of(layout, cells).toSudoku().isValid());
+        cells[8] = (byte) (solution.get(8) % 9 + 1);
+        Assert.assertFalse(Grid.of(layout, cells).toSudoku().isValid());
+        Assert.assertEquals(new BacktrackingEngine().solve(Grid.of(layout, cells)).getStatus(),
+                SolveResult.Status.INVALID);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidRegions()
+    {
+        Layout.jigsaw(4, new int[16]);
+    }
+
+    private Grid solve(Grid grid)
+    {
+        SearchState state = new SearchState();
+        state.setRandom(new Random(3));
+        Assert.assertTrue(state.load(grid));
+        Assert.assertTrue(state.next());
+        return state.toGrid();
+    }
+
+    private Grid removeNumbers(Grid solution, long seed)
+    {
+        byte[] cells = solution.toBytes();
+        Random random = new Random(seed);
+        for (int i = 0; i < cells.length; i++)
+        {
+            if (random.nextInt(100) < 50)
+                cells[i] = 0;
+        }
+        return Grid.of(solution.getLayout(), cells);
+    }
+
+    private void assertSolved(Grid puzzle)
+    {
+        SolveResult backtracking = new BacktrackingEngine().solve(puzzle);
+        SolveResult sat = new SatEngine().solve(puzzle);
+        Assert.assertTrue(backtracking.isSolved());
+        Assert.assertTrue(sat.isSolved());
+        Assert.assertTrue(backtracking.getSolution().toSudoku().isSolved());
+        Assert.assertTrue(sat.getSolution().toSudoku().isSolved());
+
+        Sudoku sudoku = puzzle.toSudoku();
+        new Solver(new NakedOneStrategy(), new ExamineStrategy()).solve(sudoku);
+        Assert.assertTrue(sudoku.isSolved());
+    }
+}
@@ -57,6 +57,36 @@ public class TestSudoku
         testCandidates(7, 4, 2, 7);
     }
 
+    @Test
+    public void testListener()
+    {
+        sudoku.buildCandidates();
+        List<String> changes = new ArrayList<>();
+        SudokuListener listener = new SudokuListener()
+        {
+            @Override
+            public void fixed(Field field, int number)
+            {
+                changes.add("fix " + field.getRow() + field.getColumn() + " " + number);
+            }
+
+            @Override
+            public void candidateRemoved(Field field, int candidate)
+            {
+                changes.add("remove " + field.getRow() + field.getColumn() + " " + candidate);
+            }
+        };
+        sudoku.addListener(listener);
+        sudoku.getField(0, 1).removeCandidate(6);
+        // not a candidate anymore
+        sudoku.getField(0, 1).removeCandidate(6);
+        sudoku.getField(0, 1).fix(8);
+        sudoku.removeListener(listener);
+        sudoku.getField(1, 4).removeCandidate(3);
+
+        Assert.assertEquals(changes, Arrays.asList("remove 01 6", "fix 01 8"));
+    }
+
     private void testCandidates(int row, int column, int...expected)
     {
 
@@ -0,0 +1,192 @@
+package de.hindenbug.sudoku.service;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.solving.BacktrackingEngine;
+import de.hindenbug.sudoku.solving.SearchEngine;
+import de.hindenbug.sudoku.solving.SolveResult;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class TestSolvingService
+{
+    private static final String PUZZLE =
+            "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+    private static final String SOLUTION =
+            "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+    private SolvingService service;
+
+    @BeforeClass
+    public void startService() throws IOException
+    {
+        service = new SolvingService(0, 2, 2, 5000, new BacktrackingEngine());
+        service.start();
+    }
+
+    @AfterClass
+    public void stopService()
+    {
+        service.stop();
+    }
+
+    @Test
+    public void testParseLine()
+    {
+        Grid grid = Grid.parse(PUZZLE);
+        Assert.assertEquals(grid.size(), 9);
+        Assert.assertEquals(grid.get(0, 0), 5);
+        Assert.assertEquals(grid.get(0, 2), 0);
+        Assert.assertEquals(grid.toLine(), PUZZLE);
+        Assert.assertEquals(Grid.parse(" " + PUZZLE.replace('.', '0') + "\r"), grid);
+    }
+
+    @Test
+    public void testSolveBatch() throws IOException
+    {
+        // the last field of the first row can only be 9, which is already used in its column
+        StringBuilder unsolvable = new StringBuilder("12345678.........9");
+        while (unsolvable.length() < 81)
+            unsolvable.append('.');
+        HttpURLConnection connection = post(PUZZLE + "\n\n" + unsolvable + "\n");
+        Assert.assertEquals(connection.getResponseCode(), 200);
+        Assert.assertEquals(connection.getHeaderField("X-Solved-Count"), "1");
+
+        String[] lines = read(connection.getInputStream()).split("\n");
+        Assert.assertEquals(lines.length, 2);
+        Assert.assertTrue(lines[0].startsWith(SOLUTION + "\tSOLVED\t"));
+        Assert.assertTrue(lines[1].startsWith(unsolvable + "\tUNSOLVABLE\t"));
+    }
+
+    @Test
+    public void testMalformedRequest() throws IOException
+    {
+        HttpURLConnection connection = post(PUZZLE + "\n123\n");
+        Assert.assertEquals(connection.getResponseCode(), 400);
+        Assert.assertTrue(read(connection.getErrorStream()).startsWith("line 2"));
+
+        connection = (HttpURLConnection) url(service).openConnection();
+        Assert.assertEquals(connection.getResponseCode(), 405);
+    }
+
+    @Test
+    public void testTimeoutInsideSolve() throws IOException
+    {
+        SolvingService slowService = new SolvingService(0, 1, 1, 200, new SlowEngine());
+        slowService.start();
+        try
+        {
+            HttpURLConnection connection = post(slowService, PUZZLE + "\n");
+            Assert.assertEquals(connection.getResponseCode(), 200);
+            Assert.assertTrue(read(connection.getInputStream()).startsWith(PUZZLE + "\tTIMEOUT\t"));
+        } finally
+        {
+            slowService.stop();
+        }
+    }
+
+    @Test
+    public void testMoreRequestsThanThreads() throws Exception
+    {
+        SolvingService slowService = new SolvingService(0, 1, 1, 300, new SlowEngine());
+        slowService.start();
+        ExecutorService clients = Executors.newFixedThreadPool(6);
+        try
+        {
+            List<Future<String>> answers = new ArrayList<>();
+            for (int i = 0; i < 6; i++)
+            {
+                answers.add(clients.submit(() ->
+                {
+                    long time = System.nanoTime();
+                    HttpURLConnection connection = post(slowService, PUZZLE + "\n");
+                    int status = connection.getResponseCode();
+                    String answer = status == 200
+                                    ? read(connection.getInputStream())
+                                    : String.valueOf(status);
+                    // every request is answered near its deadline, not after the ones before it
+                    Assert.assertTrue(System.nanoTime() - time < TimeUnit.MILLISECONDS.toNanos(1000),
+                            "answered after " + (System.nanoTime() - time) / 1000000 + " ms");
+                    return answer;
+                }));
+            }
+            // a request that waited for the limiter until its deadline is rejected or times out at once
+            for (Future<String> answer : answers)
+            {
+                String text = answer.get();
+                Assert.assertTrue(text.equals("503") || text.startsWith(PUZZLE + "\tTIMEOUT\t"), text);
+            }
+        } finally
+        {
+            clients.shutdownNow();
+            slowService.stop();
+        }
+    }
+
+    /**
+     * An engine that only returns at the deadline, like a search that does not end in time.
+     */
+    private static final class SlowEngine implements SearchEngine
+    {
+        @Override
+        public SolveResult solve(Grid puzzle)
+        {
+            throw new AssertionError("solved without deadline");
+        }
+
+        @Override
+        public SolveResult solve(Grid puzzle, long deadline)
+        {
+            while (System.nanoTime() - deadline < 0)
+                Thread.yield();
+            return new SolveResult(SolveResult.Status.TIMEOUT, puzzle, null, 0, 0);
+        }
+    }
+
+    private HttpURLConnection post(String body) throws IOException
+    {
+        return post(service, body);
+    }
+
+    private HttpURLConnection post(SolvingService service, String body) throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection) url(service).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream())
+        {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return connection;
+    }
+
+    private static URL url(SolvingService service) throws IOException
+    {
+        return new URL("http://127.0.0.1:" + service.getPort() + "/solve");
+    }
+
+    private String read(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int count;
+        while ((count = in.read(buffer)) >= 0)
+            out.write(buffer, 0, count);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,44 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.generating.Difficulty;
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestBatchPropagator
+{
+    @Test
+    public void testSameResultsAsEngine()
+    {
+        List<Grid> puzzles = new ArrayList<>();
+        for (Difficulty difficulty : Difficulty.values())
+            puzzles.addAll(Generator.generate(difficulty, 40, difficulty.ordinal()));
+
+        int[][] numbers = new int[9][9];
+        for (int col = 1; col < 9; col++)
+            numbers[0][col] = col + 1;
+        numbers[1][0] = 1;
+        puzzles.add(Grid.of(numbers));
+        numbers[1][0] = 2;
+        puzzles.add(Grid.of(numbers));
+        puzzles.add(Grid.of(Layout.diagonal(9), new byte[81]));
+
+        List<SolveResult> results = new BatchPropagator(9, 64).solve(puzzles, new Solver());
+        Assert.assertEquals(results.size(), puzzles.size());
+        for (int i = 0; i < puzzles.size(); i++)
+        {
+            SolveResult expected = new BacktrackingEngine().solve(puzzles.get(i));
+            SolveResult result = results.get(i);
+            Assert.assertSame(result.getPuzzle(), puzzles.get(i));
+            Assert.assertEquals(result.getStatus(), expected.getStatus());
+            Assert.assertEquals(result.getSolution(), expected.getSolution());
+        }
+        Assert.assertEquals(results.get(puzzles.size() - 3).getStatus(), SolveResult.Status.UNSOLVABLE);
+        Assert.assertEquals(results.get(puzzles.size() - 2).getStatus(), SolveResult.Status.INVALID);
+    }
+}
@@ -0,0 +1,96 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+public class TestCompletionCounter
+{
+    @Test
+    public void testEmptyGrid()
+    {
+        Assert.assertEquals(new CompletionCounter().count(Grid.of(4, new byte[16])), BigInteger.valueOf(288));
+    }
+
+    @Test
+    public void testFirstBand()
+    {
+        // only the first band is given, so the lower bands are counted with sorted columns and stacks
+        Grid band = Grid.parse("123456789456789123789123456" + repeat('.', 54));
+        CompletionCounter counter = new CompletionCounter();
+        Assert.assertEquals(counter.count(band), new BigInteger("7802998272"));
+        Assert.assertTrue(counter.getLargestLayer() > 1);
+    }
+
+    @Test
+    public void testCarry()
+    {
+        CompletionCounter.Count count = new CompletionCounter.Count();
+        count.add(Long.MAX_VALUE);
+        count.add(Long.MAX_VALUE);
+        CompletionCounter.Count sum = new CompletionCounter.Count();
+        sum.add(count);
+        sum.add(count);
+        sum.add(4);
+        Assert.assertEquals(sum.toBigInteger(), BigInteger.ONE.shiftLeft(65));
+    }
+
+    @Test
+    public void testUniquePuzzle()
+    {
+        Grid puzzle = new Generator(3).generate();
+        Assert.assertEquals(new CompletionCounter().count(puzzle), BigInteger.ONE);
+    }
+
+    @Test
+    public void testSearchCount()
+    {
+        byte[] cells = new Generator(3).generate().toBytes();
+        Random random = new Random(5);
+        SearchState state = new SearchState();
+        CompletionCounter counter = new CompletionCounter();
+        for (int removed = 0; removed < 6; )
+        {
+            int cell = random.nextInt(cells.length);
+            if (cells[cell] == 0)
+                continue;
+            cells[cell] = 0;
+            removed++;
+
+            Grid puzzle = Grid.of(9, cells);
+            state.load(puzzle);
+            long expected = state.countSolutions(Integer.MAX_VALUE);
+            Assert.assertEquals(counter.count(puzzle), BigInteger.valueOf(expected), puzzle.toLine());
+        }
+    }
+
+    @Test
+    public void testContradiction()
+    {
+        byte[] cells = new byte[81];
+        cells[0] = 1;
+        cells[80] = 1;
+        cells[8] = 1;
+        Assert.assertEquals(new CompletionCounter().count(Grid.of(9, cells)), BigInteger.ZERO);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCages()
+    {
+        Layout layout = Layout.builder(9).addBlocks().addCage(3, 0, 1).build();
+        new CompletionCounter().count(Grid.of(layout, new byte[81]));
+    }
+
+    private static String repeat(char c, int count)
+    {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,106 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.generating.Difficulty;
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.model.Field;
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
+import de.hindenbug.sudoku.model.Sudoku;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestDigitBoards
+{
+    @Test
+    public void testViewsStaySynchronized()
+    {
+        Grid puzzle = Generator.generate(Difficulty.EVIL, 1, 17).get(0);
+        Grid solution = new BacktrackingEngine().solve(puzzle).getSolution();
+        Sudoku sudoku = puzzle.toSudoku();
+        sudoku.buildCandidates();
+        DigitBoards boards = DigitBoards.of(sudoku);
+        Layout layout = sudoku.getLayout();
+
+        for (int cell = 0; cell < puzzle.getCellCount(); cell++)
+        {
+            if (boards.getNumber(cell) == 0)
+            {
+                // a wrong number is eliminated, the right one is placed
+                int wrong = Long.numberOfTrailingZeros(boards.getCandidates(cell) & ~(1L << (solution.get(cell) - 1)));
+                if (wrong < 64)
+                    Assert.assertTrue(boards.eliminate(cell, wrong + 1));
+                boards.fix(cell, solution.get(cell));
+            }
+            assertSynchronized(boards, layout);
+        }
+    }
+
+    @Test
+    public void testFollowsSudoku()
+    {
+        Grid puzzle = Generator.generate(Difficulty.EVIL, 1, 17).get(0);
+        Grid solution = new BacktrackingEngine().solve(puzzle).getSolution();
+        Sudoku sudoku = puzzle.toSudoku();
+        sudoku.buildCandidates();
+        DigitBoards boards = DigitBoards.of(sudoku);
+        sudoku.addListener(boards);
+
+        for (Field field : sudoku)
+        {
+            if (field.isFix())
+                continue;
+            int cell = field.getRow() * 9 + field.getColumn();
+            long wrong = boards.getCandidates(cell) & ~(1L << (solution.get(cell) - 1));
+            if (wrong != 0)
+                field.removeCandidate(Long.numberOfTrailingZeros(wrong) + 1);
+            field.fix(solution.get(cell));
+
+            // the fields of the sudoku keep candidates that a fixed peer excludes, the boards do not
+            DigitBoards loaded = DigitBoards.of(sudoku);
+            for (int other = 0; other < puzzle.getCellCount(); other++)
+            {
+                Assert.assertEquals(boards.getNumber(other), loaded.getNumber(other));
+                Assert.assertEquals(boards.getCandidates(other), loaded.getCandidates(other), "field " + other);
+            }
+        }
+        Assert.assertFalse(boards.isStale());
+        sudoku.buildCandidates();
+        Assert.assertTrue(boards.isStale());
+    }
+
+    private static void assertSynchronized(DigitBoards boards, Layout layout)
+    {
+        for (int unit = 0; unit < layout.getUnitCount(); unit++)
+        {
+            for (int number = 1; number <= layout.size(); number++)
+            {
+                int count = 0;
+                int first = -1;
+                for (int cell : layout.getUnitFields(unit))
+                {
+                    if (boards.isCandidate(cell, number))
+                    {
+                        Assert.assertEquals(boards.getNumber(cell), 0);
+                        count++;
+                        if (first < 0 || cell < first)
+                            first = cell;
+                    }
+                    if (boards.getNumber(cell) == number)
+                        Assert.assertEquals(boards.count(number, unit), 0);
+                }
+                Assert.assertEquals(boards.count(number, unit), count);
+                Assert.assertEquals(boards.first(number, unit), first);
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testFixWithoutCandidate()
+    {
+        Sudoku sudoku = Grid.parse("530070000600195000098000060800060003400803001700020006060000280000419005000080070")
+                .toSudoku();
+        sudoku.buildCandidates();
+        // 5 is used in the first row
+        DigitBoards.of(sudoku).fix(2, 5);
+    }
+}
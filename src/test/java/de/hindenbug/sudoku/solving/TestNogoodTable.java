@@ -0,0 +1,97 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.generating.Difficulty;
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+public class TestNogoodTable
+{
+    @Test
+    public void testIncrementalHash()
+    {
+        Grid puzzle = Generator.generate(Difficulty.EVIL, 1, 5).get(0);
+        SearchState state = new SearchState();
+        state.load(puzzle);
+        long hash = state.getHash();
+        Assert.assertTrue(state.next());
+
+        // the hash does not depend on the order of the numbers
+        SearchState solved = new SearchState();
+        solved.load(state.toGrid());
+        Assert.assertEquals(state.getHash(), solved.getHash());
+
+        // all numbers of the search are removed again when it is exhausted
+        Assert.assertFalse(state.next());
+        state.load(puzzle);
+        Assert.assertEquals(state.getHash(), hash);
+    }
+
+    @Test
+    public void testRepeatedSearch()
+    {
+        // a valid puzzle without solution, whose search visits many states
+        byte[] cells = Generator.generate(Difficulty.EVIL, 1, 9).get(0).toBytes();
+        Grid solution = new BacktrackingEngine().solve(Grid.of(9, cells)).getSolution();
+        SearchState plain = new SearchState();
+        Grid puzzle = null;
+        for (int cell = 0; puzzle == null; cell++)
+        {
+            if (cells[cell] != 0)
+                continue;
+            cells[cell] = (byte) (solution.get(cell) % 9 + 1);
+            if (plain.load(Grid.of(9, cells)) && !plain.next() && plain.getNodeCount() > 10)
+                puzzle = Grid.of(9, cells);
+            cells[cell] = 0;
+        }
+
+        NogoodTable table = new NogoodTable(Layout.classic(9), 1 << 12);
+        SearchState state = new SearchState();
+        state.setNogoods(table);
+        state.load(puzzle);
+        Assert.assertFalse(state.next());
+        long nodes = state.getNodeCount();
+        Assert.assertTrue(table.getStoreCount() > 0);
+
+        state.load(puzzle);
+        Assert.assertFalse(state.next());
+        Assert.assertTrue(state.getNodeCount() < nodes);
+        Assert.assertTrue(table.getHitCount() > 0);
+        Assert.assertTrue(table.getHitRate() > 0);
+    }
+
+    @Test
+    public void testAllSolutionsFound()
+    {
+        // without the first four rows a solution can be completed in many ways
+        Grid puzzle = Generator.generate(Difficulty.MEDIUM, 1, 3).get(0);
+        byte[] cells = new BacktrackingEngine().solve(puzzle).getSolution().toBytes();
+        for (int cell = 0; cell < 36; cell++)
+            cells[cell] = 0;
+        puzzle = Grid.of(9, cells);
+
+        SearchState state = new SearchState();
+        state.load(puzzle);
+        int expected = state.countSolutions(Integer.MAX_VALUE);
+
+        NogoodTable table = new NogoodTable(Layout.classic(9), 1 << 12);
+        state.setNogoods(table);
+        for (int i = 0; i < 2; i++)
+        {
+            state.load(puzzle);
+            Assert.assertEquals(state.countSolutions(Integer.MAX_VALUE), expected);
+        }
+
+        // parts of a split search share the table
+        state.load(puzzle);
+        long count = StreamSupport.stream(new SolutionSpliterator(state), true)
+                .collect(Collectors.toSet())
+                .size();
+        Assert.assertEquals(count, expected);
+    }
+}
@@ -0,0 +1,71 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Sudoku;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public class TestSatEngine
+{
+    @Test
+    public void testEvilSudoku()
+    {
+        Sudoku sudoku = new Sudoku(new int[][]{
+                {0, 3, 0, 0, 0, 0, 0, 0, 0},
+                {0, 0, 0, 1, 9, 5, 0, 0, 0},
+                {0, 0, 8, 0, 0, 0, 0, 6, 0},
+                {8, 0, 0, 0, 6, 0, 0, 0, 0},
+                {4, 0, 0, 8, 0, 0, 0, 0, 1},
+                {0, 0, 0, 0, 2, 0, 0, 0, 0},
+                {0, 6, 0, 0, 0, 0, 2, 8, 0},
+                {0, 0, 0, 4, 1, 9, 0, 0, 5},
+                {0, 0, 0, 0, 0, 0, 0, 7, 0},
+        });
+        new Solver(new SatEngine(), new NakedOneStrategy()).solve(sudoku);
+        Assert.assertTrue(sudoku.isSolved());
+    }
+
+    @Test
+    public void testGeneratedSudokus()
+    {
+        Generator generator = new Generator(11);
+        for (int i = 0; i < 20; i++)
+        {
+            Grid puzzle = generator.generate();
+            SolveResult result = new SatEngine().solve(puzzle);
+            Assert.assertTrue(result.isSolved());
+            Assert.assertEquals(result.getSolution(), new BacktrackingEngine().solve(puzzle).getSolution());
+        }
+    }
+
+    @Test
+    public void testLargeSudoku()
+    {
+        byte[] cells = new Generator(25, 5).generateSolution().toBytes();
+        Random random = new Random(5);
+        for (int i = 0; i < cells.length; i++)
+        {
+            if (random.nextInt(100) < 60)
+                cells[i] = 0;
+        }
+        SolveResult result = new SatEngine().solve(Grid.of(25, cells));
+        Assert.assertTrue(result.isSolved());
+        Assert.assertTrue(result.getSolution().toSudoku().isSolved());
+    }
+
+    @Test
+    public void testUnsolvableSudoku()
+    {
+        int[][] numbers = new int[9][9];
+        for (int col = 1; col < 9; col++)
+            numbers[0][col] = col + 1;
+        numbers[1][0] = 1;
+        Assert.assertEquals(new SatEngine().solve(Grid.of(numbers)).getStatus(), SolveResult.Status.UNSOLVABLE);
+
+        numbers[1][0] = 2;
+        Assert.assertEquals(new SatEngine().solve(Grid.of(numbers)).getStatus(), SolveResult.Status.INVALID);
+    }
+}
@@ -0,0 +1,86 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.generating.Difficulty;
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TestSolutionCounter
+{
+    @Test
+    public void testResumeFromFile() throws IOException
+    {
+        // without the first four rows a solution can be completed in many ways
+        Grid puzzle = Generator.generate(Difficulty.MEDIUM, 1, 3).get(0);
+        byte[] cells = new BacktrackingEngine().solve(puzzle).getSolution().toBytes();
+        for (int cell = 0; cell < 36; cell++)
+            cells[cell] = 0;
+        puzzle = Grid.of(9, cells);
+
+        SolutionCounter expected = new SolutionCounter(puzzle);
+        Assert.assertTrue(expected.run(Long.MAX_VALUE, Long.MAX_VALUE));
+
+        Path file = Files.createTempFile("counter", ".checkpoint");
+        try
+        {
+            SolutionCounter counter = new SolutionCounter(puzzle);
+            int checkpoints = 0;
+            while (!counter.run(Long.MAX_VALUE, 500))
+            {
+                counter.save(file);
+                counter = SolutionCounter.load(file, Layout.classic(9));
+                checkpoints++;
+            }
+            Assert.assertTrue(checkpoints > 1);
+            Assert.assertTrue(counter.isExhausted());
+            Assert.assertEquals(counter.getCount(), expected.getCount());
+            Assert.assertEquals(counter.getNodeCount(), expected.getNodeCount());
+        } finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testPausedSearch() throws IOException
+    {
+        Grid puzzle = Generator.generate(Difficulty.EVIL, 1, 13).get(0);
+        SearchState expected = new SearchState();
+        expected.load(puzzle);
+        Assert.assertTrue(expected.next());
+
+        SearchState state = new SearchState();
+        state.load(puzzle);
+        while (!state.next(3))
+        {
+            Assert.assertFalse(state.isExhausted());
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            state.writeCheckpoint(new DataOutputStream(bytes));
+            state = SearchState.readCheckpoint(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())),
+                    Layout.classic(9));
+        }
+        Assert.assertEquals(state.toGrid(), expected.toGrid());
+        Assert.assertEquals(state.getNodeCount(), expected.getNodeCount());
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testWrongLayout() throws IOException
+    {
+        SearchState state = new SearchState();
+        state.load(Grid.of(9, new byte[81]));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        state.writeCheckpoint(new DataOutputStream(bytes));
+        SearchState.readCheckpoint(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())),
+                Layout.classic(4));
+    }
+}
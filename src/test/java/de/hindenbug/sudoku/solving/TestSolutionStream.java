@@ -0,0 +1,86 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.generating.Difficulty;
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.model.Grid;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+public class TestSolutionStream
+{
+    @Test
+    public void testAllSolutions()
+    {
+        Grid empty = Grid.of(4, new byte[16]);
+        Solver solver = new Solver();
+
+        Set<Grid> solutions = solver.solutions(empty).collect(Collectors.toSet());
+        Assert.assertEquals(solutions.size(), 288);
+        for (Grid solution : solutions)
+            Assert.assertTrue(solution.toSudoku().isSolved());
+
+        List<Grid> parallel = solver.solutions(empty).parallel().collect(Collectors.toList());
+        Assert.assertEquals(parallel.size(), 288);
+        Assert.assertEquals(new HashSet<>(parallel), solutions);
+    }
+
+    @Test
+    public void testSplitCoversSearch()
+    {
+        // without the first four rows a solution can be completed in many ways
+        Grid puzzle = Generator.generate(Difficulty.MEDIUM, 1, 3).get(0);
+        byte[] cells = new BacktrackingEngine().solve(puzzle).getSolution().toBytes();
+        for (int cell = 0; cell < 36; cell++)
+            cells[cell] = 0;
+        puzzle = Grid.of(9, cells);
+
+        SearchState counter = new SearchState();
+        counter.load(puzzle);
+        int expected = counter.countSolutions(Integer.MAX_VALUE);
+        Assert.assertTrue(expected > 1);
+
+        // split every part as long as possible, after a few solutions of each part
+        List<Spliterator<Grid>> parts = new ArrayList<>();
+        parts.add(new Solver().solutions(puzzle).spliterator());
+        Set<Grid> solutions = new HashSet<>();
+        int found = 0;
+        for (int i = 0; i < parts.size(); i++)
+        {
+            Spliterator<Grid> part = parts.get(i);
+            for (int advance = 0; advance < 3 && part.tryAdvance(solutions::add); advance++)
+                found++;
+            Spliterator<Grid> split;
+            while ((split = part.trySplit()) != null)
+                parts.add(split);
+            while (part.tryAdvance(solutions::add))
+                found++;
+        }
+        Assert.assertTrue(parts.size() > 1);
+        Assert.assertEquals(found, expected);
+        Assert.assertEquals(solutions.size(), expected);
+    }
+
+    @Test(timeOut = 10000)
+    public void testShortCircuit()
+    {
+        Grid empty = Grid.of(9, new byte[81]);
+        Solver solver = new Solver();
+        Assert.assertEquals(solver.solutions(empty).limit(5).distinct().count(), 5);
+        Assert.assertTrue(solver.solutions(empty).parallel().findAny().get().toSudoku().isSolved());
+    }
+
+    @Test
+    public void testInvalid()
+    {
+        byte[] cells = new byte[81];
+        cells[0] = cells[1] = 1;
+        Assert.assertEquals(new Solver().solutions(Grid.of(9, cells)).count(), 0);
+    }
+}
@@ -0,0 +1,54 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestSolutionVerifier
+{
+    private static final String PUZZLE =
+            "530070000600195000098000060800060003400803001700020006060000280000419005000080070";
+    private static final String SOLUTION =
+            "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+    private final SolutionVerifier verifier = new SolutionVerifier(Layout.classic(9));
+
+    @Test
+    public void testValid()
+    {
+        Assert.assertEquals(verify(PUZZLE, SOLUTION), SolutionVerifier.Status.VALID);
+        Assert.assertEquals(verifier.getPosition(), -1);
+    }
+
+    @Test
+    public void testErrors()
+    {
+        // 5 and 3 of the first row swapped, both are givens
+        Assert.assertEquals(verify(PUZZLE, "354" + SOLUTION.substring(3)), SolutionVerifier.Status.GIVEN_CHANGED);
+        Assert.assertEquals(verifier.getPosition(), 0);
+
+        // 4 and 6 of the first row swapped, the columns 2 and 3 contain their number twice
+        Assert.assertEquals(verify(PUZZLE, "536478912" + SOLUTION.substring(9)), SolutionVerifier.Status.DUPLICATE);
+        Assert.assertEquals(Layout.classic(9).getUnitType(verifier.getPosition()), Layout.UnitType.COLUMN);
+
+        Assert.assertEquals(verify(PUZZLE, "53467891." + SOLUTION.substring(9)), SolutionVerifier.Status.INCOMPLETE);
+        Assert.assertEquals(verifier.getPosition(), 8);
+    }
+
+    @Test
+    public void testCages()
+    {
+        Layout layout = Layout.builder(9).addBlocks().addCage(8, 0, 1).addCage(5, 2, 3).build();
+        SolutionVerifier cageVerifier = new SolutionVerifier(layout);
+        byte[] puzzle = new byte[81];
+        byte[] solution = Grid.parse(SOLUTION).toBytes();
+        Assert.assertEquals(cageVerifier.verify(puzzle, 0, solution, 0), SolutionVerifier.Status.CAGE_SUM);
+        Assert.assertEquals(cageVerifier.getPosition(), layout.getHouseCount() + 1);
+    }
+
+    private SolutionVerifier.Status verify(String puzzle, String solution)
+    {
+        return verifier.verify(Grid.parse(puzzle).toBytes(), 0, Grid.parse(solution).toBytes(), 0);
+    }
+}
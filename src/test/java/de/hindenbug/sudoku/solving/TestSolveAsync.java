@@ -0,0 +1,216 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.generating.Difficulty;
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.model.Grid;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TestSolveAsync
+{
+    @Test
+    public void testSolveAsync() throws Exception
+    {
+        Grid puzzle = Generator.generate(Difficulty.HARD, 1, 7).get(0);
+        Solver solver = new Solver(new NakedOneStrategy());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            List<CompletableFuture<SolveResult>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+                results.add(solver.solveAsync(puzzle, executor));
+            for (CompletableFuture<SolveResult> result : results)
+            {
+                Assert.assertTrue(result.get(10, TimeUnit.SECONDS).isSolved());
+                Assert.assertEquals(result.get().getPuzzle(), puzzle);
+            }
+        } finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testWaitingSolvesDoNotBlockThreads() throws Exception
+    {
+        // the first solve waits inside its strategy until another task of the executor releases it
+        CountDownLatch release = new CountDownLatch(1);
+        CandidateRemovalStrategy waiting = sudoku ->
+        {
+            try
+            {
+                release.await();
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return Collections.emptyList();
+        };
+        Solver solver = new Solver(waiting);
+        Grid puzzle = Generator.generate(Difficulty.MEDIUM, 1, 7).get(0);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            List<CompletableFuture<SolveResult>> results = new ArrayList<>();
+            for (int i = 0; i < 3; i++)
+                results.add(solver.solveAsync(puzzle, executor));
+            executor.execute(release::countDown);
+            for (CompletableFuture<SolveResult> result : results)
+                Assert.assertTrue(result.get(10, TimeUnit.SECONDS).isSolved());
+        } finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPublisherKeepsOrderAndDemand() throws Exception
+    {
+        List<Grid> puzzles = Generator.generate(Difficulty.MEDIUM, 200, 11);
+        ListPublisher upstream = new ListPublisher(puzzles);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            CollectingSubscriber subscriber = new CollectingSubscriber(upstream, 4);
+            new Solver().solveAll(upstream, executor, 4).subscribe(subscriber);
+
+            Assert.assertNull(subscriber.done.get(10, TimeUnit.SECONDS));
+            Assert.assertEquals(subscriber.results.size(), puzzles.size());
+            for (int i = 0; i < puzzles.size(); i++)
+                Assert.assertEquals(subscriber.results.get(i).getPuzzle(), puzzles.get(i));
+            // never more puzzles than the window ahead of the received results
+            Assert.assertTrue(subscriber.maxAhead <= 4, "ahead " + subscriber.maxAhead);
+        } finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testInvalidRequestFails() throws Exception
+    {
+        ListPublisher upstream = new ListPublisher(Generator.generate(Difficulty.MEDIUM, 3, 11));
+        CollectingSubscriber subscriber = new CollectingSubscriber(upstream, 1)
+        {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription)
+            {
+                subscription.request(0);
+            }
+        };
+        new Solver().solveAll(upstream, Runnable::run, 2).subscribe(subscriber);
+
+        Assert.assertTrue(subscriber.done.isDone());
+        Assert.assertTrue(subscriber.done.get() instanceof IllegalArgumentException);
+        Assert.assertTrue(upstream.cancelled);
+    }
+
+    /**
+     * Publishes the items of a list on the thread that requests them.
+     */
+    private static final class ListPublisher implements Flow.Publisher<Grid>
+    {
+        private final List<Grid> items;
+        private final AtomicLong requested = new AtomicLong();
+        private volatile boolean cancelled;
+
+        private ListPublisher(List<Grid> items)
+        {
+            this.items = items;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super Grid> subscriber)
+        {
+            subscriber.onSubscribe(new Flow.Subscription()
+            {
+                private int next;
+                private long demand;
+                private boolean emitting;
+
+                @Override
+                public synchronized void request(long n)
+                {
+                    requested.addAndGet(n);
+                    demand += n;
+                    if (emitting)
+                        return;
+                    emitting = true;
+                    while (demand > 0 && next < items.size() && !cancelled)
+                    {
+                        demand--;
+                        subscriber.onNext(items.get(next++));
+                    }
+                    if (next == items.size() && !cancelled)
+                    {
+                        cancelled = true;
+                        subscriber.onComplete();
+                    }
+                    emitting = false;
+                }
+
+                @Override
+                public void cancel()
+                {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    /**
+     * Requests one result after the other and completes with the error or <code>null</code>.
+     */
+    private static class CollectingSubscriber implements Flow.Subscriber<SolveResult>
+    {
+        private final ListPublisher upstream;
+        private final int initial;
+        private final List<SolveResult> results = Collections.synchronizedList(new ArrayList<>());
+        private final CompletableFuture<Throwable> done = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+        private volatile long maxAhead;
+
+        private CollectingSubscriber(ListPublisher upstream, int initial)
+        {
+            this.upstream = upstream;
+            this.initial = initial;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription)
+        {
+            this.subscription = subscription;
+            subscription.request(initial);
+        }
+
+        @Override
+        public void onNext(SolveResult item)
+        {
+            results.add(item);
+            maxAhead = Math.max(maxAhead, Math.min(upstream.requested.get(), upstream.items.size()) - results.size());
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+            done.complete(throwable);
+        }
+
+        @Override
+        public void onComplete()
+        {
+            done.complete(null);
+        }
+    }
+}
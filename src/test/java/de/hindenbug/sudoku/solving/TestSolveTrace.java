@@ -0,0 +1,67 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.generating.Difficulty;
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.model.Grid;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class TestSolveTrace
+{
+    @Test
+    public void testReplay() throws IOException
+    {
+        Grid puzzle = Generator.generate(Difficulty.EVIL, 1, 11).get(0);
+        SolveTrace trace = new SolveTrace(1 << 16);
+        Solver solver = new Solver(new NakedOneStrategy(), new ExamineStrategy());
+        solver.setTrace(trace);
+        SolveResult result = solver.solve(puzzle);
+        Assert.assertTrue(result.isSolved());
+        Assert.assertSame(trace.getPuzzle(), puzzle);
+        Assert.assertEquals(trace.getDroppedCount(), 0);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trace.dump(out);
+        SolveTrace read = SolveTrace.read(new ByteArrayInputStream(out.toByteArray()));
+        Assert.assertEquals(read.getStepCount(), trace.getStepCount());
+        Assert.assertEquals(read.getPuzzle(), puzzle);
+
+        // every step uses a candidate that is left after the steps before, except a backtrack
+        Map<SolveTrace.StepType, Integer> counts = new EnumMap<>(SolveTrace.StepType.class);
+        SolveTrace.Replay replay = read.replay();
+        SolveTrace.Replay previous = read.replay();
+        while (replay.next())
+        {
+            counts.merge(replay.getType(), 1, Integer::sum);
+            long bit = 1L << (replay.getNumber() - 1);
+            if (replay.getType() != SolveTrace.StepType.BACKTRACK)
+                Assert.assertTrue((previous.getCandidates(replay.getCell()) & bit) != 0, replay.toString());
+            previous.next();
+        }
+        Assert.assertEquals(replay.getIndex(), trace.getStepCount());
+        Assert.assertEquals(replay.toGrid(), result.getSolution());
+        Assert.assertTrue(counts.containsKey(SolveTrace.StepType.FIX));
+        Assert.assertTrue(counts.containsKey(SolveTrace.StepType.GUESS));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testRingBuffer()
+    {
+        Grid puzzle = Generator.generate(Difficulty.EVIL, 1, 11).get(0);
+        SolveTrace trace = new SolveTrace(10);
+        Solver solver = new Solver();
+        solver.setTrace(trace);
+        solver.solve(puzzle);
+
+        Assert.assertTrue(trace.getStepCount() > 16);
+        Assert.assertEquals(trace.getDroppedCount(), trace.getStepCount() - 16);
+        // the replay must start at the puzzle, but the first steps are lost
+        trace.replay();
+    }
+}
@@ -1,5 +1,9 @@
 package de.hindenbug.sudoku.solving;
 
+import de.hindenbug.sudoku.generating.Difficulty;
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.model.Field;
+import de.hindenbug.sudoku.model.Grid;
 import de.hindenbug.sudoku.model.Sudoku;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -7,6 +11,9 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Unit test for simple App.
  */
@@ -218,6 +225,34 @@ public class TestSolver
         Assert.assertTrue(evilSudoku.isSolved());
     }
 
+    @Test
+    public void testSubsetAndFishStrategy()
+    {
+        Solver solver = new Solver(new NakedOneStrategy(), new ExamineStrategy(), new SubsetAndFishStrategy());
+        int removedCount = 0;
+        for (Grid puzzle : Generator.generate(Difficulty.EVIL, 20, 23))
+        {
+            Grid solution = new Solver().solve(puzzle).getSolution();
+            Sudoku sudoku = puzzle.toSudoku();
+            sudoku.buildCandidates();
+            DigitBoards before = DigitBoards.of(sudoku);
+            new SubsetAndFishStrategy().removeCandidates(sudoku);
+            DigitBoards after = DigitBoards.of(sudoku);
+
+            // the number of the solution is never removed
+            for (int cell = 0; cell < puzzle.getCellCount(); cell++)
+            {
+                Field field = sudoku.getField(cell / 9, cell % 9);
+                Assert.assertTrue(field.isFix()
+                                  ? field.getNumber() == solution.get(cell)
+                                  : field.containsCandidate(solution.get(cell)), "field " + cell);
+                removedCount += Long.bitCount(before.getCandidates(cell) & ~after.getCandidates(cell));
+            }
+            Assert.assertEquals(solver.solve(puzzle).getSolution(), solution);
+        }
+        Assert.assertTrue(removedCount > 0);
+    }
+
     @Test(dependsOnMethods = {"testSudoku"})
     public void testEmptySudoku()
     {
@@ -227,4 +262,111 @@ public class TestSolver
         LOG.info(System.lineSeparator() + sudoku.toString());
         Assert.assertTrue(sudoku.isSolved());
     }
+
+    @Test(dependsOnMethods = {"testSudoku"})
+    public void testEvilGridSolver()
+    {
+        Grid puzzle = Grid.of(evilSudoku);
+        SolveResult result = new Solver().solve(puzzle);
+        LOG.info(System.lineSeparator() + result.getSolution());
+        Assert.assertEquals(result.getStatus(), SolveResult.Status.SOLVED);
+        Assert.assertTrue(result.getSolution().toSudoku().isSolved());
+        Assert.assertEquals(puzzle, Grid.of(evilSudoku));
+        for (int i = 0; i < puzzle.getCellCount(); i++)
+        {
+            if (puzzle.get(i) != 0)
+                Assert.assertEquals(result.getSolution().get(i), puzzle.get(i));
+        }
+    }
+
+    @Test
+    public void testInvalidGrid()
+    {
+        int[][] numbers = new int[9][9];
+        numbers[0][0] = 5;
+        numbers[0][8] = 5;
+        SolveResult result = new Solver().solve(Grid.of(numbers));
+        Assert.assertEquals(result.getStatus(), SolveResult.Status.INVALID);
+        Assert.assertNull(result.getSolution());
+    }
+
+    @Test
+    public void testUnsolvableGrid()
+    {
+        int[][] numbers = new int[9][9];
+        for (int col = 1; col < 9; col++)
+            numbers[0][col] = col + 1;
+        numbers[1][0] = 1;
+        SolveResult result = new Solver().solve(Grid.of(numbers));
+        Assert.assertEquals(result.getStatus(), SolveResult.Status.UNSOLVABLE);
+    }
+
+    @Test
+    public void testAdaptiveStrategyOrder()
+    {
+        List<Grid> puzzles = Generator.generate(Difficulty.HARD, 30, 21);
+        Solver fixed = new Solver(new ExamineStrategy(), new LastManStandingStrategy(), new NakedOneStrategy());
+        List<CandidateRemovalStrategy> strategies = Arrays.asList(new ExamineStrategy(),
+                new LastManStandingStrategy(), new NakedOneStrategy());
+        Solver adaptive = new Solver(strategies.toArray(new CandidateRemovalStrategy[0]));
+        adaptive.setStrategyPolicy(StrategyPolicy.ADAPTIVE);
+        for (Grid puzzle : puzzles)
+            Assert.assertEquals(adaptive.solve(puzzle).getSolution(), fixed.solve(puzzle).getSolution());
+
+        StrategyStats stats = adaptive.getStrategyStats();
+        for (int strategy = 0; strategy < stats.getStrategyCount(); strategy++)
+            Assert.assertTrue(stats.getRunCount(strategy) > 0);
+
+        // the learned order starts with the strategy that fixes the most fields per nanosecond
+        List<CandidateRemovalStrategy> order = adaptive.getStrategyOrder();
+        Assert.assertEquals(order.size(), 3);
+        for (int i = 1; i < order.size(); i++)
+        {
+            Assert.assertTrue(stats.getYield(strategies.indexOf(order.get(i - 1)))
+                    >= stats.getYield(strategies.indexOf(order.get(i))));
+        }
+
+        // the learned order can be pinned
+        Solver pinned = new Solver(order.toArray(new CandidateRemovalStrategy[0]));
+        for (Grid puzzle : puzzles)
+            Assert.assertEquals(pinned.solve(puzzle).getSolution(), fixed.solve(puzzle).getSolution());
+        Assert.assertEquals(pinned.getStrategyOrder(), order);
+    }
+
+    @Test
+    public void testValueOrders()
+    {
+        List<Grid> puzzles = Generator.generate(Difficulty.EVIL, 30, 23);
+        BacktrackingEngine ascending = new BacktrackingEngine();
+        for (ValueOrder order : ValueOrder.values())
+        {
+            BacktrackingEngine engine = new BacktrackingEngine(order, 5);
+            for (Grid puzzle : puzzles)
+            {
+                SolveResult result = engine.solve(puzzle);
+                Assert.assertEquals(result.getSolution(), ascending.solve(puzzle).getSolution());
+                // the same seed repeats the same search
+                Assert.assertEquals(engine.solve(puzzle).getStepCount(), result.getStepCount());
+            }
+        }
+
+        // an empty grid has many solutions, a random order finds another one
+        Grid empty = Grid.of(9, new byte[81]);
+        Assert.assertNotEquals(new BacktrackingEngine(ValueOrder.RANDOM, 5).solve(empty).getSolution(),
+                ascending.solve(empty).getSolution());
+    }
+
+    @Test
+    public void testDeadline()
+    {
+        // the backtracking search needs millions of candidates for an empty 49x49 grid
+        Grid empty = Grid.of(49, new byte[49 * 49]);
+        SolveResult result = new BacktrackingEngine().solve(empty, System.nanoTime());
+        Assert.assertEquals(result.getStatus(), SolveResult.Status.TIMEOUT);
+        Assert.assertNull(result.getSolution());
+
+        Grid puzzle = new Generator(3).generate();
+        result = new BacktrackingEngine().solve(puzzle, System.nanoTime() + 60_000_000_000L);
+        Assert.assertEquals(result.getStatus(), SolveResult.Status.SOLVED);
+    }
 }
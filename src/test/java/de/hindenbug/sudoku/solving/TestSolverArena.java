@@ -0,0 +1,113 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.generating.Difficulty;
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Layout;
+import de.hindenbug.sudoku.model.Sudoku;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestSolverArena
+{
+    @Test
+    public void testSolvePacked()
+    {
+        List<Grid> puzzles = Generator.generate(Difficulty.EVIL, 50, 17);
+        byte[] packed = pack(puzzles);
+        byte[] solutions = new byte[packed.length];
+
+        SolverArena arena = SolverArena.current();
+        for (int i = 0; i < puzzles.size(); i++)
+        {
+            Assert.assertEquals(arena.solve(Layout.classic(9), packed, i * 81, solutions, i * 81),
+                    SolveResult.Status.SOLVED);
+            Grid solution = Grid.of(9, Arrays.copyOfRange(solutions, i * 81, (i + 1) * 81));
+            Assert.assertEquals(solution, new BacktrackingEngine().solve(puzzles.get(i)).getSolution());
+        }
+
+        packed[1] = packed[0] = 1;
+        Assert.assertEquals(arena.solve(Layout.classic(9), packed, 0, solutions, 0), SolveResult.Status.INVALID);
+    }
+
+    @Test
+    public void testReuseBoard()
+    {
+        List<Grid> puzzles = Generator.generate(Difficulty.MEDIUM, 2, 5);
+        byte[] packed = pack(puzzles);
+        SolverArena arena = SolverArena.current();
+
+        Sudoku board = arena.loadBoard(Layout.classic(9), packed, 0);
+        new Solver(new NakedOneStrategy(), new ExamineStrategy()).solve(board);
+        Assert.assertTrue(board.isSolved());
+
+        Assert.assertSame(arena.loadBoard(Layout.classic(9), packed, 81), board);
+        Assert.assertEquals(Grid.of(board), puzzles.get(1));
+    }
+
+    @Test
+    public void testNoAllocation()
+    {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+            throw new SkipException("allocation counter not available");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled())
+            throw new SkipException("allocation counter not available");
+
+        List<Grid> puzzles = Generator.generate(Difficulty.EVIL, 500, 23);
+        byte[] packed = pack(puzzles);
+        byte[] solutions = new byte[packed.length];
+        Layout layout = Layout.classic(9);
+        SolverArena arena = SolverArena.current();
+        long threadId = Thread.currentThread().getId();
+
+        long allocated = 0;
+        for (int round = 0; round < 5; round++)
+        {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < puzzles.size(); i++)
+                arena.solve(layout, packed, i * 81, solutions, i * 81);
+            allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        }
+        // the counter itself may allocate a few bytes, but nothing per puzzle
+        Assert.assertTrue(allocated < puzzles.size(), "allocated " + allocated + " bytes");
+    }
+
+    @Test
+    public void testSolverUsesBoard()
+    {
+        List<Grid> puzzles = Generator.generate(Difficulty.HARD, 20, 29);
+        Solver solver = new Solver(new NakedOneStrategy(), new ExamineStrategy(), new SubsetAndFishStrategy());
+        Assert.assertTrue(solver.solve(puzzles.get(0)).isSolved());
+
+        Sudoku board = SolverArena.current().loadBoard(Layout.classic(9), pack(puzzles), 0);
+        long creations = SolverArena.getBoardCreationCount();
+        for (Grid puzzle : puzzles)
+        {
+            // a new solver per puzzle must not leave its strategies listening to the board
+            SolveResult result = new Solver(new ExamineStrategy()).solve(puzzle);
+            Assert.assertEquals(result.getSolution(), new BacktrackingEngine().solve(puzzle).getSolution());
+            Assert.assertEquals(solver.solve(puzzle).getSolution(), result.getSolution());
+        }
+        Assert.assertEquals(SolverArena.getBoardCreationCount(), creations);
+        Assert.assertSame(SolverArena.current().loadBoard(Layout.classic(9), pack(puzzles), 0), board);
+
+        // a puzzle of another size replaces the board
+        Grid large = Grid.of(16, new byte[256]);
+        Assert.assertTrue(solver.solve(large).isSolved());
+        Assert.assertTrue(solver.solve(puzzles.get(0)).isSolved());
+    }
+
+    private byte[] pack(List<Grid> puzzles)
+    {
+        byte[] packed = new byte[puzzles.size() * 81];
+        for (int i = 0; i < puzzles.size(); i++)
+            System.arraycopy(puzzles.get(i).toBytes(), 0, packed, i * 81, 81);
+        return packed;
+    }
+}
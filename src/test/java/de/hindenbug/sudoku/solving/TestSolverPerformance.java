@@ -0,0 +1,328 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.generating.Difficulty;
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Sudoku;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Performance regression suite, run by <code>src/test/conf/testng-performance.xml</code> or the maven profile
+ * <code>performance</code>, not by the unit tests. Every engine solves every corpus and the median, trimmed mean and
+ * 99th percentile of the solve time, the nodes and the allocated bytes per solve are compared with the baseline in
+ * <code>src/test/conf/performance-baseline.properties</code>. A value may exceed its baseline by the tolerance of its
+ * kind, a factor, or by the slack of its kind, an absolute amount, whichever is larger. All exceeded budgets are
+ * reported together.
+ * <p>
+ * The corpus is solved in several rounds after the warm up. The times of all rounds are pooled, while the bytes are
+ * those of the round that allocated least, so that allocations done once, like the growth of a buffer, do not count.
+ * Before its first corpus every engine solves all corpora for {@value #WARM_UP_ROUNDS} rounds, so the first corpus
+ * is not measured while the code of the others is still compiled.
+ * The 99th percentile has its own, looser tolerance and slack <code>p99</code> and is only checked if the pooled
+ * rounds have at least {@value #MIN_P99_SAMPLES} solves, so it is not decided by the slowest few solves.
+ * <p>
+ * The <code>strategies</code> tier runs its strategies on the board of the {@link SolverArena}, so besides its
+ * baseline a solve must allocate less than a new {@link Sudoku} of the puzzle would.
+ * <p>
+ * The baseline of the times is the largest value of {@value #RECORD_RUNS} runs. Between runs of the suite on the
+ * same machine the median and the trimmed mean of the backtracking tiers differ by up to 1.5 times, those of the
+ * <code>sat</code> and <code>strategies</code> tiers, that allocate on every solve and so depend on where the young
+ * collections fall, by up to 2.3 times. The time tolerance of 2.0 on the largest of the recorded runs covers this
+ * spread and still reports a solver that became twice as slow. The 99th percentile of these tiers is either a slow
+ * solve or a young collection of about 4 ms, depending on the run, so its slack of 5 ms only reports tails beyond
+ * a collection.
+ * <p>
+ * With <code>-Dperformance.record=true</code> the suite measures every corpus in several runs and writes the largest
+ * value of the runs to the baseline instead.
+ */
+public class TestSolverPerformance
+{
+    private static final Logger LOG = LoggerFactory.getLogger(TestSolverPerformance.class);
+
+    private static final Path BASELINE = Paths.get("src/test/conf/performance-baseline.properties");
+    private static final boolean RECORD = Boolean.getBoolean("performance.record");
+    private static final int WARM_UP_ROUNDS = 10;
+    private static final int MEASURE_ROUNDS = 5;
+    private static final int RECORD_RUNS = 5;
+    /*
+    fraction of the fastest and of the slowest solves left out of the trimmed mean
+     */
+    private static final double TRIM = 0.1;
+    private static final int MIN_P99_SAMPLES = 1000;
+    private static final int GENERATED_COUNT = 200;
+    /*
+    the classic boards of TestSolver are solved this often, so their percentiles are stable
+     */
+    private static final int BOARD_REPEATS = 200;
+
+    private final Properties baseline = new Properties();
+    private final Map<String, String> measured = new TreeMap<>();
+    private Map<String, List<Grid>> corpora;
+
+    @BeforeClass(alwaysRun = true)
+    public void loadCorpora() throws IOException
+    {
+        if (Files.exists(BASELINE))
+        {
+            try (Reader reader = Files.newBufferedReader(BASELINE, StandardCharsets.UTF_8))
+            {
+                baseline.load(reader);
+            }
+        }
+
+        corpora = new LinkedHashMap<>();
+        corpora.put("board-simple",
+                repeat("780006000149007305230001009000000000912003840004082006057060910000030250400005600"));
+        corpora.put("board-medium",
+                repeat("530070000600195000098000060800060003400803001700020006060000280000419005000080070"));
+        corpora.put("board-hard",
+                repeat("600200000050060100090004000000300908902070304704008000000800060001030040000009005"));
+        corpora.put("board-evil",
+                repeat("030000000000195000008000060800060000400800001000020000060000280000419005000000070"));
+        for (Difficulty difficulty : Difficulty.values())
+        {
+            corpora.put("generated-" + difficulty.name().toLowerCase(),
+                    Generator.generate(difficulty, GENERATED_COUNT, 42));
+        }
+    }
+
+    private static List<Grid> repeat(String line)
+    {
+        Grid grid = Grid.parse(line);
+        List<Grid> grids = new ArrayList<>(BOARD_REPEATS);
+        for (int i = 0; i < BOARD_REPEATS; i++)
+            grids.add(grid);
+        return grids;
+    }
+
+    @DataProvider(name = "engines")
+    public Object[][] engines()
+    {
+        Supplier<Solver> backtracking = () -> new Solver(new BacktrackingEngine());
+        Supplier<Solver> sat = () -> new Solver(new SatEngine());
+        Supplier<Solver> strategies = () -> new Solver(new BacktrackingEngine(), new NakedOneStrategy(),
+                new ExamineStrategy(), new LastManStandingStrategy());
+        return new Object[][]{
+                {"backtracking", backtracking},
+                {"sat", sat},
+                {"strategies", strategies}
+        };
+    }
+
+    @Test(groups = "performance", dataProvider = "engines")
+    public void testBudgets(String engine, Supplier<Solver> solverFactory)
+    {
+        List<String> exceeded = new ArrayList<>();
+        StringBuilder report = new StringBuilder(String.format("%n%-28s %12s %12s %12s %12s %12s",
+                engine, "median us", "trimmed us", "p99 us", "nodes", "bytes"));
+        Solver warmUp = solverFactory.get();
+        for (int round = 0; round < WARM_UP_ROUNDS; round++)
+        {
+            for (List<Grid> puzzles : corpora.values())
+            {
+                for (Grid puzzle : puzzles)
+                    warmUp.solve(puzzle);
+            }
+        }
+        for (Map.Entry<String, List<Grid>> corpus : corpora.entrySet())
+        {
+            Measurement measurement = measure(solverFactory.get(), corpus.getValue());
+            for (int run = 1; RECORD && run < RECORD_RUNS; run++)
+                measurement = measurement.max(measure(solverFactory.get(), corpus.getValue()));
+            String key = engine + "." + corpus.getKey();
+            report.append(String.format("%n%-28s %12.1f %12.1f %12.1f %12.1f %12d", corpus.getKey(),
+                    measurement.medianNanos / 1000.0, measurement.trimmedNanos / 1000.0,
+                    measurement.p99Nanos / 1000.0, measurement.nodes, measurement.bytes));
+            record(key + ".medianNanos", measurement.medianNanos);
+            record(key + ".trimmedNanos", measurement.trimmedNanos);
+            record(key + ".p99Nanos", measurement.p99Nanos);
+            record(key + ".nodes", (long) Math.ceil(measurement.nodes));
+            record(key + ".bytes", measurement.bytes);
+
+            check(exceeded, key + ".medianNanos", measurement.medianNanos, "time");
+            check(exceeded, key + ".trimmedNanos", measurement.trimmedNanos, "time");
+            if (measurement.sampleCount >= MIN_P99_SAMPLES)
+                check(exceeded, key + ".p99Nanos", measurement.p99Nanos, "p99");
+            check(exceeded, key + ".nodes", measurement.nodes, "nodes");
+            check(exceeded, key + ".bytes", measurement.bytes, "bytes");
+            if (engine.equals("strategies"))
+            {
+                long sudokuBytes = sudokuBytes(corpus.getValue());
+                if (measurement.bytes >= sudokuBytes)
+                {
+                    exceeded.add(String.format("%n  %s: %d bytes per solve, not below the %d bytes of a sudoku", key,
+                            measurement.bytes, sudokuBytes));
+                }
+            }
+        }
+        LOG.info(report.toString());
+        if (!RECORD)
+            Assert.assertTrue(exceeded.isEmpty(), "budgets exceeded:" + String.join("", exceeded) + report);
+    }
+
+    /**
+     * Solves the corpus after a few rounds of warm up and measures each solve of the following rounds.
+     */
+    private static Measurement measure(Solver solver, List<Grid> puzzles)
+    {
+        for (int round = 0; round < WARM_UP_ROUNDS; round++)
+        {
+            for (Grid puzzle : puzzles)
+                solver.solve(puzzle);
+        }
+
+        long[] nanos = new long[MEASURE_ROUNDS * puzzles.size()];
+        long nodes = 0;
+        long bytes = Long.MAX_VALUE;
+        int unsolved = -1;
+        for (int round = 0; round < MEASURE_ROUNDS; round++)
+        {
+            long roundNodes = 0;
+            long roundBytes = allocatedBytes();
+            for (int i = 0; i < puzzles.size(); i++)
+            {
+                long time = System.nanoTime();
+                SolveResult result = solver.solve(puzzles.get(i));
+                nanos[round * puzzles.size() + i] = System.nanoTime() - time;
+                roundNodes += result.getStepCount();
+                if (!result.isSolved())
+                    unsolved = i;
+            }
+            bytes = Math.min(bytes, allocatedBytes() - roundBytes);
+            nodes = roundNodes;
+        }
+        Assert.assertEquals(unsolved, -1, "puzzle not solved");
+
+        Arrays.sort(nanos);
+        int trimmed = (int) (nanos.length * TRIM);
+        long sum = 0;
+        for (int i = trimmed; i < nanos.length - trimmed; i++)
+            sum += nanos[i];
+        return new Measurement(nanos[nanos.length / 2], sum / (nanos.length - 2 * trimmed),
+                nanos[(int) Math.ceil(nanos.length * 0.99) - 1], nanos.length, (double) nodes / puzzles.size(),
+                bytes / puzzles.size());
+    }
+
+    /**
+     * Returns the bytes that a {@link Sudoku} of a puzzle of the corpus costs, the least of several rounds.
+     */
+    private static long sudokuBytes(List<Grid> puzzles)
+    {
+        long bytes = Long.MAX_VALUE;
+        long fieldCount = 0;
+        for (int round = 0; round < WARM_UP_ROUNDS; round++)
+        {
+            long roundBytes = allocatedBytes();
+            for (Grid puzzle : puzzles)
+                fieldCount += puzzle.toSudoku().size();
+            bytes = Math.min(bytes, allocatedBytes() - roundBytes);
+        }
+        Assert.assertTrue(fieldCount > 0);
+        return bytes / puzzles.size();
+    }
+
+    private static long allocatedBytes()
+    {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private void record(String key, long value)
+    {
+        measured.put(key, Long.toString(value));
+    }
+
+    /**
+     * Adds a line to the exceeded budgets if the value is above the baseline times the tolerance of its kind and
+     * above the baseline plus the slack of its kind. Values without baseline are not checked.
+     */
+    private void check(List<String> exceeded, String key, double value, String kind)
+    {
+        String limit = baseline.getProperty(key);
+        if (limit == null)
+            return;
+        double tolerance = Double.parseDouble(baseline.getProperty("tolerance." + kind, "1.0"));
+        double slack = Double.parseDouble(baseline.getProperty("slack." + kind, "0"));
+        double budget = Math.max(Long.parseLong(limit) * tolerance, Long.parseLong(limit) + slack);
+        if (value > budget)
+        {
+            exceeded.add(String.format("%n  %s: %.0f > %.0f (baseline %s x %.2f or + %.0f)", key, value, budget,
+                    limit, tolerance, slack));
+        }
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void writeBaseline() throws IOException
+    {
+        if (!RECORD)
+            return;
+        Map<String, String> values = new TreeMap<>();
+        for (String key : baseline.stringPropertyNames())
+        {
+            if (key.startsWith("tolerance.") || key.startsWith("slack."))
+                values.put(key, baseline.getProperty(key));
+        }
+        values.putAll(measured);
+        try (Writer writer = Files.newBufferedWriter(BASELINE, StandardCharsets.UTF_8))
+        {
+            writer.write("# performance baseline, written by TestSolverPerformance with -Dperformance.record=true\n");
+            for (Map.Entry<String, String> entry : values.entrySet())
+                writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+        }
+    }
+
+    private static final class Measurement
+    {
+        private final long medianNanos;
+        private final long trimmedNanos;
+        private final long p99Nanos;
+        private final int sampleCount;
+        private final double nodes;
+        private final long bytes;
+
+        private Measurement(long medianNanos, long trimmedNanos, long p99Nanos, int sampleCount, double nodes,
+                long bytes)
+        {
+            this.medianNanos = medianNanos;
+            this.trimmedNanos = trimmedNanos;
+            this.p99Nanos = p99Nanos;
+            this.sampleCount = sampleCount;
+            this.nodes = nodes;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Returns the larger value of this and the other measurement for each value.
+         */
+        private Measurement max(Measurement other)
+        {
+            return new Measurement(Math.max(medianNanos, other.medianNanos),
+                    Math.max(trimmedNanos, other.trimmedNanos), Math.max(p99Nanos, other.p99Nanos),
+                    Math.min(sampleCount, other.sampleCount), Math.max(nodes, other.nodes),
+                    Math.max(bytes, other.bytes));
+        }
+    }
+}
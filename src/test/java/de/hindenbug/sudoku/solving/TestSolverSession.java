@@ -0,0 +1,81 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.model.Sudoku;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestSolverSession
+{
+    private SolverSession session;
+
+    @BeforeMethod
+    public void setupSession()
+    {
+        session = new SolverSession(new Sudoku(new int[][]{
+                {4, 0, 0, 0, 5, 0, 0, 0, 1},
+                {7, 0, 1, 2, 0, 4, 8, 0, 0},
+                {0, 2, 3, 8, 0, 0, 0, 0, 0},
+                {9, 0, 7, 0, 8, 0, 5, 0, 2},
+                {0, 3, 0, 0, 0, 0, 0, 4, 0},
+                {2, 0, 6, 0, 4, 0, 9, 0, 3},
+                {0, 0, 0, 0, 0, 6, 2, 1, 0},
+                {0, 0, 9, 1, 0, 3, 4, 0, 8},
+                {1, 0, 0, 0, 9, 0, 0, 0, 6}
+        }));
+    }
+
+    @Test
+    public void testCandidates()
+    {
+        Assert.assertEquals(session.getCandidates(0, 1), bits(6, 8, 9));
+        session.set(0, 2, 8);
+        Assert.assertEquals(session.getCandidates(0, 1), bits(6, 9));
+        session.clear(0, 2);
+        Assert.assertEquals(session.getCandidates(0, 1), bits(6, 8, 9));
+    }
+
+    @Test
+    public void testConflictAndUndo()
+    {
+        session.set(0, 1, 4);
+        Assert.assertTrue(session.hasConflicts());
+        Assert.assertTrue(session.isConflict(0, 1));
+        Assert.assertTrue(session.isConflict(0, 0));
+        Assert.assertFalse(session.isConflict(1, 0));
+        Assert.assertFalse(session.isSolvable());
+
+        Assert.assertTrue(session.undo());
+        Assert.assertFalse(session.hasConflicts());
+        Assert.assertEquals(session.getNumber(0, 1), 0);
+        Assert.assertTrue(session.isSolvable());
+        Assert.assertFalse(session.undo());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testGivenNotEditable()
+    {
+        session.set(0, 0, 3);
+    }
+
+    @Test
+    public void testHintsSolve()
+    {
+        Hint hint;
+        while ((hint = session.getHint()) != null)
+        {
+            session.set(hint.getRow(), hint.getColumn(), hint.getNumber());
+            Assert.assertTrue(session.isSolvable());
+        }
+        Assert.assertTrue(session.isSolved());
+        Assert.assertTrue(session.toGrid().toSudoku().isSolved());
+    }
+
+    private static long bits(int... numbers)
+    {
+        long result = 0;
+        for (int number : numbers)
+            result |= 1L << (number - 1);
+        return result;
+    }
+}
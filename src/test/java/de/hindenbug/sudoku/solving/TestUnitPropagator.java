@@ -0,0 +1,109 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.model.Field;
+import de.hindenbug.sudoku.model.Grid;
+import de.hindenbug.sudoku.model.Sudoku;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+public class TestUnitPropagator
+{
+    private static final Grid SOLUTION = new Generator(16, 7).generateSolution();
+
+    @Test
+    public void testNakedOneAsSequential()
+    {
+        Grid puzzle = puzzle(35);
+        NakedOneStrategy sequential = new NakedOneStrategy();
+        sequential.setParallelSize(Integer.MAX_VALUE);
+        NakedOneStrategy parallel = new NakedOneStrategy();
+        parallel.setParallelSize(1);
+
+        Sudoku expected = candidates(puzzle);
+        Set<Field> expectedFields = new HashSet<>(sequential.removeCandidates(expected));
+        Sudoku sudoku = candidates(puzzle);
+        Set<Field> fields = new HashSet<>(parallel.removeCandidates(sudoku));
+
+        Assert.assertFalse(fields.isEmpty());
+        Assert.assertEquals(fields, expectedFields);
+        Assert.assertEquals(Grid.of(sudoku), Grid.of(expected));
+        for (Field field : sudoku)
+        {
+            if (!field.isFix())
+                Assert.assertEquals(field.getCandidateCount(),
+                        expected.getField(field.getRow(), field.getColumn()).getCandidateCount());
+        }
+    }
+
+    @Test
+    public void testLastManStanding()
+    {
+        Grid puzzle = puzzle(20);
+        LastManStandingStrategy parallel = new LastManStandingStrategy();
+        parallel.setParallelSize(1);
+        Sudoku sudoku = candidates(puzzle);
+        Collection<Field> fields = parallel.removeCandidates(sudoku);
+
+        Assert.assertFalse(fields.isEmpty());
+        for (Field field : fields)
+            Assert.assertEquals(field.getNumber(), SOLUTION.get(field.getRow(), field.getColumn()));
+    }
+
+    @Test
+    public void testDeterministic() throws InterruptedException, ExecutionException
+    {
+        Grid puzzle = puzzle(40);
+        Grid expected = propagate(puzzle);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            for (int i = 0; i < 10; i++)
+                Assert.assertEquals(pool.submit(() -> propagate(puzzle)).get(), expected);
+        } finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    private static Grid propagate(Grid puzzle)
+    {
+        NakedOneStrategy naked = new NakedOneStrategy();
+        naked.setParallelSize(1);
+        LastManStandingStrategy lastMan = new LastManStandingStrategy();
+        lastMan.setParallelSize(1);
+        Sudoku sudoku = candidates(puzzle);
+        naked.removeCandidates(sudoku);
+        lastMan.removeCandidates(sudoku);
+        return Grid.of(sudoku);
+    }
+
+    /**
+     * Returns the solution with target percentage of the fields emptied.
+     */
+    private static Grid puzzle(int percent)
+    {
+        byte[] cells = SOLUTION.toBytes();
+        Random random = new Random(3);
+        for (int cell = 0; cell < cells.length; cell++)
+        {
+            if (random.nextInt(100) < percent)
+                cells[cell] = 0;
+        }
+        return Grid.of(SOLUTION.size(), cells);
+    }
+
+    private static Sudoku candidates(Grid puzzle)
+    {
+        Sudoku sudoku = puzzle.toSudoku();
+        sudoku.buildCandidates();
+        return sudoku;
+    }
+}
@@ -0,0 +1,105 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.generating.Difficulty;
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.model.Grid;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+public class TestJdkFlowAdapters
+{
+    @Test
+    public void testSolvesJdkPublisher() throws Exception
+    {
+        List<Grid> puzzles = Generator.generate(Difficulty.MEDIUM, 50, 11);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try (SubmissionPublisher<Grid> upstream = new SubmissionPublisher<>(executor, 4))
+        {
+            CollectingSubscriber subscriber = new CollectingSubscriber();
+            JdkFlowAdapters.solveAll(new Solver(), upstream, executor, 4).subscribe(subscriber);
+            for (Grid puzzle : puzzles)
+                upstream.submit(puzzle);
+            upstream.close();
+
+            Assert.assertNull(subscriber.done.get(10, TimeUnit.SECONDS));
+            Assert.assertEquals(subscriber.results.size(), puzzles.size());
+            for (int i = 0; i < puzzles.size(); i++)
+            {
+                Assert.assertEquals(subscriber.results.get(i).getPuzzle(), puzzles.get(i));
+                Assert.assertTrue(subscriber.results.get(i).isSolved());
+            }
+        } finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testInvalidRequestFails() throws Exception
+    {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (SubmissionPublisher<Grid> upstream = new SubmissionPublisher<>(executor, 4))
+        {
+            CollectingSubscriber subscriber = new CollectingSubscriber()
+            {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription)
+                {
+                    subscription.request(0);
+                }
+            };
+            JdkFlowAdapters.solveAll(new Solver(), upstream, executor, 2).subscribe(subscriber);
+
+            Assert.assertTrue(subscriber.done.get(10, TimeUnit.SECONDS) instanceof IllegalArgumentException);
+        } finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Requests one result after the other and completes with the error or <code>null</code>.
+     */
+    private static class CollectingSubscriber implements Flow.Subscriber<SolveResult>
+    {
+        private final List<SolveResult> results = Collections.synchronizedList(new ArrayList<>());
+        private final CompletableFuture<Throwable> done = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription)
+        {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(SolveResult item)
+        {
+            results.add(item);
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+            done.complete(throwable);
+        }
+
+        @Override
+        public void onComplete()
+        {
+            done.complete(null);
+        }
+    }
+}
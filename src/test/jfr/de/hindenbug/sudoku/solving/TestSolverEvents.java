@@ -0,0 +1,59 @@
+package de.hindenbug.sudoku.solving;
+
+import de.hindenbug.sudoku.generating.Difficulty;
+import de.hindenbug.sudoku.generating.Generator;
+import de.hindenbug.sudoku.model.Grid;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+public class TestSolverEvents
+{
+    @Test
+    public void testEventsAreRecorded() throws IOException
+    {
+        List<Grid> puzzles = Generator.generate(Difficulty.HARD, 5, 13);
+        Path file = Files.createTempFile("solver", ".jfr");
+        try (Recording recording = new Recording())
+        {
+            recording.enable("de.hindenbug.sudoku.Solve").withThreshold(Duration.ZERO);
+            recording.enable("de.hindenbug.sudoku.Strategy").withThreshold(Duration.ZERO);
+            recording.start();
+            Solver solver = new Solver(new NakedOneStrategy(), new LastManStandingStrategy());
+            for (Grid puzzle : puzzles)
+                solver.solve(puzzle);
+            recording.stop();
+            recording.dump(file);
+
+            int solves = 0;
+            long fixes = 0;
+            for (RecordedEvent event : RecordingFile.readAllEvents(file))
+            {
+                if (event.getEventType().getName().equals("de.hindenbug.sudoku.Solve"))
+                {
+                    solves++;
+                    Assert.assertEquals(event.getString("status"), "SOLVED");
+                    Assert.assertEquals(event.getString("engine"), "BacktrackingEngine");
+                    Assert.assertEquals(event.getInt("size"), 9);
+                } else if (event.getEventType().getName().equals("de.hindenbug.sudoku.Strategy"))
+                {
+                    fixes += event.getInt("fixCount");
+                }
+            }
+            Assert.assertEquals(solves, puzzles.size());
+            StrategyStats stats = solver.getStrategyStats();
+            Assert.assertEquals(fixes, stats.getFixCount(0) + stats.getFixCount(1));
+        } finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+}